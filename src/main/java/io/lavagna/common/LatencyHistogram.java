@@ -0,0 +1,107 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.common;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import lombok.Getter;
+
+/**
+ * Thread safe latency histogram with fixed buckets, from 1 millisecond up to 10 seconds.
+ */
+public class LatencyHistogram {
+
+	private static final long[] BOUNDS_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000 };
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MILLIS.length + 1);
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	public void record(long nanos) {
+		long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+		int i = 0;
+		while (i < BOUNDS_MILLIS.length && millis >= BOUNDS_MILLIS[i]) {
+			i++;
+		}
+		buckets.incrementAndGet(i);
+		totalNanos.addAndGet(nanos);
+		long max = maxNanos.get();
+		while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+	}
+
+	public Snapshot snapshot() {
+		return new Snapshot(this);
+	}
+
+	/**
+	 * Point in time copy of the histogram: the bucket keys are the exclusive upper bound in milliseconds ("+Inf" for
+	 * the last one).
+	 */
+	@Getter
+	public static class Snapshot {
+		private final long count;
+		private final double averageMillis;
+		private final double maxMillis;
+		private final long p50Millis;
+		private final long p95Millis;
+		private final long p99Millis;
+		private final Map<String, Long> buckets;
+
+		private Snapshot(LatencyHistogram histogram) {
+			long[] counts = new long[histogram.buckets.length()];
+			long total = 0;
+			Map<String, Long> b = new LinkedHashMap<>();
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = histogram.buckets.get(i);
+				total += counts[i];
+				b.put(i < BOUNDS_MILLIS.length ? Long.toString(BOUNDS_MILLIS[i]) : "+Inf", counts[i]);
+			}
+			this.count = total;
+			this.averageMillis = total == 0 ? 0 : histogram.totalNanos.get() / (total * 1000000d);
+			this.maxMillis = histogram.maxNanos.get() / 1000000d;
+			this.p50Millis = percentile(counts, total, 0.50);
+			this.p95Millis = percentile(counts, total, 0.95);
+			this.p99Millis = percentile(counts, total, 0.99);
+			this.buckets = Collections.unmodifiableMap(b);
+		}
+
+		/**
+		 * Upper bound of the bucket containing the given percentile, -1 if it falls in the last, unbounded, one.
+		 */
+		private static long percentile(long[] counts, long total, double percentile) {
+			if (total == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(total * percentile);
+			long seen = 0;
+			for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return BOUNDS_MILLIS[i];
+				}
+			}
+			return -1;
+		}
+	}
+}
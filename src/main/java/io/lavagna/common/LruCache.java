@@ -0,0 +1,122 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.common;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small thread safe LRU cache with an optional time to live.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class LruCache<K, V> {
+
+	private final long ttlMillis;
+	private final Map<K, Entry<V>> entries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param maxSize
+	 *            maximum number of entries, the least recently used are evicted first
+	 * @param ttlMillis
+	 *            time to live of an entry, 0 for no expiration
+	 */
+	public LruCache(final int maxSize, long ttlMillis) {
+		this.ttlMillis = ttlMillis;
+		this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Return the cached value or null if not present or expired.
+	 *
+	 * @param key
+	 * @return
+	 */
+	public synchronized V get(K key) {
+		Entry<V> e = entries.get(key);
+		if (e == null || isExpired(e)) {
+			if (e != null) {
+				entries.remove(key);
+			}
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return e.value;
+	}
+
+	public synchronized void put(K key, V value) {
+		entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+	}
+
+	public synchronized void remove(K key) {
+		entries.remove(key);
+	}
+
+	/**
+	 * Remove all the entries whose value is equal to the given one.
+	 *
+	 * @param value
+	 */
+	public synchronized void removeValue(V value) {
+		for (Iterator<Entry<V>> it = entries.values().iterator(); it.hasNext();) {
+			if (it.next().value.equals(value)) {
+				it.remove();
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private boolean isExpired(Entry<V> e) {
+		return ttlMillis > 0 && System.currentTimeMillis() - e.creation > ttlMillis;
+	}
+
+	private static class Entry<V> {
+		private final V value;
+		private final long creation;
+
+		Entry(V value, long creation) {
+			this.value = value;
+			this.creation = creation;
+		}
+	}
+}
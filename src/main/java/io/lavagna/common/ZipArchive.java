@@ -0,0 +1,98 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Random access to the entries of a zip archive: the central directory is read once when opening, then each entry
+ * is inflated only when requested. Safe to be read by multiple threads.
+ */
+public class ZipArchive implements Closeable {
+
+	private final ZipFile zipFile;
+	private final List<String> names = new ArrayList<>();
+
+	public ZipArchive(Path path) throws IOException {
+		this.zipFile = new ZipFile(path.toFile(), StandardCharsets.UTF_8);
+		Enumeration<? extends ZipEntry> entries = zipFile.entries();
+		while (entries.hasMoreElements()) {
+			names.add(entries.nextElement().getName());
+		}
+	}
+
+	public boolean contains(String name) {
+		return zipFile.getEntry(name) != null;
+	}
+
+	/**
+	 * Open the content of the given entry, the caller must close the returned stream.
+	 *
+	 * @param name
+	 * @return
+	 * @throws IOException
+	 */
+	public InputStream open(String name) throws IOException {
+		ZipEntry entry = zipFile.getEntry(name);
+		if (entry == null) {
+			throw new IOException("missing entry " + name);
+		}
+		return zipFile.getInputStream(entry);
+	}
+
+	public <T> T readObject(String name, TypeToken<T> t) {
+		try (InputStream is = open(name)) {
+			return Json.GSON.fromJson(new InputStreamReader(is, StandardCharsets.UTF_8), t.getType());
+		} catch (IOException ioe) {
+			throw new IllegalStateException("error while reading data for " + name, ioe);
+		}
+	}
+
+	/**
+	 * Read all the entries with a name matching the given regex, in the order of the archive.
+	 *
+	 * @param regex
+	 * @param t
+	 * @return
+	 */
+	public <T> List<T> readMatchingObjects(String regex, TypeToken<T> t) {
+		List<T> res = new ArrayList<>();
+		for (String name : names) {
+			if (name.matches("^" + regex + "$")) {
+				res.add(readObject(name, t));
+			}
+		}
+		return res;
+	}
+
+	@Override
+	public void close() throws IOException {
+		zipFile.close();
+	}
+}
@@ -21,15 +21,21 @@ import io.lavagna.web.security.CSFRFilter;
 import io.lavagna.web.security.HSTSFilter;
 import io.lavagna.web.security.RememberMeFilter;
 import io.lavagna.web.security.SecurityFilter;
+import io.lavagna.web.security.UploadSizeFilter;
 
+import java.io.IOException;
 import java.util.Collections;
 
 import javax.servlet.Filter;
+import javax.servlet.FilterChain;
 import javax.servlet.MultipartConfigElement;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRegistration.Dynamic;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.SessionTrackingMode;
+import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.web.filter.ShallowEtagHeaderFilter;
 import org.springframework.web.servlet.support.AbstractAnnotationConfigDispatcherServletInitializer;
@@ -62,6 +68,9 @@ public class DispatcherServletInitializer extends AbstractAnnotationConfigDispat
 		//definition order = execution order, the first executed filter is HSTSFilter
 		addFilter(servletContext, "HSTSFilter", HSTSFilter.class, "/*");
 		
+		//before the CSFRFilter, that may read the form parameters and thus parse the multipart uploads
+		addFilter(servletContext, "UploadSizeFilter", UploadSizeFilter.class, "/api/card/*");
+		
 		addFilter(servletContext, "CSFRFilter", CSFRFilter.class, "/*");
 		
 		addFilter(servletContext, "RememberMeFilter", RememberMeFilter.class, "/*");
@@ -70,11 +79,11 @@ public class DispatcherServletInitializer extends AbstractAnnotationConfigDispat
 		
 		addFilter(servletContext, "SecurityFilter", SecurityFilter.class, "/*");
 		
-		addFilter(servletContext, "ETagFilter", ShallowEtagHeaderFilter.class, "*.js", "*.css",//
+		addFilter(servletContext, "ETagFilter", BundleSkippingEtagFilter.class, "*.js", "*.css",//
                 "/", "/project/*", "/admin/*", "/me/",//
                 "*.html", "*.woff", "*.eot", "*.svg", "*.ttf");
 		
-		addFilter(servletContext, "GzipFilter", GzipFilter.class, "*.js", "*.css",//
+		addFilter(servletContext, "GzipFilter", BundleSkippingGzipFilter.class, "*.js", "*.css",//
                 "/", "/project/*", "/admin/*", "/me/",//
                 "/api/self", "/api/board/*", "/api/project/*");
 		
@@ -90,6 +99,35 @@ public class DispatcherServletInitializer extends AbstractAnnotationConfigDispat
         hstsFilter.addMappingForUrlPatterns(null, false, urlPatterns);
 	}
 
+	/**
+	 * The js and css bundles of ResourceController are already compressed and have their own ETag, the other js and
+	 * css files still go through the filters.
+	 */
+	static boolean isBundle(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		return (path.startsWith("/resource/app-") && path.endsWith(".js"))
+				|| (path.startsWith("/css/all-") && path.endsWith(".css"));
+	}
+
+	public static class BundleSkippingEtagFilter extends ShallowEtagHeaderFilter {
+		@Override
+		protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
+			return isBundle(request);
+		}
+	}
+
+	public static class BundleSkippingGzipFilter extends GzipFilter {
+		@Override
+		public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException,
+				ServletException {
+			if (request instanceof HttpServletRequest && isBundle((HttpServletRequest) request)) {
+				chain.doFilter(request, response);
+			} else {
+				super.doFilter(request, response, chain);
+			}
+		}
+	}
+
 	@Override
 	protected void customizeRegistration(Dynamic registration) {
 
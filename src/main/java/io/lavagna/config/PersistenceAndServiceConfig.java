@@ -16,12 +16,18 @@
  */
 package io.lavagna.config;
 
+import io.lavagna.query.CardDataQuery;
+import io.lavagna.service.BlobStore;
+import io.lavagna.service.DatabaseBlobStore;
+import io.lavagna.service.FileSystemBlobStore;
 
+import java.nio.file.Paths;
 import java.sql.SQLException;
 
 import javax.sql.DataSource;
 
 import org.apache.logging.log4j.LogManager;
+import org.springframework.context.EnvironmentAware;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
@@ -37,9 +43,7 @@ import org.springframework.jdbc.support.lob.DefaultLobHandler;
 import org.springframework.jdbc.support.lob.LobHandler;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.scheduling.TaskScheduler;
-import org.springframework.scheduling.annotation.SchedulingConfigurer;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
-import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.util.ErrorHandler;
@@ -57,11 +61,13 @@ import ch.digitalfondue.npjt.QueryRepositoryScanner;
 @EnableTransactionManagement
 @ComponentScan(basePackages = { "io.lavagna.service", "io.lavagna.config.dbmanager" })
 public class PersistenceAndServiceConfig extends AbstractWebSocketMessageBrokerConfigurer implements
-		SchedulingConfigurer {
+		EnvironmentAware {
+
+	private Environment environment;
 
 	@Override
-	public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
-		taskRegistrar.setScheduler(taskScheduler());
+	public void setEnvironment(Environment environment) {
+		this.environment = environment;
 	}
 
 	@Bean
@@ -101,6 +107,20 @@ public class PersistenceAndServiceConfig extends AbstractWebSocketMessageBrokerC
 		return new QueryFactory(env.getProperty("datasource.dialect"), jdbc);
 	}
 
+	/**
+	 * With <code>blobstore.dir</code> the uploaded files are saved in the given directory, keyed by their SHA-256
+	 * digest. Without it they stay in the database. The files already in the database are moved by
+	 * {@link io.lavagna.service.BlobStoreMigrator}.
+	 */
+	@Bean
+	public BlobStore blobStore(Environment env, NamedParameterJdbcTemplate jdbc, CardDataQuery cardDataQuery) {
+		String dir = env.getProperty("blobstore.dir");
+		if (dir != null && !dir.trim().isEmpty()) {
+			return new FileSystemBlobStore(Paths.get(dir.trim()));
+		}
+		return new DatabaseBlobStore(jdbc, cardDataQuery);
+	}
+
 	@Bean
 	public LobHandler lobHander() {
 		return new DefaultLobHandler();
@@ -115,9 +135,15 @@ public class PersistenceAndServiceConfig extends AbstractWebSocketMessageBrokerC
 		return source;
 	}
 
+	/**
+	 * Shared scheduler for the short tasks. The long running jobs have their own threads, see
+	 * {@link SchedulingServiceConfig}.
+	 */
 	@Bean(destroyMethod = "shutdown")
 	public TaskScheduler taskScheduler() {
 		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		// a slow database round of the full text queue or of the event bus must not delay the websocket events
+		scheduler.setPoolSize(2);
 		scheduler.setErrorHandler(new ErrorHandler() {
 			@Override
 			public void handleError(Throwable t) {
@@ -133,8 +159,23 @@ public class PersistenceAndServiceConfig extends AbstractWebSocketMessageBrokerC
 		registry.addEndpoint("/api/socket").withSockJS().setClientLibraryUrl("../../js/sockjs.min.js");
 	}
 
+	/**
+	 * With <code>events.bus=relay</code> the events are sent to an external STOMP broker, so that they reach the
+	 * clients connected to all the nodes. The relay requires reactor-net and netty in the classpath and a broker that
+	 * accepts the "/event/..." destinations. See {@link io.lavagna.service.ClusterEventBus} for the other modes.
+	 */
 	@Override
 	public void configureMessageBroker(MessageBrokerRegistry registry) {
-		registry.enableSimpleBroker("/event");
+		if ("relay".equals(environment.getProperty("events.bus"))) {
+			registry.enableStompBrokerRelay("/event")
+					.setRelayHost(environment.getProperty("events.relay.host", "localhost"))
+					.setRelayPort(environment.getProperty("events.relay.port", Integer.class, 61613))
+					.setClientLogin(environment.getProperty("events.relay.login", "guest"))
+					.setClientPasscode(environment.getProperty("events.relay.passcode", "guest"))
+					.setSystemLogin(environment.getProperty("events.relay.login", "guest"))
+					.setSystemPasscode(environment.getProperty("events.relay.passcode", "guest"));
+		} else {
+			registry.enableSimpleBroker("/event");
+		}
 	}
 }
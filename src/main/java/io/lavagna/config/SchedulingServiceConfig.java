@@ -16,28 +16,71 @@
  */
 package io.lavagna.config;
 
+import io.lavagna.service.BlobStoreMigrator;
 import io.lavagna.service.ConfigurationRepository;
-import io.lavagna.service.MySqlFullTextSupportService;
+import io.lavagna.service.EmailOutboxService;
+import io.lavagna.service.MySqlFullTextSupportQueue;
 import io.lavagna.service.NotificationService;
 import io.lavagna.service.Scheduler;
+import io.lavagna.service.SchedulerLockService;
 import io.lavagna.service.StatisticsService;
 
+import org.apache.logging.log4j.LogManager;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.env.Environment;
-import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.util.ErrorHandler;
 
+/**
+ * The jobs can keep their thread busy for a long time (the email outbox drain is rate limited, the blob migration
+ * copies whole files), so they run on their own threads: the shared task scheduler must stay free for the short
+ * tasks, like the flush of the websocket events and the poll of the cluster event bus.
+ */
 @EnableScheduling
-public class SchedulingServiceConfig {
+public class SchedulingServiceConfig implements SchedulingConfigurer, DisposableBean {
+
+	private static final int JOB_THREADS = 4;
+
+	private final ThreadPoolTaskScheduler jobScheduler;
+
+	public SchedulingServiceConfig() {
+		jobScheduler = new ThreadPoolTaskScheduler();
+		jobScheduler.setPoolSize(JOB_THREADS);
+		jobScheduler.setThreadNamePrefix("lavagna-job-");
+		jobScheduler.setErrorHandler(new ErrorHandler() {
+			@Override
+			public void handleError(Throwable t) {
+				LogManager.getLogger().error("error while handling job", t);
+			}
+		});
+		jobScheduler.initialize();
+	}
+
+	@Override
+	public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+		taskRegistrar.setTaskScheduler(jobScheduler);
+	}
+
+	@Override
+	public void destroy() {
+		jobScheduler.shutdown();
+	}
 
 	@Bean
-	public Scheduler getScheduler(TaskScheduler taskScheduler, Environment env,
+	public Scheduler getScheduler(Environment env,
 			ConfigurationRepository configurationRepository,
-			MySqlFullTextSupportService mySqlFullTextSupportService,
+			MySqlFullTextSupportQueue mySqlFullTextSupportQueue,
 			NotificationService notificationService,
-			StatisticsService statisticsService) {
-		return new Scheduler(taskScheduler, env, configurationRepository,
-				mySqlFullTextSupportService, notificationService,
-				statisticsService);
+			StatisticsService statisticsService,
+			SchedulerLockService schedulerLockService,
+			EmailOutboxService emailOutboxService,
+			BlobStoreMigrator blobStoreMigrator) {
+		return new Scheduler(jobScheduler, env, configurationRepository,
+				mySqlFullTextSupportQueue, notificationService,
+				statisticsService, schedulerLockService, emailOutboxService, blobStoreMigrator);
 	}
 }
@@ -0,0 +1,42 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.model;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+
+/**
+ * The columns of a board in a given location with all their cards, as of the given board version.
+ */
+@Getter
+public class BoardSnapshot {
+
+	private final long version;
+	private final List<BoardColumn> columns;
+	/**
+	 * The cards by column id, sorted by order.
+	 */
+	private final Map<Integer, List<CardFullWithCounts>> cards;
+
+	public BoardSnapshot(long version, List<BoardColumn> columns, Map<Integer, List<CardFullWithCounts>> cards) {
+		this.version = version;
+		this.columns = columns;
+		this.cards = cards;
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.model;
+
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Getter;
+
+/**
+ * Changes of the content of a column, pushed to the clients that have opted in for the delta protocol so that they
+ * can patch their copy instead of fetching again the whole column.
+ * <p>
+ * The client must remove the {@link #removed} cards, fetch and add or replace the {@link #changed} ones and, if
+ * present, sort the column following {@link #order}. When the result does not match the order, the column must be
+ * reloaded.
+ * <p>
+ * Only the identifiers are pushed: the subscriptions to the websocket destinations are not authorized, so the content
+ * of the cards is fetched through the permission checked REST API.
+ */
+@Getter
+public class CardDelta {
+
+	private final List<Integer> changed;
+	private final List<Integer> removed;
+	private final List<Integer> order;
+
+	public CardDelta(List<Integer> changed, List<Integer> removed, List<Integer> order) {
+		this.changed = changed == null ? Collections.<Integer> emptyList() : changed;
+		this.removed = removed == null ? Collections.<Integer> emptyList() : removed;
+		this.order = order;
+	}
+
+	public static CardDelta changed(int cardId) {
+		return new CardDelta(Collections.singletonList(cardId), null, null);
+	}
+
+	public static CardDelta removed(List<Integer> cardIds) {
+		return new CardDelta(null, cardIds, null);
+	}
+
+	public static CardDelta reordered(List<Integer> order) {
+		return new CardDelta(null, null, order);
+	}
+}
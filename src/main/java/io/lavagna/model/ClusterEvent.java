@@ -0,0 +1,43 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.model;
+
+import lombok.Getter;
+import ch.digitalfondue.npjt.ConstructorAnnotationRowMapper.Column;
+
+/**
+ * A websocket event published by a node of the cluster, serialized by the message converter of the broker.
+ */
+@Getter
+public class ClusterEvent {
+
+	private final long id;
+	private final String destination;
+	private final String payload;
+	private final String contentType;
+	private final boolean batch;
+
+	public ClusterEvent(@Column("CLUSTER_EVENT_ID") long id, @Column("CLUSTER_EVENT_DESTINATION") String destination,
+			@Column("CLUSTER_EVENT_PAYLOAD") String payload,
+			@Column("CLUSTER_EVENT_CONTENT_TYPE") String contentType, @Column("CLUSTER_EVENT_BATCH") boolean batch) {
+		this.id = id;
+		this.destination = destination;
+		this.payload = payload;
+		this.contentType = contentType;
+		this.batch = batch;
+	}
+}
@@ -0,0 +1,38 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.model;
+
+import lombok.Getter;
+
+/**
+ * A rendered email, ready to be sent with {@link MailConfig#send(java.util.List)}.
+ */
+@Getter
+public class EmailMessage {
+
+	private final String to;
+	private final String subject;
+	private final String text;
+	private final String html;
+
+	public EmailMessage(String to, String subject, String text, String html) {
+		this.to = to;
+		this.subject = subject;
+		this.text = text;
+		this.html = html;
+	}
+}
@@ -65,6 +65,21 @@ public class EventFull {
 		}
 	}
 
+	public EventFull(Event event, String userProvider, String username, String boardShortName,
+			Integer cardSequenceNumber, String content, String labelBoardShortName, Integer labelCardSequenceNumber,
+			String labelUserProvider, String labelUsername) {
+		this.event = event;
+		this.userProvider = userProvider;
+		this.username = username;
+		this.boardShortName = boardShortName;
+		this.cardSequenceNumber = cardSequenceNumber;
+		this.content = content;
+		this.labelBoardShortName = labelBoardShortName;
+		this.labelCardSequenceNumber = labelCardSequenceNumber;
+		this.labelUserProvider = labelUserProvider;
+		this.labelUsername = labelUsername;
+	}
+
 	@Override
 	public String toString() {
 		return ToStringBuilder.reflectionToString(this);
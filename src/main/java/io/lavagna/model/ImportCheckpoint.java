@@ -0,0 +1,39 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.model;
+
+import lombok.Getter;
+import ch.digitalfondue.npjt.ConstructorAnnotationRowMapper.Column;
+
+/**
+ * Progress of a partition of a lavagna import: the next event page to process and the serialized
+ * {@link ImportContext}.
+ */
+@Getter
+public class ImportCheckpoint {
+
+	private final int partition;
+	private final int nextPage;
+	private final String context;
+
+	public ImportCheckpoint(@Column("IMPORT_CHECKPOINT_PARTITION") int partition,
+			@Column("IMPORT_CHECKPOINT_NEXT_PAGE") int nextPage, @Column("IMPORT_CHECKPOINT_CONTEXT") String context) {
+		this.partition = partition;
+		this.nextPage = nextPage;
+		this.context = context;
+	}
+}
@@ -36,4 +36,16 @@ public class ImportContext {
 	private final Set<String> importedProject = new HashSet<>();
 	private final Set<String> importedBoard = new HashSet<>();
 
+	/**
+	 * Add all the mappings of the given context: each partition of an import fills its own context.
+	 */
+	public void addAll(ImportContext other) {
+		columns.putAll(other.columns);
+		commentsId.putAll(other.commentsId);
+		actionListId.putAll(other.actionListId);
+		actionItemId.putAll(other.actionItemId);
+		fileId.putAll(other.fileId);
+		importedProject.addAll(other.importedProject);
+		importedBoard.addAll(other.importedBoard);
+	}
 }
\ No newline at end of file
@@ -38,10 +38,13 @@ public enum Key {
 	ENABLE_ANON_USER,
 	//
 	SMTP_ENABLED, SMTP_CONFIG, EMAIL_NOTIFICATION_TIMESPAN,
+	EMAIL_NOTIFICATION_DIGEST, // NONE, HOURLY or DAILY
 	//
 	TRELLO_API_KEY,
 	//
 	MAX_UPLOAD_FILE_SIZE, // for uploaded content by the user (import data is not under this limit)
 	//
+	WEBSOCKET_CARD_DELTA, // push the changed cards to the columns instead of a reload hint
+	//
 	TEST_PLACEHOLDER
 }
\ No newline at end of file
@@ -17,8 +17,14 @@
 package io.lavagna.model;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
+import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 
 import lombok.Getter;
@@ -29,6 +35,8 @@ import org.apache.logging.log4j.Logger;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.support.EncodedResource;
 import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.mail.javamail.MimeMessageHelper;
@@ -75,20 +83,67 @@ public class MailConfig {
 		toMailSender().send(new MimeMessagePreparator() {
 			@Override
 			public void prepare(MimeMessage mimeMessage) throws Exception {
-				MimeMessageHelper message = html == null ? new MimeMessageHelper(mimeMessage, "UTF-8")
-						: new MimeMessageHelper(mimeMessage, true, "UTF-8");
-				message.setSubject(subject);
-				message.setFrom(getFrom());
-				message.setTo(to);
-				if (html == null) {
-					message.setText(text, false);
-				} else {
-					message.setText(text, html);
-				}
+				MailConfig.this.prepare(mimeMessage, to, subject, text, html);
 			}
 		});
 	}
 
+	/**
+	 * Send the messages using a single connection to the server.
+	 *
+	 * @param messages
+	 * @return the messages that have not been sent
+	 */
+	public List<EmailMessage> send(List<EmailMessage> messages) {
+		if (messages.isEmpty()) {
+			return Collections.emptyList();
+		}
+		JavaMailSender sender = toMailSender();
+		Map<MimeMessage, EmailMessage> byMimeMessage = new LinkedHashMap<>();
+		List<EmailMessage> failed = new ArrayList<>();
+		for (EmailMessage m : messages) {
+			MimeMessage mimeMessage = sender.createMimeMessage();
+			try {
+				prepare(mimeMessage, m.getTo(), m.getSubject(), m.getText(), m.getHtml());
+				byMimeMessage.put(mimeMessage, m);
+			} catch (MessagingException e) {
+				// retried like a failed send, the outbox gives up after its maximum attempts
+				LOG.warn("error while preparing the email for " + m.getTo(), e);
+				failed.add(m);
+			}
+		}
+		try {
+			sender.send(byMimeMessage.keySet().toArray(new MimeMessage[byMimeMessage.size()]));
+		} catch (MailSendException e) {
+			if (e.getFailedMessages().isEmpty()) {
+				failed.addAll(byMimeMessage.values());
+			}
+			for (Object mimeMessage : e.getFailedMessages().keySet()) {
+				if (byMimeMessage.containsKey(mimeMessage)) {
+					failed.add(byMimeMessage.get(mimeMessage));
+				}
+			}
+		} catch (MailException e) {
+			LOG.warn("error while sending the emails", e);
+			failed.addAll(byMimeMessage.values());
+		}
+		return failed;
+	}
+
+	private void prepare(MimeMessage mimeMessage, String to, String subject, String text, String html)
+			throws MessagingException {
+		MimeMessageHelper message = html == null ? new MimeMessageHelper(mimeMessage, "UTF-8")
+				: new MimeMessageHelper(mimeMessage, true, "UTF-8");
+		message.setSubject(subject);
+		message.setFrom(getFrom());
+		message.setTo(to);
+		if (html == null) {
+			message.setText(text, false);
+		} else {
+			message.setText(text, html);
+		}
+	}
+
 	private JavaMailSender toMailSender() {
 		JavaMailSenderImpl r = new JavaMailSenderImpl();
 		r.setDefaultEncoding("UTF-8");
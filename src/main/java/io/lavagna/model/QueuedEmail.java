@@ -0,0 +1,38 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.model;
+
+import lombok.Getter;
+import ch.digitalfondue.npjt.ConstructorAnnotationRowMapper.Column;
+
+/**
+ * A rendered email waiting in the outbox to be sent.
+ */
+@Getter
+public class QueuedEmail extends EmailMessage {
+
+	private final long id;
+	private final int attempts;
+
+	public QueuedEmail(@Column("EMAIL_OUTBOX_ID") long id, @Column("EMAIL_OUTBOX_TO") String to,
+			@Column("EMAIL_OUTBOX_SUBJECT") String subject, @Column("EMAIL_OUTBOX_TEXT") String text,
+			@Column("EMAIL_OUTBOX_HTML") String html, @Column("EMAIL_OUTBOX_ATTEMPTS") int attempts) {
+		super(to, subject, text, html);
+		this.id = id;
+		this.attempts = attempts;
+	}
+}
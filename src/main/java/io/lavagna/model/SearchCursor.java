@@ -0,0 +1,66 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.model;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+
+import lombok.Getter;
+
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * Position in a search result ordered by last update and card id, exchanged with the client as an opaque token.
+ */
+@Getter
+public class SearchCursor {
+
+	private final long lastUpdatedMillis;
+	private final int lastUpdatedNanos;
+	private final int cardId;
+
+	public SearchCursor(Timestamp lastUpdated, int cardId) {
+		this.lastUpdatedMillis = lastUpdated.getTime();
+		this.lastUpdatedNanos = lastUpdated.getNanos();
+		this.cardId = cardId;
+	}
+
+	public Timestamp getLastUpdated() {
+		Timestamp ts = new Timestamp(lastUpdatedMillis);
+		ts.setNanos(lastUpdatedNanos);
+		return ts;
+	}
+
+	public String encode() {
+		String token = lastUpdatedMillis + ":" + lastUpdatedNanos + ":" + cardId;
+		return Base64.encodeBase64URLSafeString(token.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if the token is not a valid cursor
+	 */
+	public static SearchCursor decode(String token) {
+		String[] parts = new String(Base64.decodeBase64(token), StandardCharsets.UTF_8).split(":");
+		if (parts.length != 3) {
+			throw new IllegalArgumentException("invalid cursor " + token);
+		}
+		Timestamp ts = new Timestamp(Long.parseLong(parts[0]));
+		ts.setNanos(Integer.parseInt(parts[1]));
+		return new SearchCursor(ts, Integer.parseInt(parts[2]));
+	}
+}
@@ -29,6 +29,10 @@ public class SearchResults {
 	private final int countPerPage;
 	private final int totalPages;
 	private final boolean paginate;
+	/**
+	 * Token for fetching the next page when using the keyset pagination, null if there are no more results.
+	 */
+	private final String nextCursor;
 
 	public SearchResults(List<CardFullWithCounts> found, int count, int currentPage, int countPerPage, boolean paginate) {
 		this.found = found;
@@ -37,5 +41,19 @@ public class SearchResults {
 		this.countPerPage = countPerPage;
 		totalPages = paginate ? ((count + countPerPage - 1) / countPerPage) : 1;
 		this.paginate = paginate;
+		this.nextCursor = null;
+	}
+
+	/**
+	 * Keyset pagination results: count is -1 if it has not been requested, otherwise it may be approximate.
+	 */
+	public SearchResults(List<CardFullWithCounts> found, int count, int countPerPage, String nextCursor) {
+		this.found = found;
+		this.count = count;
+		this.currentPage = 0;
+		this.countPerPage = countPerPage;
+		totalPages = count < 0 ? -1 : ((count + countPerPage - 1) / countPerPage);
+		this.paginate = true;
+		this.nextCursor = nextCursor;
 	}
 }
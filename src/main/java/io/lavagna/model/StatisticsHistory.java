@@ -0,0 +1,49 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.model;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+
+/**
+ * The user independent part of the statistics of a board or a project, starting from a given day.
+ */
+@Getter
+public class StatisticsHistory {
+
+	private final Map<Long, Map<ColumnDefinition, Long>> statusHistory;
+	private final Map<Long, Pair<Long, Long>> createdAndClosedCards;
+	private final Integer activeUsers;
+	private final double averageUsersPerCard;
+	private final double averageCardsPerUser;
+	private final List<LabelAndValueWithCount> cardsByLabel;
+	private final CardFull mostActiveCard;
+
+	public StatisticsHistory(Map<Long, Map<ColumnDefinition, Long>> statusHistory,
+			Map<Long, Pair<Long, Long>> createdAndClosedCards, Integer activeUsers, double averageUsersPerCard,
+			double averageCardsPerUser, List<LabelAndValueWithCount> cardsByLabel, CardFull mostActiveCard) {
+		this.statusHistory = statusHistory;
+		this.createdAndClosedCards = createdAndClosedCards;
+		this.activeUsers = activeUsers;
+		this.averageUsersPerCard = averageUsersPerCard;
+		this.averageCardsPerUser = averageCardsPerUser;
+		this.cardsByLabel = cardsByLabel;
+		this.mostActiveCard = mostActiveCard;
+	}
+}
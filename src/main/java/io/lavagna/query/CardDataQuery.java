@@ -114,6 +114,9 @@ public interface CardDataQuery {
 	@Query("UPDATE LA_CARD_DATA SET CARD_DATA_ORDER = :order WHERE CARD_DATA_ID = :id")
 	int updateOrderById(@Bind("id") int id, @Bind("order") int order);
 
+	@Query(type = QueryType.TEMPLATE, value = "UPDATE LA_CARD_DATA SET CARD_DATA_ORDER = :order WHERE CARD_DATA_ID = :id")
+	String updateOrderByIdTemplate();
+
 	@Query(type = QueryType.TEMPLATE, value = "UPDATE LA_CARD_DATA SET CARD_DATA_ORDER = :order WHERE CARD_DATA_ID = :id AND CARD_DATA_CARD_ID_FK = :cardId AND CARD_DATA_REFERENCE_ID = :referenceId")
 	String updateOrderByCardAndReferenceId();
 
@@ -147,12 +150,24 @@ public interface CardDataQuery {
 	@Query("SELECT CARD_DATA_CARD_ID_FK AS CARD_ID, CARD_DATA_TYPE,  COUNT(CARD_DATA_TYPE) AS CARD_DATA_TYPE_COUNT FROM LA_CARD_DATA WHERE CARD_DATA_DELETED = FALSE AND CARD_DATA_CARD_ID_FK IN (:ids) GROUP BY CARD_DATA_CARD_ID_FK, CARD_DATA_TYPE")
 	List<CardDataCount> findCountsByCardIds(@Bind("ids") List<Integer> ids);
 
-	@Query(type = QueryType.TEMPLATE, value = "INSERT INTO LA_CARD_DATA_UPLOAD_CONTENT(DIGEST,SIZE,CONTENT,CONTENT_TYPE) VALUES (?, ?, ?, ?)")
-	String addUploadContent();
+	@Query("INSERT INTO LA_CARD_DATA_UPLOAD_CONTENT(DIGEST,SIZE,CONTENT_TYPE) VALUES (:digest, :size, :contentType)")
+	int addUploadContent(@Bind("digest") String digest, @Bind("size") long size, @Bind("contentType") String contentType);
+
+	@Query(type = QueryType.TEMPLATE, value = "UPDATE LA_CARD_DATA_UPLOAD_CONTENT SET CONTENT = ? WHERE DIGEST = ?")
+	String updateUploadContent();
+
+	@Query("UPDATE LA_CARD_DATA_UPLOAD_CONTENT SET CONTENT = NULL WHERE DIGEST = :digest")
+	int removeUploadContent(@Bind("digest") String digest);
 
 	@Query("SELECT COUNT(1) FROM LA_CARD_DATA_UPLOAD_CONTENT WHERE DIGEST = :digest")
 	Integer findDigest(@Bind("digest") String digest);
 
+	@Query("SELECT COUNT(1) FROM LA_CARD_DATA_UPLOAD_CONTENT WHERE DIGEST = :digest AND CONTENT IS NOT NULL")
+	Integer hasUploadContent(@Bind("digest") String digest);
+
+	@Query("SELECT DIGEST FROM LA_CARD_DATA_UPLOAD_CONTENT WHERE CONTENT IS NOT NULL ORDER BY DIGEST LIMIT :amount")
+	List<String> findDigestsWithUploadContent(@Bind("amount") int amount);
+
 	@Query("SELECT COUNT(1) FROM LA_CARD_DATA_UPLOAD_CONTENT_LIGHT WHERE CARD_DATA_CARD_ID_FK = :cardId AND CARD_DATA_CONTENT = :digest")
 	Integer isFileAvailableByCard(@Bind("cardId") int cardId, @Bind("digest") String digest);
 
@@ -166,10 +181,19 @@ public interface CardDataQuery {
 	@Query("SELECT * FROM LA_CARD_DATA_UPLOAD_CONTENT_LIGHT WHERE CARD_DATA_ID = :cardDataId")
 	FileDataLight getUndeletedFileByCardDataId(@Bind("cardDataId") int cardDataId);
 
-	@Query("SELECT DIGEST,SIZE,CONTENT_TYPE  FROM LA_CARD_DATA_UPLOAD_CONTENT")
+	@Query("SELECT DIGEST,SIZE,CONTENT_TYPE  FROM LA_CARD_DATA_UPLOAD_CONTENT WHERE DIGEST IN (SELECT CARD_DATA_UPLOAD_CONTENT_DIGEST_FK FROM LA_CARD_DATA_UPLOAD)")
 	List<CardDataUploadContentInfo> findAllDataUploadContentInfo();
 
-	@Query(type = QueryType.TEMPLATE, value = "SELECT CONTENT, CONTENT_TYPE FROM LA_CARD_DATA_UPLOAD_CONTENT WHERE DIGEST = :digest")
+	@Query("SELECT DIGEST,SIZE,CONTENT_TYPE FROM LA_CARD_DATA_UPLOAD_CONTENT WHERE DIGEST = :digest")
+	CardDataUploadContentInfo findUploadContentInfo(@Bind("digest") String digest);
+
+	@Query("SELECT CARD_DATA_THUMBNAIL_DIGEST_FK FROM LA_CARD_DATA_THUMBNAIL WHERE CARD_DATA_THUMBNAIL_SOURCE_DIGEST = :digest AND CARD_DATA_THUMBNAIL_SIZE = :size")
+	List<String> findThumbnailDigest(@Bind("digest") String digest, @Bind("size") int size);
+
+	@Query("INSERT INTO LA_CARD_DATA_THUMBNAIL(CARD_DATA_THUMBNAIL_SOURCE_DIGEST, CARD_DATA_THUMBNAIL_SIZE, CARD_DATA_THUMBNAIL_DIGEST_FK) VALUES (:digest, :size, :thumbnailDigest)")
+	int addThumbnail(@Bind("digest") String digest, @Bind("size") int size, @Bind("thumbnailDigest") String thumbnailDigest);
+
+	@Query(type = QueryType.TEMPLATE, value = "SELECT CONTENT, CONTENT_TYPE, SIZE FROM LA_CARD_DATA_UPLOAD_CONTENT WHERE DIGEST = :digest")
 	String fileContent();
 
 }
@@ -87,6 +87,10 @@ public interface CardQuery {
 	@Query("SELECT * FROM LA_CARD_FULL WHERE CARD_BOARD_COLUMN_ID_FK = :columnId ORDER BY CARD_ORDER ASC, CARD_NAME ASC")
 	List<CardFull> findAllFullByColumnId(@Bind("columnId") int columnId);
 
+	@Query("SELECT * FROM LA_CARD_FULL WHERE CARD_BOARD_COLUMN_ID_FK IN (SELECT BOARD_COLUMN_ID FROM LA_BOARD_COLUMN WHERE BOARD_COLUMN_BOARD_ID_FK = :boardId AND BOARD_COLUMN_LOCATION = :location) "
+			+ " ORDER BY CARD_ORDER ASC, CARD_NAME ASC")
+	List<CardFull> findAllFullByBoardIdAndLocation(@Bind("boardId") int boardId, @Bind("location") String location);
+
 	@Query("SELECT * FROM LA_CARD_FULL WHERE CARD_ID IN (:ids)")
 	List<CardFull> findAllByIds(@Bind("ids") Collection<Integer> ids);
 
@@ -134,6 +138,10 @@ public interface CardQuery {
 	@Query("UPDATE LA_CARD SET CARD_ORDER = :order WHERE CARD_ID = :cardId")
 	int updateCardOrder(@Bind("cardId") int cardId, @Bind("order") int order);
 
+	@Query(type = QueryType.TEMPLATE, value = "UPDATE LA_CARD SET CARD_ORDER = :order WHERE CARD_SEQ_NUMBER = :seqNumber AND CARD_BOARD_COLUMN_ID_FK IN "
+			+ " (SELECT BOARD_COLUMN_ID FROM LA_BOARD_COLUMN INNER JOIN LA_BOARD ON LA_BOARD.BOARD_ID = LA_BOARD_COLUMN.BOARD_COLUMN_BOARD_ID_FK WHERE BOARD_SHORT_NAME = :shortName)")
+	String updateCardOrderByBoardNameAndSeq();
+
 	@Query("UPDATE LA_CARD SET CARD_ORDER = CARD_ORDER + 1 WHERE CARD_BOARD_COLUMN_ID_FK = :columnId")
 	int incrementCardsOrder(@Bind("columnId") int columnId);
 
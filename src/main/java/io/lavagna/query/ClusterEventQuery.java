@@ -0,0 +1,46 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.query;
+
+import io.lavagna.model.ClusterEvent;
+
+import java.util.Date;
+import java.util.List;
+
+import ch.digitalfondue.npjt.Bind;
+import ch.digitalfondue.npjt.Query;
+import ch.digitalfondue.npjt.QueryRepository;
+import ch.digitalfondue.npjt.QueryType;
+
+@QueryRepository
+public interface ClusterEventQuery {
+
+	@Query(type = QueryType.TEMPLATE, value = "INSERT INTO LA_CLUSTER_EVENT(CLUSTER_EVENT_NODE, CLUSTER_EVENT_DESTINATION, CLUSTER_EVENT_PAYLOAD, CLUSTER_EVENT_CONTENT_TYPE, CLUSTER_EVENT_BATCH, CLUSTER_EVENT_TIME) "
+			+ " VALUES (:node, :destination, :payload, :contentType, :batch, :time)")
+	String publish();
+
+	@Query("SELECT COALESCE(MAX(CLUSTER_EVENT_ID), 0) FROM LA_CLUSTER_EVENT")
+	Long findLastId();
+
+	@Query("SELECT CLUSTER_EVENT_ID, CLUSTER_EVENT_DESTINATION, CLUSTER_EVENT_PAYLOAD, CLUSTER_EVENT_CONTENT_TYPE, CLUSTER_EVENT_BATCH FROM LA_CLUSTER_EVENT "
+			+ " WHERE CLUSTER_EVENT_ID > :lastId AND CLUSTER_EVENT_NODE <> :node ORDER BY CLUSTER_EVENT_ID LIMIT :amount")
+	List<ClusterEvent> findPublishedAfter(@Bind("lastId") long lastId, @Bind("node") String node,
+			@Bind("amount") int amount);
+
+	@Query("DELETE FROM LA_CLUSTER_EVENT WHERE CLUSTER_EVENT_TIME < :time")
+	int deleteOlderThan(@Bind("time") Date time);
+}
@@ -0,0 +1,48 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.query;
+
+import io.lavagna.model.QueuedEmail;
+
+import java.util.Date;
+import java.util.List;
+
+import ch.digitalfondue.npjt.Bind;
+import ch.digitalfondue.npjt.Query;
+import ch.digitalfondue.npjt.QueryRepository;
+import ch.digitalfondue.npjt.QueryType;
+
+@QueryRepository
+public interface EmailOutboxQuery {
+
+	@Query(type = QueryType.TEMPLATE, value = "INSERT INTO LA_EMAIL_OUTBOX(EMAIL_OUTBOX_TO, EMAIL_OUTBOX_SUBJECT, EMAIL_OUTBOX_TEXT, EMAIL_OUTBOX_HTML, EMAIL_OUTBOX_ATTEMPTS, EMAIL_OUTBOX_NEXT_ATTEMPT) "
+			+ " VALUES (:to, :subject, :text, :html, 0, :nextAttempt)")
+	String enqueue();
+
+	@Query("SELECT EMAIL_OUTBOX_ID, EMAIL_OUTBOX_TO, EMAIL_OUTBOX_SUBJECT, EMAIL_OUTBOX_TEXT, EMAIL_OUTBOX_HTML, EMAIL_OUTBOX_ATTEMPTS FROM LA_EMAIL_OUTBOX "
+			+ " WHERE EMAIL_OUTBOX_NEXT_ATTEMPT <= :now ORDER BY EMAIL_OUTBOX_ID LIMIT :amount")
+	List<QueuedEmail> findReady(@Bind("now") Date now, @Bind("amount") int amount);
+
+	@Query(type = QueryType.TEMPLATE, value = "DELETE FROM LA_EMAIL_OUTBOX WHERE EMAIL_OUTBOX_ID = :id")
+	String delete();
+
+	@Query(type = QueryType.TEMPLATE, value = "UPDATE LA_EMAIL_OUTBOX SET EMAIL_OUTBOX_ATTEMPTS = :attempts, EMAIL_OUTBOX_NEXT_ATTEMPT = :nextAttempt WHERE EMAIL_OUTBOX_ID = :id")
+	String reschedule();
+
+	@Query("SELECT COUNT(*) FROM LA_EMAIL_OUTBOX")
+	Integer count();
+}
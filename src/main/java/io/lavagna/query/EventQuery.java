@@ -48,6 +48,42 @@ public interface EventQuery {
 	@Query("SELECT COUNT(EVENT_ID) FROM LA_EVENT")
 	Integer count();
 
+	/**
+	 * All the events in order, with the user, the card and its board, the label value user and card and the content
+	 * of the card data as it was at the time of the event: to be read with a forward only cursor.
+	 */
+	@Query(type = QueryType.TEMPLATE, value = "SELECT LA_EVENT.*, "
+			+ " EVENT_USER.USER_PROVIDER AS EXPORT_USER_PROVIDER, EVENT_USER.USER_NAME AS EXPORT_USER_NAME,"
+			+ " EVENT_BOARD.BOARD_SHORT_NAME AS EXPORT_BOARD_SHORT_NAME, EVENT_CARD.CARD_SEQ_NUMBER AS EXPORT_CARD_SEQ_NUMBER,"
+			+ " LABEL_USER.USER_PROVIDER AS EXPORT_LABEL_USER_PROVIDER, LABEL_USER.USER_NAME AS EXPORT_LABEL_USER_NAME,"
+			+ " LABEL_BOARD.BOARD_SHORT_NAME AS EXPORT_LABEL_BOARD_SHORT_NAME, LABEL_CARD.CARD_SEQ_NUMBER AS EXPORT_LABEL_CARD_SEQ_NUMBER,"
+			+ " (SELECT CONTENT.CARD_DATA_CONTENT FROM LA_CARD_DATA CONTENT WHERE CONTENT.CARD_DATA_ID = CASE"
+			// the first history entry, or the data itself if it was never updated
+			+ "  WHEN LA_EVENT.EVENT_TYPE IN ('COMMENT_CREATE', 'DESCRIPTION_CREATE') THEN COALESCE("
+			+ "   (SELECT HISTORY.CARD_DATA_ID FROM LA_CARD_DATA HISTORY WHERE HISTORY.CARD_DATA_REFERENCE_ID = LA_EVENT.EVENT_CARD_DATA_ID_FK"
+			+ "    AND HISTORY.CARD_DATA_TYPE = CASE LA_EVENT.EVENT_TYPE WHEN 'COMMENT_CREATE' THEN 'COMMENT_HISTORY' ELSE 'DESCRIPTION_HISTORY' END"
+			+ "    AND HISTORY.CARD_DATA_ORDER = (SELECT MIN(FIRST_HISTORY.CARD_DATA_ORDER) FROM LA_CARD_DATA FIRST_HISTORY"
+			+ "     WHERE FIRST_HISTORY.CARD_DATA_REFERENCE_ID = LA_EVENT.EVENT_CARD_DATA_ID_FK AND FIRST_HISTORY.CARD_DATA_TYPE = HISTORY.CARD_DATA_TYPE)),"
+			+ "   LA_EVENT.EVENT_CARD_DATA_ID_FK)"
+			// the content replaced by the next update, or the current one if it's the last update
+			+ "  WHEN LA_EVENT.EVENT_TYPE IN ('COMMENT_UPDATE', 'DESCRIPTION_UPDATE') THEN COALESCE("
+			+ "   (SELECT NEXT_EVENT.EVENT_PREV_CARD_DATA_ID_FK FROM LA_EVENT NEXT_EVENT WHERE NEXT_EVENT.EVENT_ID = (SELECT MIN(LATER_EVENT.EVENT_ID) FROM LA_EVENT LATER_EVENT"
+			+ "    WHERE LATER_EVENT.EVENT_CARD_DATA_ID_FK = LA_EVENT.EVENT_CARD_DATA_ID_FK AND LATER_EVENT.EVENT_TYPE = LA_EVENT.EVENT_TYPE AND LATER_EVENT.EVENT_ID > LA_EVENT.EVENT_ID)),"
+			+ "   LA_EVENT.EVENT_CARD_DATA_ID_FK)"
+			+ "  WHEN LA_EVENT.EVENT_TYPE IN ('ACTION_ITEM_CREATE', 'ACTION_LIST_CREATE', 'FILE_UPLOAD', 'FILE_DELETE') THEN LA_EVENT.EVENT_CARD_DATA_ID_FK"
+			+ " END) AS EXPORT_CONTENT"
+			+ " FROM LA_EVENT"
+			+ " INNER JOIN LA_USER EVENT_USER ON LA_EVENT.EVENT_USER_ID_FK = EVENT_USER.USER_ID"
+			+ " INNER JOIN LA_CARD EVENT_CARD ON LA_EVENT.EVENT_CARD_ID_FK = EVENT_CARD.CARD_ID"
+			+ " INNER JOIN LA_BOARD_COLUMN EVENT_COLUMN ON EVENT_CARD.CARD_BOARD_COLUMN_ID_FK = EVENT_COLUMN.BOARD_COLUMN_ID"
+			+ " INNER JOIN LA_BOARD EVENT_BOARD ON EVENT_COLUMN.BOARD_COLUMN_BOARD_ID_FK = EVENT_BOARD.BOARD_ID"
+			+ " LEFT JOIN LA_USER LABEL_USER ON LA_EVENT.EVENT_VALUE_USER_FK = LABEL_USER.USER_ID"
+			+ " LEFT JOIN LA_CARD LABEL_CARD ON LA_EVENT.EVENT_VALUE_CARD_FK = LABEL_CARD.CARD_ID"
+			+ " LEFT JOIN LA_BOARD_COLUMN LABEL_COLUMN ON LABEL_CARD.CARD_BOARD_COLUMN_ID_FK = LABEL_COLUMN.BOARD_COLUMN_ID"
+			+ " LEFT JOIN LA_BOARD LABEL_BOARD ON LABEL_COLUMN.BOARD_COLUMN_BOARD_ID_FK = LABEL_BOARD.BOARD_ID"
+			+ " ORDER BY LA_EVENT.EVENT_ID ASC")
+	String findAllForExport();
+
 	@Query("SELECT * FROM LA_EVENT WHERE EVENT_CARD_DATA_ID_FK = :cardDataId AND EVENT_ID > :eventId AND EVENT_TYPE = :eventType ORDER BY EVENT_ID ASC LIMIT 1")
 	List<Event> findNextEventFor(@Bind("cardDataId") int cardDataId, @Bind("eventId") int eventId,
 			@Bind("eventType") String eventType);
@@ -64,6 +100,15 @@ public interface EventQuery {
 			+ " VALUES (:cardId, :previousColumnId, :columnId, :userId, :time, :event, :valueString)")
 	String insertCardEvent();
 
+	@Query(type = QueryType.TEMPLATE, value = "SELECT BOARD_ID, BOARD_PROJECT_ID_FK FROM LA_CARD "
+			+ " INNER JOIN LA_BOARD_COLUMN ON CARD_BOARD_COLUMN_ID_FK = BOARD_COLUMN_ID "
+			+ " INNER JOIN LA_BOARD ON BOARD_COLUMN_BOARD_ID_FK = BOARD_ID WHERE CARD_ID = :cardId")
+	String findBoardAndProjectByCardId();
+
+	@Query(type = QueryType.TEMPLATE, value = "SELECT DISTINCT BOARD_ID, BOARD_PROJECT_ID_FK FROM LA_BOARD_COLUMN "
+			+ " INNER JOIN LA_BOARD ON BOARD_COLUMN_BOARD_ID_FK = BOARD_ID WHERE BOARD_COLUMN_ID IN (:columnIds)")
+	String findBoardsAndProjectsByColumnIds();
+
 	@Query("INSERT INTO LA_EVENT(EVENT_CARD_DATA_ID_FK, EVENT_CARD_ID_FK, EVENT_USER_ID_FK, EVENT_TIME, EVENT_TYPE, EVENT_PREV_CARD_DATA_ID_FK, EVENT_NEW_CARD_DATA_ID_FK) "
 			+ " VALUES (:cardDataId, :cardId, :userId, :time, :event, :referenceId, :newReferenceId)")
 	int insertCardDataEvent(@Bind("cardDataId") int cardDataId, @Bind("cardId") int cardId, @Bind("userId") int userId,
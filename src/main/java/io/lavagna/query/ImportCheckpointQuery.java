@@ -0,0 +1,46 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.query;
+
+import io.lavagna.model.ImportCheckpoint;
+
+import java.util.List;
+
+import ch.digitalfondue.npjt.Bind;
+import ch.digitalfondue.npjt.Query;
+import ch.digitalfondue.npjt.QueryRepository;
+
+@QueryRepository
+public interface ImportCheckpointQuery {
+
+	@Query("SELECT IMPORT_CHECKPOINT_PARTITION, IMPORT_CHECKPOINT_NEXT_PAGE, IMPORT_CHECKPOINT_CONTEXT FROM LA_IMPORT_CHECKPOINT "
+			+ " WHERE IMPORT_CHECKPOINT_ARCHIVE = :archive ORDER BY IMPORT_CHECKPOINT_PARTITION")
+	List<ImportCheckpoint> findByArchive(@Bind("archive") String archive);
+
+	@Query("INSERT INTO LA_IMPORT_CHECKPOINT(IMPORT_CHECKPOINT_ARCHIVE, IMPORT_CHECKPOINT_PARTITION, IMPORT_CHECKPOINT_NEXT_PAGE, IMPORT_CHECKPOINT_CONTEXT) "
+			+ " VALUES (:archive, :partition, :nextPage, :context)")
+	int create(@Bind("archive") String archive, @Bind("partition") int partition, @Bind("nextPage") int nextPage,
+			@Bind("context") String context);
+
+	@Query("UPDATE LA_IMPORT_CHECKPOINT SET IMPORT_CHECKPOINT_NEXT_PAGE = :nextPage, IMPORT_CHECKPOINT_CONTEXT = :context "
+			+ " WHERE IMPORT_CHECKPOINT_ARCHIVE = :archive AND IMPORT_CHECKPOINT_PARTITION = :partition")
+	int update(@Bind("archive") String archive, @Bind("partition") int partition, @Bind("nextPage") int nextPage,
+			@Bind("context") String context);
+
+	@Query("DELETE FROM LA_IMPORT_CHECKPOINT WHERE IMPORT_CHECKPOINT_ARCHIVE = :archive")
+	int deleteByArchive(@Bind("archive") String archive);
+}
@@ -16,6 +16,9 @@
  */
 package io.lavagna.query;
 
+import java.util.List;
+
+import ch.digitalfondue.npjt.Bind;
 import ch.digitalfondue.npjt.Query;
 import ch.digitalfondue.npjt.QueryRepository;
 
@@ -33,4 +36,10 @@ public interface MySqlFullTextSupportQuery {
 
 	@Query("REPLACE INTO LA_CARD_DATA_FTS_SUPPORT SELECT CARD_DATA_ID,CARD_DATA_CONTENT,CARD_DATA_LAST_UPDATED FROM LA_CARD_DATA left join LA_CARD_DATA_FTS_SUPPORT ON CARD_DATA_ID = CARD_DATA_FTS_SUPPORT_CARD_DATA_ID_FK WHERE CARD_DATA_LAST_UPDATED <> CARD_DATA_FTS_SUPPORT_LAST_UPDATED LIMIT 1000")
 	int syncUpdatedCardData();
+
+	@Query("REPLACE INTO LA_CARD_FTS_SUPPORT SELECT CARD_ID,CARD_NAME,CARD_LAST_UPDATED FROM LA_CARD WHERE CARD_ID IN (:cardIds)")
+	int syncCards(@Bind("cardIds") List<Integer> cardIds);
+
+	@Query("REPLACE INTO LA_CARD_DATA_FTS_SUPPORT SELECT CARD_DATA_ID,CARD_DATA_CONTENT,CARD_DATA_LAST_UPDATED FROM LA_CARD_DATA WHERE CARD_DATA_ID IN (:cardDataIds)")
+	int syncCardData(@Bind("cardDataIds") List<Integer> cardDataIds);
 }
@@ -0,0 +1,38 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.query;
+
+import java.util.Date;
+
+import ch.digitalfondue.npjt.Bind;
+import ch.digitalfondue.npjt.Query;
+import ch.digitalfondue.npjt.QueryRepository;
+
+@QueryRepository
+public interface SchedulerLockQuery {
+
+	@Query("INSERT INTO LA_SCHEDULER_LOCK(SCHEDULER_LOCK_NAME, SCHEDULER_LOCK_OWNER, SCHEDULER_LOCK_EXPIRATION) VALUES (:name, :owner, :expiration)")
+	int acquire(@Bind("name") String name, @Bind("owner") String owner, @Bind("expiration") Date expiration);
+
+	@Query("UPDATE LA_SCHEDULER_LOCK SET SCHEDULER_LOCK_OWNER = :owner, SCHEDULER_LOCK_EXPIRATION = :expiration "
+			+ " WHERE SCHEDULER_LOCK_NAME = :name AND (SCHEDULER_LOCK_OWNER = :owner OR SCHEDULER_LOCK_EXPIRATION < :now)")
+	int renew(@Bind("name") String name, @Bind("owner") String owner, @Bind("expiration") Date expiration,
+			@Bind("now") Date now);
+
+	@Query("UPDATE LA_SCHEDULER_LOCK SET SCHEDULER_LOCK_EXPIRATION = :expiration WHERE SCHEDULER_LOCK_NAME = :name AND SCHEDULER_LOCK_OWNER = :owner")
+	int release(@Bind("name") String name, @Bind("owner") String owner, @Bind("expiration") Date expiration);
+}
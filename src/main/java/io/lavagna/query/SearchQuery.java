@@ -31,6 +31,12 @@ public interface SearchQuery {
 	@Query(type = QueryType.TEMPLATE, value = "SELECT LA_CARD.CARD_ID FROM ")
 	String findFirstSelect();
 
+	@Query(type = QueryType.TEMPLATE, value = "SELECT BOARD_COLUMN_DEFINITION_VALUE, COUNT(LA_CARD.CARD_ID) FROM ")
+	String findFirstSelectCountByColumnDefinition();
+
+	@Query(type = QueryType.TEMPLATE, value = " GROUP BY BOARD_COLUMN_DEFINITION_VALUE ")
+	String findGroupByColumnDefinition();
+
 	@Query(type = QueryType.TEMPLATE, value = "LA_CARD "
 			+ " INNER JOIN LA_BOARD_COLUMN ON LA_CARD.CARD_BOARD_COLUMN_ID_FK = LA_BOARD_COLUMN.BOARD_COLUMN_ID "
 			+ " INNER JOIN LA_BOARD_COLUMN_DEFINITION ON BOARD_COLUMN_DEFINITION_ID_FK = BOARD_COLUMN_DEFINITION_ID "
@@ -59,6 +65,23 @@ public interface SearchQuery {
 	@Query(type = QueryType.TEMPLATE, value = " LIMIT ? OFFSET ?")
 	String findEighthLimit();
 
+	// keyset pagination
+	@Query(type = QueryType.TEMPLATE, value = "SELECT LA_CARD.CARD_ID, LA_CARD.CARD_LAST_UPDATED FROM ")
+	String findFirstSelectWithLastUpdated();
+
+	@Query(type = QueryType.TEMPLATE, value = " AND ")
+	String findAnd();
+
+	@Query(type = QueryType.TEMPLATE, value = " (LA_CARD.CARD_LAST_UPDATED < ? OR (LA_CARD.CARD_LAST_UPDATED = ? AND LA_CARD.CARD_ID < ?)) ")
+	String findAfterCursor();
+
+	@Query(type = QueryType.TEMPLATE, value = " ORDER BY LA_CARD.CARD_LAST_UPDATED DESC, LA_CARD.CARD_ID DESC ")
+	String findSeventhOrderByLastUpdatedAndId();
+
+	@Query(type = QueryType.TEMPLATE, value = " LIMIT ?")
+	String findEighthLimitOnly();
+	//
+
 	@Query(type = QueryType.TEMPLATE, value = "SELECT LA_CARD.CARD_ID FROM LA_CARD LEFT JOIN  (")
 	String findCardIdNotInOpen();
 
@@ -145,4 +168,26 @@ public interface SearchQuery {
 
 	@Query(type = QueryType.TEMPLATE, value = " SELECT CARD_ID FROM LA_CARD WHERE CARD_LAST_UPDATED_USER_ID_FK = ? ")
 	String findByUpdatedBy();
+
+	// in memory index support, see CardSearchIndex
+
+	@Query(type = QueryType.TEMPLATE, value = "SELECT CARD_ID, CARD_LAST_UPDATED, CARD_LAST_UPDATED_USER_ID_FK, BOARD_ID, BOARD_PROJECT_ID_FK, BOARD_ARCHIVED, "
+			+ " BOARD_COLUMN_LOCATION, BOARD_COLUMN_DEFINITION_VALUE FROM LA_CARD "
+			+ " INNER JOIN LA_BOARD_COLUMN ON CARD_BOARD_COLUMN_ID_FK = BOARD_COLUMN_ID "
+			+ " INNER JOIN LA_BOARD_COLUMN_DEFINITION ON BOARD_COLUMN_DEFINITION_ID_FK = BOARD_COLUMN_DEFINITION_ID "
+			+ " INNER JOIN LA_BOARD ON LA_BOARD.BOARD_ID = LA_BOARD_COLUMN.BOARD_COLUMN_BOARD_ID_FK ")
+	String indexedCards();
+
+	@Query(type = QueryType.TEMPLATE, value = " WHERE CARD_ID IN (:cardIds) ")
+	String indexedCardsWhereIdIn();
+
+	@Query(type = QueryType.TEMPLATE, value = "SELECT CARD_ID_FK, CARD_LABEL_DOMAIN, CARD_LABEL_NAME, CARD_LABEL_VALUE_TYPE, CARD_LABEL_VALUE_STRING, "
+			+ " CARD_LABEL_VALUE_TIMESTAMP, CARD_LABEL_VALUE_INT, CARD_LABEL_VALUE_CARD_FK, CARD_LABEL_VALUE_USER_FK, CARD_LABEL_LIST_VALUE FROM LA_CARD_LABEL_VALUE "
+			+ " INNER JOIN LA_CARD_LABEL ON CARD_LABEL_ID = LA_CARD_LABEL_VALUE.CARD_LABEL_ID_FK "
+			+ " LEFT JOIN LA_CARD_LABEL_LIST_VALUE ON CARD_LABEL_LIST_VALUE_ID = CARD_LABEL_VALUE_LIST_VALUE_FK "
+			+ " WHERE CARD_LABEL_VALUE_DELETED <> TRUE ")
+	String indexedLabelValues();
+
+	@Query(type = QueryType.TEMPLATE, value = " AND CARD_ID_FK IN (:cardIds) ")
+	String indexedLabelValuesAndCardIdIn();
 }
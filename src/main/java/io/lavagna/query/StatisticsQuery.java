@@ -27,29 +27,78 @@ import java.util.Date;
 import java.util.List;
 
 import ch.digitalfondue.npjt.Bind;
-import ch.digitalfondue.npjt.QueriesOverride;
 import ch.digitalfondue.npjt.Query;
-import ch.digitalfondue.npjt.QueryOverride;
 import ch.digitalfondue.npjt.QueryRepository;
 
 @QueryRepository
 public interface StatisticsQuery {
 
-	@Query("INSERT INTO LA_BOARD_STATISTICS SELECT :date, BOARD_ID, BOARD_COLUMN_DEFINITION_ID_FK, BOARD_COLUMN_LOCATION, COUNT(*) AS CARDS_COUNT FROM LA_CARD "
-			+ "INNER JOIN LA_BOARD_COLUMN ON LA_BOARD_COLUMN.BOARD_COLUMN_ID = LA_CARD.CARD_BOARD_COLUMN_ID_FK "
-			+ "INNER JOIN LA_BOARD ON LA_BOARD_COLUMN.BOARD_COLUMN_BOARD_ID_FK = LA_BOARD.BOARD_ID "
-			+ "GROUP BY BOARD_ID, BOARD_COLUMN_DEFINITION_ID_FK, BOARD_COLUMN_LOCATION")
+	@Query("INSERT INTO LA_BOARD_STATISTICS SELECT :date, BOARD_CARD_COUNT_BOARD_ID_FK, BOARD_CARD_COUNT_COLUMN_DEFINITION_ID_FK, BOARD_CARD_COUNT_LOCATION, BOARD_CARD_COUNT_VALUE FROM LA_BOARD_CARD_COUNT "
+			+ "WHERE BOARD_CARD_COUNT_VALUE > 0")
 	void snapshotCardsStatus(@Bind("date") Date date);
 
-	@Query("DELETE FROM LA_BOARD_STATISTICS WHERE BOARD_STATISTICS_TIME NOT IN (SELECT DAY FROM LA_BOARD_STATISTICS_DAYS)")
-	@QueriesOverride({
-			@QueryOverride(db = DB.MYSQL, value = "DELETE BOARD_STATS FROM LA_BOARD_STATISTICS AS BOARD_STATS LEFT JOIN LA_BOARD_STATISTICS_DAYS ON BOARD_STATS.BOARD_STATISTICS_TIME = LA_BOARD_STATISTICS_DAYS.DAY WHERE LA_BOARD_STATISTICS_DAYS.DAY IS NULL")})
-	void cleanOldCardsStatusSnapshots();
+	@Query("DELETE FROM LA_BOARD_STATISTICS WHERE BOARD_STATISTICS_TIME >= :dayStart AND BOARD_STATISTICS_TIME < :date")
+	void cleanOldCardsStatusSnapshots(@Bind("dayStart") Date dayStart, @Bind("date") Date date);
+
+	// Running counters of the cards by board, column definition and location
+
+	@Query("INSERT INTO LA_BOARD_CARD_COUNT(BOARD_CARD_COUNT_BOARD_ID_FK, BOARD_CARD_COUNT_COLUMN_DEFINITION_ID_FK, BOARD_CARD_COUNT_LOCATION, BOARD_CARD_COUNT_VALUE) "
+			+ "SELECT BOARD_ID, BOARD_COLUMN_DEFINITION_ID, :location, 0 FROM LA_BOARD "
+			+ "INNER JOIN LA_BOARD_COLUMN_DEFINITION ON BOARD_PROJECT_ID_FK = BOARD_COLUMN_DEFINITION_PROJECT_ID_FK WHERE BOARD_ID = :boardId")
+	int createBoardCounters(@Bind("boardId") int boardId, @Bind("location") String location);
+
+	@Query("INSERT INTO LA_BOARD_CARD_COUNT(BOARD_CARD_COUNT_BOARD_ID_FK, BOARD_CARD_COUNT_COLUMN_DEFINITION_ID_FK, BOARD_CARD_COUNT_LOCATION, BOARD_CARD_COUNT_VALUE) "
+			+ "SELECT BOARD_ID, BOARD_COLUMN_DEFINITION_ID, :location, (SELECT COUNT(*) FROM LA_CARD INNER JOIN LA_BOARD_COLUMN ON CARD_BOARD_COLUMN_ID_FK = BOARD_COLUMN_ID "
+			+ "WHERE BOARD_COLUMN_BOARD_ID_FK = BOARD_ID AND BOARD_COLUMN_DEFINITION_ID_FK = BOARD_COLUMN_DEFINITION_ID AND BOARD_COLUMN_LOCATION = :location) FROM LA_BOARD "
+			+ "INNER JOIN LA_BOARD_COLUMN_DEFINITION ON BOARD_PROJECT_ID_FK = BOARD_COLUMN_DEFINITION_PROJECT_ID_FK "
+			+ "WHERE NOT EXISTS (SELECT 1 FROM LA_BOARD_CARD_COUNT WHERE BOARD_CARD_COUNT_BOARD_ID_FK = BOARD_ID "
+			+ "AND BOARD_CARD_COUNT_COLUMN_DEFINITION_ID_FK = BOARD_COLUMN_DEFINITION_ID AND BOARD_CARD_COUNT_LOCATION = :location)")
+	int createMissingBoardCounters(@Bind("location") String location);
+
+	@Query("UPDATE LA_BOARD_CARD_COUNT SET BOARD_CARD_COUNT_VALUE = BOARD_CARD_COUNT_VALUE + :delta WHERE "
+			+ "BOARD_CARD_COUNT_BOARD_ID_FK = (SELECT BOARD_COLUMN_BOARD_ID_FK FROM LA_BOARD_COLUMN WHERE BOARD_COLUMN_ID = :columnId) AND "
+			+ "BOARD_CARD_COUNT_COLUMN_DEFINITION_ID_FK = (SELECT BOARD_COLUMN_DEFINITION_ID_FK FROM LA_BOARD_COLUMN WHERE BOARD_COLUMN_ID = :columnId) AND "
+			+ "BOARD_CARD_COUNT_LOCATION = (SELECT BOARD_COLUMN_LOCATION FROM LA_BOARD_COLUMN WHERE BOARD_COLUMN_ID = :columnId)")
+	int updateBoardCounter(@Bind("columnId") int columnId, @Bind("delta") int delta);
+
+	@Query("UPDATE LA_BOARD_CARD_COUNT SET BOARD_CARD_COUNT_VALUE = (SELECT COUNT(*) FROM LA_CARD INNER JOIN LA_BOARD_COLUMN ON CARD_BOARD_COLUMN_ID_FK = BOARD_COLUMN_ID "
+			+ "WHERE BOARD_COLUMN_BOARD_ID_FK = BOARD_CARD_COUNT_BOARD_ID_FK AND BOARD_COLUMN_DEFINITION_ID_FK = BOARD_CARD_COUNT_COLUMN_DEFINITION_ID_FK AND BOARD_COLUMN_LOCATION = BOARD_CARD_COUNT_LOCATION) "
+			+ "WHERE BOARD_CARD_COUNT_BOARD_ID_FK = :boardId")
+	int refreshBoardCounters(@Bind("boardId") int boardId);
+
+	// Created and closed cards by board and day
+
+	@Query("INSERT INTO LA_BOARD_DAILY_COUNT(BOARD_DAILY_COUNT_BOARD_ID_FK, BOARD_DAILY_COUNT_DAY, BOARD_DAILY_COUNT_CREATED, BOARD_DAILY_COUNT_CLOSED) "
+			+ "SELECT BOARD_COLUMN_BOARD_ID_FK, :day, :count, 0 FROM LA_BOARD_COLUMN WHERE BOARD_COLUMN_ID = :columnId")
+	int addCreatedCards(@Bind("columnId") int columnId, @Bind("day") Date day, @Bind("count") int count);
+
+	@Query("INSERT INTO LA_BOARD_DAILY_COUNT(BOARD_DAILY_COUNT_BOARD_ID_FK, BOARD_DAILY_COUNT_DAY, BOARD_DAILY_COUNT_CREATED, BOARD_DAILY_COUNT_CLOSED) "
+			+ "SELECT new.BOARD_COLUMN_BOARD_ID_FK, :day, 0, :count FROM LA_BOARD_COLUMN old "
+			+ "JOIN LA_BOARD_COLUMN_DEFINITION oldDef on old.BOARD_COLUMN_DEFINITION_ID_FK = oldDef.BOARD_COLUMN_DEFINITION_ID, "
+			+ "LA_BOARD_COLUMN new "
+			+ "JOIN LA_BOARD_COLUMN_DEFINITION newDef on new.BOARD_COLUMN_DEFINITION_ID_FK = newDef.BOARD_COLUMN_DEFINITION_ID "
+			+ "WHERE old.BOARD_COLUMN_ID = :previousColumnId AND new.BOARD_COLUMN_ID = :columnId AND "
+			+ "oldDef.BOARD_COLUMN_DEFINITION_VALUE <> 'CLOSED' AND newDef.BOARD_COLUMN_DEFINITION_VALUE = 'CLOSED'")
+	int addClosedCards(@Bind("previousColumnId") int previousColumnId, @Bind("columnId") int columnId,
+			@Bind("day") Date day, @Bind("count") int count);
+
+	@Query("SELECT BOARD_DAILY_COUNT_ID FROM LA_BOARD_DAILY_COUNT d WHERE BOARD_DAILY_COUNT_DAY >= :fromDay AND EXISTS "
+			+ "(SELECT 1 FROM LA_BOARD_DAILY_COUNT o WHERE o.BOARD_DAILY_COUNT_BOARD_ID_FK = d.BOARD_DAILY_COUNT_BOARD_ID_FK "
+			+ "AND o.BOARD_DAILY_COUNT_DAY = d.BOARD_DAILY_COUNT_DAY AND o.BOARD_DAILY_COUNT_ID <> d.BOARD_DAILY_COUNT_ID) "
+			+ "ORDER BY BOARD_DAILY_COUNT_BOARD_ID_FK, BOARD_DAILY_COUNT_DAY")
+	List<Integer> findDailyCountIdsToMerge(@Bind("fromDay") Date fromDay);
+
+	@Query("INSERT INTO LA_BOARD_DAILY_COUNT(BOARD_DAILY_COUNT_BOARD_ID_FK, BOARD_DAILY_COUNT_DAY, BOARD_DAILY_COUNT_CREATED, BOARD_DAILY_COUNT_CLOSED) "
+			+ "SELECT BOARD_DAILY_COUNT_BOARD_ID_FK, BOARD_DAILY_COUNT_DAY, SUM(BOARD_DAILY_COUNT_CREATED), SUM(BOARD_DAILY_COUNT_CLOSED) FROM LA_BOARD_DAILY_COUNT "
+			+ "WHERE BOARD_DAILY_COUNT_ID IN (:ids) GROUP BY BOARD_DAILY_COUNT_BOARD_ID_FK, BOARD_DAILY_COUNT_DAY")
+	int mergeDailyCounts(@Bind("ids") List<Integer> ids);
+
+	@Query("DELETE FROM LA_BOARD_DAILY_COUNT WHERE BOARD_DAILY_COUNT_ID IN (:ids)")
+	int deleteDailyCounts(@Bind("ids") List<Integer> ids);
 
 
 	@Query("SELECT BOARD_STATISTICS_TIME AS TIME, BOARD_COLUMN_DEFINITION_VALUE, SUM(BOARD_STATISTICS_COUNT) AS STATISTICS_COUNT FROM LA_BOARD_STATISTICS "
 			+ "INNER JOIN LA_BOARD_COLUMN_DEFINITION ON BOARD_STATISTICS_COLUMN_DEFINITION_ID_FK = BOARD_COLUMN_DEFINITION_ID "
-			+ "INNER JOIN LA_BOARD_STATISTICS_DAYS ON BOARD_STATISTICS_TIME = DAY "
 			+ "INNER JOIN LA_BOARD ON BOARD_STATISTICS_BOARD_ID_FK = LA_BOARD.BOARD_ID "
 			+ "WHERE BOARD_STATISTICS_LOCATION = 'BOARD' AND BOARD_STATISTICS_BOARD_ID_FK = :boardId AND BOARD_STATISTICS_TIME >= :fromDate "
 			+ "GROUP BY BOARD_STATISTICS_TIME, BOARD_COLUMN_DEFINITION_VALUE")
@@ -67,7 +116,6 @@ public interface StatisticsQuery {
 
 	@Query("SELECT BOARD_STATISTICS_TIME AS TIME, BOARD_COLUMN_DEFINITION_VALUE, SUM(BOARD_STATISTICS_COUNT) AS STATISTICS_COUNT FROM LA_BOARD_STATISTICS "
 			+ "INNER JOIN LA_BOARD_COLUMN_DEFINITION ON BOARD_STATISTICS_COLUMN_DEFINITION_ID_FK = BOARD_COLUMN_DEFINITION_ID "
-			+ "INNER JOIN LA_BOARD_STATISTICS_DAYS ON BOARD_STATISTICS_TIME = DAY "
 			+ "INNER JOIN LA_BOARD ON BOARD_STATISTICS_BOARD_ID_FK = LA_BOARD.BOARD_ID "
 			+ "WHERE BOARD_STATISTICS_LOCATION = 'BOARD' AND BOARD_ARCHIVED = FALSE AND BOARD_PROJECT_ID_FK = :projectId AND BOARD_STATISTICS_TIME >= :fromDate "
 			+ "GROUP BY BOARD_STATISTICS_TIME, BOARD_COLUMN_DEFINITION_VALUE")
@@ -148,44 +196,28 @@ public interface StatisticsQuery {
 
 	// Created cards by date
 
-	@Query("SELECT CAST(EVENT_TIME AS DATE) AS EVENT_DATE, COUNT(*) AS EVENT_COUNT FROM LA_EVENT "
-			+ "INNER JOIN LA_BOARD_COLUMN ON EVENT_COLUMN_ID_FK = BOARD_COLUMN_ID "
-			+ "INNER JOIN LA_BOARD ON BOARD_COLUMN_BOARD_ID_FK = BOARD_ID "
-			+ "WHERE EVENT_TYPE = 'CARD_CREATE' AND BOARD_ID = :boardId AND EVENT_TIME >= :fromDate "
-			+ "GROUP BY EVENT_DATE ORDER BY EVENT_DATE")
+	@Query("SELECT BOARD_DAILY_COUNT_DAY AS EVENT_DATE, SUM(BOARD_DAILY_COUNT_CREATED) AS EVENT_COUNT FROM LA_BOARD_DAILY_COUNT "
+			+ "WHERE BOARD_DAILY_COUNT_BOARD_ID_FK = :boardId AND BOARD_DAILY_COUNT_DAY >= :fromDate "
+			+ "GROUP BY BOARD_DAILY_COUNT_DAY HAVING SUM(BOARD_DAILY_COUNT_CREATED) > 0 ORDER BY BOARD_DAILY_COUNT_DAY")
 	List<EventsCount> getCreatedCardsByBoard(@Bind("boardId") int boardId, @Bind("fromDate") Date fromDate);
 
-	@Query("SELECT CAST(EVENT_TIME AS DATE) AS EVENT_DATE, COUNT(*) AS EVENT_COUNT FROM LA_EVENT "
-			+ "INNER JOIN LA_BOARD_COLUMN ON EVENT_COLUMN_ID_FK = BOARD_COLUMN_ID "
-			+ "INNER JOIN LA_BOARD ON BOARD_COLUMN_BOARD_ID_FK = BOARD_ID "
-			+ "WHERE EVENT_TYPE = 'CARD_CREATE' AND BOARD_ARCHIVED = FALSE AND BOARD_PROJECT_ID_FK = :projectId AND EVENT_TIME >= :fromDate "
-			+ "GROUP BY EVENT_DATE ORDER BY EVENT_DATE")
+	@Query("SELECT BOARD_DAILY_COUNT_DAY AS EVENT_DATE, SUM(BOARD_DAILY_COUNT_CREATED) AS EVENT_COUNT FROM LA_BOARD_DAILY_COUNT "
+			+ "INNER JOIN LA_BOARD ON BOARD_DAILY_COUNT_BOARD_ID_FK = BOARD_ID "
+			+ "WHERE BOARD_ARCHIVED = FALSE AND BOARD_PROJECT_ID_FK = :projectId AND BOARD_DAILY_COUNT_DAY >= :fromDate "
+			+ "GROUP BY BOARD_DAILY_COUNT_DAY HAVING SUM(BOARD_DAILY_COUNT_CREATED) > 0 ORDER BY BOARD_DAILY_COUNT_DAY")
 	List<EventsCount> getCreatedCardsByProject(@Bind("projectId") int projectId, @Bind("fromDate") Date fromDate);
 
 	// Closed cards by date
 
-	@Query("SELECT CAST(EVENT_TIME AS DATE) AS EVENT_DATE, COUNT(*) AS EVENT_COUNT FROM LA_EVENT "
-			+ "JOIN LA_BOARD_COLUMN old on LA_EVENT.EVENT_PREV_COLUMN_ID_FK = old.BOARD_COLUMN_ID "
-			+ "JOIN LA_BOARD_COLUMN_DEFINITION oldDef on old.BOARD_COLUMN_DEFINITION_ID_FK = oldDef.BOARD_COLUMN_DEFINITION_ID "
-			+ "JOIN LA_BOARD_COLUMN new on LA_EVENT.EVENT_COLUMN_ID_FK = new.BOARD_COLUMN_ID "
-			+ "JOIN LA_BOARD_COLUMN_DEFINITION newDef on new.BOARD_COLUMN_DEFINITION_ID_FK = newDef.BOARD_COLUMN_DEFINITION_ID "
-			+ "JOIN LA_BOARD ON new.BOARD_COLUMN_BOARD_ID_FK = LA_BOARD.BOARD_ID "
-			+ "WHERE (EVENT_TYPE = 'CARD_MOVE' OR EVENT_TYPE = 'CARD_ARCHIVE' OR EVENT_TYPE = 'CARD_TRASH') AND "
-			+ "BOARD_ID = :boardId AND EVENT_TIME >= :fromDate AND "
-			+ "oldDef.BOARD_COLUMN_DEFINITION_VALUE <> 'CLOSED' AND newDef.BOARD_COLUMN_DEFINITION_VALUE = 'CLOSED' "
-			+ "GROUP BY EVENT_DATE ORDER BY EVENT_DATE")
+	@Query("SELECT BOARD_DAILY_COUNT_DAY AS EVENT_DATE, SUM(BOARD_DAILY_COUNT_CLOSED) AS EVENT_COUNT FROM LA_BOARD_DAILY_COUNT "
+			+ "WHERE BOARD_DAILY_COUNT_BOARD_ID_FK = :boardId AND BOARD_DAILY_COUNT_DAY >= :fromDate "
+			+ "GROUP BY BOARD_DAILY_COUNT_DAY HAVING SUM(BOARD_DAILY_COUNT_CLOSED) > 0 ORDER BY BOARD_DAILY_COUNT_DAY")
 	List<EventsCount> getClosedCardsByBoard(@Bind("boardId") int boardId, @Bind("fromDate") Date fromDate);
 
-	@Query("SELECT CAST(EVENT_TIME AS DATE) AS EVENT_DATE, COUNT(*) AS EVENT_COUNT FROM LA_EVENT "
-			+ "JOIN LA_BOARD_COLUMN old on LA_EVENT.EVENT_PREV_COLUMN_ID_FK = old.BOARD_COLUMN_ID "
-			+ "JOIN LA_BOARD_COLUMN_DEFINITION oldDef on old.BOARD_COLUMN_DEFINITION_ID_FK = oldDef.BOARD_COLUMN_DEFINITION_ID "
-			+ "JOIN LA_BOARD_COLUMN new on LA_EVENT.EVENT_COLUMN_ID_FK = new.BOARD_COLUMN_ID "
-			+ "JOIN LA_BOARD_COLUMN_DEFINITION newDef on new.BOARD_COLUMN_DEFINITION_ID_FK = newDef.BOARD_COLUMN_DEFINITION_ID "
-			+ "JOIN LA_BOARD ON new.BOARD_COLUMN_BOARD_ID_FK = LA_BOARD.BOARD_ID "
-			+ "WHERE (EVENT_TYPE = 'CARD_MOVE' OR EVENT_TYPE = 'CARD_ARCHIVE' OR EVENT_TYPE = 'CARD_TRASH') AND "
-			+ "BOARD_ARCHIVED = FALSE AND BOARD_PROJECT_ID_FK = :projectId AND EVENT_TIME >= :fromDate AND "
-			+ "oldDef.BOARD_COLUMN_DEFINITION_VALUE <> 'CLOSED' AND newDef.BOARD_COLUMN_DEFINITION_VALUE = 'CLOSED' "
-			+ "GROUP BY EVENT_DATE ORDER BY EVENT_DATE")
+	@Query("SELECT BOARD_DAILY_COUNT_DAY AS EVENT_DATE, SUM(BOARD_DAILY_COUNT_CLOSED) AS EVENT_COUNT FROM LA_BOARD_DAILY_COUNT "
+			+ "INNER JOIN LA_BOARD ON BOARD_DAILY_COUNT_BOARD_ID_FK = BOARD_ID "
+			+ "WHERE BOARD_ARCHIVED = FALSE AND BOARD_PROJECT_ID_FK = :projectId AND BOARD_DAILY_COUNT_DAY >= :fromDate "
+			+ "GROUP BY BOARD_DAILY_COUNT_DAY HAVING SUM(BOARD_DAILY_COUNT_CLOSED) > 0 ORDER BY BOARD_DAILY_COUNT_DAY")
 	List<EventsCount> getClosedCardsByProject(@Bind("projectId") int projectId, @Bind("fromDate") Date fromDate);
 
 	// Most active card
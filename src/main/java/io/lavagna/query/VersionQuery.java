@@ -0,0 +1,94 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.query;
+
+import java.util.Collection;
+import java.util.List;
+
+import ch.digitalfondue.npjt.Bind;
+import ch.digitalfondue.npjt.Query;
+import ch.digitalfondue.npjt.QueryRepository;
+
+@QueryRepository
+public interface VersionQuery {
+
+	String INCREMENT_BOARD = "UPDATE LA_BOARD_COUNTER SET BOARD_COUNTER_VERSION = BOARD_COUNTER_VERSION + 1 WHERE BOARD_COUNTER_ID_FK";
+
+	String INCREMENT_COLUMN = "UPDATE LA_BOARD_COLUMN_VERSION SET BOARD_COLUMN_VERSION_VALUE = BOARD_COLUMN_VERSION_VALUE + 1 WHERE BOARD_COLUMN_VERSION_ID_FK";
+
+	String INCREMENT_CARD = "UPDATE LA_CARD_VERSION SET CARD_VERSION_VALUE = CARD_VERSION_VALUE + 1 WHERE CARD_VERSION_ID_FK";
+
+	@Query("SELECT BOARD_COUNTER_VERSION FROM LA_BOARD_COUNTER WHERE BOARD_COUNTER_ID_FK = :boardId")
+	Long findBoardVersion(@Bind("boardId") int boardId);
+
+	@Query("SELECT BOARD_COUNTER_VERSION FROM LA_BOARD_COUNTER INNER JOIN LA_BOARD ON BOARD_COUNTER_ID_FK = BOARD_ID WHERE BOARD_SHORT_NAME = :shortName")
+	Long findBoardVersionByShortName(@Bind("shortName") String shortName);
+
+	@Query("SELECT PROJECT_VERSION_VALUE FROM LA_PROJECT_VERSION INNER JOIN LA_PROJECT ON PROJECT_VERSION_ID_FK = PROJECT_ID WHERE PROJECT_SHORT_NAME = :shortName")
+	Long findProjectVersionByShortName(@Bind("shortName") String shortName);
+
+	@Query("SELECT BOARD_COLUMN_VERSION_VALUE FROM LA_BOARD_COLUMN_VERSION WHERE BOARD_COLUMN_VERSION_ID_FK = :columnId")
+	Long findColumnVersion(@Bind("columnId") int columnId);
+
+	@Query("SELECT CARD_VERSION_VALUE FROM LA_CARD_VERSION WHERE CARD_VERSION_ID_FK = :cardId")
+	Long findCardVersion(@Bind("cardId") int cardId);
+
+	@Query("INSERT INTO LA_PROJECT_VERSION(PROJECT_VERSION_ID_FK, PROJECT_VERSION_VALUE) VALUES (:projectId, 0)")
+	int createProjectVersion(@Bind("projectId") int projectId);
+
+	@Query("INSERT INTO LA_BOARD_COLUMN_VERSION(BOARD_COLUMN_VERSION_ID_FK, BOARD_COLUMN_VERSION_VALUE) VALUES (:columnId, 0)")
+	int createColumnVersion(@Bind("columnId") int columnId);
+
+	@Query("INSERT INTO LA_CARD_VERSION(CARD_VERSION_ID_FK, CARD_VERSION_VALUE) VALUES (:cardId, 0)")
+	int createCardVersion(@Bind("cardId") int cardId);
+
+	@Query("UPDATE LA_PROJECT_VERSION SET PROJECT_VERSION_VALUE = PROJECT_VERSION_VALUE + 1 WHERE PROJECT_VERSION_ID_FK = :projectId")
+	int incrementProjectVersion(@Bind("projectId") int projectId);
+
+	@Query(INCREMENT_BOARD + " = :boardId")
+	int incrementBoardVersion(@Bind("boardId") int boardId);
+
+	@Query(INCREMENT_BOARD + " IN (:boardIds)")
+	int incrementBoardVersions(@Bind("boardIds") Collection<Integer> boardIds);
+
+	@Query("SELECT DISTINCT BOARD_COLUMN_BOARD_ID_FK FROM LA_BOARD_COLUMN WHERE BOARD_COLUMN_ID IN (:columnIds)")
+	List<Integer> findBoardIdsByColumnIds(@Bind("columnIds") Collection<Integer> columnIds);
+
+	@Query("SELECT BOARD_ID FROM LA_BOARD WHERE BOARD_SHORT_NAME IN (:shortNames)")
+	List<Integer> findBoardIdsByShortNames(@Bind("shortNames") Collection<String> shortNames);
+
+	@Query("SELECT BOARD_ID FROM LA_BOARD WHERE BOARD_PROJECT_ID_FK = :projectId")
+	List<Integer> findBoardIdsByProjectId(@Bind("projectId") int projectId);
+
+	@Query(INCREMENT_COLUMN + " IN (:columnIds)")
+	int incrementColumnVersion(@Bind("columnIds") Collection<Integer> columnIds);
+
+	@Query("SELECT DISTINCT CARD_BOARD_COLUMN_ID_FK FROM LA_CARD WHERE CARD_ID IN (:cardIds)")
+	List<Integer> findColumnIdsByCardIds(@Bind("cardIds") Collection<Integer> cardIds);
+
+	@Query("SELECT BOARD_COLUMN_ID FROM LA_BOARD_COLUMN INNER JOIN LA_BOARD ON BOARD_COLUMN_BOARD_ID_FK = BOARD_ID WHERE BOARD_SHORT_NAME IN (:shortNames)")
+	List<Integer> findColumnIdsByBoardShortNames(@Bind("shortNames") Collection<String> shortNames);
+
+	@Query("SELECT BOARD_COLUMN_ID FROM LA_BOARD_COLUMN INNER JOIN LA_BOARD ON BOARD_COLUMN_BOARD_ID_FK = BOARD_ID WHERE BOARD_PROJECT_ID_FK = :projectId")
+	List<Integer> findColumnIdsByProjectId(@Bind("projectId") int projectId);
+
+	@Query(INCREMENT_CARD + " IN (:cardIds)")
+	int incrementCardVersion(@Bind("cardIds") Collection<Integer> cardIds);
+
+	@Query("SELECT DISTINCT CARD_DATA_CARD_ID_FK FROM LA_CARD_DATA WHERE CARD_DATA_ID IN (:cardDataIds)")
+	List<Integer> findCardIdsByCardDataIds(@Bind("cardDataIds") Collection<Integer> cardDataIds);
+}
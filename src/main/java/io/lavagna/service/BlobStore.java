@@ -0,0 +1,62 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Storage of the content of the uploaded files, keyed by their SHA-256 digest. As a content never changes, storing
+ * the same digest twice is a no-op.
+ */
+public interface BlobStore {
+
+	boolean contains(String digest);
+
+	/**
+	 * Store the content, if not already present.
+	 *
+	 * @param digest
+	 * @param size
+	 * @param content
+	 * @throws IOException
+	 */
+	void put(String digest, long size, InputStream content) throws IOException;
+
+	/**
+	 * Read the content once, computing its digest. Nothing is stored until {@link StagedBlob#commit()}, so the
+	 * duplicates are detected after the content has been read.
+	 *
+	 * @param content
+	 * @param maxSize
+	 *            the staging fails with {@link UploadTooLargeException} as soon as the content is bigger
+	 * @throws IOException
+	 */
+	StagedBlob stage(InputStream content, long maxSize) throws IOException;
+
+	/**
+	 * Copy at most <code>count</code> bytes of the content, starting from <code>position</code>, to the target.
+	 *
+	 * @param digest
+	 * @param position
+	 * @param count
+	 * @param target
+	 * @throws IOException
+	 */
+	void transferTo(String digest, long position, long count, WritableByteChannel target) throws IOException;
+}
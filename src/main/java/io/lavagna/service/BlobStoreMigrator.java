@@ -0,0 +1,93 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.query.CardDataQuery;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Move the content of the uploaded files from the database to the configured {@link BlobStore}. The content is
+ * removed from the database only after it has been stored, so an interrupted run is simply resumed by the next one.
+ */
+@Service
+@Transactional(readOnly = true)
+public class BlobStoreMigrator {
+
+	private static final Logger LOG = LogManager.getLogger();
+
+	private final NamedParameterJdbcTemplate jdbc;
+	private final CardDataQuery queries;
+	private final BlobStore blobStore;
+
+	public BlobStoreMigrator(NamedParameterJdbcTemplate jdbc, CardDataQuery queries, BlobStore blobStore) {
+		this.jdbc = jdbc;
+		this.queries = queries;
+		this.blobStore = blobStore;
+	}
+
+	public boolean isEnabled() {
+		return !(blobStore instanceof DatabaseBlobStore);
+	}
+
+	/**
+	 * @param amount
+	 *            upper bound of the files moved by a single call
+	 * @return the number of files moved
+	 */
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public int migrate(int amount) {
+		if (!isEnabled()) {
+			return 0;
+		}
+		List<String> digests = queries.findDigestsWithUploadContent(amount);
+		for (String digest : digests) {
+			copyToStore(digest);
+			queries.removeUploadContent(digest);
+		}
+		if (!digests.isEmpty()) {
+			LOG.info("blob store: {} files moved out of the database", digests.size());
+		}
+		return digests.size();
+	}
+
+	private void copyToStore(final String digest) {
+		jdbc.query(queries.fileContent(), new MapSqlParameterSource("digest", digest), new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				try (InputStream is = rs.getBinaryStream("CONTENT")) {
+					blobStore.put(digest, rs.getLong("SIZE"), is);
+				} catch (IOException e) {
+					throw new IllegalStateException("Error while moving the file " + digest, e);
+				}
+			}
+		});
+	}
+}
@@ -43,12 +43,21 @@ public class BoardColumnRepository {
 	private final NamedParameterJdbcTemplate jdbc;
 	private final EventRepository eventRepository;
 	private final BoardColumnQuery queries;
+	private final CardSearchIndex cardSearchIndex;
+	private final TaskStatisticsCache taskStatisticsCache;
+	private final StatisticsService statisticsService;
+	private final VersionRepository versionRepository;
 
 	public BoardColumnRepository(NamedParameterJdbcTemplate jdbc, EventRepository eventRepository,
-			BoardColumnQuery queries) {
+			BoardColumnQuery queries, CardSearchIndex cardSearchIndex, TaskStatisticsCache taskStatisticsCache,
+			StatisticsService statisticsService, VersionRepository versionRepository) {
 		this.jdbc = jdbc;
 		this.eventRepository = eventRepository;
 		this.queries = queries;
+		this.cardSearchIndex = cardSearchIndex;
+		this.taskStatisticsCache = taskStatisticsCache;
+		this.statisticsService = statisticsService;
+		this.versionRepository = versionRepository;
 	}
 
 	public BoardColumnInfo getColumnInfoById(int columnId) {
@@ -68,6 +77,7 @@ public class BoardColumnRepository {
 	}
 
 	public int updateOrder(int columnId, int order) {
+		versionRepository.columnChanged(columnId);
 		return queries.updateOrder(columnId, order);
 	}
 
@@ -95,12 +105,16 @@ public class BoardColumnRepository {
 		Objects.requireNonNull(location);
 
 		queries.addColumnToBoard(trimToNull(name), boardId, location.toString(), definitionId);
+		BoardColumn created = queries.findLastCreatedColumn();
+		versionRepository.columnCreated(created.getId());
+		versionRepository.boardChanged(boardId);
 
-		return queries.findLastCreatedColumn();
+		return created;
 	}
 
 	@Transactional(readOnly = false)
 	public int renameColumn(int columnId, String newName, int boardId) {
+		versionRepository.boardChanged(boardId);
 		return queries.renameColumn(trimToNull(newName), columnId, boardId);
 	}
 
@@ -128,6 +142,7 @@ public class BoardColumnRepository {
 		}
 
 		jdbc.batchUpdate(queries.updateColumnOrder(), params);
+		versionRepository.boardChanged(boardId);
 	}
 
 	@Transactional(readOnly = false)
@@ -135,10 +150,13 @@ public class BoardColumnRepository {
 		Validate.isTrue(location != BoardColumnLocation.BOARD);
 
 		// copy the column definition id of the default one
-		int columnDefinitionId = findDefaultColumnFor(findById(id).getBoardId(), location).getDefinitionId();
+		int boardId = findById(id).getBoardId();
+		int columnDefinitionId = findDefaultColumnFor(boardId, location).getDefinitionId();
 		//
 
 		int res = queries.moveToLocation(id, location.toString(), columnDefinitionId);
+		statisticsService.refreshBoardCounters(boardId);
+		versionRepository.boardChanged(boardId);
 
 		List<Integer> cardIds = queries.findCardsInColumnId(id);
 		eventRepository.insertCardEvent(cardIds, id, user.getId(), BoardColumnLocation.MAPPING.get(location),
@@ -149,6 +167,11 @@ public class BoardColumnRepository {
 
 	@Transactional(readOnly = false)
 	public int redefineColumn(int columnId, int definitionId, int boardId) {
-		return queries.redefineColumn(definitionId, columnId, boardId);
+		cardSearchIndex.invalidateAll();
+		taskStatisticsCache.invalidate(getColumnInfoById(columnId).getProjectId(), boardId);
+		int res = queries.redefineColumn(definitionId, columnId, boardId);
+		statisticsService.refreshBoardCounters(boardId);
+		versionRepository.boardChanged(boardId);
+		return res;
 	}
 }
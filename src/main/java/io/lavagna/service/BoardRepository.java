@@ -25,6 +25,7 @@ import io.lavagna.model.ColumnDefinition;
 import io.lavagna.model.ProjectAndBoard;
 import io.lavagna.query.BoardQuery;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
@@ -37,10 +38,23 @@ public class BoardRepository {
 
 	private final BoardColumnRepository boardColumnRepository;
 	private final BoardQuery queries;
-
-	public BoardRepository(BoardQuery queries, BoardColumnRepository boardColumnRepository) {
+	private final CardSearchIndex cardSearchIndex;
+	private final TaskStatisticsCache taskStatisticsCache;
+	private final StatisticsService statisticsService;
+	private final StatisticsHistoryCache statisticsHistoryCache;
+	private final VersionRepository versionRepository;
+
+	public BoardRepository(BoardQuery queries, BoardColumnRepository boardColumnRepository,
+			CardSearchIndex cardSearchIndex, TaskStatisticsCache taskStatisticsCache,
+			StatisticsService statisticsService, StatisticsHistoryCache statisticsHistoryCache,
+			VersionRepository versionRepository) {
 		this.boardColumnRepository = boardColumnRepository;
 		this.queries = queries;
+		this.cardSearchIndex = cardSearchIndex;
+		this.taskStatisticsCache = taskStatisticsCache;
+		this.statisticsService = statisticsService;
+		this.statisticsHistoryCache = statisticsHistoryCache;
+		this.versionRepository = versionRepository;
 	}
 
 	@Transactional(readOnly = false)
@@ -49,7 +63,9 @@ public class BoardRepository {
 				trimToNull(description), projectId);
 		queries.initializeSequence();
 
-		return queries.findLastCreatedBoard();
+		Board board = queries.findLastCreatedBoard();
+		statisticsService.createBoardCounters(board.getId());
+		return board;
 	}
 
 	/**
@@ -83,7 +99,13 @@ public class BoardRepository {
 	@Transactional(readOnly = false)
 	public Board updateBoard(int boardId, String name, String description, boolean archived) {
 		queries.updateBoard(boardId, name, description, archived);
-		return queries.findBoardById(boardId);
+		cardSearchIndex.invalidateAll();
+		versionRepository.boardChanged(boardId);
+		Board board = queries.findBoardById(boardId);
+		taskStatisticsCache.invalidate(board.getProjectId(), boardId);
+		statisticsHistoryCache.invalidate(Collections.singletonList(boardId),
+				Collections.singletonList(board.getProjectId()));
+		return board;
 	}
 
 	public Integer findBoardIdByShortName(String shortName) {
@@ -19,12 +19,14 @@ package io.lavagna.service;
 import static java.util.Objects.requireNonNull;
 import static org.apache.commons.lang3.StringUtils.trimToEmpty;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -34,19 +36,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
-import org.springframework.jdbc.core.support.AbstractLobCreatingPreparedStatementCallback;
-import org.springframework.jdbc.support.lob.DefaultLobHandler;
-import org.springframework.jdbc.support.lob.LobCreator;
-import org.springframework.jdbc.support.lob.LobHandler;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.StreamUtils;
 
 import io.lavagna.model.BoardColumn.BoardColumnLocation;
 import io.lavagna.model.CardData;
@@ -69,10 +66,22 @@ public class CardDataRepository {
 
 	private final NamedParameterJdbcTemplate jdbc;
 	private final CardDataQuery queries;
-
-	public CardDataRepository(NamedParameterJdbcTemplate jdbc, CardDataQuery queries) {
+	private final MySqlFullTextSupportQueue mySqlFullTextSupportQueue;
+	private final BlobStore blobStore;
+	private final DatabaseBlobStore databaseBlobStore;
+	private final FileContentCache fileContentCache;
+	private final VersionRepository versionRepository;
+
+	public CardDataRepository(NamedParameterJdbcTemplate jdbc, CardDataQuery queries,
+			MySqlFullTextSupportQueue mySqlFullTextSupportQueue, BlobStore blobStore,
+			FileContentCache fileContentCache, VersionRepository versionRepository) {
 		this.jdbc = jdbc;
 		this.queries = queries;
+		this.mySqlFullTextSupportQueue = mySqlFullTextSupportQueue;
+		this.blobStore = blobStore;
+		this.databaseBlobStore = new DatabaseBlobStore(jdbc, queries);
+		this.fileContentCache = fileContentCache;
+		this.versionRepository = versionRepository;
 	}
 
 	private static List<String> toStringList(Set<?> s) {
@@ -169,7 +178,10 @@ public class CardDataRepository {
 	public CardData createData(int cardId, CardType type, String content) {
 		LOG.debug("createCardData: {card: {}, type: {}, content: {}}", cardId, type, content);
 		queries.create(cardId, type.toString(), requireNonNull(trimToEmpty(content), "content cannot be empty"));
-		return queries.findLastCreatedLight();
+		CardData created = queries.findLastCreatedLight();
+		mySqlFullTextSupportQueue.cardDataChanged(created.getId());
+		versionRepository.cardChanged(cardId);
+		return created;
 	}
 
 	@Transactional(readOnly = false)
@@ -180,7 +192,10 @@ public class CardDataRepository {
 		queries.createWithReferenceOrder(cardId, referenceId, type.toString(),
 				requireNonNull(trimToEmpty(content), "content cannot be empty"));
 
-		return queries.findLastCreatedLight();
+		CardData created = queries.findLastCreatedLight();
+		mySqlFullTextSupportQueue.cardDataChanged(created.getId());
+		versionRepository.cardChanged(cardId);
+		return created;
 	}
 
 	/**
@@ -204,13 +219,34 @@ public class CardDataRepository {
 		}
 
 		jdbc.batchUpdate(queries.updateOrder(), params);
+		versionRepository.cardChanged(cardId);
 	}
 
 	@Transactional(readOnly = false)
 	public int updateOrderById(int id, int order) {
+		versionRepository.cardDataChanged(id);
 		return queries.updateOrderById(id, order);
 	}
 
+	/**
+	 * Update the order of the given card data with a single batch.
+	 *
+	 * @param orderById
+	 *            the new order by card data id
+	 */
+	@Transactional(readOnly = false)
+	public void updateOrderByIds(Map<Integer, Integer> orderById) {
+		if (orderById.isEmpty()) {
+			return;
+		}
+		List<SqlParameterSource> params = new ArrayList<>(orderById.size());
+		for (Map.Entry<Integer, Integer> kv : orderById.entrySet()) {
+			params.add(new MapSqlParameterSource("id", kv.getKey()).addValue("order", kv.getValue()));
+		}
+		jdbc.batchUpdate(queries.updateOrderByIdTemplate(), params.toArray(new SqlParameterSource[params.size()]));
+		versionRepository.cardDataChanged(orderById.keySet());
+	}
+
 	/**
 	 * Order the action item inside a action list. Additionally, the ids are filtered.
 	 *
@@ -230,47 +266,57 @@ public class CardDataRepository {
 
 		jdbc.batchUpdate(queries.updateOrderByCardAndReferenceId(),
 				params.toArray(new SqlParameterSource[params.size()]));
+		versionRepository.cardChanged(cardId);
 	}
 
 	@Transactional(readOnly = false)
 	public int updateReferenceId(int cardId, int dataId, Integer referenceId) {
 		LOG.debug("updateReferenceId: {card: {}, data: {}, referenceId: {}}", cardId, dataId, referenceId);
+		versionRepository.cardChanged(cardId);
 		return queries.updateReferenceId(referenceId, dataId, cardId);
 	}
 
 	@Transactional(readOnly = false)
 	public int updateContent(int id, Set<CardType> types, String content) {
-		return queries.updateContent(requireNonNull(trimToEmpty(content), "content cannot be empty"), id,
+		int updated = queries.updateContent(requireNonNull(trimToEmpty(content), "content cannot be empty"), id,
 				toStringList(types));
+		mySqlFullTextSupportQueue.cardDataChanged(id);
+		versionRepository.cardDataChanged(id);
+		return updated;
 	}
 
 	@Transactional(readOnly = false)
 	public int updateType(int id, Set<CardType> oldTypes, CardType newType) {
 		LOG.debug("updateType: {item: {}, type: {}}", id, newType);
+		versionRepository.cardDataChanged(id);
 		return queries.updateType(newType.toString(), id, toStringList(oldTypes));
 	}
 
 	@Transactional(readOnly = false)
 	public int softDelete(int id, Set<CardType> types) {
 		LOG.debug("softDelete: {id: {}}", id);
+		versionRepository.cardDataChanged(id);
 		return queries.softDelete(id, toStringList(types));
 	}
 
 	@Transactional(readOnly = false)
 	public int undoSoftDelete(int id, Set<CardType> types) {
 		LOG.debug("undoSoftDelete: {id: {}}", id);
+		versionRepository.cardDataChanged(id);
 		return queries.undoSoftDelete(id, toStringList(types));
 	}
 
 	@Transactional(readOnly = false)
 	public int softDeleteOnCascade(int id, Set<CardType> types) {
 		LOG.debug("softDeleteOnCascade: {id: {}}", id);
+		versionRepository.cardDataChanged(id);
 		return queries.softDeleteOnCascade(id, toStringList(types));
 	}
 
 	@Transactional(readOnly = false)
 	public int undoSoftDeleteOnCascade(int id, Set<CardType> types, Set<EventType> filteredEvents) {
 		LOG.debug("undoSoftDeleteOnCascade: {id: {}}", id);
+		versionRepository.cardDataChanged(id);
 		return queries.undoSoftDeleteOnCascade(id, toStringList(types), toStringList(filteredEvents));
 	}
 
@@ -282,21 +328,74 @@ public class CardDataRepository {
 		return ids.isEmpty() ? Collections.<CardDataCount> emptyList() : queries.findCountsByCardIds(ids);
 	}
 
+	/**
+	 * Save the metadata of the file and store its content in the configured {@link BlobStore}.
+	 */
+	@Transactional(readOnly = false)
+	public int addUploadContent(String digest, long fileSize, InputStream content, String contentType) {
+		int res = queries.addUploadContent(digest, fileSize, contentType);
+		try {
+			blobStore.put(digest, fileSize, content);
+		} catch (IOException e) {
+			throw new IllegalStateException("Error while storing the file " + digest, e);
+		}
+		return res;
+	}
+
+	/**
+	 * Read the content once in the staging area of the configured {@link BlobStore}.
+	 */
+	public StagedBlob stageUploadContent(InputStream content, long maxSize) throws IOException {
+		return blobStore.stage(content, maxSize);
+	}
+
+	/**
+	 * Save the metadata of a staged file and commit its content.
+	 */
+	@Transactional(readOnly = false)
+	public int addUploadContent(StagedBlob content, String contentType) {
+		int res = queries.addUploadContent(content.getDigest(), content.getSize(), contentType);
+		try {
+			content.commit();
+		} catch (IOException e) {
+			throw new IllegalStateException("Error while storing the file " + content.getDigest(), e);
+		}
+		return res;
+	}
+
+	public CardDataUploadContentInfo findUploadContentInfo(String digest) {
+		return queries.findUploadContentInfo(digest);
+	}
+
+	/**
+	 * @param digest
+	 * @param size
+	 * @return an empty list if the thumbnail has not been generated yet, else a single element: the digest of the
+	 *         thumbnail, null if the file is not an image
+	 */
+	public List<String> findThumbnailDigest(String digest, int size) {
+		return queries.findThumbnailDigest(digest, size);
+	}
+
+	/**
+	 * Save the thumbnail as an upload content, if not already present, and link it to the original file.
+	 *
+	 * @param digest
+	 * @param size
+	 * @param thumbnail
+	 *            null if the file is not an image
+	 * @param contentType
+	 */
 	@Transactional(readOnly = false)
-	public int addUploadContent(final String digest, final long fileSize, final InputStream content,
-			final String contentType) {
-		LobHandler lobHandler = new DefaultLobHandler();
-		return jdbc.getJdbcOperations().execute(queries.addUploadContent(),
-				new AbstractLobCreatingPreparedStatementCallback(lobHandler) {
-
-					@Override
-					protected void setValues(PreparedStatement ps, LobCreator lobCreator) throws SQLException {
-						ps.setString(1, digest);
-						ps.setLong(2, fileSize);
-						lobCreator.setBlobAsBinaryStream(ps, 3, content, (int) fileSize);
-						ps.setString(4, contentType);
-					}
-				});
+	public void addThumbnail(String digest, int size, byte[] thumbnail, String contentType) {
+		String thumbnailDigest = null;
+		if (thumbnail != null) {
+			thumbnailDigest = DigestUtils.sha256Hex(thumbnail);
+			if (!fileExists(thumbnailDigest)) {
+				addUploadContent(thumbnailDigest, thumbnail.length, new ByteArrayInputStream(thumbnail), contentType);
+			}
+		}
+		queries.addThumbnail(digest, size, thumbnailDigest);
 	}
 
 	@Transactional(readOnly = false)
@@ -312,19 +411,56 @@ public class CardDataRepository {
 		return queries.isFileAvailableByCard(cardId, digest).equals(1);
 	}
 
-	public void outputFileContent(String digest, final OutputStream out) throws IOException {
+	public void outputFileContent(String digest, OutputStream out) throws IOException {
+		transferFileContent(digest, 0, Long.MAX_VALUE, Channels.newChannel(out));
+	}
+
+	/**
+	 * Copy at most <code>count</code> bytes of the file, starting from <code>position</code>.
+	 */
+	public void transferFileContent(String digest, long position, long count, WritableByteChannel target)
+			throws IOException {
 		LOG.debug("get file digest : {} ", digest);
-		SqlParameterSource param = new MapSqlParameterSource("digest", digest);
-
-		jdbc.query(queries.fileContent(), param, new RowCallbackHandler() {
-			@Override
-			public void processRow(ResultSet rs) throws SQLException {
-				try (InputStream is = rs.getBinaryStream("CONTENT")) {
-					StreamUtils.copy(is, out);
-				} catch (IOException e) {
-					throw new IllegalStateException("Error while copying data", e);
-				}
-			}
-		});
+		storeOf(digest).transferTo(digest, position, count, target);
+	}
+
+	/**
+	 * Same as {@link #transferFileContent(String, long, long, WritableByteChannel)}, the small files are served from
+	 * the {@link FileContentCache}.
+	 *
+	 * @param digest
+	 * @param size
+	 *            the size of the file
+	 * @param position
+	 * @param count
+	 * @param target
+	 * @throws IOException
+	 */
+	public void transferFileContent(String digest, long size, long position, long count, WritableByteChannel target)
+			throws IOException {
+		if (!fileContentCache.isCacheable(size)) {
+			transferFileContent(digest, position, count, target);
+			return;
+		}
+		byte[] content = fileContentCache.get(digest);
+		if (content == null) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream((int) size);
+			transferFileContent(digest, 0, size, Channels.newChannel(out));
+			content = out.toByteArray();
+			fileContentCache.put(digest, content);
+		}
+		int from = (int) Math.min(position, content.length);
+		ByteBuffer buffer = ByteBuffer.wrap(content, from, (int) Math.min(count, content.length - from));
+		while (buffer.hasRemaining()) {
+			target.write(buffer);
+		}
+	}
+
+	private BlobStore storeOf(String digest) {
+		// the files uploaded before configuring another store stay in the database until they are migrated
+		if (blobStore instanceof DatabaseBlobStore || blobStore.contains(digest)) {
+			return blobStore;
+		}
+		return databaseBlobStore;
 	}
 }
@@ -26,25 +26,57 @@ import io.lavagna.model.Event.EventType;
 import io.lavagna.model.FileDataLight;
 import io.lavagna.model.User;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
 
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @Transactional(readOnly = true)
 public class CardDataService {
 
+    static final int MAX_STAGING_THREADS = 4;
+    private static final int STAGING_QUEUE_SIZE = 16;
+
     private final EventRepository eventRepository;
     private final CardDataRepository cardDataRepository;
+    private final ExecutorService stagingExecutor;
 
     public CardDataService(EventRepository eventRepository, CardDataRepository cardDataRepository) {
         this.eventRepository = eventRepository;
         this.cardDataRepository = cardDataRepository;
+
+        // shared by all the uploads: when it is saturated the files are staged by the request thread
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_STAGING_THREADS, MAX_STAGING_THREADS, 60,
+            TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(STAGING_QUEUE_SIZE), new StagingThreadFactory(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        this.stagingExecutor = pool;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stagingExecutor.shutdown();
     }
 
     public List<CardDataFull> findDescriptionByCardId(int cardId) {
@@ -126,6 +158,23 @@ public class CardDataService {
         if (!cardDataRepository.fileExists(digest)) {
             cardDataRepository.addUploadContent(digest, fileSize, content, contentType);
         }
+        return attachFile(name, digest, cardId, user, time);
+    }
+
+    /**
+     * Same as {@link #createFile(String, String, long, int, InputStream, String, User, Date)}, for a content already
+     * staged: it is committed only if the digest is not already present.
+     */
+    @Transactional(readOnly = false)
+    public ImmutablePair<Boolean, CardData> createFile(String name, StagedBlob content, int cardId,
+        String contentType, User user, Date time) {
+        if (!cardDataRepository.fileExists(content.getDigest())) {
+            cardDataRepository.addUploadContent(content, contentType);
+        }
+        return attachFile(name, content.getDigest(), cardId, user, time);
+    }
+
+    private ImmutablePair<Boolean, CardData> attachFile(String name, String digest, int cardId, User user, Date time) {
         if (!cardDataRepository.isFileAvailableByCard(digest, cardId)) {
             CardData file = cardDataRepository.createData(cardId, CardType.FILE, digest);
             cardDataRepository.createUploadInfo(digest, name, name, file.getId());
@@ -136,6 +185,87 @@ public class CardDataService {
         return ImmutablePair.of(false, null);
     }
 
+    /**
+     * Stage the contents, each one read once while its digest is computed. With more than one content the staging is
+     * done concurrently. No transaction is held meanwhile; on failure, the contents already staged are discarded.
+     *
+     * @param contents
+     *            closed once staged
+     * @param maxSize
+     * @return the staged contents, in the same order
+     * @throws IOException
+     *             {@link UploadTooLargeException} if a content exceeds the maximum size
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<StagedBlob> stageFiles(List<InputStream> contents, final long maxSize) throws IOException {
+        List<Callable<StagedBlob>> tasks = new ArrayList<>(contents.size());
+        for (final InputStream content : contents) {
+            tasks.add(new Callable<StagedBlob>() {
+                @Override
+                public StagedBlob call() throws IOException {
+                    try (InputStream is = content) {
+                        return cardDataRepository.stageUploadContent(is, maxSize);
+                    }
+                }
+            });
+        }
+
+        List<Future<StagedBlob>> futures = new ArrayList<>(tasks.size());
+        if (tasks.size() <= 1) {
+            for (Callable<StagedBlob> task : tasks) {
+                FutureTask<StagedBlob> future = new FutureTask<>(task);
+                future.run();
+                futures.add(future);
+            }
+        } else {
+            try {
+                // wait for all the tasks, so that no staged content is left behind on failure
+                futures.addAll(stagingExecutor.invokeAll(tasks));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        List<StagedBlob> staged = new ArrayList<>(futures.size());
+        Throwable failure = null;
+        for (Future<StagedBlob> future : futures) {
+            try {
+                staged.add(future.get());
+            } catch (ExecutionException e) {
+                failure = failure == null ? e.getCause() : failure;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = failure == null ? new InterruptedIOException() : failure;
+            }
+        }
+        if (failure == null) {
+            return staged;
+        }
+        for (StagedBlob s : staged) {
+            s.close();
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        throw new IllegalStateException(failure);
+    }
+
+    private static class StagingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "upload-staging-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
     /**
      * Checked and filtered.
      */
@@ -58,17 +58,23 @@ public class CardLabelRepository {
     private final NamedParameterJdbcTemplate jdbc;
     private final CardLabelQuery queries;
     private final ListValueMetadataQuery listValuesMetadataQueries;
+    private final CardSearchIndex cardSearchIndex;
+    private final VersionRepository versionRepository;
 
     public CardLabelRepository(NamedParameterJdbcTemplate jdbc, CardLabelQuery queries,
-        ListValueMetadataQuery listValuesMetadataQueries) {
+        ListValueMetadataQuery listValuesMetadataQueries, CardSearchIndex cardSearchIndex,
+        VersionRepository versionRepository) {
         this.jdbc = jdbc;
         this.queries = queries;
         this.listValuesMetadataQueries = listValuesMetadataQueries;
+        this.cardSearchIndex = cardSearchIndex;
+        this.versionRepository = versionRepository;
     }
 
     @Transactional(readOnly = false)
     public void addSystemLabels(int projectId) {
         queries.addSystemLabels(projectId);
+        versionRepository.projectChanged(projectId);
     }
 
     @Transactional(readOnly = false)
@@ -79,14 +85,17 @@ public class CardLabelRepository {
             || (labelDomain == LabelDomain.USER && !reservedName), name + " is a reserved system label name");
 
         queries.addLabel(projectId, unique, labelType.toString(), labelDomain.toString(), name, color);
+        versionRepository.projectChanged(projectId);
 
         return queries.findLastCreatedLabel();
     }
 
     @Transactional(readOnly = false)
     public void removeLabel(int labelId) {
+        labelChanged(labelId);
         queries.removeLabelListValues(labelId);
         queries.removeLabel(labelId);
+        cardSearchIndex.invalidateAll();
     }
 
     public List<CardLabel> findLabelsByProject(int projectId) {
@@ -137,8 +146,16 @@ public class CardLabelRepository {
     }
 
     public Map<Integer, List<LabelAndValue>> findCardLabelValuesByCardIds(List<Integer> ids) {
+        return aggregateByCardId(queries.findCardLabelValuesByCardIds(ids));
+    }
+
+    public Map<Integer, List<LabelAndValue>> findLabelAndValuesByBoardId(int boardId, BoardColumnLocation location) {
+        return aggregateByCardId(queries.findCardLabelValuesByBoardId(boardId, location.toString()));
+    }
+
+    private static Map<Integer, List<LabelAndValue>> aggregateByCardId(List<LabelAndValue> labelAndValues) {
         Map<Integer, List<LabelAndValue>> res = new HashMap<>();
-        for (LabelAndValue lv : queries.findCardLabelValuesByCardIds(ids)) {
+        for (LabelAndValue lv : labelAndValues) {
             if (!res.containsKey(lv.getLabelValueCardId())) {
                 res.put(lv.getLabelValueCardId(), new ArrayList<LabelAndValue>());
             }
@@ -201,6 +218,8 @@ public class CardLabelRepository {
         CardLabel toUpdate = cl.set(label.getName(), label.getType(), label.getColor());
 
         queries.updateLabel(toUpdate.getName(), toUpdate.getColor(), toUpdate.getType().toString(), toUpdate.getId());
+        cardSearchIndex.invalidateAll();
+        versionRepository.projectChanged(cl.getProjectId());
 
         return toUpdate;
     }
@@ -211,12 +230,16 @@ public class CardLabelRepository {
         queries.addLabelValueToCard(cardId, label.isUnique() ? true : null, label.getId(), label.getType().toString(),
             val.getValueString(), val.getValueTimestamp(), val.getValueInt(), val.getValueCard(),
             val.getValueUser(), val.getValueList());
+        cardSearchIndex.cardChanged(cardId);
+        versionRepository.cardChanged(cardId);
 
         return queries.findLastCreatedLabelValue();
     }
 
     @Transactional(readOnly = false)
     public int removeLabelValue(CardLabelValue cardLabelValue) {
+        cardSearchIndex.cardChanged(cardLabelValue.getCardId());
+        versionRepository.cardChanged(cardLabelValue.getCardId());
         return queries.removeLabelValue(cardLabelValue.getCardLabelValueId());
     }
 
@@ -225,17 +248,22 @@ public class CardLabelRepository {
     @Transactional(readOnly = false)
     public LabelListValue addLabelListValue(int labelId, String value) {
         queries.addLabelListValue(labelId, value);
+        labelChanged(labelId);
         return queries.findLastCreatedLabelListValue();
     }
 
     @Transactional(readOnly = false)
     public void removeLabelListValue(int labelListValueId) {
+        labelListValueChanged(labelListValueId);
         queries.removeLabelListValue(labelListValueId);
+        cardSearchIndex.invalidateAll();
     }
 
     @Transactional(readOnly = false)
     public void updateLabelListValue(LabelListValue llv) {
         queries.updateLabelListValue(llv.getId(), llv.getValue());
+        labelListValueChanged(llv.getId());
+        cardSearchIndex.invalidateAll();
     }
 
     public List<LabelListValueWithMetadata> findListValuesByLabelId(int labelId) {
@@ -281,6 +309,7 @@ public class CardLabelRepository {
         }
 
         jdbc.batchUpdate(queries.updateLabelListValueOrder(), vals.toArray(new SqlParameterSource[vals.size()]));
+        labelChanged(value.getCardLabelId());
     }
 
     @Transactional(readOnly = false)
@@ -292,6 +321,7 @@ public class CardLabelRepository {
         SqlParameterSource p2 = new MapSqlParameterSource("id", secondValue.getId()).addValue("order",
             firstValue.getOrder());
         jdbc.batchUpdate(queries.updateLabelListValueOrder(), new SqlParameterSource[] { p1, p2 });
+        labelChanged(firstValue.getCardLabelId());
     }
 
     /**
@@ -362,16 +392,27 @@ public class CardLabelRepository {
     @Transactional(readOnly = false)
     public void updateLabelListMetadata(ListValueMetadata metadata) {
         listValuesMetadataQueries.update(metadata.getLabelListValueId(), metadata.getKey(), metadata.getValue());
+        labelListValueChanged(metadata.getLabelListValueId());
     }
 
     @Transactional(readOnly = false)
     public void createLabelListMetadata(int labelListValueId, String key, String value) {
         listValuesMetadataQueries.insert(labelListValueId, key, value);
+        labelListValueChanged(labelListValueId);
     }
 
     @Transactional(readOnly = false)
     public void removeLabelListMetadata(int labelListValueId, String key) {
         listValuesMetadataQueries.delete(labelListValueId, key);
+        labelListValueChanged(labelListValueId);
+    }
+
+    private void labelChanged(int labelId) {
+        versionRepository.projectChanged(queries.findLabelById(labelId).getProjectId());
+    }
+
+    private void labelListValueChanged(int labelListValueId) {
+        labelChanged(findListValueById(labelListValueId).getCardLabelId());
     }
 
     public int countLabeListValueUse(int labelListValueId) {
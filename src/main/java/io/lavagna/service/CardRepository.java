@@ -27,9 +27,11 @@ import io.lavagna.query.CardQuery;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -55,10 +57,20 @@ public class CardRepository {
 
 	private final NamedParameterJdbcTemplate jdbc;
 	private final CardQuery queries;
-
-	public CardRepository(NamedParameterJdbcTemplate jdbc, CardQuery queries) {
+	private final CardSearchIndex cardSearchIndex;
+	private final MySqlFullTextSupportQueue mySqlFullTextSupportQueue;
+	private final ProjectShortNameCache projectShortNameCache;
+	private final VersionRepository versionRepository;
+
+	public CardRepository(NamedParameterJdbcTemplate jdbc, CardQuery queries, CardSearchIndex cardSearchIndex,
+			MySqlFullTextSupportQueue mySqlFullTextSupportQueue, ProjectShortNameCache projectShortNameCache,
+			VersionRepository versionRepository) {
 		this.jdbc = jdbc;
 		this.queries = queries;
+		this.cardSearchIndex = cardSearchIndex;
+		this.mySqlFullTextSupportQueue = mySqlFullTextSupportQueue;
+		this.projectShortNameCache = projectShortNameCache;
+		this.versionRepository = versionRepository;
 	}
 
 	// prepare a {:cardOrder, :cardId, :columnId} list
@@ -85,6 +97,10 @@ public class CardRepository {
 		return queries.findAllFullByColumnId(columnId);
 	}
 
+	public List<CardFull> findAllFullByBoardIdAndLocation(int boardId, BoardColumnLocation location) {
+		return queries.findAllFullByBoardIdAndLocation(boardId, location.toString());
+	}
+
 	public List<CardFull> findAllByIds(Collection<Integer> ids) {
 		return ids.isEmpty() ? Collections.<CardFull> emptyList() : queries.findAllByIds(ids);
 	}
@@ -131,6 +147,8 @@ public class CardRepository {
 
 	public Card updateCard(int cardId, String name, User user) {
 		queries.updateCard(trimToNull(name), cardId);
+		mySqlFullTextSupportQueue.cardChanged(cardId);
+		versionRepository.cardChanged(cardId);
 		return findBy(cardId);
 	}
 
@@ -149,7 +167,12 @@ public class CardRepository {
 		int sequence = fetchAndLockSequence(columnId);
 		queries.createCard(trimToNull(name), columnId, user.getId(), sequence);
 		incrementSequence(columnId, sequence);
-		return queries.findLastCreatedCard();
+		Card created = queries.findLastCreatedCard();
+		cardSearchIndex.cardChanged(created.getId());
+		mySqlFullTextSupportQueue.cardChanged(created.getId());
+		versionRepository.cardCreated(created.getId());
+		versionRepository.columnChanged(columnId);
+		return created;
 	}
 
 	@Transactional(readOnly = false)
@@ -210,6 +233,9 @@ public class CardRepository {
 				"previousColumnId", previousColumnId);
 		int affected = jdbc.update(queries.moveCardToColumn(), param);
 		Validate.isTrue(1 == affected, "moveCardToColumn: must affect exactly one row");
+		cardSearchIndex.cardChanged(cardId);
+		projectShortNameCache.cardsMoved(previousColumnId, columnId);
+		versionRepository.columnsChanged(Arrays.asList(previousColumnId, columnId));
 	}
 
 	@Transactional(readOnly = false)
@@ -234,6 +260,11 @@ public class CardRepository {
 				updated.add(filteredCardIds.get(i));
 			}
 		}
+		cardSearchIndex.cardsChanged(updated);
+		projectShortNameCache.cardsMoved(previousColumnId, columnId);
+		if (!updated.isEmpty()) {
+			versionRepository.columnsChanged(Arrays.asList(previousColumnId, columnId));
+		}
 
 		return updated;
 	}
@@ -255,6 +286,28 @@ public class CardRepository {
 
 		List<SqlParameterSource> params = prepareOrderParameter(filteredCardIds, columnId);
 		jdbc.batchUpdate(queries.updateCardOrder(), params.toArray(new SqlParameterSource[params.size()]));
+		versionRepository.columnChanged(columnId);
+	}
+
+	/**
+	 * Update the order of the given cards, identified by board short name and sequence number, with a single batch.
+	 *
+	 * @param cards
+	 */
+	@Transactional(readOnly = false)
+	public void updateCardOrderByBoardNameAndSeq(List<CardFull> cards) {
+		if (cards.isEmpty()) {
+			return;
+		}
+		List<SqlParameterSource> params = new ArrayList<>(cards.size());
+		Set<String> boardShortNames = new HashSet<>();
+		for (CardFull cf : cards) {
+			params.add(new MapSqlParameterSource("order", cf.getOrder()).addValue("seqNumber", cf.getSequence())
+					.addValue("shortName", cf.getBoardShortName()));
+			boardShortNames.add(cf.getBoardShortName());
+		}
+		jdbc.batchUpdate(queries.updateCardOrderByBoardNameAndSeq(), params.toArray(new SqlParameterSource[params.size()]));
+		versionRepository.cardsChangedInBoards(boardShortNames);
 	}
 
 	public Map<String, Integer> findCardsIds(List<String> cards) {
@@ -318,6 +371,7 @@ public class CardRepository {
 	}
 
 	public int updateCardOrder(int cardId, int order) {
+		versionRepository.cardChanged(cardId);
 		return queries.updateCardOrder(cardId, order);
 	}
 }
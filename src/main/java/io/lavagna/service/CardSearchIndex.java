@@ -0,0 +1,550 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.model.CardLabel.LabelDomain;
+import io.lavagna.model.CardLabel.LabelType;
+import io.lavagna.query.SearchQuery;
+import io.lavagna.service.SearchFilter.FilterType;
+import io.lavagna.service.SearchFilter.SearchContext;
+import io.lavagna.service.SearchFilter.ValueType;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Optional in memory inverted index used by {@link SearchService}.
+ * <p>
+ * Each indexed attribute (status, location, board status, assignee, watcher, milestone, due date, user label name,
+ * last updater) is kept as a posting list of card ids stored in a {@link BitSet}. A search is resolved by intersecting
+ * the posting lists: the database is then only used for hydrating the requested page.
+ * <p>
+ * The index is built lazily on the first search and kept up to date by the write paths, which mark the touched cards
+ * as dirty once their transaction has been committed. The dirty cards are reloaded before the next search.
+ * <p>
+ * Enabled with the property "search.index.enabled".
+ */
+@Service
+public class CardSearchIndex {
+
+	private static final Logger LOG = LogManager.getLogger();
+
+	private static final int RELOAD_BATCH_SIZE = 1000;
+
+	private final NamedParameterJdbcTemplate jdbc;
+	private final SearchQuery queries;
+	private final boolean enabled;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Set<Integer> dirtyCards = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+	private volatile boolean stale = true;
+
+	// guarded by lock
+	private final Map<Integer, IndexedCard> cards = new HashMap<>();
+	private final Map<String, BitSet> postings = new HashMap<>();
+	private final BitSet all = new BitSet();
+
+	public CardSearchIndex(NamedParameterJdbcTemplate jdbc, SearchQuery queries, Environment env) {
+		this.jdbc = jdbc;
+		this.queries = queries;
+		this.enabled = Boolean.parseBoolean(env.getProperty("search.index.enabled", "false"));
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Mark the given cards as modified. The index will reload them after the current transaction has been committed.
+	 *
+	 * @param cardIds
+	 */
+	public void cardsChanged(final Collection<Integer> cardIds) {
+		if (!enabled || cardIds.isEmpty()) {
+			return;
+		}
+		final List<Integer> ids = new ArrayList<>(cardIds);
+		Utils.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				dirtyCards.addAll(ids);
+			}
+		});
+	}
+
+	public void cardChanged(int cardId) {
+		cardsChanged(Collections.singletonList(cardId));
+	}
+
+	/**
+	 * Structural changes (e.g. a column definition or a board status update) may affect a large amount of cards: the
+	 * whole index will be rebuilt after the current transaction has been committed.
+	 */
+	public void invalidateAll() {
+		if (!enabled) {
+			return;
+		}
+		Utils.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				stale = true;
+			}
+		});
+	}
+
+	/**
+	 * Rebuild immediately the whole index.
+	 */
+	public void rebuild() {
+		lock.writeLock().lock();
+		try {
+			long start = System.currentTimeMillis();
+			dirtyCards.clear();
+			stale = false;
+			cards.clear();
+			postings.clear();
+			all.clear();
+			for (IndexedCard card : load(null)) {
+				add(card);
+			}
+			LOG.info("search index: rebuilt {} cards in {}ms", cards.size(), System.currentTimeMillis() - start);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void refresh() {
+		if (stale) {
+			rebuild();
+			return;
+		}
+
+		if (dirtyCards.isEmpty()) {
+			return;
+		}
+
+		lock.writeLock().lock();
+		try {
+			List<Integer> toReload = new ArrayList<>();
+			for (Iterator<Integer> it = dirtyCards.iterator(); it.hasNext();) {
+				toReload.add(it.next());
+				it.remove();
+			}
+			for (int i = 0; i < toReload.size(); i += RELOAD_BATCH_SIZE) {
+				List<Integer> batch = toReload.subList(i, Math.min(i + RELOAD_BATCH_SIZE, toReload.size()));
+				for (Integer cardId : batch) {
+					remove(cardId);
+				}
+				for (IndexedCard card : load(batch)) {
+					add(card);
+				}
+			}
+			LOG.debug("search index: reloaded {} cards", toReload.size());
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Return true if all the given filters can be resolved by the index.
+	 *
+	 * @param filters
+	 * @return
+	 */
+	public boolean canHandle(List<SearchFilter> filters) {
+		if (!enabled || filters.isEmpty()) {
+			return false;
+		}
+		for (SearchFilter filter : filters) {
+			FilterType type = filter.getType();
+			if (type == FilterType.CREATED || type == FilterType.CREATED_BY || type == FilterType.FREETEXT) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Return the ids of the cards matching all the filters and the given scope, ordered by last update descending.
+	 *
+	 * @param filters
+	 * @param context
+	 * @param boardId
+	 *            restrict to the given board, can be null
+	 * @param projectIds
+	 *            restrict to the given projects, ignored if null
+	 * @return
+	 */
+	public List<Integer> find(List<SearchFilter> filters, SearchContext context, Integer boardId,
+			Collection<Integer> projectIds) {
+
+		refresh();
+
+		lock.readLock().lock();
+		try {
+			BitSet result = (BitSet) all.clone();
+			if (boardId != null) {
+				result.and(posting("BOARD", boardId));
+			}
+			if (projectIds != null) {
+				BitSet inProjects = new BitSet();
+				for (Integer projectId : projectIds) {
+					inProjects.or(posting("PROJECT", projectId));
+				}
+				result.and(inProjects);
+			}
+			for (SearchFilter filter : filters) {
+				if (result.isEmpty()) {
+					break;
+				}
+				result.and(match(filter, context, result));
+			}
+			return sortedByLastUpdate(result);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private List<Integer> sortedByLastUpdate(BitSet result) {
+		List<IndexedCard> found = new ArrayList<>(result.cardinality());
+		for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+			found.add(cards.get(i));
+		}
+		Collections.sort(found, new Comparator<IndexedCard>() {
+			@Override
+			public int compare(IndexedCard o1, IndexedCard o2) {
+				int cmp = Long.compare(o2.lastUpdated, o1.lastUpdated);
+				return cmp != 0 ? cmp : Integer.compare(o2.id, o1.id);
+			}
+		});
+		List<Integer> ids = new ArrayList<>(found.size());
+		for (IndexedCard card : found) {
+			ids.add(card.id);
+		}
+		return ids;
+	}
+
+	private BitSet match(SearchFilter filter, SearchContext context, BitSet candidates) {
+		Object value = filter.getValue() == null ? null : filter.getValue().getValue();
+		ValueType valueType = filter.getValue() == null ? null : filter.getValue().getType();
+
+		switch (filter.getType()) {
+		case STATUS:
+			return posting(FilterType.STATUS.toString(), value);
+		case LOCATION:
+			return posting(FilterType.LOCATION.toString(), value);
+		case NOTLOCATION:
+			return without(posting(FilterType.LOCATION.toString(), value));
+		case BOARD_STATUS:
+			return posting(FilterType.BOARD_STATUS.toString(), value);
+		case UPDATED_BY:
+			return posting(FilterType.UPDATED_BY.toString(),
+					SearchFilter.userId(context.getCurrentUser(), context.getUserNameToId(), filter));
+		case ASSIGNED:
+		case WATCHED_BY:
+			if (valueType == ValueType.UNASSIGNED) {
+				return without(posting("SYSTEM", filter.getType()));
+			}
+			return posting("SYSTEM:" + filter.getType(),
+					SearchFilter.userId(context.getCurrentUser(), context.getUserNameToId(), filter));
+		case MILESTONE:
+			if (valueType == ValueType.UNASSIGNED) {
+				return without(posting("SYSTEM", FilterType.MILESTONE));
+			}
+			return posting("SYSTEM:" + FilterType.MILESTONE, value);
+		case DUE_DATE:
+			return dueDateMatch(filter, candidates);
+		case UPDATED:
+			return updatedMatch(filter, candidates);
+		case USER_LABEL:
+			return userLabelMatch(filter, context, candidates);
+		default:
+			throw new IllegalArgumentException("unsupported filter type " + filter.getType());
+		}
+	}
+
+	private BitSet dueDateMatch(SearchFilter filter, BitSet candidates) {
+		Date[] range = SearchFilter.dateRange(filter);
+		BitSet res = new BitSet();
+		if (range[0] == null || range[1] == null) {
+			return res;
+		}
+		BitSet withDueDate = (BitSet) posting("SYSTEM", FilterType.DUE_DATE).clone();
+		withDueDate.and(candidates);
+		for (int i = withDueDate.nextSetBit(0); i >= 0; i = withDueDate.nextSetBit(i + 1)) {
+			for (IndexedLabelValue lv : cards.get(i).labels) {
+				if (lv.domain == LabelDomain.SYSTEM && FilterType.DUE_DATE.toString().equals(lv.name)
+						&& lv.timestamp != null && lv.timestamp >= range[0].getTime()
+						&& lv.timestamp < range[1].getTime()) {
+					res.set(i);
+				}
+			}
+		}
+		return res;
+	}
+
+	private BitSet updatedMatch(SearchFilter filter, BitSet candidates) {
+		Date[] range = SearchFilter.dateRange(filter);
+		BitSet res = new BitSet();
+		if (range[0] == null || range[1] == null) {
+			return res;
+		}
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			long lastUpdated = cards.get(i).lastUpdated;
+			if (lastUpdated >= range[0].getTime() && lastUpdated <= range[1].getTime()) {
+				res.set(i);
+			}
+		}
+		return res;
+	}
+
+	private BitSet userLabelMatch(SearchFilter filter, SearchContext context, BitSet candidates) {
+		// label name are matched by prefix
+		String prefix = "USER_LABEL:" + filter.getName();
+		BitSet withLabel = new BitSet();
+		for (Entry<String, BitSet> kv : postings.entrySet()) {
+			if (kv.getKey().startsWith(prefix)) {
+				withLabel.or(kv.getValue());
+			}
+		}
+
+		if (filter.getValue() == null) {
+			return withLabel;
+		}
+
+		String val = filter.getValue().getValue().toString();
+		Integer intVal = SearchFilter.tryParse(val);
+		Integer userVal = SearchFilter.from(context.getUserNameToId(), val);
+		Integer cardVal = SearchFilter.from(context.getCardNameToId(), val);
+		Date[] range = SearchFilter.dateRange(filter);
+
+		withLabel.and(candidates);
+		BitSet res = new BitSet();
+		for (int i = withLabel.nextSetBit(0); i >= 0; i = withLabel.nextSetBit(i + 1)) {
+			for (IndexedLabelValue lv : cards.get(i).labels) {
+				if (lv.domain == LabelDomain.USER && lv.name.startsWith(filter.getName())
+						&& lv.matches(val, intVal, userVal, cardVal, range)) {
+					res.set(i);
+				}
+			}
+		}
+		return res;
+	}
+
+	private BitSet without(BitSet toRemove) {
+		BitSet res = (BitSet) all.clone();
+		res.andNot(toRemove);
+		return res;
+	}
+
+	private BitSet posting(String type, Object value) {
+		if (value == null) {
+			return new BitSet();
+		}
+		BitSet res = postings.get(type + ":" + value);
+		return res == null ? new BitSet() : res;
+	}
+
+	private void add(IndexedCard card) {
+		cards.put(card.id, card);
+		all.set(card.id);
+		for (String key : card.postingKeys()) {
+			BitSet posting = postings.get(key);
+			if (posting == null) {
+				posting = new BitSet();
+				postings.put(key, posting);
+			}
+			posting.set(card.id);
+		}
+	}
+
+	private void remove(int cardId) {
+		IndexedCard card = cards.remove(cardId);
+		if (card == null) {
+			return;
+		}
+		all.clear(cardId);
+		for (String key : card.postingKeys()) {
+			BitSet posting = postings.get(key);
+			if (posting != null) {
+				posting.clear(cardId);
+				if (posting.isEmpty()) {
+					postings.remove(key);
+				}
+			}
+		}
+	}
+
+	private Collection<IndexedCard> load(List<Integer> cardIds) {
+		final Map<Integer, IndexedCard> res = new HashMap<>();
+		MapSqlParameterSource param = new MapSqlParameterSource("cardIds", cardIds);
+
+		String cardsQuery = queries.indexedCards() + (cardIds == null ? "" : queries.indexedCardsWhereIdIn());
+		jdbc.query(cardsQuery, param, new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				IndexedCard card = new IndexedCard(rs.getInt("CARD_ID"), rs.getTimestamp("CARD_LAST_UPDATED")
+						.getTime(), rs.getInt("CARD_LAST_UPDATED_USER_ID_FK"), rs.getInt("BOARD_ID"), rs
+						.getInt("BOARD_PROJECT_ID_FK"), rs.getBoolean("BOARD_ARCHIVED"), rs
+						.getString("BOARD_COLUMN_LOCATION"), rs.getString("BOARD_COLUMN_DEFINITION_VALUE"));
+				res.put(card.id, card);
+			}
+		});
+
+		String labelsQuery = queries.indexedLabelValues()
+				+ (cardIds == null ? "" : queries.indexedLabelValuesAndCardIdIn());
+		jdbc.query(labelsQuery, param, new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				IndexedCard card = res.get(rs.getInt("CARD_ID_FK"));
+				if (card == null) {
+					return;
+				}
+				Timestamp ts = rs.getTimestamp("CARD_LABEL_VALUE_TIMESTAMP");
+				card.labels.add(new IndexedLabelValue(LabelDomain.valueOf(rs.getString("CARD_LABEL_DOMAIN")), rs
+						.getString("CARD_LABEL_NAME"), LabelType.valueOf(rs.getString("CARD_LABEL_VALUE_TYPE")), rs
+						.getString("CARD_LABEL_VALUE_STRING"), ts == null ? null : ts.getTime(), nullableInt(rs,
+						"CARD_LABEL_VALUE_INT"), nullableInt(rs, "CARD_LABEL_VALUE_CARD_FK"), nullableInt(rs,
+						"CARD_LABEL_VALUE_USER_FK"), rs.getString("CARD_LABEL_LIST_VALUE")));
+			}
+		});
+		return res.values();
+	}
+
+	private static Integer nullableInt(ResultSet rs, String column) throws SQLException {
+		int value = rs.getInt(column);
+		return rs.wasNull() ? null : value;
+	}
+
+	private static class IndexedCard {
+		private final int id;
+		private final long lastUpdated;
+		private final int lastUpdatedUserId;
+		private final int boardId;
+		private final int projectId;
+		private final boolean boardArchived;
+		private final String location;
+		private final String columnDefinition;
+		private final List<IndexedLabelValue> labels = new ArrayList<>();
+
+		IndexedCard(int id, long lastUpdated, int lastUpdatedUserId, int boardId, int projectId, boolean boardArchived,
+				String location, String columnDefinition) {
+			this.id = id;
+			this.lastUpdated = lastUpdated;
+			this.lastUpdatedUserId = lastUpdatedUserId;
+			this.boardId = boardId;
+			this.projectId = projectId;
+			this.boardArchived = boardArchived;
+			this.location = location;
+			this.columnDefinition = columnDefinition;
+		}
+
+		Set<String> postingKeys() {
+			Set<String> keys = new HashSet<>();
+			keys.add("BOARD:" + boardId);
+			keys.add("PROJECT:" + projectId);
+			keys.add(FilterType.BOARD_STATUS + ":" + boardArchived);
+			keys.add(FilterType.LOCATION + ":" + location);
+			keys.add(FilterType.STATUS + ":" + columnDefinition);
+			keys.add(FilterType.UPDATED_BY + ":" + lastUpdatedUserId);
+			for (IndexedLabelValue lv : labels) {
+				if (lv.domain == LabelDomain.USER) {
+					keys.add("USER_LABEL:" + lv.name);
+					continue;
+				}
+				keys.add("SYSTEM:" + lv.name);
+				if (lv.type == LabelType.USER && lv.userFk != null) {
+					keys.add("SYSTEM:" + lv.name + ":" + lv.userFk);
+				} else if (lv.type == LabelType.LIST && lv.listValue != null) {
+					keys.add("SYSTEM:" + lv.name + ":" + lv.listValue);
+				}
+			}
+			return keys;
+		}
+	}
+
+	private static class IndexedLabelValue {
+		private final LabelDomain domain;
+		private final String name;
+		private final LabelType type;
+		private final String string;
+		private final Long timestamp;
+		private final Integer integer;
+		private final Integer cardFk;
+		private final Integer userFk;
+		private final String listValue;
+
+		IndexedLabelValue(LabelDomain domain, String name, LabelType type, String string, Long timestamp,
+				Integer integer, Integer cardFk, Integer userFk, String listValue) {
+			this.domain = domain;
+			this.name = name;
+			this.type = type;
+			this.string = string;
+			this.timestamp = timestamp;
+			this.integer = integer;
+			this.cardFk = cardFk;
+			this.userFk = userFk;
+			this.listValue = listValue;
+		}
+
+		// same semantic as SearchQuery.andLabelValueString
+		boolean matches(String val, Integer intVal, Integer userVal, Integer cardVal, Date[] range) {
+			switch (type) {
+			case STRING:
+				return string != null && string.startsWith(val);
+			case INT:
+				return integer != null && integer.equals(intVal);
+			case TIMESTAMP:
+				return timestamp != null && range[0] != null && range[1] != null
+						&& timestamp >= range[0].getTime() && timestamp <= range[1].getTime();
+			case USER:
+				return userFk != null && userFk.equals(userVal);
+			case CARD:
+				return cardFk != null && cardFk.equals(cardVal);
+			case LIST:
+				return listValue != null && listValue.equals(val);
+			default:
+				return false;
+			}
+		}
+	}
+}
@@ -16,7 +16,9 @@
  */
 package io.lavagna.service;
 
+import io.lavagna.model.BoardColumn;
 import io.lavagna.model.BoardColumn.BoardColumnLocation;
+import io.lavagna.model.BoardSnapshot;
 import io.lavagna.model.Card;
 import io.lavagna.model.CardData;
 import io.lavagna.model.CardDataCount;
@@ -37,6 +39,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -54,14 +57,22 @@ public class CardService {
     private final CardDataRepository cardDataRepository;
     private final CardDataService cardDataService;
     private final CardLabelRepository cardLabelRepository;
+    private final StatisticsService statisticsService;
+    private final BoardColumnRepository boardColumnRepository;
+    private final MySqlFullTextSupportQueue mySqlFullTextSupportQueue;
 
     public CardService(CardRepository cardRepository, CardDataRepository cardDataRepository,
-        EventRepository eventRepository, CardDataService cardDataService, CardLabelRepository cardLabelRepository) {
+        EventRepository eventRepository, CardDataService cardDataService, CardLabelRepository cardLabelRepository,
+        StatisticsService statisticsService, BoardColumnRepository boardColumnRepository,
+        MySqlFullTextSupportQueue mySqlFullTextSupportQueue) {
         this.cardRepository = cardRepository;
         this.eventRepository = eventRepository;
         this.cardDataRepository = cardDataRepository;
         this.cardDataService = cardDataService;
         this.cardLabelRepository = cardLabelRepository;
+        this.statisticsService = statisticsService;
+        this.boardColumnRepository = boardColumnRepository;
+        this.mySqlFullTextSupportQueue = mySqlFullTextSupportQueue;
     }
 
     private static List<Integer> fetchIds(List<CardFull> cards) {
@@ -90,7 +101,43 @@ public class CardService {
         return res;
     }
 
-    
+    /**
+     * Load the columns of the board in the given location with all their cards, counts and labels with a fixed number
+     * of queries, independently of the number of columns and cards.
+     *
+     * @param boardId
+     * @param location
+     * @param version
+     *            the board version, to be fetched <strong>before</strong> calling this method
+     * @return
+     */
+    public BoardSnapshot fetchBoardSnapshot(int boardId, BoardColumnLocation location, long version) {
+        List<BoardColumn> columns = boardColumnRepository.findAllColumnsFor(boardId, location);
+        Map<Integer, List<CardFullWithCounts>> cardsByColumnId = new LinkedHashMap<>();
+        for (BoardColumn column : columns) {
+            cardsByColumnId.put(column.getId(), new ArrayList<CardFullWithCounts>());
+        }
+
+        List<CardFull> cards = cardRepository.findAllFullByBoardIdAndLocation(boardId, location);
+        if (!cards.isEmpty()) {
+            Map<Integer, Map<String, CardDataCount>> counts = aggregateByCardId(cardDataRepository
+                .findCountsByBoardIdAndLocation(boardId, location));
+            Map<Integer, List<LabelAndValue>> labels = cardLabelRepository.findLabelAndValuesByBoardId(boardId,
+                location);
+            for (CardFull card : cards) {
+                // moved in the meantime to a new column: the version is already outdated and the next request reloads
+                List<CardFullWithCounts> inColumn = cardsByColumnId.get(card.getColumnId());
+                if (inColumn != null) {
+                    inColumn.add(new CardFullWithCounts(card, counts.get(card.getId()), labels.get(card.getId())));
+                }
+            }
+        }
+        return new BoardSnapshot(version, columns, cardsByColumnId);
+    }
+
+    public CardFullWithCounts fetchCardFullWithCounts(int cardId) {
+        return fetchCardFull(Collections.singletonList(cardRepository.findFullBy(cardId))).get(0);
+    }
 
     List<CardFullWithCounts> fetchCardFull(List<CardFull> cards) {
         List<Integer> ids = fetchIds(cards);
@@ -127,6 +174,10 @@ public class CardService {
         EventType boardEventType, Date time) {
         List<Integer> updated = cardRepository.moveCardsToColumn(cardIds, previousColumnId, columnId, userId);
         eventRepository.insertCardEvents(updated, previousColumnId, columnId, userId, boardEventType, time, null);
+        statisticsService.cardsMoved(previousColumnId, columnId, updated.size(), boardEventType, time);
+        // the move event updates CARD_LAST_UPDATED: keep the full text support rows in step, or the next recovery
+        // would copy them again
+        mySqlFullTextSupportQueue.cardsChanged(updated);
     }
 
     @Transactional(readOnly = false)
@@ -187,6 +238,7 @@ public class CardService {
         Card card = cardRepository.createCard(name, columnId, user);
         eventRepository.insertCardEvent(card.getId(), columnId, user.getId(), EventType.CARD_CREATE, creationTime,
             card.getName());
+        statisticsService.cardsCreated(columnId, 1, creationTime);
         return card;
     }
 
@@ -195,12 +247,15 @@ public class CardService {
         Card card = cardRepository.createCardFromTop(name, columnId, user);
         eventRepository.insertCardEvent(card.getId(), columnId, user.getId(), EventType.CARD_CREATE, creationTime,
             card.getName());
+        statisticsService.cardsCreated(columnId, 1, creationTime);
         return card;
     }
 
     @Transactional(readOnly = false)
     public Event moveCardToColumn(int cardId, int previousColumnId, int columnId, int userId, Date date) {
         cardRepository.moveCardToColumn(cardId, previousColumnId, columnId);
+        statisticsService.cardsMoved(previousColumnId, columnId, 1, EventType.CARD_MOVE, date);
+        mySqlFullTextSupportQueue.cardChanged(cardId);
         return eventRepository.insertCardEvent(cardId, previousColumnId, columnId, userId, EventType.CARD_MOVE, date,
             null);
     }
@@ -209,8 +264,11 @@ public class CardService {
     public Event moveCardToColumnAndReorder(int cardId, int prevColumnId, int newColumnId,
         List<Integer> newOrderForNewColumn, User user) {
         cardRepository.moveCardToColumnAndReorder(cardId, prevColumnId, newColumnId, newOrderForNewColumn);
+        Date time = new Date();
+        statisticsService.cardsMoved(prevColumnId, newColumnId, 1, EventType.CARD_MOVE, time);
+        mySqlFullTextSupportQueue.cardChanged(cardId);
         return eventRepository.insertCardEvent(cardId, prevColumnId, newColumnId, user.getId(), EventType.CARD_MOVE,
-            new Date(), null);
+            time, null);
     }
 
     private static Map<Integer, Map<String, CardDataCount>> aggregateByCardId(List<CardDataCount> counts) {
@@ -0,0 +1,199 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.common.DatabaseMigrationDoneEvent;
+import io.lavagna.model.ClusterEvent;
+import io.lavagna.query.ClusterEventQuery;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+
+/**
+ * Deliver the websocket events to the clients connected to the other nodes of a cluster.
+ * <p>
+ * The behaviour is selected with the <code>events.bus</code> property:
+ * <ul>
+ * <li><code>local</code> (default): the events reach only the clients connected to this node.</li>
+ * <li><code>relay</code>: the in memory broker is replaced by a relay to an external STOMP broker (see
+ * {@link io.lavagna.config.PersistenceAndServiceConfig}), the broker already delivers the events to all the nodes and
+ * this class does nothing.</li>
+ * <li><code>database</code>: the events are written in the LA_CLUSTER_EVENT table and each node polls the ones
+ * published by the others. No additional infrastructure is required.</li>
+ * </ul>
+ * The events are stored as converted by the message converter of the broker, with their content type, so the clients
+ * of all the nodes receive the same message.
+ * As the identifiers may be committed out of order, the last {@link #RESCAN_WINDOW} ids are read again at each poll
+ * and the events already delivered are skipped.
+ */
+@Service
+public class ClusterEventBus implements ApplicationListener<DatabaseMigrationDoneEvent> {
+
+	private static final Logger LOG = LogManager.getLogger();
+
+	private static final int BATCH_SIZE = 500;
+	private static final int RESCAN_WINDOW = 100;
+	private static final long POLL_DELAY = 250;
+	private static final long RETENTION = 60 * 1000;
+
+	private final NamedParameterJdbcTemplate jdbc;
+	private final ClusterEventQuery queries;
+	private final SimpMessageSendingOperations messagingTemplate;
+	private final MessageConverter messageConverter;
+	private final TaskScheduler taskScheduler;
+	private final boolean enabled;
+	private final String node = UUID.randomUUID().toString();
+
+	// accessed only by the polling task
+	private final Set<Long> delivered = new HashSet<>();
+	private long lastId;
+	private long lastCleanup;
+
+	public ClusterEventBus(NamedParameterJdbcTemplate jdbc, ClusterEventQuery queries,
+			SimpMessageSendingOperations messagingTemplate, CompositeMessageConverter brokerMessageConverter,
+			TaskScheduler taskScheduler, Environment env) {
+		this.jdbc = jdbc;
+		this.queries = queries;
+		this.messagingTemplate = messagingTemplate;
+		this.messageConverter = brokerMessageConverter;
+		this.taskScheduler = taskScheduler;
+		this.enabled = "database".equals(env.getProperty("events.bus"));
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Publish the events, grouped by destination, that have just been sent to the local clients.
+	 *
+	 * @param events
+	 */
+	public void publish(Map<String, Set<Object>> events) {
+		if (!enabled || events.isEmpty()) {
+			return;
+		}
+		Date now = new Date();
+		List<SqlParameterSource> params = new ArrayList<>(events.size());
+		for (Entry<String, Set<Object>> kv : events.entrySet()) {
+			boolean batch = kv.getValue().size() > 1;
+			Object payload = batch ? kv.getValue() : kv.getValue().iterator().next();
+			Message<?> message = messageConverter.toMessage(payload, null);
+			if (message == null) {
+				LOG.warn("cannot convert the event for " + kv.getKey() + ", it is not published");
+				continue;
+			}
+			params.add(new MapSqlParameterSource("node", node).addValue("destination", kv.getKey())
+					.addValue("payload", text(message.getPayload()))
+					.addValue("contentType", message.getHeaders().get(MessageHeaders.CONTENT_TYPE).toString())
+					.addValue("batch", batch).addValue("time", now));
+		}
+		jdbc.batchUpdate(queries.publish(), params.toArray(new SqlParameterSource[params.size()]));
+	}
+
+	private static String text(Object payload) {
+		return payload instanceof byte[] ? new String((byte[]) payload, StandardCharsets.UTF_8) : payload.toString();
+	}
+
+	@Override
+	public void onApplicationEvent(DatabaseMigrationDoneEvent event) {
+		if (!enabled) {
+			return;
+		}
+		lastId = queries.findLastId();
+		lastCleanup = System.currentTimeMillis();
+		taskScheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					poll();
+				} catch (RuntimeException e) {
+					LOG.warn("error while polling the cluster events", e);
+				}
+			}
+		}, POLL_DELAY);
+	}
+
+	void poll() {
+		List<ClusterEvent> events;
+		do {
+			events = queries.findPublishedAfter(Math.max(0, lastId - RESCAN_WINDOW), node, BATCH_SIZE);
+			for (ClusterEvent e : events) {
+				lastId = Math.max(lastId, e.getId());
+				if (delivered.add(e.getId())) {
+					deliver(e);
+				}
+			}
+		} while (events.size() == BATCH_SIZE);
+
+		for (Iterator<Long> it = delivered.iterator(); it.hasNext();) {
+			if (it.next() <= lastId - RESCAN_WINDOW) {
+				it.remove();
+			}
+		}
+
+		long now = System.currentTimeMillis();
+		if (now - lastCleanup > RETENTION) {
+			queries.deleteOlderThan(new Date(now - RETENTION));
+			lastCleanup = now;
+		}
+	}
+
+	private void deliver(ClusterEvent e) {
+		// the same headers of a message sent by the EventEmitter, the payload is already converted
+		SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create();
+		headers.setContentType(MimeType.valueOf(e.getContentType()));
+		if (e.isBatch()) {
+			headers.setNativeHeader(EventEmitter.BATCH_HEADER, "true");
+		}
+		headers.setLeaveMutable(true);
+		try {
+			messagingTemplate.send(e.getDestination(),
+					MessageBuilder.createMessage(e.getPayload().getBytes(StandardCharsets.UTF_8),
+							headers.getMessageHeaders()));
+		} catch (MessagingException me) {
+			LOG.warn("error while sending the cluster event to " + e.getDestination(), me);
+		}
+	}
+}
@@ -16,6 +16,7 @@
  */
 package io.lavagna.service;
 
+import io.lavagna.common.LruCache;
 import io.lavagna.model.ConfigurationKeyValue;
 import io.lavagna.model.Key;
 import io.lavagna.query.ConfigurationQuery;
@@ -34,7 +35,11 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional(readOnly = true)
 public class ConfigurationRepository {
 
+	// the flags read on each request: a change made by another node is seen when the entry expires
+	private static final long FLAGS_TTL = 30 * 1000;
+
 	private final ConfigurationQuery queries;
+	private final LruCache<Key, Boolean> flags = new LruCache<>(Key.values().length, FLAGS_TTL);
 
 	public ConfigurationRepository(ConfigurationQuery queries) {
 		this.queries = queries;
@@ -67,6 +72,18 @@ public class ConfigurationRepository {
 		return res.isEmpty() ? null : res.get(0);
 	}
 
+	/**
+	 * Cached value of a boolean key, <code>false</code> if not defined.
+	 */
+	public boolean isEnabled(Key flag) {
+		Boolean enabled = flags.get(flag);
+		if (enabled == null) {
+			enabled = "true".equals(getValueOrNull(flag));
+			flags.put(flag, enabled);
+		}
+		return enabled;
+	}
+
 	public String getValue(Key key) {
 		List<String> res = queries.getValue(key.toString());
 		if (res.isEmpty()) {
@@ -79,16 +96,33 @@ public class ConfigurationRepository {
 	@Transactional(readOnly = false)
 	public void insert(Key key, String value) {
 		queries.set(key.toString(), value);
+		invalidateFlags();
 	}
 
 	@Transactional(readOnly = false)
 	public void update(Key key, String value) {
 		queries.update(key.toString(), value);
+		invalidateFlags();
 	}
 
 	@Transactional(readOnly = false)
 	public void delete(Key key) {
 		queries.delete(key.toString());
+		invalidateFlags();
+	}
+
+	/**
+	 * Drop the cached flags now and again after the commit of the current transaction, as a concurrent reader may
+	 * have cached in the meantime the not yet committed state.
+	 */
+	private void invalidateFlags() {
+		flags.clear();
+		Utils.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				flags.clear();
+			}
+		});
 	}
 
 	@Transactional(readOnly = false)
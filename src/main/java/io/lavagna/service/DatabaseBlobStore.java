@@ -0,0 +1,97 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.query.CardDataQuery;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.support.AbstractLobCreatingPreparedStatementCallback;
+import org.springframework.jdbc.support.lob.DefaultLobHandler;
+import org.springframework.jdbc.support.lob.LobCreator;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Default {@link BlobStore}: the content is kept in the CONTENT column of LA_CARD_DATA_UPLOAD_CONTENT.
+ */
+public class DatabaseBlobStore implements BlobStore {
+
+	private final NamedParameterJdbcTemplate jdbc;
+	private final CardDataQuery queries;
+
+	public DatabaseBlobStore(NamedParameterJdbcTemplate jdbc, CardDataQuery queries) {
+		this.jdbc = jdbc;
+		this.queries = queries;
+	}
+
+	@Override
+	public boolean contains(String digest) {
+		return queries.hasUploadContent(digest).equals(1);
+	}
+
+	@Override
+	public void put(final String digest, final long size, final InputStream content) {
+		if (contains(digest)) {
+			return;
+		}
+		jdbc.getJdbcOperations().execute(queries.updateUploadContent(),
+				new AbstractLobCreatingPreparedStatementCallback(new DefaultLobHandler()) {
+					@Override
+					protected void setValues(PreparedStatement ps, LobCreator lobCreator) throws SQLException {
+						lobCreator.setBlobAsBinaryStream(ps, 1, content, (int) size);
+						ps.setString(2, digest);
+					}
+				});
+	}
+
+	@Override
+	public StagedBlob stage(InputStream content, long maxSize) throws IOException {
+		return new StagedBlob(Files.createTempFile("lavagna", "upload"), content, maxSize) {
+			@Override
+			public void commit() throws IOException {
+				try (InputStream is = Files.newInputStream(getFile())) {
+					put(getDigest(), getSize(), is);
+				}
+			}
+		};
+	}
+
+	@Override
+	public void transferTo(String digest, final long position, long count, final WritableByteChannel target) {
+		final long end = count > Long.MAX_VALUE - position ? Long.MAX_VALUE : position + count - 1;
+		jdbc.query(queries.fileContent(), new MapSqlParameterSource("digest", digest), new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				try (InputStream is = rs.getBinaryStream("CONTENT")) {
+					StreamUtils.copyRange(is, Channels.newOutputStream(target), position, end);
+				} catch (IOException e) {
+					throw new IllegalStateException("Error while copying data", e);
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,162 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.model.EmailMessage;
+import io.lavagna.model.MailConfig;
+import io.lavagna.model.QueuedEmail;
+import io.lavagna.query.EmailOutboxQuery;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Persistent outbox of the email notifications.
+ * <p>
+ * The emails are written in the same transaction that marks the users as notified, then a separate job drains the
+ * outbox: the emails are sent in batches sharing the same SMTP connection and the ones that fail are retried with an
+ * exponential backoff.
+ */
+@Service
+@Transactional(readOnly = true)
+public class EmailOutboxService {
+
+	private static final Logger LOG = LogManager.getLogger();
+
+	static final int SMTP_BATCH_SIZE = 20;
+	static final int MAX_EMAILS_PER_SECOND = 10;
+	static final int MAX_SEND_ATTEMPTS = 8;
+	static final long SEND_RETRY_DELAY = 30 * 1000;
+
+	private final EmailOutboxQuery queries;
+	private final NamedParameterJdbcTemplate jdbc;
+
+	public EmailOutboxService(EmailOutboxQuery queries, NamedParameterJdbcTemplate jdbc) {
+		this.queries = queries;
+		this.jdbc = jdbc;
+	}
+
+	@Transactional(readOnly = false)
+	public void enqueue(List<EmailMessage> emails) {
+		if (emails.isEmpty()) {
+			return;
+		}
+		Date now = new Date();
+		List<SqlParameterSource> params = new ArrayList<>(emails.size());
+		for (EmailMessage email : emails) {
+			params.add(new MapSqlParameterSource("to", email.getTo()).addValue("subject", email.getSubject())
+					.addValue("text", email.getText()).addValue("html", email.getHtml()).addValue("nextAttempt", now));
+		}
+		jdbc.batchUpdate(queries.enqueue(), params.toArray(new SqlParameterSource[params.size()]));
+	}
+
+	/**
+	 * Send the emails that are ready, at most {@link #MAX_EMAILS_PER_SECOND}. Each statement is executed in its own
+	 * transaction so that no connection is held while talking with the SMTP server.
+	 *
+	 * @param mailConfig
+	 * @param maxEmails
+	 *            upper bound of the emails handled by a single call
+	 * @return the number of emails sent
+	 */
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public int drain(MailConfig mailConfig, int maxEmails) {
+		long start = System.nanoTime();
+		int sent = 0;
+		int handled = 0;
+		while (handled < maxEmails) {
+			long batchStart = System.currentTimeMillis();
+			int amount = Math.min(SMTP_BATCH_SIZE, maxEmails - handled);
+			List<QueuedEmail> batch = queries.findReady(new Date(), amount);
+			if (batch.isEmpty()) {
+				break;
+			}
+
+			Map<EmailMessage, Boolean> failed = new IdentityHashMap<>();
+			for (EmailMessage email : mailConfig.send(new ArrayList<EmailMessage>(batch))) {
+				failed.put(email, Boolean.TRUE);
+			}
+
+			List<SqlParameterSource> toDelete = new ArrayList<>();
+			List<SqlParameterSource> toReschedule = new ArrayList<>();
+			for (QueuedEmail email : batch) {
+				MapSqlParameterSource param = new MapSqlParameterSource("id", email.getId());
+				int attempts = email.getAttempts() + 1;
+				if (!failed.containsKey(email)) {
+					toDelete.add(param);
+				} else if (attempts >= MAX_SEND_ATTEMPTS) {
+					LOG.warn("Error while sending an email to {}, giving up after {} attempts", email.getTo(), attempts);
+					toDelete.add(param);
+				} else {
+					toReschedule.add(param.addValue("attempts", attempts).addValue("nextAttempt",
+							new Date(System.currentTimeMillis() + retryDelay(attempts))));
+				}
+			}
+			if (!toDelete.isEmpty()) {
+				jdbc.batchUpdate(queries.delete(), toDelete.toArray(new SqlParameterSource[toDelete.size()]));
+			}
+			if (!toReschedule.isEmpty()) {
+				jdbc.batchUpdate(queries.reschedule(), toReschedule.toArray(new SqlParameterSource[toReschedule.size()]));
+			}
+
+			sent += batch.size() - failed.size();
+			handled += batch.size();
+			if (batch.size() < amount) {
+				break;
+			}
+			sleep(batch.size() * 1000L / MAX_EMAILS_PER_SECOND - (System.currentTimeMillis() - batchStart));
+		}
+		if (handled > 0) {
+			LOG.info("email outbox: {} emails sent, {} failed, in {}ms", sent, handled - sent,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		}
+		return sent;
+	}
+
+	/**
+	 * @param attempts
+	 *            the attempts done so far, at least 1
+	 * @return the delay before the next attempt: {@link #SEND_RETRY_DELAY}, doubled after each failure
+	 */
+	static long retryDelay(int attempts) {
+		return SEND_RETRY_DELAY << (attempts - 1);
+	}
+
+	private static void sleep(long millis) {
+		if (millis <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -17,27 +17,172 @@
 package io.lavagna.service;
 
 import io.lavagna.model.BoardColumn.BoardColumnLocation;
+import io.lavagna.model.CardDelta;
 import io.lavagna.model.CardFull;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import org.apache.commons.lang3.tuple.Triple;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+/**
+ * Send the application events to the websocket clients.
+ * <p>
+ * When built with a {@link TaskScheduler}, the events are published only after the commit of the current
+ * transaction (if any) and are coalesced: for a short window the events are collected by destination, the
+ * identical ones are dropped and a single frame is sent for each destination. A frame that contains more than one
+ * event has the {@link #BATCH_HEADER} header and a json array as body.
+ * <p>
+ * The sent events are then handed to the {@link ClusterEventBus}, that deliver them to the clients connected to the
+ * other nodes.
+ */
 @Component
 public class EventEmitter {
 
-	private final SimpMessageSendingOperations messagingTemplate;
+	private static final Logger LOG = LogManager.getLogger();
 
+	public static final String BATCH_HEADER = "lavagna-batch";
+
+	private static final long COALESCING_WINDOW = 25;
+
+	private final SimpMessageSendingOperations messagingTemplate;
+	private final TaskScheduler taskScheduler;
+	private final ClusterEventBus clusterEventBus;
+
+	private final Object lock = new Object();
+	private Map<String, Set<Object>> pending = new LinkedHashMap<>();
+	private boolean flushScheduled;
+
+	/**
+	 * Build an emitter that send each event immediately.
+	 *
+	 * @param messageSendingOperations
+	 */
 	public EventEmitter(SimpMessageSendingOperations messageSendingOperations) {
+		this(messageSendingOperations, null, null);
+	}
+
+	public EventEmitter(SimpMessageSendingOperations messageSendingOperations, TaskScheduler taskScheduler) {
+		this(messageSendingOperations, taskScheduler, null);
+	}
+
+	@Autowired
+	public EventEmitter(SimpMessageSendingOperations messageSendingOperations, TaskScheduler taskScheduler,
+			ClusterEventBus clusterEventBus) {
 		this.messagingTemplate = messageSendingOperations;
+		this.taskScheduler = taskScheduler;
+		this.clusterEventBus = clusterEventBus;
+	}
+
+	private void send(final String destination, final Object payload) {
+		if (taskScheduler == null) {
+			messagingTemplate.convertAndSend(destination, payload);
+		} else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			Map<String, Set<Object>> events = transactionEvents();
+			if (!events.containsKey(destination)) {
+				events.put(destination, new LinkedHashSet<>());
+			}
+			events.get(destination).add(payload);
+		} else {
+			enqueue(Collections.<String, Set<Object>> singletonMap(destination,
+					new LinkedHashSet<>(Collections.singleton(payload))));
+		}
+	}
+
+	/**
+	 * The events sent inside a transaction are collected and enqueued only once it has been committed.
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<String, Set<Object>> transactionEvents() {
+		Map<String, Set<Object>> events = (Map<String, Set<Object>>) TransactionSynchronizationManager
+				.getResource(this);
+		if (events == null) {
+			final Map<String, Set<Object>> newEvents = new LinkedHashMap<>();
+			TransactionSynchronizationManager.bindResource(this, newEvents);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					enqueue(newEvents);
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(EventEmitter.this);
+				}
+			});
+			events = newEvents;
+		}
+		return events;
+	}
+
+	private void enqueue(Map<String, Set<Object>> events) {
+		synchronized (lock) {
+			for (Entry<String, Set<Object>> kv : events.entrySet()) {
+				if (!pending.containsKey(kv.getKey())) {
+					pending.put(kv.getKey(), new LinkedHashSet<>());
+				}
+				pending.get(kv.getKey()).addAll(kv.getValue());
+			}
+			if (!flushScheduled) {
+				flushScheduled = true;
+				taskScheduler.schedule(new Runnable() {
+					@Override
+					public void run() {
+						flush();
+					}
+				}, new Date(System.currentTimeMillis() + COALESCING_WINDOW));
+			}
+		}
+	}
+
+	void flush() {
+		Map<String, Set<Object>> toSend;
+		synchronized (lock) {
+			toSend = pending;
+			pending = new LinkedHashMap<>();
+			flushScheduled = false;
+		}
+		for (Entry<String, Set<Object>> kv : toSend.entrySet()) {
+			try {
+				Set<Object> events = kv.getValue();
+				if (events.size() == 1) {
+					messagingTemplate.convertAndSend(kv.getKey(), events.iterator().next());
+				} else {
+					messagingTemplate.convertAndSend(kv.getKey(), events,
+							Collections.<String, Object> singletonMap(BATCH_HEADER, "true"));
+				}
+			} catch (MessagingException e) {
+				LOG.warn("error while sending the events to " + kv.getKey(), e);
+			}
+		}
+		if (clusterEventBus != null && !toSend.isEmpty()) {
+			try {
+				clusterEventBus.publish(toSend);
+			} catch (RuntimeException e) {
+				LOG.warn("error while publishing the events to the cluster", e);
+			}
+		}
 	}
 
 	private static Event event(LavagnaEvent type) {
@@ -60,6 +205,10 @@ public class EventEmitter {
 		return "/event/column/" + columnId + "/card";
 	}
 
+	private static String columnDelta(int columnId) {
+		return "/event/column/" + columnId + "/card-delta";
+	}
+
 	private static String board(String projectShortName, String boardShortName) {
 		return "/event/" + projectShortName + "/" + boardShortName + "/card";
 	}
@@ -71,15 +220,15 @@ public class EventEmitter {
 	// ------------ project
 
 	public void emitCreateProject(String projectShortName) {
-		messagingTemplate.convertAndSend("/event/project", event(LavagnaEvent.CREATE_PROJECT, projectShortName));
+		send("/event/project", event(LavagnaEvent.CREATE_PROJECT, projectShortName));
 	}
 
 	public void emitUpdateProject(String projectShortName) {
-		messagingTemplate.convertAndSend("/event/project", event(LavagnaEvent.UPDATE_PROJECT, projectShortName));
+		send("/event/project", event(LavagnaEvent.UPDATE_PROJECT, projectShortName));
 	}
 
 	public void emitImportProject(String importId, int currentBoard, int boards, String boardName) {
-		messagingTemplate.convertAndSend("/event/import/" + importId, importEvent(currentBoard, boards, boardName));
+		send("/event/import/" + importId, importEvent(currentBoard, boards, boardName));
 	}
 	
 	public void emitUpdateColumnDefinition(String shortName) {
@@ -90,211 +239,220 @@ public class EventEmitter {
 	// ------------ board
 
 	public void emitCreateBoard(String projectShortName) {
-		messagingTemplate.convertAndSend("/event/project/" + projectShortName + "/board",
+		send("/event/project/" + projectShortName + "/board",
 				event(LavagnaEvent.CREATE_BOARD));
 	}
 
 	public void emitUpdateBoard(String boardShortName) {
-		messagingTemplate.convertAndSend("/event/board/" + boardShortName, event(LavagnaEvent.UPDATE_BOARD));
+		send("/event/board/" + boardShortName, event(LavagnaEvent.UPDATE_BOARD));
 	}
 
 	// ------------ column
 
 	public void emitCreateColumn(String boardShortName, BoardColumnLocation location) {
-		messagingTemplate
-				.convertAndSend(columnDestination(boardShortName, location), event(LavagnaEvent.CREATE_COLUMN));
+		send(columnDestination(boardShortName, location), event(LavagnaEvent.CREATE_COLUMN));
 	}
 
 	public void emitUpdateColumn(String boardShortName, BoardColumnLocation location, int columnId) {
-		messagingTemplate
-				.convertAndSend(columnDestination(boardShortName, location), event(LavagnaEvent.UPDATE_COLUMN));
-		messagingTemplate.convertAndSend("/event/column/" + columnId, event(LavagnaEvent.UPDATE_COLUMN));
+		send(columnDestination(boardShortName, location), event(LavagnaEvent.UPDATE_COLUMN));
+		send("/event/column/" + columnId, event(LavagnaEvent.UPDATE_COLUMN));
 	}
 
 	public void emitUpdateColumnPosition(String boardShortName, BoardColumnLocation location) {
-		messagingTemplate.convertAndSend(columnDestination(boardShortName, location),
+		send(columnDestination(boardShortName, location),
 				event(LavagnaEvent.UPDATE_COLUMN_POSITION));
 	}
 
 	// ------------ card
 
 	public void emitCreateCard(String projectShortName, String boardShortName, int columnId, int cardId) {
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.CREATE_CARD));
-		messagingTemplate.convertAndSend(board(projectShortName, boardShortName),
+		send(column(columnId), event(LavagnaEvent.CREATE_CARD));
+		send(board(projectShortName, boardShortName),
 				event(LavagnaEvent.CREATE_CARD, cardId));
 	}
 
 	public void emitUpdateCard(String projectShortName, String boardShortName, int columnId, int cardId) {
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.UPDATE_CARD));
-		messagingTemplate.convertAndSend(board(projectShortName, boardShortName),
+		send(column(columnId), event(LavagnaEvent.UPDATE_CARD));
+		send(board(projectShortName, boardShortName),
 				event(LavagnaEvent.UPDATE_CARD, cardId));
 	}
 
 	public void emitUpdateCardPosition(int columnId) {
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.UPDATE_CARD_POSITION));
+		send(column(columnId), event(LavagnaEvent.UPDATE_CARD_POSITION));
+	}
+
+	/**
+	 * Push the changes of a column to the clients that use the delta protocol. The reload hints on the column are
+	 * still sent by the other methods, so the clients that have not opted in are not affected.
+	 *
+	 * @param columnId
+	 * @param delta
+	 */
+	public void emitCardDelta(int columnId, CardDelta delta) {
+		send(columnDelta(columnId), event(LavagnaEvent.CARD_DELTA, delta));
 	}
 
 	public void emitMoveCardOutsideOfBoard(String boardShortName, BoardColumnLocation location) {
-		messagingTemplate.convertAndSend("/event/board/" + boardShortName + "/location/" + location + "/card",
+		send("/event/board/" + boardShortName + "/location/" + location + "/card",
 				event(LavagnaEvent.UPDATE_CARD_POSITION));
 	}
 
 	public void emitMoveCardFromOutsideOfBoard(String boardShortName, BoardColumnLocation location) {
-		messagingTemplate.convertAndSend("/event/board/" + boardShortName + "/location/" + location + "/card",
+		send("/event/board/" + boardShortName + "/location/" + location + "/card",
 				event(LavagnaEvent.UPDATE_CARD_POSITION));
 	}
 
 	public void emitCardHasMoved(String projectShortName, String boardShortName, Collection<Integer> affected) {
 		for (Integer a : affected) {
-			messagingTemplate.convertAndSend(board(projectShortName, boardShortName),
+			send(board(projectShortName, boardShortName),
 					event(LavagnaEvent.UPDATE_CARD_POSITION, a));
 		}
 	}
 
 	public void emitCreateRole() {
-		messagingTemplate.convertAndSend("/event/permission", event(LavagnaEvent.CREATE_ROLE));
+		send("/event/permission", event(LavagnaEvent.CREATE_ROLE));
 	}
 
 	// ------------ permission
 
 	public void emitCreateRole(String projectShortName) {
-		messagingTemplate.convertAndSend("/event/permission/project/" + projectShortName,
+		send("/event/permission/project/" + projectShortName,
 				event(LavagnaEvent.CREATE_ROLE));
 	}
 
 	public void emitDeleteRole() {
-		messagingTemplate.convertAndSend("/event/permission", event(LavagnaEvent.DELETE_ROLE));
+		send("/event/permission", event(LavagnaEvent.DELETE_ROLE));
 	}
 
 	public void emitDeleteRole(String projectShortName) {
-		messagingTemplate.convertAndSend("/event/permission/project/" + projectShortName,
+		send("/event/permission/project/" + projectShortName,
 				event(LavagnaEvent.DELETE_ROLE));
 	}
 
 	public void emitUpdatePermissionsToRole() {
-		messagingTemplate.convertAndSend("/event/permission", event(LavagnaEvent.UPDATE_PERMISSION_TO_ROLE));
+		send("/event/permission", event(LavagnaEvent.UPDATE_PERMISSION_TO_ROLE));
 	}
 
 	public void emitUpdatePermissionsToRole(String projectShortName) {
-		messagingTemplate.convertAndSend("/event/permission/project/" + projectShortName,
+		send("/event/permission/project/" + projectShortName,
 				event(LavagnaEvent.UPDATE_PERMISSION_TO_ROLE));
 	}
 
 	public void emitAssignRoleToUsers(String role) {
-		messagingTemplate.convertAndSend("/event/permission", event(LavagnaEvent.ASSIGN_ROLE_TO_USERS, role));
+		send("/event/permission", event(LavagnaEvent.ASSIGN_ROLE_TO_USERS, role));
 	}
 
 	public void emitAssignRoleToUsers(String role, String projectShortName) {
-		messagingTemplate.convertAndSend("/event/permission/project/" + projectShortName,
+		send("/event/permission/project/" + projectShortName,
 				event(LavagnaEvent.ASSIGN_ROLE_TO_USERS, role));
 	}
 
 	public void emitRemoveRoleToUsers(String role) {
-		messagingTemplate.convertAndSend("/event/permission", event(LavagnaEvent.REMOVE_ROLE_TO_USERS, role));
+		send("/event/permission", event(LavagnaEvent.REMOVE_ROLE_TO_USERS, role));
 	}
 
 	public void emitRemoveRoleToUsers(String role, String projectShortName) {
-		messagingTemplate.convertAndSend("/event/permission/project/" + projectShortName,
+		send("/event/permission/project/" + projectShortName,
 				event(LavagnaEvent.REMOVE_ROLE_TO_USERS, role));
 	}
 
 	// ------------ card description
 	public void emitUpdateDescription(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UPDATE_DESCRIPTION));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.UPDATE_DESCRIPTION));
+		send(cardData(cardId), event(LavagnaEvent.UPDATE_DESCRIPTION));
+		send(column(columnId), event(LavagnaEvent.UPDATE_DESCRIPTION));
 	}
 
 	// ------------ comment
 	public void emitCreateComment(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.CREATE_COMMENT));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.CREATE_COMMENT));
+		send(cardData(cardId), event(LavagnaEvent.CREATE_COMMENT));
+		send(column(columnId), event(LavagnaEvent.CREATE_COMMENT));
 	}
 
 	public void emitUpdateComment(int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UPDATE_COMMENT));
+		send(cardData(cardId), event(LavagnaEvent.UPDATE_COMMENT));
 	}
 
 	public void emitDeleteComment(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.DELETE_COMMENT));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.DELETE_COMMENT));
+		send(cardData(cardId), event(LavagnaEvent.DELETE_COMMENT));
+		send(column(columnId), event(LavagnaEvent.DELETE_COMMENT));
 	}
 
 	public void emitUndoDeleteComment(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UNDO_DELETE_COMMENT));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.UNDO_DELETE_COMMENT));
+		send(cardData(cardId), event(LavagnaEvent.UNDO_DELETE_COMMENT));
+		send(column(columnId), event(LavagnaEvent.UNDO_DELETE_COMMENT));
 	}
 
 	// ------------ action list handling
 
 	public void emitCreateActionList(int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.CREATE_ACTION_LIST));
+		send(cardData(cardId), event(LavagnaEvent.CREATE_ACTION_LIST));
 	}
 
 	public void emitDeleteActionList(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.DELETE_ACTION_LIST));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.DELETE_ACTION_LIST));
+		send(cardData(cardId), event(LavagnaEvent.DELETE_ACTION_LIST));
+		send(column(columnId), event(LavagnaEvent.DELETE_ACTION_LIST));
 	}
 
 	public void emitUpdateActionList(int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UPDATE_ACTION_LIST));
+		send(cardData(cardId), event(LavagnaEvent.UPDATE_ACTION_LIST));
 	}
 
 	public void emitReorderActionLists(int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.REORDER_ACTION_LIST));
+		send(cardData(cardId), event(LavagnaEvent.REORDER_ACTION_LIST));
 	}
 
 	public void emitCreateActionItem(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.CREATE_ACTION_ITEM));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.REORDER_ACTION_LIST));
+		send(cardData(cardId), event(LavagnaEvent.CREATE_ACTION_ITEM));
+		send(column(columnId), event(LavagnaEvent.REORDER_ACTION_LIST));
 	}
 
 	public void emitDeleteActionItem(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.DELETE_ACTION_ITEM));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.DELETE_ACTION_ITEM));
+		send(cardData(cardId), event(LavagnaEvent.DELETE_ACTION_ITEM));
+		send(column(columnId), event(LavagnaEvent.DELETE_ACTION_ITEM));
 	}
 
 	public void emitToggleActionItem(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.TOGGLE_ACTION_ITEM));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.TOGGLE_ACTION_ITEM));
+		send(cardData(cardId), event(LavagnaEvent.TOGGLE_ACTION_ITEM));
+		send(column(columnId), event(LavagnaEvent.TOGGLE_ACTION_ITEM));
 	}
 
 	public void emitUpdateUpdateActionItem(int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UPDATE_ACTION_ITEM));
+		send(cardData(cardId), event(LavagnaEvent.UPDATE_ACTION_ITEM));
 	}
 
 	public void emitMoveActionItem(int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.MOVE_ACTION_ITEM));
+		send(cardData(cardId), event(LavagnaEvent.MOVE_ACTION_ITEM));
 	}
 
 	public void emitReorderActionItems(int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.REORDER_ACTION_ITEM));
+		send(cardData(cardId), event(LavagnaEvent.REORDER_ACTION_ITEM));
 	}
 
 	public void emiteUndoDeleteActionItem(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UNDO_DELETE_ACTION_ITEM));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.UNDO_DELETE_ACTION_ITEM));
+		send(cardData(cardId), event(LavagnaEvent.UNDO_DELETE_ACTION_ITEM));
+		send(column(columnId), event(LavagnaEvent.UNDO_DELETE_ACTION_ITEM));
 	}
 
 	public void emitUndoDeleteActionList(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UNDO_DELETE_ACTION_LIST));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.UNDO_DELETE_ACTION_LIST));
+		send(cardData(cardId), event(LavagnaEvent.UNDO_DELETE_ACTION_LIST));
+		send(column(columnId), event(LavagnaEvent.UNDO_DELETE_ACTION_LIST));
 
 	}
 
 	// ------------
 	public void emitUploadFile(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.CREATE_FILE));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.CREATE_FILE));
+		send(cardData(cardId), event(LavagnaEvent.CREATE_FILE));
+		send(column(columnId), event(LavagnaEvent.CREATE_FILE));
 	}
 
 	public void emitDeleteFile(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.DELETE_FILE));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.DELETE_FILE));
+		send(cardData(cardId), event(LavagnaEvent.DELETE_FILE));
+		send(column(columnId), event(LavagnaEvent.DELETE_FILE));
 	}
 
 	public void emiteUndoDeleteFile(int columnId, int cardId) {
-		messagingTemplate.convertAndSend(cardData(cardId), event(LavagnaEvent.UNDO_DELETE_FILE));
-		messagingTemplate.convertAndSend(column(columnId), event(LavagnaEvent.UNDO_DELETE_FILE));
+		send(cardData(cardId), event(LavagnaEvent.UNDO_DELETE_FILE));
+		send(column(columnId), event(LavagnaEvent.UNDO_DELETE_FILE));
 	}
 
 	// ------------
@@ -318,13 +476,13 @@ public class EventEmitter {
 	private void sendEventForLabel(List<CardFull> affectedCards, LavagnaEvent ev) {
 		Triple<Set<Integer>, Set<Integer>, Set<String>> a = extractFrom(affectedCards);
 		for (int cardId : a.getLeft()) {
-			messagingTemplate.convertAndSend(cardData(cardId), event(ev));
+			send(cardData(cardId), event(ev));
 		}
 		for (int columnId : a.getMiddle()) {
-			messagingTemplate.convertAndSend(column(columnId), event(ev));
+			send(column(columnId), event(ev));
 		}
 		for (String projectShortName : a.getRight()) {
-			messagingTemplate.convertAndSend("/event/project/" + projectShortName + "/label-value", event(ev));
+			send("/event/project/" + projectShortName + "/label-value", event(ev));
 		}
 	}
 
@@ -338,33 +496,33 @@ public class EventEmitter {
 	}
 
 	public void emitAddLabel(String projectShortName) {
-		messagingTemplate.convertAndSend("/event/project/" + projectShortName + "/label", event(LavagnaEvent.ADD_LABEL));
+		send("/event/project/" + projectShortName + "/label", event(LavagnaEvent.ADD_LABEL));
 		emitProjectMetadataHasChanged(projectShortName);
 	}
 
 	public void emitUpdateLabel(String projectShortName, int labelId) {
-		messagingTemplate.convertAndSend("/event/project/" + projectShortName + "/label", event(LavagnaEvent.UPDATE_LABEL, labelId));
+		send("/event/project/" + projectShortName + "/label", event(LavagnaEvent.UPDATE_LABEL, labelId));
 		emitProjectMetadataHasChanged(projectShortName);
 	}
 
 	public void emitDeleteLabel(String projectShortName, int labelId) {
-		messagingTemplate.convertAndSend("/event/project/" + projectShortName + "/label", event(LavagnaEvent.DELETE_LABEL, labelId));
+		send("/event/project/" + projectShortName + "/label", event(LavagnaEvent.DELETE_LABEL, labelId));
 		emitProjectMetadataHasChanged(projectShortName);
 	}
 	
 
 	public void emitUpdateLabeListValueId(int labelListValueId) {
-		messagingTemplate.convertAndSend("/event/label-list-values/" + labelListValueId, event(LavagnaEvent.UPDATE_LABEL_LIST_VALUE, labelListValueId));
+		send("/event/label-list-values/" + labelListValueId, event(LavagnaEvent.UPDATE_LABEL_LIST_VALUE, labelListValueId));
 	}
 
 	// user profile update
 	public void emitUpdateUserProfile(int userId) {
-		messagingTemplate.convertAndSend("/event/user", event(LavagnaEvent.UPDATE_USER, userId));
+		send("/event/user", event(LavagnaEvent.UPDATE_USER, userId));
 	}
 	
 	
 	private void emitProjectMetadataHasChanged(String projectShortName) {
-        messagingTemplate.convertAndSend("/event/project/" + projectShortName, LavagnaEvent.PROJECT_METADATA_HAS_CHANGED);
+        send("/event/project/" + projectShortName, LavagnaEvent.PROJECT_METADATA_HAS_CHANGED);
     }
 
 	private enum LavagnaEvent {
@@ -373,6 +531,7 @@ public class EventEmitter {
 		CREATE_COLUMN, UPDATE_COLUMN, UPDATE_COLUMN_POSITION, //
 		CREATE_CARD, UPDATE_CARD, //
 		UPDATE_CARD_POSITION, //
+		CARD_DELTA, //
 		
 		//
 		PROJECT_METADATA_HAS_CHANGED,
@@ -399,6 +558,7 @@ public class EventEmitter {
 	// ------------
 
 	@Getter
+	@EqualsAndHashCode
 	@AllArgsConstructor(access = AccessLevel.PRIVATE)
 	public static class Event {
 		private final LavagnaEvent type;
@@ -406,6 +566,7 @@ public class EventEmitter {
 	}
 
 	@Getter
+	@EqualsAndHashCode
 	@AllArgsConstructor(access = AccessLevel.PRIVATE)
 	public static class ImportEvent {
 		private final int currentBoard;
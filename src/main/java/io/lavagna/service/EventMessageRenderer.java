@@ -0,0 +1,95 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.model.Event;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.springframework.context.MessageSource;
+
+/**
+ * Format the messages of the events sent to the users in a single check round.
+ * <p>
+ * The message formats are resolved once per key and the section of a card is formatted once for a given list of
+ * events: all the recipients watching the same card receive the same section. The instance is meant to be used by a
+ * single thread.
+ */
+class EventMessageRenderer {
+
+	private final MessageSource messageSource;
+	private final CardDataRepository cardDataRepository;
+	private final Locale locale;
+
+	private final Map<String, MessageFormat> formats = new HashMap<>();
+	private final Map<List<Integer>, List<String>> sections = new HashMap<>();
+
+	EventMessageRenderer(MessageSource messageSource, CardDataRepository cardDataRepository, Locale locale) {
+		this.messageSource = messageSource;
+		this.cardDataRepository = cardDataRepository;
+		this.locale = locale;
+	}
+
+	/**
+	 * @param events
+	 *            the events of a single card
+	 * @param context
+	 * @return the formatted messages, the list must not be modified as it's shared between the recipients
+	 */
+	List<String> cardSection(List<Event> events, EventsContext context) {
+		List<Integer> eventIds = new ArrayList<>(events.size());
+		for (Event e : events) {
+			eventIds.add(e.getId());
+		}
+
+		List<String> section = sections.get(eventIds);
+		if (section == null) {
+			section = Collections.unmodifiableList(format(events, context));
+			sections.put(eventIds, section);
+		}
+		return section;
+	}
+
+	private List<String> format(List<Event> events, EventsContext context) {
+		List<String> res = new ArrayList<>(events.size());
+		for (Event e : events) {
+			SupportedEventType type = SupportedEventType.from(e.getEvent());
+			if (type != null) {
+				ImmutablePair<String, String[]> message = type.toKeyAndParam(e, context, cardDataRepository);
+				res.add(messageFormat(message.getKey()).format(message.getValue()));
+			}
+		}
+		return res;
+	}
+
+	private MessageFormat messageFormat(String key) {
+		MessageFormat format = formats.get(key);
+		if (format == null) {
+			// without arguments the message source returns the raw pattern (or the key if it's missing)
+			format = new MessageFormat(messageSource.getMessage(key, null, locale), locale);
+			formats.put(key, format);
+		}
+		return format;
+	}
+}
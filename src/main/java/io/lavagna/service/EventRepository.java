@@ -23,14 +23,21 @@ import io.lavagna.model.Event.EventType;
 import io.lavagna.model.EventsCount;
 import io.lavagna.query.EventQuery;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
@@ -43,12 +50,19 @@ public class EventRepository {
 
 	private final NamedParameterJdbcTemplate jdbc;
 	private final EventQuery queries;
+	private final CardSearchIndex cardSearchIndex;
+	private final StatisticsHistoryCache statisticsHistoryCache;
+	private final TaskStatisticsCache taskStatisticsCache;
 
 	private static final int FEED_SIZE = 20;
 
-	public EventRepository(NamedParameterJdbcTemplate jdbc, EventQuery queries) {
+	public EventRepository(NamedParameterJdbcTemplate jdbc, EventQuery queries, CardSearchIndex cardSearchIndex,
+			StatisticsHistoryCache statisticsHistoryCache, TaskStatisticsCache taskStatisticsCache) {
 		this.jdbc = jdbc;
 		this.queries = queries;
+		this.cardSearchIndex = cardSearchIndex;
+		this.statisticsHistoryCache = statisticsHistoryCache;
+		this.taskStatisticsCache = taskStatisticsCache;
 	}
 
 	public int count() {
@@ -74,6 +88,8 @@ public class EventRepository {
 		queries.insertLabelEvent(labelName, labelType.toString(), cardId, userId, time, event.toString(),
 				value.getValueInt(), value.getValueString(), value.getValueTimestamp(), value.getValueCard(),
 				value.getValueUser());
+		cardSearchIndex.cardChanged(cardId);
+		invalidateStatisticsByCard(cardId);
 
 		return queries.findLastCreated();
 	}
@@ -86,6 +102,14 @@ public class EventRepository {
 			param.add(prepareForCardEvent(cardId, previousColumnId, columnId, userId, event, time, name));
 		}
 		jdbc.batchUpdate(queries.insertCardEvent(), param.toArray(new SqlParameterSource[param.size()]));
+		cardSearchIndex.cardsChanged(cardIds);
+		// the cards are in the column of the event, a move changes the statistics of the previous board too
+		List<Integer> columnIds = new ArrayList<>(2);
+		columnIds.add(columnId);
+		if (previousColumnId != null) {
+			columnIds.add(previousColumnId);
+		}
+		invalidateStatisticsByColumns(columnIds);
 	}
 
 	@Transactional(readOnly = false)
@@ -115,6 +139,8 @@ public class EventRepository {
 		}
 
 		jdbc.batchUpdate(queries.insertCardEvent(), params.toArray(new SqlParameterSource[] { }));
+		cardSearchIndex.cardsChanged(cardIds);
+		invalidateStatisticsByColumns(Collections.singletonList(columnId));
 	}
 
 	@Transactional(readOnly = false)
@@ -128,6 +154,8 @@ public class EventRepository {
 			Integer newReferenceId, Date time) {
 
 		queries.insertCardDataEvent(cardDataId, cardId, userId, time, event.toString(), referenceId, newReferenceId);
+		cardSearchIndex.cardChanged(cardId);
+		invalidateStatisticsByCard(cardId);
 		return queries.findLastCreated();
 	}
 
@@ -136,6 +164,8 @@ public class EventRepository {
 			String name, Date time) {
 
 		queries.insertFileEvent(cardDataId, cardId, userId, time, event.toString(), referenceId, name);
+		cardSearchIndex.cardChanged(cardId);
+		invalidateStatisticsByCard(cardId);
 		return queries.findLastCreated();
 	}
 
@@ -146,6 +176,36 @@ public class EventRepository {
 	@Transactional(readOnly = false)
 	public void remove(int id, int cardId, EventType event) {
 		queries.remove(id, cardId, event.toString());
+		cardSearchIndex.cardChanged(cardId);
+		invalidateStatisticsByCard(cardId);
+	}
+
+	private void invalidateStatisticsByCard(int cardId) {
+		invalidateStatistics(queries.findBoardAndProjectByCardId(), new MapSqlParameterSource("cardId", cardId));
+	}
+
+	/**
+	 * The card events are the only ones that can change the location of the cards: they drop the task statistics too.
+	 */
+	private void invalidateStatisticsByColumns(List<Integer> columnIds) {
+		Map<Integer, Integer> projectIdByBoardId = invalidateStatistics(queries.findBoardsAndProjectsByColumnIds(),
+				new MapSqlParameterSource("columnIds", columnIds));
+		for (Entry<Integer, Integer> boardAndProject : projectIdByBoardId.entrySet()) {
+			taskStatisticsCache.invalidate(boardAndProject.getValue(), boardAndProject.getKey());
+		}
+	}
+
+	private Map<Integer, Integer> invalidateStatistics(String query, SqlParameterSource param) {
+		final Map<Integer, Integer> projectIdByBoardId = new LinkedHashMap<>();
+		jdbc.query(query, param, new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				projectIdByBoardId.put(rs.getInt("BOARD_ID"), rs.getInt("BOARD_PROJECT_ID_FK"));
+			}
+		});
+		statisticsHistoryCache.invalidate(new ArrayList<>(projectIdByBoardId.keySet()),
+				new LinkedHashSet<>(projectIdByBoardId.values()));
+		return projectIdByBoardId;
 	}
 
 	// profile
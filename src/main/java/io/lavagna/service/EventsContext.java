@@ -26,6 +26,7 @@ import io.lavagna.model.User;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,18 +34,23 @@ import java.util.TreeMap;
 
 /**
  * Contains all the necessary data for formatting an email to the user.
+ * <p>
+ * The referenced entities are shared, read only, between the contexts of all the users notified in the same round:
+ * each context is a view over them limited by its events.
  */
 class EventsContext {
 	// aggregate the events by card id
 	final Map<Integer, List<Event>> events = new TreeMap<>();
-	final Map<Integer, User> users = new HashMap<>();
-	final Map<Integer, CardFull> cards = new HashMap<>();
+	final Map<Integer, User> users;
+	final Map<Integer, CardFull> cards;
 	final Map<Integer, String> cardData;
-	final Map<Integer, BoardColumn> columns = new HashMap<>();
+	final Map<Integer, BoardColumn> columns;
 
-	EventsContext(List<Event> events, List<User> users, List<CardFull> cards, Map<Integer, String> cardData,
-			List<BoardColumn> columns) {
-		this.cardData = cardData;
+	EventsContext(List<Event> events, Entities entities) {
+		this.users = entities.users;
+		this.cards = entities.cards;
+		this.cardData = entities.cardData;
+		this.columns = entities.columns;
 
 		for (Event e : events) {
 			if (!this.events.containsKey(e.getCardId())) {
@@ -52,14 +58,34 @@ class EventsContext {
 			}
 			this.events.get(e.getCardId()).add(e);
 		}
-		for (User u : users) {
-			this.users.put(u.getId(), u);
-		}
-		for (CardFull c : cards) {
-			this.cards.put(c.getId(), c);
-		}
-		for (BoardColumn bc : columns) {
-			this.columns.put(bc.getId(), bc);
+	}
+
+	/**
+	 * The users, cards, card data and columns referenced by a set of events.
+	 */
+	static final class Entities {
+		private final Map<Integer, User> users;
+		private final Map<Integer, CardFull> cards;
+		private final Map<Integer, String> cardData;
+		private final Map<Integer, BoardColumn> columns;
+
+		Entities(List<User> users, List<CardFull> cards, Map<Integer, String> cardData, List<BoardColumn> columns) {
+			Map<Integer, User> usersById = new HashMap<>();
+			for (User u : users) {
+				usersById.put(u.getId(), u);
+			}
+			Map<Integer, CardFull> cardsById = new HashMap<>();
+			for (CardFull c : cards) {
+				cardsById.put(c.getId(), c);
+			}
+			Map<Integer, BoardColumn> columnsById = new HashMap<>();
+			for (BoardColumn bc : columns) {
+				columnsById.put(bc.getId(), bc);
+			}
+			this.users = Collections.unmodifiableMap(usersById);
+			this.cards = Collections.unmodifiableMap(cardsById);
+			this.cardData = Collections.unmodifiableMap(new HashMap<>(cardData));
+			this.columns = Collections.unmodifiableMap(columnsById);
 		}
 	}
 
@@ -21,6 +21,7 @@ import java.io.OutputStream;
 import java.nio.file.Path;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -42,7 +43,11 @@ public class ExportImportService {
 		exporter.exportData(os);
 	}
 
-	@Transactional(readOnly = false)
+	/**
+	 * The import commits in chunks: when called inside a transaction, it is imported as a whole in that transaction
+	 * instead.
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
 	public void importData(boolean overrideConfiguration, Path tempFile) {
 		importer.importData(overrideConfiguration, tempFile);
 	}
@@ -0,0 +1,61 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.common.LruCache;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Cache of the content of the small uploaded files, such as avatars and thumbnails, by digest. As a content never
+ * changes, the entries are never invalidated.
+ */
+@Service
+public class FileContentCache {
+
+	static final int MAX_FILE_SIZE = 64 * 1024;
+	// at most 16MB
+	private static final int MAX_ENTRIES = 256;
+
+	private final LruCache<String, byte[]> cache = new LruCache<>(MAX_ENTRIES, 0);
+
+	public boolean isCacheable(long size) {
+		return size <= MAX_FILE_SIZE;
+	}
+
+	public byte[] get(String digest) {
+		return cache.get(digest);
+	}
+
+	public void put(String digest, byte[] content) {
+		if (isCacheable(content.length)) {
+			cache.put(digest, content);
+		}
+	}
+
+	public long getHits() {
+		return cache.getHits();
+	}
+
+	public long getMisses() {
+		return cache.getMisses();
+	}
+
+	public int size() {
+		return cache.size();
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * {@link BlobStore} on the filesystem: each content is a file named after its digest, in a two levels fan-out of
+ * directories (<code>ab/cd/abcd...</code>). A content is first written in a temporary file and then moved in place,
+ * so a reader never sees a partial file. In a cluster the directory must be shared by all the nodes.
+ */
+public class FileSystemBlobStore implements BlobStore {
+
+	private static final Pattern DIGEST = Pattern.compile("[0-9a-f]{64}");
+	private static final String STAGING_DIRECTORY = "staging";
+
+	private final Path root;
+
+	public FileSystemBlobStore(Path root) {
+		this.root = root;
+	}
+
+	private Path pathOf(String digest) {
+		Validate.isTrue(DIGEST.matcher(digest).matches(), "invalid digest %s", digest);
+		return root.resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4)).resolve(digest);
+	}
+
+	@Override
+	public boolean contains(String digest) {
+		return Files.isRegularFile(pathOf(digest));
+	}
+
+	@Override
+	public void put(String digest, long size, InputStream content) throws IOException {
+		Path target = pathOf(digest);
+		if (Files.isRegularFile(target)) {
+			return;
+		}
+		Files.createDirectories(target.getParent());
+		Path tmp = Files.createTempFile(target.getParent(), digest, ".tmp");
+		try {
+			Files.copy(content, tmp, StandardCopyOption.REPLACE_EXISTING);
+			moveInPlace(digest, tmp);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * The staging directory is inside the root, so that a commit is just an atomic rename.
+	 */
+	@Override
+	public StagedBlob stage(InputStream content, long maxSize) throws IOException {
+		Path staging = root.resolve(STAGING_DIRECTORY);
+		Files.createDirectories(staging);
+		return new StagedBlob(Files.createTempFile(staging, "upload", ".tmp"), content, maxSize) {
+			@Override
+			public void commit() throws IOException {
+				moveInPlace(getDigest(), getFile());
+			}
+		};
+	}
+
+	private void moveInPlace(String digest, Path tmp) throws IOException {
+		Path target = pathOf(digest);
+		if (Files.isRegularFile(target)) {
+			return;
+		}
+		Files.createDirectories(target.getParent());
+		try {
+			Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+		} catch (FileAlreadyExistsException e) {
+			// stored in the meantime by a concurrent upload of the same content
+		}
+	}
+
+	/**
+	 * Copy the content with {@link FileChannel#transferTo(long, long, WritableByteChannel)}, that lets the operating
+	 * system move the bytes without copying them in the heap.
+	 */
+	@Override
+	public void transferTo(String digest, long position, long count, WritableByteChannel target) throws IOException {
+		try (FileChannel file = FileChannel.open(pathOf(digest), StandardOpenOption.READ)) {
+			long end = Math.min(file.size(), count > Long.MAX_VALUE - position ? Long.MAX_VALUE : position + count);
+			long current = position;
+			while (current < end) {
+				long transferred = file.transferTo(current, end - current, target);
+				if (transferred <= 0) {
+					throw new IOException("unable to transfer the content of " + digest);
+				}
+				current += transferred;
+			}
+		}
+	}
+}
@@ -17,37 +17,46 @@
 package io.lavagna.service;
 
 import io.lavagna.common.Json;
-import io.lavagna.model.Board;
 import io.lavagna.model.BoardInfo;
-import io.lavagna.model.Card;
-import io.lavagna.model.CardData;
 import io.lavagna.model.CardDataUploadContentInfo;
 import io.lavagna.model.CardLabel;
+import io.lavagna.model.CardLabel.LabelType;
 import io.lavagna.model.CardType;
 import io.lavagna.model.Event;
+import io.lavagna.model.Event.EventType;
 import io.lavagna.model.EventFull;
 import io.lavagna.model.LabelListValueWithMetadata;
 import io.lavagna.model.Pair;
 import io.lavagna.model.Project;
-import io.lavagna.model.User;
+import io.lavagna.query.EventQuery;
 import io.lavagna.query.StatisticsQuery;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
-import org.apache.commons.lang3.tuple.ImmutablePair;
+import javax.sql.DataSource;
+
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Component;
 
+import com.google.gson.stream.JsonWriter;
+
 @Component
 class LavagnaExporter {
 
+	private static final int EVENTS_PER_PAGE = 100;
+
 	private final ConfigurationRepository configurationRepository;
 	private final UserRepository userRepository;
 	private final PermissionService permissionService;
@@ -55,17 +64,20 @@ class LavagnaExporter {
 	private final CardLabelRepository cardLabelRepository;
 	private final BoardRepository boardRepository;
 	private final BoardColumnRepository boardColumnRepository;
-	private final EventRepository eventRepository;
 	private final CardRepository cardRepository;
 	private final CardDataRepository cardDataRepository;
 	private final StatisticsQuery statisticsQuery;
+	private final EventQuery eventQuery;
+	private final DataSource dataSource;
+	private final Environment env;
 
 	
 	public LavagnaExporter(ConfigurationRepository configurationRepository, UserRepository userRepository,
 			PermissionService permissionService, ProjectService projectService,
 			CardLabelRepository cardLabelRepository, BoardRepository boardRepository,
-			BoardColumnRepository boardColumnRepository, EventRepository eventRepository,
-			CardRepository cardRepository, CardDataRepository cardDataRepository, StatisticsQuery statisticsQuery) {
+			BoardColumnRepository boardColumnRepository, CardRepository cardRepository,
+			CardDataRepository cardDataRepository, StatisticsQuery statisticsQuery, EventQuery eventQuery,
+			DataSource dataSource, Environment env) {
 		this.configurationRepository = configurationRepository;
 		this.userRepository = userRepository;
 		this.permissionService = permissionService;
@@ -73,10 +85,12 @@ class LavagnaExporter {
 		this.cardLabelRepository = cardLabelRepository;
 		this.boardRepository = boardRepository;
 		this.boardColumnRepository = boardColumnRepository;
-		this.eventRepository = eventRepository;
 		this.cardRepository = cardRepository;
 		this.cardDataRepository = cardDataRepository;
 		this.statisticsQuery = statisticsQuery;
+		this.eventQuery = eventQuery;
+		this.dataSource = dataSource;
+		this.env = env;
 	}
 
 	public void exportData(OutputStream os) throws IOException {
@@ -93,13 +107,8 @@ class LavagnaExporter {
 			}
 
 			//
-			final int amountPerPage = 100;
-			int pages = (eventRepository.count() + amountPerPage - 1) / amountPerPage;
-
+			int pages = exportEvents(zf, osw);
 			writeEntry("events-page-count.json", pages, zf, osw);
-			for (int i = 0; i < pages; i++) {
-				writeEntry("events-" + i + ".json", toEventFull(eventRepository.find(i * 100, 100)), zf, osw);
-			}
 			//
 			writeEntry("card-data-types-order.json", cardDataRepository.findAllByTypes(EnumSet.of(CardType.ACTION_LIST,
 					CardType.ACTION_CHECKED, CardType.ACTION_UNCHECKED)), zf, osw);
@@ -115,63 +124,91 @@ class LavagnaExporter {
 		}
 	}
 
-	private List<EventFull> toEventFull(List<Event> events) {
-		List<EventFull> res = new ArrayList<>(events.size());
-		for (Event e : events) {
-			// TODO not optimal
+	/**
+	 * Stream all the events, in pages of {@value #EVENTS_PER_PAGE}, with a single forward only query.
+	 *
+	 * @return the number of pages
+	 */
+	private int exportEvents(ZipOutputStream zf, OutputStreamWriter osw) {
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		// the MySQL driver streams the rows only with this fetch size
+		jdbc.setFetchSize("MYSQL".equals(env.getProperty("datasource.dialect")) ? Integer.MIN_VALUE : EVENTS_PER_PAGE);
+		EventsWriter writer = new EventsWriter(zf, osw);
+		jdbc.query(eventQuery.findAllForExport(), writer);
+		return writer.finish();
+	}
 
-			User u = userRepository.findById(e.getUserId());
-			ImmutablePair<Board, Card> bc = findByCardId(e.getCardId());
-			//
-			String content = handleContent(e);
+	private static class EventsWriter implements RowCallbackHandler {
 
-			User labelUser = e.getValueUser() != null ? userRepository.findById(e.getValueUser()) : null;
-			ImmutablePair<Board, Card> labelCard = e.getValueCard() != null ? findByCardId(e.getValueCard()) : null;
+		private final ZipOutputStream zf;
+		private final OutputStreamWriter osw;
+		private JsonWriter page;
+		private int pages;
+		private int eventsInPage;
 
-			//
-			res.add(new EventFull(e, u, bc, content, labelCard, labelUser));
+		private EventsWriter(ZipOutputStream zf, OutputStreamWriter osw) {
+			this.zf = zf;
+			this.osw = osw;
 		}
-		return res;
-	}
 
-	private ImmutablePair<Board, Card> findByCardId(int id) {
-		Card c = cardRepository.findBy(id);
-		Board b = boardRepository.findBoardById(boardColumnRepository.findById(c.getColumnId()).getBoardId());
-		return ImmutablePair.of(b, c);
-	}
+		@Override
+		public void processRow(ResultSet rs) throws SQLException {
+			EventFull event = new EventFull(toEvent(rs), rs.getString("EXPORT_USER_PROVIDER"),
+					rs.getString("EXPORT_USER_NAME"), rs.getString("EXPORT_BOARD_SHORT_NAME"), nullableInt(rs,
+							"EXPORT_CARD_SEQ_NUMBER"), rs.getString("EXPORT_CONTENT"),
+					rs.getString("EXPORT_LABEL_BOARD_SHORT_NAME"), nullableInt(rs, "EXPORT_LABEL_CARD_SEQ_NUMBER"),
+					rs.getString("EXPORT_LABEL_USER_PROVIDER"), rs.getString("EXPORT_LABEL_USER_NAME"));
+			try {
+				if (page == null) {
+					zf.putNextEntry(new ZipEntry("events-" + pages + ".json"));
+					page = Json.GSON.newJsonWriter(osw);
+					page.beginArray();
+				}
+				Json.GSON.toJson(event, EventFull.class, page);
+				if (++eventsInPage == EVENTS_PER_PAGE) {
+					closePage();
+				}
+			} catch (IOException ioe) {
+				throw new IllegalStateException("error while serializing entry events-" + pages + ".json", ioe);
+			}
+		}
 
-	// TODO CLEANUP
-	private String handleContent(Event e) {
-		if (e.getDataId() == null) {
-			return null;
+		private int finish() {
+			try {
+				if (page != null) {
+					closePage();
+				}
+			} catch (IOException ioe) {
+				throw new IllegalStateException("error while serializing entry events-" + pages + ".json", ioe);
+			}
+			return pages;
 		}
 
-		switch (e.getEvent()) {
-		case COMMENT_CREATE:
-			return extractFirstContent(e, CardType.COMMENT_HISTORY);
-		case DESCRIPTION_CREATE:
-			return extractFirstContent(e, CardType.DESCRIPTION_HISTORY);
-		case DESCRIPTION_UPDATE:
-		case COMMENT_UPDATE:
-			List<Event> nextEvent = eventRepository.findNextEventFor(e);
-			return cardDataRepository.getDataLightById(
-					nextEvent.isEmpty() ? e.getDataId() : nextEvent.get(0).getPreviousDataId()).getContent();
-		case ACTION_ITEM_CREATE:
-		case ACTION_LIST_CREATE:
-			return cardDataRepository.getDataLightById(e.getDataId()).getContent();
-		case FILE_UPLOAD:
-		case FILE_DELETE:
-			return cardDataRepository.getDataLightById(e.getDataId()).getContent();
-		default:
-			return null;
+		private void closePage() throws IOException {
+			page.endArray();
+			page.flush();
+			zf.closeEntry();
+			page = null;
+			eventsInPage = 0;
+			pages++;
 		}
+	}
 
+	private static Event toEvent(ResultSet rs) throws SQLException {
+		String labelType = rs.getString("EVENT_LABEL_TYPE");
+		return new Event(rs.getInt("EVENT_ID"), rs.getInt("EVENT_CARD_ID_FK"), rs.getInt("EVENT_USER_ID_FK"),
+				rs.getTimestamp("EVENT_TIME"), EventType.valueOf(rs.getString("EVENT_TYPE")), nullableInt(rs,
+						"EVENT_CARD_DATA_ID_FK"), nullableInt(rs, "EVENT_COLUMN_ID_FK"), nullableInt(rs,
+						"EVENT_PREV_CARD_DATA_ID_FK"), nullableInt(rs, "EVENT_NEW_CARD_DATA_ID_FK"), nullableInt(rs,
+						"EVENT_PREV_COLUMN_ID_FK"), rs.getString("EVENT_LABEL_NAME"),
+				labelType == null ? null : LabelType.valueOf(labelType), nullableInt(rs, "EVENT_VALUE_INT"),
+				rs.getString("EVENT_VALUE_STRING"), rs.getTimestamp("EVENT_VALUE_TIMESTAMP"), nullableInt(rs,
+						"EVENT_VALUE_CARD_FK"), nullableInt(rs, "EVENT_VALUE_USER_FK"));
 	}
 
-	private String extractFirstContent(Event e, CardType type) {
-		CardData cd = cardDataRepository.getDataLightById(e.getDataId());
-		List<CardData> history = cardDataRepository.findAllDataLightByReferenceIdAndType(cd.getId(), type);
-		return (history.isEmpty() ? cd : history.get(0)).getContent();
+	private static Integer nullableInt(ResultSet rs, String column) throws SQLException {
+		int value = rs.getInt(column);
+		return rs.wasNull() ? null : value;
 	}
 
 	private static void writeEntry(String entryName, Object toSerialize, ZipOutputStream zf, OutputStreamWriter osw) {
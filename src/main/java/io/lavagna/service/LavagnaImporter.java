@@ -16,9 +16,9 @@
  */
 package io.lavagna.service;
 
-import static io.lavagna.common.Read.readMatchingObjects;
-import static io.lavagna.common.Read.readObject;
 import static java.util.Collections.singletonList;
+import io.lavagna.common.Json;
+import io.lavagna.common.ZipArchive;
 import io.lavagna.model.Board;
 import io.lavagna.model.BoardColumn;
 import io.lavagna.model.BoardColumnDefinition;
@@ -31,6 +31,7 @@ import io.lavagna.model.CardLabel.LabelType;
 import io.lavagna.model.ColumnDefinition;
 import io.lavagna.model.ConfigurationKeyValue;
 import io.lavagna.model.EventFull;
+import io.lavagna.model.ImportCheckpoint;
 import io.lavagna.model.ImportContext;
 import io.lavagna.model.LabelListValue;
 import io.lavagna.model.LabelListValueWithMetadata;
@@ -42,10 +43,16 @@ import io.lavagna.model.RoleAndPermission;
 import io.lavagna.model.StatisticForExport;
 import io.lavagna.model.User;
 import io.lavagna.model.UserIdentifier;
+import io.lavagna.query.ImportCheckpointQuery;
 import io.lavagna.query.StatisticsQuery;
 import io.lavagna.service.PermissionService.RoleAndPermissionsWithUsers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -55,16 +62,49 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.builder.CompareToBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.google.gson.reflect.TypeToken;
 
+/**
+ * Import a lavagna archive.
+ *
+ * The events are split in partitions of projects that do not share any card or column, each partition is replayed in
+ * order, in chunks of {@value #PAGES_PER_TRANSACTION} pages committed with a checkpoint. The partitions are imported in
+ * parallel, except when running inside the transaction of the caller or with HSQLDB, as it locks whole tables.
+ *
+ * When an import fails, importing the same archive again resumes each partition from its last checkpoint.
+ */
 @Component
 class LavagnaImporter {
 
+	private static final Logger LOG = LogManager.getLogger();
+
+	private static final int PAGES_PER_TRANSACTION = 10;
+	private static final int MAX_THREADS = 4;
+
 	private final ConfigurationRepository configurationRepository;
 	private final UserRepository userRepository;
 	private final PermissionService permissionService;
@@ -75,6 +115,9 @@ class LavagnaImporter {
 	private final CardRepository cardRepository;
 	private final CardDataRepository cardDataRepository;
 	private final StatisticsQuery statisticsQuery;
+	private final ImportCheckpointQuery checkpointQuery;
+	private final TransactionTemplate transactionTemplate;
+	private final Environment env;
 
 	private final ImportEvent importEvent;
 
@@ -83,7 +126,8 @@ class LavagnaImporter {
 			PermissionService permissionService, ProjectService projectService, BoardRepository boardRepository,
 			BoardColumnRepository boardColumnRepository, CardLabelRepository cardLabelRepository,
 			CardDataRepository cardDataRepository, CardRepository cardRepository, ImportEvent importEvent,
-			StatisticsQuery statisticsQuery) {
+			StatisticsQuery statisticsQuery, ImportCheckpointQuery checkpointQuery,
+			PlatformTransactionManager transactionManager, Environment env) {
 		this.configurationRepository = configurationRepository;
 		this.userRepository = userRepository;
 		this.permissionService = permissionService;
@@ -95,42 +139,301 @@ class LavagnaImporter {
 		this.cardRepository = cardRepository;
 		this.cardDataRepository = cardDataRepository;
 		this.statisticsQuery = statisticsQuery;
+		this.checkpointQuery = checkpointQuery;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.env = env;
 	}
 
-	public void importData(boolean overrideConfiguration, Path tempFile) {
+	public void importData(final boolean overrideConfiguration, Path tempFile) {
+		final String archiveId = archiveId(tempFile);
+		try (final ZipArchive archive = new ZipArchive(tempFile)) {
+
+			final List<Pair<String, BoardInfo>> boards = archive.readMatchingObjects("boards/[^/]+\\.json",
+					new TypeToken<Pair<String, BoardInfo>>() {
+					});
+			final List<Partition> partitions = partition(archive, boards);
+
+			List<ImportCheckpoint> checkpoints = checkpointQuery.findByArchive(archiveId);
+			if (checkpoints.isEmpty()) {
+				checkpoints = transactionTemplate.execute(new TransactionCallback<List<ImportCheckpoint>>() {
+					@Override
+					public List<ImportCheckpoint> doInTransaction(TransactionStatus status) {
+						return importBase(overrideConfiguration, archive, archiveId, boards, partitions);
+					}
+				});
+			} else {
+				LOG.info("resuming the import of the archive {}", archiveId);
+			}
 
-		importConfiguration(overrideConfiguration, tempFile);
+			final ImportContext context = new ImportContext();
+			for (ImportContext partitionContext : importEvents(archive, archiveId, partitions, checkpoints)) {
+				context.addAll(partitionContext);
+			}
 
-		importMissingUsers(tempFile);
-		importBasePermissions(tempFile);
+			transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+				@Override
+				protected void doInTransactionWithoutResult(TransactionStatus status) {
+					orderAll(archive, context);
+					checkpointQuery.deleteByArchive(archiveId);
+				}
+			});
+		} catch (IOException ioe) {
+			throw new IllegalStateException("error while reading the archive " + tempFile, ioe);
+		}
+	}
+
+	private static String archiveId(Path tempFile) {
+		try (InputStream is = Files.newInputStream(tempFile)) {
+			return DigestUtils.sha256Hex(is);
+		} catch (IOException ioe) {
+			throw new IllegalStateException("error while reading the archive " + tempFile, ioe);
+		}
+	}
+
+	/**
+	 * Import everything except the events, and create the checkpoints of all the partitions.
+	 */
+	private List<ImportCheckpoint> importBase(boolean overrideConfiguration, ZipArchive archive, String archiveId,
+			List<Pair<String, BoardInfo>> boards, List<Partition> partitions) {
+
+		importConfiguration(overrideConfiguration, archive);
+
+		importMissingUsers(archive);
+		importBasePermissions(archive);
 
 		ImportContext context = new ImportContext();
 
-		importProjects(tempFile, context);
+		importProjects(archive, context);
 
-		importBoards(tempFile, context);
+		importBoards(archive, boards, context);
 
-		//
+		String serializedContext = Json.GSON.toJson(context);
+		List<ImportCheckpoint> checkpoints = new ArrayList<>(partitions.size());
+		for (Partition partition : partitions) {
+			checkpointQuery.create(archiveId, partition.index, 0, serializedContext);
+			checkpoints.add(new ImportCheckpoint(partition.index, 0, serializedContext));
+		}
+		return checkpoints;
+	}
+
+	/**
+	 * Group the projects that share cards or columns: a card label can reference a card of another project and a card
+	 * can be moved to a board of another project. The events of a group must be replayed in order, as the sequence
+	 * numbers of the cards depend on it.
+	 */
+	private static List<Partition> partition(ZipArchive archive, List<Pair<String, BoardInfo>> boards) {
+		Map<String, String> projectByBoard = new HashMap<>();
+		Map<Integer, String> projectByColumn = new HashMap<>();
+		for (Pair<String, BoardInfo> p : boards) {
+			String boardShortName = p.getSecond().getShortName();
+			projectByBoard.put(boardShortName, p.getFirst());
+			for (BoardColumn bc : archive.readObject("boards/" + boardShortName + "/columns.json",
+					new TypeToken<List<BoardColumn>>() {
+					})) {
+				projectByColumn.put(bc.getId(), p.getFirst());
+			}
+		}
+
+		int eventPages = eventPages(archive);
+		Map<String, String> parents = new HashMap<>();
+		List<Set<String>> projectsByPage = new ArrayList<>(eventPages);
+		for (int page = 0; page < eventPages; page++) {
+			Set<String> projects = new HashSet<>();
+			for (EventFull e : readEvents(archive, page)) {
+				String project = projectByBoard.get(e.getBoardShortName());
+				if (project == null) {
+					continue;
+				}
+				projects.add(project);
+				if (!parents.containsKey(project)) {
+					parents.put(project, project);
+				}
+				union(parents, project, projectByBoard.get(e.getLabelBoardShortName()));
+				union(parents, project, projectByColumn.get(e.getEvent().getColumnId()));
+				union(parents, project, projectByColumn.get(e.getEvent().getPreviousColumnId()));
+			}
+			projectsByPage.add(projects);
+		}
+
+		Map<String, SortedSet<String>> groups = new HashMap<>();
+		for (String project : parents.keySet()) {
+			String root = root(parents, project);
+			if (!groups.containsKey(root)) {
+				groups.put(root, new TreeSet<String>());
+			}
+			groups.get(root).add(project);
+		}
+
+		// the index of a partition must not change when resuming, so the groups are sorted
+		Map<String, SortedSet<String>> groupsByFirstProject = new TreeMap<>();
+		for (SortedSet<String> group : groups.values()) {
+			groupsByFirstProject.put(group.first(), group);
+		}
+
+		List<Partition> partitions = new ArrayList<>(groupsByFirstProject.size());
+		for (SortedSet<String> projects : groupsByFirstProject.values()) {
+			Partition partition = new Partition(partitions.size());
+			for (Entry<String, String> kv : projectByBoard.entrySet()) {
+				if (projects.contains(kv.getValue())) {
+					partition.boards.add(kv.getKey());
+				}
+			}
+			for (int page = 0; page < eventPages; page++) {
+				if (!Collections.disjoint(projects, projectsByPage.get(page))) {
+					partition.pages.add(page);
+				}
+			}
+			partitions.add(partition);
+		}
+		return partitions;
+	}
+
+	private static void union(Map<String, String> parents, String project, String other) {
+		if (other == null) {
+			return;
+		}
+		if (!parents.containsKey(other)) {
+			parents.put(other, other);
+		}
+		String projectRoot = root(parents, project);
+		String otherRoot = root(parents, other);
+		if (!projectRoot.equals(otherRoot)) {
+			parents.put(otherRoot, projectRoot);
+		}
+	}
 
-		int eventPages = readObject("events-page-count.json", tempFile, new TypeToken<Integer>() {
+	private static String root(Map<String, String> parents, String project) {
+		String current = project;
+		while (!current.equals(parents.get(current))) {
+			current = parents.get(current);
+		}
+		return current;
+	}
+
+	private static int eventPages(ZipArchive archive) {
+		return archive.readObject("events-page-count.json", new TypeToken<Integer>() {
 		});
+	}
+
+	private static List<EventFull> readEvents(ZipArchive archive, int page) {
+		return archive.readObject("events-" + page + ".json", new TypeToken<List<EventFull>>() {
+		});
+	}
 
-		for (int i = 0; i < eventPages; i++) {
-			processEvents(readObject("events-" + i + ".json", tempFile, new TypeToken<List<EventFull>>() {
-			}), context, tempFile);
+	private List<ImportContext> importEvents(final ZipArchive archive, final String archiveId,
+			List<Partition> partitions, List<ImportCheckpoint> checkpoints) {
+
+		Map<Integer, ImportCheckpoint> checkpointByPartition = new HashMap<>();
+		for (ImportCheckpoint checkpoint : checkpoints) {
+			checkpointByPartition.put(checkpoint.getPartition(), checkpoint);
+		}
+
+		List<Callable<ImportContext>> tasks = new ArrayList<>(partitions.size());
+		for (final Partition partition : partitions) {
+			final ImportCheckpoint checkpoint = checkpointByPartition.get(partition.index);
+			tasks.add(new Callable<ImportContext>() {
+				@Override
+				public ImportContext call() {
+					return importPartition(archive, archiveId, partition, checkpoint);
+				}
+			});
 		}
 
-		orderAll(tempFile, context);
+		List<Future<ImportContext>> futures = new ArrayList<>(tasks.size());
+		int threads = threads(tasks.size());
+		if (threads <= 1) {
+			for (Callable<ImportContext> task : tasks) {
+				FutureTask<ImportContext> future = new FutureTask<>(task);
+				future.run();
+				futures.add(future);
+			}
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(threads, new ImportThreadFactory());
+			try {
+				// wait for all the partitions, so the ones that do not fail reach their last checkpoint
+				futures.addAll(executor.invokeAll(tasks));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+
+		List<ImportContext> contexts = new ArrayList<>(futures.size());
+		for (Future<ImportContext> future : futures) {
+			contexts.add(get(future));
+		}
+		return contexts;
 	}
 
-	private void orderAll(Path tempFile, ImportContext context) {
+	private int threads(int partitions) {
+		// the transaction of the caller is bound to the current thread
+		if (TransactionSynchronizationManager.isActualTransactionActive()
+				|| "HSQLDB".equals(env.getProperty("datasource.dialect"))) {
+			return 1;
+		}
+		return Math.min(partitions, MAX_THREADS);
+	}
+
+	private static <T> T get(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Replay the events of a partition from its checkpoint, committing every {@value #PAGES_PER_TRANSACTION} pages.
+	 */
+	private ImportContext importPartition(final ZipArchive archive, final String archiveId, final Partition partition,
+			ImportCheckpoint checkpoint) {
+		final ImportContext context = Json.GSON.fromJson(checkpoint.getContext(), ImportContext.class);
+
+		List<Integer> pages = new ArrayList<>();
+		for (int page : partition.pages) {
+			if (page >= checkpoint.getNextPage()) {
+				pages.add(page);
+			}
+		}
+
+		for (int from = 0; from < pages.size(); from += PAGES_PER_TRANSACTION) {
+			final List<Integer> chunk = pages.subList(from, Math.min(from + PAGES_PER_TRANSACTION, pages.size()));
+			transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+				@Override
+				protected void doInTransactionWithoutResult(TransactionStatus status) {
+					for (int page : chunk) {
+						for (EventFull e : readEvents(archive, page)) {
+							if (partition.boards.contains(e.getBoardShortName())) {
+								processEvent(context, e, archive);
+							}
+						}
+					}
+					int nextPage = chunk.get(chunk.size() - 1) + 1;
+					checkpointQuery.update(archiveId, partition.index, nextPage, Json.GSON.toJson(context));
+				}
+			});
+		}
+		return context;
+	}
+
+	private void orderAll(ZipArchive archive, ImportContext context) {
 
 		for (String shortName : context.getImportedBoard()) {
-			orderCards(readObject("boards/" + shortName + "/cards.json", tempFile, new TypeToken<List<CardFull>>() {
-			}));
+			cardRepository.updateCardOrderByBoardNameAndSeq(archive.readObject("boards/" + shortName + "/cards.json",
+					new TypeToken<List<CardFull>>() {
+					}));
 		}
 
-		for (CardDataIdAndOrder idOrder : readObject("card-data-types-order.json", tempFile,
+		Map<Integer, Integer> orderById = new HashMap<>();
+		for (CardDataIdAndOrder idOrder : archive.readObject("card-data-types-order.json",
 				new TypeToken<List<CardDataIdAndOrder>>() {
 				})) {
 
@@ -138,72 +441,58 @@ class LavagnaImporter {
 			int order = idOrder.getSecond();
 
 			if (context.getActionItemId().containsKey(oldId)) {
-				cardDataRepository.updateOrderById(context.getActionItemId().get(oldId), order);
+				orderById.put(context.getActionItemId().get(oldId), order);
 			} else if (context.getActionListId().containsKey(oldId)) {
-				cardDataRepository.updateOrderById(context.getActionListId().get(oldId), order);
+				orderById.put(context.getActionListId().get(oldId), order);
 			}
 		}
+		cardDataRepository.updateOrderByIds(orderById);
 	}
 
-	private void orderCards(List<CardFull> cards) {
-		for (CardFull cf : cards) {
-			int cardId = cardRepository.findCardIdByBoardNameAndSeq(cf.getBoardShortName(), cf.getSequence());
-			cardRepository.updateCardOrder(cardId, cf.getOrder());
-		}
-	}
-
-	private void importConfiguration(boolean overrideConfiguration, Path tempFile) {
+	private void importConfiguration(boolean overrideConfiguration, ZipArchive archive) {
 		if (overrideConfiguration) {
-			configurationRepository.updateOrCreate(readObject("config.json", tempFile,
+			configurationRepository.updateOrCreate(archive.readObject("config.json",
 					new TypeToken<List<ConfigurationKeyValue>>() {
 					}));
 		}
 	}
 
-	private void importBoards(Path tempFile, ImportContext context) {
-		for (Pair<String, BoardInfo> p : readMatchingObjects("boards/[^/]+\\.json", tempFile,
-				new TypeToken<Pair<String, BoardInfo>>() {
-				})) {
+	private void importBoards(ZipArchive archive, List<Pair<String, BoardInfo>> boards, ImportContext context) {
+		for (Pair<String, BoardInfo> p : boards) {
 			String projectShortName = p.getFirst();
 			BoardInfo boardInfo = p.getSecond();
 			if (context.getImportedProject().contains(projectShortName)) {
 				Project project = projectService.findByShortName(projectShortName);
 				if (!boardRepository.existsWithShortName(boardInfo.getShortName())) {
-					importMissingBoard(project, boardInfo, tempFile, context);
+					importMissingBoard(project, boardInfo, archive, context);
 					context.getImportedBoard().add(boardInfo.getShortName());
 				}
 			}
 		}
 	}
 
-	private void importProjects(Path tempFile, ImportContext context) {
-		for (Project project : readMatchingObjects("projects/[^/]+\\.json", tempFile, new TypeToken<Project>() {
+	private void importProjects(ZipArchive archive, ImportContext context) {
+		for (Project project : archive.readMatchingObjects("projects/[^/]+\\.json", new TypeToken<Project>() {
 		})) {
-			if (importProject(project, tempFile)) {
+			if (importProject(project, archive)) {
 				context.getImportedProject().add(project.getShortName());
 			}
 		}
 	}
 
-	private void processEvents(List<EventFull> events, ImportContext idMapping, Path tempFile) {
-		for (EventFull e : events) {
-			processEvent(idMapping, e, tempFile);
-		}
-	}
-
-	private void processEvent(ImportContext context, EventFull e, Path tempFile) {
+	private void processEvent(ImportContext context, EventFull e, ZipArchive archive) {
 
 		if (!context.getImportedBoard().contains(e.getBoardShortName())) {
 			return;
 		}
 
-		importEvent.processEvent(e, context, tempFile);
+		importEvent.processEvent(e, context, archive);
 	}
 
-	private void importBasePermissions(Path tempFile) {
+	private void importBasePermissions(ZipArchive archive) {
 
 		// add missing base permissions
-		Map<String, RoleAndPermissionsWithUsers> permissions = readObject("permissions.json", tempFile,
+		Map<String, RoleAndPermissionsWithUsers> permissions = archive.readObject("permissions.json",
 				new TypeToken<Map<String, RoleAndPermissionsWithUsers>>() {
 				});
 
@@ -252,8 +541,8 @@ class LavagnaImporter {
 	/**
 	 * Import only the users that are not present in the system.
 	 */
-	private void importMissingUsers(Path tempFile) {
-		List<User> users = readObject("users.json", tempFile, new TypeToken<List<User>>() {
+	private void importMissingUsers(ZipArchive archive) {
+		List<User> users = archive.readObject("users.json", new TypeToken<List<User>>() {
 		});
 
 		SortedSet<User> usersToImport = new TreeSet<>(new Comparator<User>() {
@@ -269,16 +558,16 @@ class LavagnaImporter {
 		userRepository.createUsers(usersToImport);
 	}
 
-	private boolean importProject(Project project, Path tempFile) {
+	private boolean importProject(Project project, ZipArchive archive) {
 		boolean created = projectService.createMissing(singletonList(project)).getRight().isEmpty();
 		if (created) {
 			Project createdProject = projectService.findByShortName(project.getShortName());
 
 			String projectNameDir = "projects/" + project.getShortName();
 
-			importColumnDefinitionColor(tempFile, createdProject, projectNameDir);
-			importLabels(tempFile, createdProject, projectNameDir);
-			importProjectPermissions(tempFile, createdProject, projectNameDir);
+			importColumnDefinitionColor(archive, createdProject, projectNameDir);
+			importLabels(archive, createdProject, projectNameDir);
+			importProjectPermissions(archive, createdProject, projectNameDir);
 
 			return true;
 		} else {
@@ -286,9 +575,9 @@ class LavagnaImporter {
 		}
 	}
 
-	private void importProjectPermissions(Path tempFile, Project createdProject, String projectNameDir) {
-		Map<String, RoleAndPermissionsWithUsers> permissions = readObject(projectNameDir + "/permissions.json",
-				tempFile, new TypeToken<Map<String, RoleAndPermissionsWithUsers>>() {
+	private void importProjectPermissions(ZipArchive archive, Project createdProject, String projectNameDir) {
+		Map<String, RoleAndPermissionsWithUsers> permissions = archive.readObject(projectNameDir + "/permissions.json",
+				new TypeToken<Map<String, RoleAndPermissionsWithUsers>>() {
 				});
 		permissionService.createMissingRolesWithPermissionForProject(createdProject.getId(), from(permissions));
 		// add users to roles
@@ -307,8 +596,8 @@ class LavagnaImporter {
 		return userIds;
 	}
 
-	private void importLabels(Path tempFile, Project createdProject, String projectNameDir) {
-		List<Pair<CardLabel, List<LabelListValueWithMetadata>>> labels = readObject(projectNameDir + "/labels.json", tempFile,
+	private void importLabels(ZipArchive archive, Project createdProject, String projectNameDir) {
+		List<Pair<CardLabel, List<LabelListValueWithMetadata>>> labels = archive.readObject(projectNameDir + "/labels.json",
 				new TypeToken<List<Pair<CardLabel, List<LabelListValueWithMetadata>>>>() {
 				});
 
@@ -336,9 +625,9 @@ class LavagnaImporter {
 		}
 	}
 
-	private void importColumnDefinitionColor(Path tempFile, Project createdProject, String projectNameDir) {
-		Map<ColumnDefinition, BoardColumnDefinition> importedColDef = readObject(projectNameDir
-				+ "/column-definitions.json", tempFile, new TypeToken<Map<ColumnDefinition, BoardColumnDefinition>>() {
+	private void importColumnDefinitionColor(ZipArchive archive, Project createdProject, String projectNameDir) {
+		Map<ColumnDefinition, BoardColumnDefinition> importedColDef = archive.readObject(projectNameDir
+				+ "/column-definitions.json", new TypeToken<Map<ColumnDefinition, BoardColumnDefinition>>() {
 		});
 		Map<ColumnDefinition, BoardColumnDefinition> currentColDef = projectService
 				.findMappedColumnDefinitionsByProjectId(createdProject.getId());
@@ -349,11 +638,11 @@ class LavagnaImporter {
 		}
 	}
 
-	private void importMissingBoard(Project project, BoardInfo boardInfo, Path tempFile, ImportContext idMapping) {
+	private void importMissingBoard(Project project, BoardInfo boardInfo, ZipArchive archive, ImportContext idMapping) {
 		Board createdBoard = boardRepository.createEmptyBoard(boardInfo.getName(), boardInfo.getShortName(), boardInfo.getDescription(),
 				project.getId());
 		boardRepository.updateBoard(createdBoard.getId(), createdBoard.getName(), createdBoard.getDescription(), boardInfo.isArchived());
-		List<BoardColumn> boardColumns = readObject("boards/" + boardInfo.getShortName() + "/columns.json", tempFile,
+		List<BoardColumn> boardColumns = archive.readObject("boards/" + boardInfo.getShortName() + "/columns.json",
 				new TypeToken<List<BoardColumn>>() {
 				});
 		int boardId = boardRepository.findBoardIdByShortName(boardInfo.getShortName());
@@ -370,8 +659,8 @@ class LavagnaImporter {
 			idMapping.getColumns().put(bc.getId(), added.getId());
 		}
 
-		List<StatisticForExport> stats = readObject("boards/" + boardInfo.getShortName() + "/statistics.json",
-				tempFile, new TypeToken<List<StatisticForExport>>() {
+		List<StatisticForExport> stats = archive.readObject("boards/" + boardInfo.getShortName() + "/statistics.json",
+				new TypeToken<List<StatisticForExport>>() {
 				});
 
 		// TODO: not optimal in term of performance, use a bulk insert
@@ -381,4 +670,26 @@ class LavagnaImporter {
 		}
 	}
 
+	private static class Partition {
+
+		private final int index;
+		private final Set<String> boards = new HashSet<>();
+		private final List<Integer> pages = new ArrayList<>();
+
+		private Partition(int index) {
+			this.index = index;
+		}
+	}
+
+	private static class ImportThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "import-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
 }
@@ -0,0 +1,176 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+/**
+ * Change feed for the MySQL full text support tables.
+ * <p>
+ * The write paths enqueue the ids of the cards and card data they touch once their transaction has been committed. A
+ * single background task, scheduled only when there is something to do, copies them in batch with
+ * {@link MySqlFullTextSupportService}. When the system is idle no query is executed.
+ * <p>
+ * At startup, the changes done while the application was down are recovered with a full diff. In a cluster the
+ * recoveries are serialized with the {@link SchedulerLockService}: a node that cannot acquire the lease retries
+ * later. The queued ids are always handled by the node that has done the change.
+ */
+@Service
+public class MySqlFullTextSupportQueue {
+
+	private static final Logger LOG = LogManager.getLogger();
+
+	private static final int BATCH_SIZE = 500;
+	private static final long DRAIN_DELAY = 200;
+	private static final long RETRY_DELAY = 10 * 1000;
+	private static final String RECOVERY_JOB = "MYSQL_FULL_TEXT_RECOVERY";
+	private static final long RECOVERY_LEASE = 30 * 60 * 1000;
+
+	private final MySqlFullTextSupportService mySqlFullTextSupportService;
+	private final TaskScheduler taskScheduler;
+	private final SchedulerLockService schedulerLockService;
+	private final boolean enabled;
+
+	private final Set<Integer> cards = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+	private final Set<Integer> cardData = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+	private final AtomicBoolean drainScheduled = new AtomicBoolean();
+	private volatile boolean started;
+
+	public MySqlFullTextSupportQueue(MySqlFullTextSupportService mySqlFullTextSupportService,
+			TaskScheduler taskScheduler, SchedulerLockService schedulerLockService, Environment env) {
+		this.mySqlFullTextSupportService = mySqlFullTextSupportService;
+		this.taskScheduler = taskScheduler;
+		this.schedulerLockService = schedulerLockService;
+		this.enabled = "MYSQL".equals(env.getProperty("datasource.dialect"));
+	}
+
+	public void cardChanged(int cardId) {
+		cardsChanged(Collections.singletonList(cardId));
+	}
+
+	public void cardsChanged(Collection<Integer> cardIds) {
+		enqueue(cards, cardIds);
+	}
+
+	public void cardDataChanged(int cardDataId) {
+		enqueue(cardData, Collections.singletonList(cardDataId));
+	}
+
+	private void enqueue(final Set<Integer> queue, Collection<Integer> ids) {
+		if (!enabled || ids.isEmpty()) {
+			return;
+		}
+		final List<Integer> toAdd = new ArrayList<>(ids);
+		Utils.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				queue.addAll(toAdd);
+				scheduleDrain(DRAIN_DELAY);
+			}
+		});
+	}
+
+	/**
+	 * Recover the changes that have not been copied (e.g. done while the application was down) and then start
+	 * handling the queued ids.
+	 */
+	public void start() {
+		if (!enabled) {
+			return;
+		}
+		taskScheduler.schedule(new Recovery(), new Date());
+	}
+
+	private class Recovery implements Runnable {
+		@Override
+		public void run() {
+			if (!schedulerLockService.tryAcquire(RECOVERY_JOB, RECOVERY_LEASE)) {
+				taskScheduler.schedule(this, new Date(System.currentTimeMillis() + RETRY_DELAY));
+				return;
+			}
+			try {
+				int synced;
+				do {
+					synced = mySqlFullTextSupportService.syncNewCards()
+							+ mySqlFullTextSupportService.syncUpdatedCards()
+							+ mySqlFullTextSupportService.syncNewCardData()
+							+ mySqlFullTextSupportService.syncUpdatedCardData();
+				} while (synced > 0);
+			} catch (RuntimeException e) {
+				LOG.error("error while recovering the full text support tables, will retry", e);
+				taskScheduler.schedule(this, new Date(System.currentTimeMillis() + RETRY_DELAY));
+				return;
+			} finally {
+				schedulerLockService.release(RECOVERY_JOB);
+			}
+			started = true;
+			scheduleDrain(0);
+		}
+	}
+
+	private void scheduleDrain(long delay) {
+		if (started && (!cards.isEmpty() || !cardData.isEmpty()) && drainScheduled.compareAndSet(false, true)) {
+			taskScheduler.schedule(new Drain(), new Date(System.currentTimeMillis() + delay));
+		}
+	}
+
+	private class Drain implements Runnable {
+		@Override
+		public void run() {
+			drainScheduled.set(false);
+			List<Integer> cardIds = take(cards);
+			List<Integer> cardDataIds = take(cardData);
+			try {
+				if (!cardIds.isEmpty()) {
+					mySqlFullTextSupportService.syncCards(cardIds);
+				}
+				if (!cardDataIds.isEmpty()) {
+					mySqlFullTextSupportService.syncCardData(cardDataIds);
+				}
+				scheduleDrain(0);
+			} catch (RuntimeException e) {
+				LOG.error("error while syncing the full text support tables, will retry", e);
+				cards.addAll(cardIds);
+				cardData.addAll(cardDataIds);
+				scheduleDrain(RETRY_DELAY);
+			}
+		}
+	}
+
+	private static List<Integer> take(Set<Integer> queue) {
+		List<Integer> res = new ArrayList<>(Math.min(queue.size(), BATCH_SIZE));
+		for (Iterator<Integer> it = queue.iterator(); it.hasNext() && res.size() < BATCH_SIZE;) {
+			res.add(it.next());
+			it.remove();
+		}
+		return res;
+	}
+}
@@ -18,6 +18,8 @@ package io.lavagna.service;
 
 import io.lavagna.query.MySqlFullTextSupportQuery;
 
+import java.util.List;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.stereotype.Service;
@@ -42,24 +44,37 @@ public class MySqlFullTextSupportService {
 		this.queries = queries;
 	}
 
-	public void syncNewCards() {
+	public int syncNewCards() {
 		int rowAffected = queries.syncNewCards();
 		LOG.debug("syncNewCards : updated {} row", rowAffected);
+		return rowAffected;
 	}
 
-	public void syncUpdatedCards() {
+	public int syncUpdatedCards() {
 		int rowAffected = queries.syncUpdatedCards();
 		LOG.debug("syncUpdatedCards : updated {} row", rowAffected);
+		return rowAffected;
 	}
 
-	public void syncNewCardData() {
+	public int syncNewCardData() {
 		int rowAffected = queries.syncNewCardData();
 		LOG.debug("syncNewCardData : updated {} row", rowAffected);
+		return rowAffected;
 	}
 
-	public void syncUpdatedCardData() {
+	public int syncUpdatedCardData() {
 		int rowAffected = queries.syncUpdatedCardData();
 		LOG.debug("syncUpdatedCardData : updated {} row", rowAffected);
+		return rowAffected;
+	}
+
+	public void syncCards(List<Integer> cardIds) {
+		int rowAffected = queries.syncCards(cardIds);
+		LOG.debug("syncCards : updated {} row", rowAffected);
 	}
 
+	public void syncCardData(List<Integer> cardDataIds) {
+		int rowAffected = queries.syncCardData(cardDataIds);
+		LOG.debug("syncCardData : updated {} row", rowAffected);
+	}
 }
@@ -16,7 +16,9 @@
  */
 package io.lavagna.service;
 
+import io.lavagna.model.BoardColumn;
 import io.lavagna.model.CardFull;
+import io.lavagna.model.EmailMessage;
 import io.lavagna.model.Event;
 import io.lavagna.model.Key;
 import io.lavagna.model.MailConfig;
@@ -29,7 +31,12 @@ import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -38,28 +45,38 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
 
 import com.samskivert.mustache.Escapers;
 import com.samskivert.mustache.Mustache;
 import com.samskivert.mustache.MustacheException;
 import com.samskivert.mustache.Template;
 import com.samskivert.mustache.Template.Fragment;
-import org.apache.commons.lang3.EnumUtils;
-import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.builder.CompareToBuilder;
 import org.apache.commons.lang3.time.DateUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.ImmutableTriple;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.context.MessageSource;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
-import org.springframework.mail.MailException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -72,11 +89,15 @@ public class NotificationService {
 
     private static final Logger LOG = LogManager.getLogger();
 
+    private static final int IN_CLAUSE_SIZE = 1000;
+    private static final int RENDER_THREADS = 4;
+
     private final ConfigurationRepository configurationRepository;
     private final BoardColumnRepository boardColumnRepository;
     private final CardDataRepository cardDataRepository;
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
+    private final EmailOutboxService emailOutboxService;
 
     private final MessageSource messageSource;
 
@@ -86,11 +107,13 @@ public class NotificationService {
     private final Template emailTextTemplate;
     private final Template emailHtmlTemplate;
 
+    private final ExecutorService renderPool;
+
     
     public NotificationService(ConfigurationRepository configurationRepository, UserRepository userRepository,
         CardDataRepository cardDataRepository, CardRepository cardRepository,
         BoardColumnRepository boardColumnRepository, MessageSource messageSource, NamedParameterJdbcTemplate jdbc,
-        NotificationQuery queries) {
+        NotificationQuery queries, EmailOutboxService emailOutboxService) {
         this.configurationRepository = configurationRepository;
         this.userRepository = userRepository;
         this.cardDataRepository = cardDataRepository;
@@ -99,6 +122,7 @@ public class NotificationService {
         this.messageSource = messageSource;
         this.jdbc = jdbc;
         this.queries = queries;
+        this.emailOutboxService = emailOutboxService;
 
         com.samskivert.mustache.Mustache.Compiler compiler = Mustache.compiler().escapeHTML(false).defaultValue("");
         try {
@@ -112,10 +136,24 @@ public class NotificationService {
         } catch (IOException e) {
             throw new IllegalStateException(e);
         }
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(RENDER_THREADS, RENDER_THREADS, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new RenderThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+        this.renderPool = pool;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderPool.shutdown();
     }
 
     /**
      * Return a list of user id to notify.
+     * <p>
+     * By default a user is notified once their cards have been quiet for a whole check round. With a digest window
+     * (see {@link Key#EMAIL_NOTIFICATION_DIGEST}) a user with pending events is notified at most once per window, the
+     * email merging all the events accumulated in the meantime.
      *
      * @param upTo
      * @return
@@ -138,6 +176,18 @@ public class NotificationService {
         }
         queries.updateCheckDate(upTo);
 
+        long digestWindow = digestWindow(configurationRepository.getValueOrNull(Key.EMAIL_NOTIFICATION_DIGEST));
+        if (digestWindow > 0) {
+            List<Integer> pending = jdbc.queryForList(queries.usersToNotify(), new MapSqlParameterSource(),
+                Integer.class);
+            List<Integer> usersToNotify = notNotifiedSince(pending, new Date(upTo.getTime() - digestWindow));
+            // the deferred users keep their pending count, they will be selected again in the next rounds
+            for (List<Integer> ids : partition(new HashSet<>(usersToNotify))) {
+                jdbc.update(queries.reset() + " " + queries.in(), new MapSqlParameterSource("userIds", ids));
+            }
+            return new TreeSet<>(usersToNotify);
+        }
+
         // select users that have pending notifications that were not present in this check round
         MapSqlParameterSource userWithChangesParam = new MapSqlParameterSource("userWithChanges", userWithChanges);
         //
@@ -149,22 +199,36 @@ public class NotificationService {
         return new TreeSet<>(usersToNotify);
     }
 
-    private List<String> composeCardSection(List<Event> events, EventsContext context) {
-        //
+    private static long digestWindow(String digest) {
+        if ("HOURLY".equals(digest)) {
+            return DateUtils.MILLIS_PER_HOUR;
+        } else if ("DAILY".equals(digest)) {
+            return DateUtils.MILLIS_PER_DAY;
+        } else {
+            return 0;
+        }
+    }
 
-        List<String> res = new ArrayList<>();
-        for (Event e : events) {
-            if (EnumUtils.isValidEnum(SupportedEventType.class, e.getEvent().toString())) {
-                ImmutablePair<String, String[]> message = SupportedEventType.valueOf(e.getEvent().toString())
-                    .toKeyAndParam(e, context, cardDataRepository);
-                res.add(messageSource.getMessage(message.getKey(), message.getValue(), Locale.ENGLISH));
-            }
+    private List<Integer> notNotifiedSince(List<Integer> userIds, Date since) {
+        final long sinceTime = since.getTime();
+        final List<Integer> res = new ArrayList<>();
+        for (List<Integer> ids : partition(new HashSet<>(userIds))) {
+            jdbc.query(queries.lastEmailSentByUserIds(), new MapSqlParameterSource("userIds", ids),
+                new RowCallbackHandler() {
+                    @Override
+                    public void processRow(ResultSet rs) throws SQLException {
+                        Timestamp lastSent = rs.getTimestamp("USER_LAST_EMAIL_SENT");
+                        if (lastSent == null || lastSent.getTime() <= sinceTime) {
+                            res.add(rs.getInt("USER_ID"));
+                        }
+                    }
+                });
         }
         return res;
     }
 
-    private ImmutableTriple<String, String, String> composeEmailForUser(EventsContext context)
-        throws MustacheException, IOException {
+    private ImmutablePair<String, Map<String, Object>> composeEmailForUser(EventsContext context,
+        EventMessageRenderer renderer, String baseApplicationUrl) {
 
         List<Map<String, Object>> cardsModel = new ArrayList<>();
 
@@ -179,7 +243,7 @@ public class NotificationService {
 
             cardModel.put("cardFull", cf);
             cardModel.put("cardName", cardName.toString());
-            cardModel.put("cardEvents", composeCardSection(kv.getValue(), context));
+            cardModel.put("cardEvents", renderer.cardSection(kv.getValue(), context));
 
             subject.append(cf.getBoardShortName()).append("-").append(cf.getSequence()).append(", ");
 
@@ -187,8 +251,6 @@ public class NotificationService {
         }
 
         Map<String, Object> tmplModel = new HashMap<>();
-        String baseApplicationUrl = StringUtils
-            .appendIfMissing(configurationRepository.getValue(Key.BASE_APPLICATION_URL), "/");
         tmplModel.put("cards", cardsModel);
         tmplModel.put("baseApplicationUrl", baseApplicationUrl);
         tmplModel.put("htmlEscape", new Mustache.Lambda() {
@@ -198,14 +260,11 @@ public class NotificationService {
             }
         });
 
-        String text = emailTextTemplate.execute(tmplModel);
-        String html = emailHtmlTemplate.execute(tmplModel);
-
-        return ImmutableTriple.of(subject.substring(0, subject.length() - ", ".length()), text, html);
+        return ImmutablePair.of(subject.substring(0, subject.length() - ", ".length()), tmplModel);
     }
 
     /**
-     * Send email (if all the conditions are met) to the user.
+     * Queue the email (if all the conditions are met) for the user.
      *
      * @param userId
      * @param upTo
@@ -213,57 +272,294 @@ public class NotificationService {
      * @param mailConfig
      */
     public void notifyUser(int userId, Date upTo, boolean emailEnabled, MailConfig mailConfig) {
-        Date lastSent = queries.lastEmailSent(userId);
+        prepareEmails(Collections.singleton(userId), upTo, emailEnabled, mailConfig);
+    }
+
+    /**
+     * Build the emails (if all the conditions are met) for the given users, write them in the outbox and mark the
+     * users as notified, in the same transaction. The emails are then sent by {@link EmailOutboxService#drain}.
+     * <p>
+     * The events of all the users, and the entities they reference, are loaded with a few queries: the number of
+     * round trips depends on the distinct entities, not on the recipients. The templates are then rendered on a bounded
+     * pool.
+     *
+     * @param userIds
+     * @param upTo
+     * @param emailEnabled
+     * @param mailConfig
+     * @return
+     */
+    public List<EmailMessage> prepareEmails(Collection<Integer> userIds, Date upTo, boolean emailEnabled,
+        MailConfig mailConfig) {
 
-        User user = userRepository.findById(userId);
+        if (userIds.isEmpty()) {
+            return Collections.emptyList();
+        }
 
-        Date fromDate = ObjectUtils.firstNonNull(lastSent, DateUtils.addDays(upTo, -1));
+        List<EmailMessage> emails = Collections.emptyList();
 
-        List<Event> events = user.isSkipOwnNotifications() ?
-            queries.eventsForUserWithoutHisOwns(userId, fromDate, upTo) : queries.eventsForUser(userId, fromDate, upTo);
+        if (mailConfig != null && mailConfig.isMinimalConfigurationPresent() && emailEnabled) {
+            long start = System.nanoTime();
 
-        if (!events.isEmpty() && mailConfig != null && mailConfig.isMinimalConfigurationPresent() && emailEnabled
-            && user.canSendEmail()) {
-            try {
-                sendEmailToUser(user, events, mailConfig);
-            } catch (MustacheException | IOException | MailException e) {
-                LOG.warn("Error while sending an email to user with id " + user.getId(), e);
+            Map<Integer, User> users = new HashMap<>();
+            for (List<Integer> ids : partition(new HashSet<>(userIds))) {
+                for (User user : userRepository.findByIds(ids)) {
+                    users.put(user.getId(), user);
+                }
+            }
+            Map<Integer, List<Event>> eventsByUser = eventsByUser(users, upTo);
+            EventsContext.Entities entities = loadEntities(users, eventsByUser.values());
+            EventMessageRenderer renderer = new EventMessageRenderer(messageSource, cardDataRepository,
+                Locale.ENGLISH);
+            long loaded = System.nanoTime();
+
+            List<RenderEmail> toRender = new ArrayList<>();
+            String baseApplicationUrl = null;
+            for (Entry<Integer, List<Event>> kv : eventsByUser.entrySet()) {
+                User user = users.get(kv.getKey());
+                if (!user.canSendEmail()) {
+                    continue;
+                }
+                if (baseApplicationUrl == null) {
+                    baseApplicationUrl = StringUtils.appendIfMissing(
+                        configurationRepository.getValue(Key.BASE_APPLICATION_URL), "/");
+                }
+                try {
+                    toRender.add(prepareEmailForUser(user, kv.getValue(), entities, renderer, baseApplicationUrl));
+                } catch (MustacheException e) {
+                    LOG.warn("Error while preparing an email to user with id " + user.getId(), e);
+                }
             }
+            long prepared = System.nanoTime();
+
+            emails = render(toRender);
+            long rendered = System.nanoTime();
+
+            LOG.info("email notification for {} users: events loaded in {}ms, {} emails prepared in {}ms and rendered in {}ms",
+                userIds.size(), toMillis(loaded - start), toRender.size(), toMillis(prepared - loaded),
+                toMillis(rendered - prepared));
         }
 
         //
-        queries.updateSentEmailDate(upTo, userId);
+        List<SqlParameterSource> sentDates = new ArrayList<>(userIds.size());
+        for (int userId : userIds) {
+            sentDates.add(new MapSqlParameterSource("sentDate", upTo).addValue("userId", userId));
+        }
+        jdbc.batchUpdate(queries.updateSentEmailDate(), sentDates.toArray(new SqlParameterSource[sentDates.size()]));
+        emailOutboxService.enqueue(emails);
+
+        return emails;
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Load, for each user, the events of the cards that are assigned to or watched by him since the last email.
+     */
+    private Map<Integer, List<Event>> eventsByUser(final Map<Integer, User> users, Date upTo) {
+        if (users.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        final Map<Integer, Long> fromByUser = new HashMap<>();
+        long defaultFrom = DateUtils.addDays(upTo, -1).getTime();
+        for (int userId : users.keySet()) {
+            fromByUser.put(userId, defaultFrom);
+        }
+        final Map<Integer, List<Integer>> usersByCard = new HashMap<>();
+        for (List<Integer> ids : partition(users.keySet())) {
+            MapSqlParameterSource userIdsParam = new MapSqlParameterSource("userIds", ids);
+            jdbc.query(queries.lastEmailSentByUserIds(), userIdsParam, new RowCallbackHandler() {
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    Timestamp lastSent = rs.getTimestamp("USER_LAST_EMAIL_SENT");
+                    if (lastSent != null) {
+                        fromByUser.put(rs.getInt("USER_ID"), lastSent.getTime());
+                    }
+                }
+            });
+            jdbc.query(queries.cardsForUserIds(), userIdsParam, new RowCallbackHandler() {
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    int cardId = rs.getInt("CARD_ID_FK");
+                    if (!usersByCard.containsKey(cardId)) {
+                        usersByCard.put(cardId, new ArrayList<Integer>());
+                    }
+                    usersByCard.get(cardId).add(rs.getInt("CARD_LABEL_VALUE_USER_FK"));
+                }
+            });
+        }
+
+        if (usersByCard.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        // the users are grouped by the hour of their last email, so that a user with an old last email does not
+        // widen the events loaded for all the others
+        Map<Date, Map<Integer, List<Integer>>> usersByCardByWindow = new TreeMap<>();
+        for (Entry<Integer, List<Integer>> cardUsers : usersByCard.entrySet()) {
+            for (int userId : cardUsers.getValue()) {
+                Date window = DateUtils.truncate(new Date(fromByUser.get(userId)), Calendar.HOUR);
+                if (!usersByCardByWindow.containsKey(window)) {
+                    usersByCardByWindow.put(window, new HashMap<Integer, List<Integer>>());
+                }
+                Map<Integer, List<Integer>> windowUsersByCard = usersByCardByWindow.get(window);
+                if (!windowUsersByCard.containsKey(cardUsers.getKey())) {
+                    windowUsersByCard.put(cardUsers.getKey(), new ArrayList<Integer>());
+                }
+                windowUsersByCard.get(cardUsers.getKey()).add(userId);
+            }
+        }
+
+        Map<Integer, List<Event>> res = new TreeMap<>();
+        for (Entry<Date, Map<Integer, List<Integer>>> window : usersByCardByWindow.entrySet()) {
+            Map<Integer, List<Integer>> windowUsersByCard = window.getValue();
+            for (List<Integer> cardIds : partition(windowUsersByCard.keySet())) {
+                for (Event e : queries.eventsForCards(cardIds, window.getKey(), upTo)) {
+                    for (int userId : windowUsersByCard.get(e.getCardId())) {
+                        boolean skipOwn = users.get(userId).isSkipOwnNotifications() && e.getUserId() == userId;
+                        if (e.getTime().getTime() >= fromByUser.get(userId) && !skipOwn) {
+                            if (!res.containsKey(userId)) {
+                                res.put(userId, new ArrayList<Event>());
+                            }
+                            res.get(userId).add(e);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (List<Event> events : res.values()) {
+            Collections.sort(events, new Comparator<Event>() {
+                @Override
+                public int compare(Event o1, Event o2) {
+                    return new CompareToBuilder().append(o1.getTime().getTime(), o2.getTime().getTime())
+                        .append(o1.getId(), o2.getId()).toComparison();
+                }
+            });
+        }
+        return res;
     }
 
-    private void sendEmailToUser(User user, List<Event> events, MailConfig mailConfig) throws MustacheException,
-        IOException {
+    /**
+     * Load, once for the whole round, the entities referenced by the events of all the users.
+     */
+    private EventsContext.Entities loadEntities(Map<Integer, User> recipients, Collection<List<Event>> eventsByUser) {
 
-        Set<Integer> userIds = new HashSet<>();
-        userIds.add(user.getId());
+        Set<Integer> userIds = new HashSet<>(recipients.keySet());
         Set<Integer> cardIds = new HashSet<>();
         Set<Integer> cardDataIds = new HashSet<>();
         Set<Integer> columnIds = new HashSet<>();
 
-        for (Event e : events) {
-            cardIds.add(e.getCardId());
-            userIds.add(e.getUserId());
+        for (List<Event> events : eventsByUser) {
+            for (Event e : events) {
+                cardIds.add(e.getCardId());
+                userIds.add(e.getUserId());
+
+                addIfNotNull(userIds, e.getValueUser());
+                addIfNotNull(cardIds, e.getValueCard());
+
+                addIfNotNull(cardDataIds, e.getDataId());
+                addIfNotNull(cardDataIds, e.getPreviousDataId());
+
+                addIfNotNull(columnIds, e.getColumnId());
+                addIfNotNull(columnIds, e.getPreviousColumnId());
+            }
+        }
+
+        List<User> users = new ArrayList<>(recipients.values());
+        userIds.removeAll(recipients.keySet());
+        List<CardFull> cards = new ArrayList<>(cardIds.size());
+        Map<Integer, String> cardData = new HashMap<>();
+        List<BoardColumn> columns = new ArrayList<>(columnIds.size());
+        for (List<Integer> ids : partition(userIds)) {
+            users.addAll(userRepository.findByIds(ids));
+        }
+        for (List<Integer> ids : partition(cardIds)) {
+            cards.addAll(cardRepository.findAllByIds(ids));
+        }
+        for (List<Integer> ids : partition(cardDataIds)) {
+            cardData.putAll(cardDataRepository.findDataByIds(ids));
+        }
+        for (List<Integer> ids : partition(columnIds)) {
+            columns.addAll(boardColumnRepository.findByIds(new HashSet<>(ids)));
+        }
+        return new EventsContext.Entities(users, cards, cardData, columns);
+    }
+
+    private static List<List<Integer>> partition(Set<Integer> ids) {
+        List<Integer> l = new ArrayList<>(ids);
+        List<List<Integer>> res = new ArrayList<>();
+        for (int i = 0; i < l.size(); i += IN_CLAUSE_SIZE) {
+            res.add(l.subList(i, Math.min(i + IN_CLAUSE_SIZE, l.size())));
+        }
+        return res;
+    }
 
-            addIfNotNull(userIds, e.getValueUser());
-            addIfNotNull(cardIds, e.getValueCard());
+    /**
+     * Compose the model of the email. The queries are executed in the calling thread, only the template execution is
+     * deferred.
+     */
+    private RenderEmail prepareEmailForUser(User user, List<Event> events, EventsContext.Entities entities,
+        EventMessageRenderer renderer, String baseApplicationUrl) {
 
-            addIfNotNull(cardDataIds, e.getDataId());
-            addIfNotNull(cardDataIds, e.getPreviousDataId());
+        ImmutablePair<String, Map<String, Object>> subjectAndModel = composeEmailForUser(new EventsContext(events,
+            entities), renderer, baseApplicationUrl);
 
-            addIfNotNull(columnIds, e.getColumnId());
-            addIfNotNull(columnIds, e.getPreviousColumnId());
+        return new RenderEmail(user, StringUtils.substring("Lavagna: " + subjectAndModel.getLeft(), 0, 78),
+            subjectAndModel.getRight());
+    }
+
+    private List<EmailMessage> render(List<RenderEmail> toRender) {
+        if (toRender.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<EmailMessage> res = new ArrayList<>(toRender.size());
+        try {
+            for (Future<EmailMessage> email : renderPool.invokeAll(toRender)) {
+                try {
+                    res.add(email.get());
+                } catch (ExecutionException e) {
+                    LOG.warn("Error while rendering an email", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return res;
+    }
+
+    private class RenderEmail implements Callable<EmailMessage> {
+
+        private final User user;
+        private final String subject;
+        private final Map<String, Object> model;
+
+        private RenderEmail(User user, String subject, Map<String, Object> model) {
+            this.user = user;
+            this.subject = subject;
+            this.model = model;
         }
 
-        final ImmutableTriple<String, String, String> subjectAndText = composeEmailForUser(new EventsContext(events,
-            userRepository.findByIds(userIds), cardRepository.findAllByIds(cardIds),
-            cardDataRepository.findDataByIds(cardDataIds), boardColumnRepository.findByIds(columnIds)));
+        @Override
+        public EmailMessage call() {
+            return new EmailMessage(user.getEmail(), subject, emailTextTemplate.execute(model),
+                emailHtmlTemplate.execute(model));
+        }
+    }
+
+    private static class RenderThreadFactory implements ThreadFactory {
 
-        mailConfig.send(user.getEmail(), StringUtils.substring("Lavagna: " + subjectAndText.getLeft(), 0, 78),
-            subjectAndText.getMiddle(), subjectAndText.getRight());
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "notification-render-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
     }
 
     private static <T> void addIfNotNull(Set<T> s, T v) {
@@ -53,12 +53,15 @@ public class PermissionService {
     private final NamedParameterJdbcTemplate jdbc;
     private final PermissionQuery queries;
     private final UserRepository userRepository;
+    private final UserPermissionCache userPermissionCache;
 
     
-    public PermissionService(NamedParameterJdbcTemplate jdbc, PermissionQuery queries, UserRepository userRepository) {
+    public PermissionService(NamedParameterJdbcTemplate jdbc, PermissionQuery queries, UserRepository userRepository,
+        UserPermissionCache userPermissionCache) {
         this.jdbc = jdbc;
         this.queries = queries;
         this.userRepository = userRepository;
+        this.userPermissionCache = userPermissionCache;
     }
 
     /**
@@ -235,6 +238,7 @@ public class PermissionService {
      */
     @Transactional(readOnly = false)
     public int deleteRole(Role role) {
+        userPermissionCache.invalidate();
         Objects.requireNonNull(role);
         queries.removeUsersFromRole(role.getName());
         queries.deletePermissions(role.getName());
@@ -243,6 +247,7 @@ public class PermissionService {
 
     @Transactional(readOnly = false)
     public int deleteRoleInProjectId(Role role, int projectId) {
+        userPermissionCache.invalidate();
         Objects.requireNonNull(role);
         queries.removeUsersFromRoleInProjectId(role.getName(), projectId);
         queries.deletePermissionsInProjectId(role.getName(), projectId);
@@ -251,6 +256,7 @@ public class PermissionService {
 
     @Transactional(readOnly = false)
     public void updatePermissionsToRole(Role role, Set<Permission> enabledPermissions) {
+        userPermissionCache.invalidate();
         Objects.requireNonNull(role);
         Objects.requireNonNull(enabledPermissions);
 
@@ -262,6 +268,7 @@ public class PermissionService {
 
     @Transactional(readOnly = false)
     public void updatePermissionsToRoleInProjectId(Role role, Set<Permission> permissions, int projectId) {
+        userPermissionCache.invalidate();
         Objects.requireNonNull(role);
         Objects.requireNonNull(permissions);
         Permission.ensurePermissionForProject(permissions);
@@ -288,6 +295,7 @@ public class PermissionService {
 
     @Transactional(readOnly = false)
     public void assignRoleToUsers(Role role, Set<Integer> userIds) {
+        userPermissionCache.invalidate();
         Objects.requireNonNull(role);
         Objects.requireNonNull(userIds);
 
@@ -298,6 +306,7 @@ public class PermissionService {
 
     @Transactional(readOnly = false)
     public void assignRoleToUsersInProjectId(Role role, Set<Integer> userIds, int projectId) {
+        userPermissionCache.invalidate();
         Objects.requireNonNull(role);
         Objects.requireNonNull(userIds);
 
@@ -309,6 +318,7 @@ public class PermissionService {
 
     @Transactional(readOnly = false)
     public void removeRoleToUsers(Role role, Set<Integer> userIds) {
+        userPermissionCache.invalidate();
         Objects.requireNonNull(role);
         Objects.requireNonNull(userIds);
 
@@ -319,6 +329,7 @@ public class PermissionService {
 
     @Transactional(readOnly = false)
     public void removeRoleToUsersInProjectId(Role role, Set<Integer> userIds, int projectId) {
+        userPermissionCache.invalidate();
         Objects.requireNonNull(role);
         Objects.requireNonNull(userIds);
 
@@ -29,6 +29,7 @@ import io.lavagna.model.Role;
 import io.lavagna.model.User;
 import io.lavagna.model.UserWithPermission;
 import io.lavagna.query.ProjectQuery;
+import io.lavagna.service.ProjectShortNameCache.Kind;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -61,14 +62,19 @@ public class ProjectService {
 	private final CardLabelRepository cardLabelRepository;
 	private final PermissionService permissionService;
 	private final ProjectQuery queries;
+	private final ProjectShortNameCache projectShortNameCache;
+	private final VersionRepository versionRepository;
 
 	
 	public ProjectService(NamedParameterJdbcTemplate jdbc, ProjectQuery queries,
-			CardLabelRepository cardLabelRepository, PermissionService permissionService) {
+			CardLabelRepository cardLabelRepository, PermissionService permissionService,
+			ProjectShortNameCache projectShortNameCache, VersionRepository versionRepository) {
 		this.jdbc = jdbc;
 		this.queries = queries;
 		this.cardLabelRepository = cardLabelRepository;
 		this.permissionService = permissionService;
+		this.projectShortNameCache = projectShortNameCache;
+		this.versionRepository = versionRepository;
 	}
 
 	private static <T> T firstOrNull(List<T> t) {
@@ -80,6 +86,7 @@ public class ProjectService {
 		queries.createProject(trimToNull(name), trimToNull(shortName.toUpperCase(Locale.ENGLISH)),
 				trimToNull(description));
 		Project project = queries.findLastCreatedProject();
+		versionRepository.projectCreated(project.getId());
 
 		// Add default labels to the Project
 		cardLabelRepository.addSystemLabels(project.getId());
@@ -108,6 +115,7 @@ public class ProjectService {
 
 	@Transactional(readOnly = false)
 	public int updateColumnDefinition(int projectId, int columnDefinitionId, int color) {
+		versionRepository.projectChanged(projectId);
 		return queries.updateColumnDefinition(color, projectId, columnDefinitionId);
 	}
 
@@ -176,8 +184,13 @@ public class ProjectService {
 
 	// ---------
 
-	public String findRelatedProjectShortNameByBoardShortname(String shortName) {
-		return fromProjectIdToShortName(firstOrNull(queries.findRelatedProjectIdByBoardShortname(shortName)));
+	public String findRelatedProjectShortNameByBoardShortname(final String shortName) {
+		return relatedProjectShortName(Kind.BOARD, shortName, new ProjectIdLoader() {
+			@Override
+			List<Integer> load() {
+				return queries.findRelatedProjectIdByBoardShortname(shortName);
+			}
+		});
 	}
 
 	// FIXME: fetch directly the project short name?
@@ -185,37 +198,94 @@ public class ProjectService {
 		return projectId != null ? findById(projectId).getShortName() : null;
 	}
 
-	public String findRelatedProjectShortNameByCardId(int cardId) {
-		return fromProjectIdToShortName(firstOrNull(queries.findRelatedProjectIdByCardId(cardId)));
+	/**
+	 * Project short name related to the entity, from the cache or loaded and cached.
+	 */
+	private String relatedProjectShortName(Kind kind, Object id, ProjectIdLoader loader) {
+		String cached = projectShortNameCache.get(kind, id);
+		if (cached != null) {
+			return cached;
+		}
+		long generation = projectShortNameCache.getGeneration();
+		String res = fromProjectIdToShortName(firstOrNull(loader.load()));
+		projectShortNameCache.put(kind, id, res, generation);
+		return res;
+	}
+
+	private abstract static class ProjectIdLoader {
+		abstract List<Integer> load();
+	}
+
+	public String findRelatedProjectShortNameByCardId(final int cardId) {
+		return relatedProjectShortName(Kind.CARD, cardId, new ProjectIdLoader() {
+			@Override
+			List<Integer> load() {
+				return queries.findRelatedProjectIdByCardId(cardId);
+			}
+		});
 	}
 
-	public String findRelatedProjectShortNameByEventId(int eventId) {
-		return fromProjectIdToShortName(firstOrNull(queries.findRelatedProjectIdByEventId(eventId)));
+	public String findRelatedProjectShortNameByEventId(final int eventId) {
+		return relatedProjectShortName(Kind.EVENT, eventId, new ProjectIdLoader() {
+			@Override
+			List<Integer> load() {
+				return queries.findRelatedProjectIdByEventId(eventId);
+			}
+		});
 	}
 
-	public String findRelatedProjectShortNameByColumnId(int columnId) {
-		return fromProjectIdToShortName(firstOrNull(queries.findRelatedProjectIdByColumnId(columnId)));
+	public String findRelatedProjectShortNameByColumnId(final int columnId) {
+		return relatedProjectShortName(Kind.COLUMN, columnId, new ProjectIdLoader() {
+			@Override
+			List<Integer> load() {
+				return queries.findRelatedProjectIdByColumnId(columnId);
+			}
+		});
 	}
 
-	public String findRelatedProjectShortNameByCardDataId(int cardDataId) {
-		return fromProjectIdToShortName(firstOrNull(queries.findRelatedProjectIdByCardDataId(cardDataId)));
+	public String findRelatedProjectShortNameByCardDataId(final int cardDataId) {
+		return relatedProjectShortName(Kind.CARD_DATA, cardDataId, new ProjectIdLoader() {
+			@Override
+			List<Integer> load() {
+				return queries.findRelatedProjectIdByCardDataId(cardDataId);
+			}
+		});
 	}
 
-	public String findRelatedProjectShortNameByLabelId(Integer labelId) {
-		return fromProjectIdToShortName(firstOrNull(queries.findRelatedProjectIdByLabelId(labelId)));
+	public String findRelatedProjectShortNameByLabelId(final Integer labelId) {
+		return relatedProjectShortName(Kind.LABEL, labelId, new ProjectIdLoader() {
+			@Override
+			List<Integer> load() {
+				return queries.findRelatedProjectIdByLabelId(labelId);
+			}
+		});
 	}
 
-	public String findRelatedProjectShortNameByLabelListValudIdPath(Integer labelListValueIdPath) {
-		return fromProjectIdToShortName(firstOrNull(queries.findRelatedProjectIdByLabelListValudIdPath(labelListValueIdPath)));
+	public String findRelatedProjectShortNameByLabelListValudIdPath(final Integer labelListValueIdPath) {
+		return relatedProjectShortName(Kind.LABEL_LIST_VALUE, labelListValueIdPath, new ProjectIdLoader() {
+			@Override
+			List<Integer> load() {
+				return queries.findRelatedProjectIdByLabelListValudIdPath(labelListValueIdPath);
+			}
+		});
 	}
 
-	public String findRelatedProjectShortNameByColumnDefinitionId(int columnDefinitionId) {
-		return fromProjectIdToShortName(firstOrNull(queries
-				.findRelatedProjectIdByColumnDefinitionId(columnDefinitionId)));
+	public String findRelatedProjectShortNameByColumnDefinitionId(final int columnDefinitionId) {
+		return relatedProjectShortName(Kind.COLUMN_DEFINITION, columnDefinitionId, new ProjectIdLoader() {
+			@Override
+			List<Integer> load() {
+				return queries.findRelatedProjectIdByColumnDefinitionId(columnDefinitionId);
+			}
+		});
 	}
 
-	public String findRelatedProjectShortNameByLabelValueId(Integer labelValueId) {
-		return fromProjectIdToShortName(firstOrNull(queries.findRelatedProjectIdByLabelValueId(labelValueId)));
+	public String findRelatedProjectShortNameByLabelValueId(final Integer labelValueId) {
+		return relatedProjectShortName(Kind.LABEL_VALUE, labelValueId, new ProjectIdLoader() {
+			@Override
+			List<Integer> load() {
+				return queries.findRelatedProjectIdByLabelValueId(labelValueId);
+			}
+		});
 	}
 
 	public List<BoardColumnDefinition> findColumnDefinitionsByProjectId(int projectId) {
@@ -0,0 +1,156 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.common.LruCache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Cache of the project short name related to an entity, used for the project level permission checks.
+ * <p>
+ * Boards, columns, column definitions and labels never change project. The entities that follow a card (the card
+ * itself, its data, events and label values) are dropped when a card may have been moved to another project: as
+ * for {@link UserPermissionCache}, a generation counter ensures that a concurrent lookup does not store a stale
+ * value.
+ * <p>
+ * A move is seen only by the node that does it: when several nodes are running (<code>events.bus</code> is not
+ * <code>local</code>) the card related entries are not cached.
+ */
+@Service
+public class ProjectShortNameCache {
+
+	private static final int MAX_ENTRIES = 10000;
+	private static final long TTL = 10 * 60 * 1000;
+
+	public enum Kind {
+		BOARD(false), COLUMN(false), COLUMN_DEFINITION(false), LABEL(false), LABEL_LIST_VALUE(false), //
+		CARD(true), CARD_DATA(true), EVENT(true), LABEL_VALUE(true);
+
+		private final boolean cardBound;
+
+		Kind(boolean cardBound) {
+			this.cardBound = cardBound;
+		}
+	}
+
+	private final LruCache<String, String> stable = new LruCache<>(MAX_ENTRIES, TTL);
+	private final LruCache<String, Entry> cardBound = new LruCache<>(MAX_ENTRIES, TTL);
+	private final AtomicLong generation = new AtomicLong();
+	private final boolean cardBoundEnabled;
+
+	public ProjectShortNameCache(Environment env) {
+		this.cardBoundEnabled = "local".equals(env.getProperty("events.bus", "local"));
+	}
+
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	public String get(Kind kind, Object id) {
+		if (!kind.cardBound) {
+			return stable.get(key(kind, id));
+		}
+		if (!cardBoundEnabled) {
+			return null;
+		}
+		Entry e = cardBound.get(key(kind, id));
+		return e == null || e.generation != generation.get() ? null : e.projectShortName;
+	}
+
+	/**
+	 * Store the project short name. Null values are ignored, as the values loaded inside a read-write transaction:
+	 * they may not survive a rollback.
+	 *
+	 * @param kind
+	 * @param id
+	 * @param projectShortName
+	 * @param loadedAtGeneration
+	 *            the value of {@link #getGeneration()} before loading the project short name
+	 */
+	public void put(Kind kind, Object id, String projectShortName, long loadedAtGeneration) {
+		if (projectShortName == null || isInReadWriteTransaction()) {
+			return;
+		}
+		if (!kind.cardBound) {
+			stable.put(key(kind, id), projectShortName);
+		} else if (cardBoundEnabled && loadedAtGeneration == generation.get()) {
+			cardBound.put(key(kind, id), new Entry(loadedAtGeneration, projectShortName));
+		}
+	}
+
+	/**
+	 * To be called when cards are moved from a column to another: if the two columns are not known to be in the same
+	 * project, all the card related entries are dropped.
+	 *
+	 * @param previousColumnId
+	 * @param columnId
+	 */
+	public void cardsMoved(int previousColumnId, int columnId) {
+		String from = stable.get(key(Kind.COLUMN, previousColumnId));
+		if (from != null && from.equals(stable.get(key(Kind.COLUMN, columnId)))) {
+			return;
+		}
+		invalidateCardBound();
+	}
+
+	private static boolean isInReadWriteTransaction() {
+		return TransactionSynchronizationManager.isActualTransactionActive()
+				&& !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+	}
+
+	private void invalidateCardBound() {
+		generation.incrementAndGet();
+		cardBound.clear();
+		Utils.afterCompletion(new Runnable() {
+			@Override
+			public void run() {
+				generation.incrementAndGet();
+			}
+		});
+	}
+
+	public long getHits() {
+		return stable.getHits() + cardBound.getHits();
+	}
+
+	public long getMisses() {
+		return stable.getMisses() + cardBound.getMisses();
+	}
+
+	public int size() {
+		return stable.size() + cardBound.size();
+	}
+
+	private static String key(Kind kind, Object id) {
+		return kind + ":" + id;
+	}
+
+	private static class Entry {
+		private final long generation;
+		private final String projectShortName;
+
+		Entry(long generation, String projectShortName) {
+			this.generation = generation;
+			this.projectShortName = projectShortName;
+		}
+	}
+}
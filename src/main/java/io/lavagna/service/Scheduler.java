@@ -28,58 +28,88 @@ import java.util.Set;
 
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.math.NumberUtils;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 import org.springframework.context.ApplicationListener;
 import org.springframework.core.env.Environment;
-import org.springframework.mail.MailException;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.Scheduled;
 
 /**
- * Simple scheduler. Note: it's not cluster aware.
+ * Simple scheduler. In a cluster, each job is run only by the node that holds its lease (see
+ * {@link SchedulerLockService}).
  */
 public class Scheduler implements ApplicationListener<DatabaseMigrationDoneEvent> {
 
-	private static final Logger LOG = LogManager.getLogger();
+	private static final String SNAPSHOT_CARDS_STATUS_JOB = "SNAPSHOT_CARDS_STATUS";
+	// longer than the skew between the clocks of the nodes, shorter than the interval between two snapshots
+	private static final long SNAPSHOT_CARDS_STATUS_LEASE = 60 * 60 * 1000;
+	private static final String EMAIL_NOTIFICATION_JOB = "EMAIL_NOTIFICATION";
+	private static final String EMAIL_OUTBOX_JOB = "EMAIL_OUTBOX";
+	private static final long EMAIL_OUTBOX_DELAY = 10 * 1000;
+	// at the maximum rate a run takes 100s, well below the lease
+	private static final int EMAIL_OUTBOX_MAX_EMAILS_PER_RUN = 1000;
+	private static final long EMAIL_OUTBOX_LEASE = 5 * 60 * 1000;
+	private static final String BLOB_MIGRATION_JOB = "BLOB_MIGRATION";
+	private static final long BLOB_MIGRATION_DELAY = 60 * 1000;
+	private static final int BLOB_MIGRATION_MAX_FILES_PER_RUN = 100;
+	private static final long BLOB_MIGRATION_LEASE = 10 * 60 * 1000;
 
 	private final TaskScheduler taskScheduler;
 	private final Environment env;
 	private final ConfigurationRepository configurationRepository;
-	private final MySqlFullTextSupportService mySqlFullTextSupportService;
+	private final MySqlFullTextSupportQueue mySqlFullTextSupportQueue;
 	private final NotificationService notificationService;
 	private final StatisticsService statisticsService;
+	private final SchedulerLockService schedulerLockService;
+	private final EmailOutboxService emailOutboxService;
+	private final BlobStoreMigrator blobStoreMigrator;
 
 	public Scheduler(TaskScheduler taskScheduler, Environment env, ConfigurationRepository configurationRepository,
-			MySqlFullTextSupportService mySqlFullTextSupportService, NotificationService notificationService,
-			StatisticsService statisticsService) {
+			MySqlFullTextSupportQueue mySqlFullTextSupportQueue, NotificationService notificationService,
+			StatisticsService statisticsService, SchedulerLockService schedulerLockService,
+			EmailOutboxService emailOutboxService, BlobStoreMigrator blobStoreMigrator) {
 
 		this.taskScheduler = taskScheduler;
 		this.env = env;
 		this.configurationRepository = configurationRepository;
-		this.mySqlFullTextSupportService = mySqlFullTextSupportService;
+		this.mySqlFullTextSupportQueue = mySqlFullTextSupportQueue;
 		this.notificationService = notificationService;
 		this.statisticsService = statisticsService;
+		this.schedulerLockService = schedulerLockService;
+		this.emailOutboxService = emailOutboxService;
+		this.blobStoreMigrator = blobStoreMigrator;
 	}
 
+	/**
+	 * The lease is not released: the other nodes, that fire a little later, must skip the same snapshot.
+	 */
 	@Scheduled(cron = "30 59 23,5,11,17 * * *")
 	public void snapshotCardsStatus() {
-		statisticsService.snapshotCardsStatus();
+		if (schedulerLockService.tryAcquire(SNAPSHOT_CARDS_STATUS_JOB, SNAPSHOT_CARDS_STATUS_LEASE)) {
+			statisticsService.snapshotCardsStatus();
+		}
 	}
 
 	private static class EmailNotificationHandler implements Runnable {
 
 		private final ConfigurationRepository configurationRepository;
 		private final NotificationService notificationService;
+		private final SchedulerLockService schedulerLockService;
+		private final long lease;
 
 		private EmailNotificationHandler(ConfigurationRepository configurationRepository,
-				NotificationService notificationService) {
+				NotificationService notificationService, SchedulerLockService schedulerLockService, long lease) {
 			this.configurationRepository = configurationRepository;
 			this.notificationService = notificationService;
+			this.schedulerLockService = schedulerLockService;
+			this.lease = lease;
 		}
 
 		@Override
 		public void run() {
+			// the owner renews the lease at each run, the other nodes take over only if it stops
+			if (!schedulerLockService.tryAcquire(EMAIL_NOTIFICATION_JOB, lease)) {
+				return;
+			}
 			Date upTo = new Date();
 			Set<Integer> usersToNotify = notificationService.check(upTo);
 
@@ -88,12 +118,54 @@ public class Scheduler implements ApplicationListener<DatabaseMigrationDoneEvent
 
 			boolean enabled = Boolean.parseBoolean(ObjectUtils.firstNonNull(conf.get(Key.SMTP_ENABLED), "false"));
 			MailConfig mailConfig = Json.GSON.fromJson(conf.get(Key.SMTP_CONFIG), MailConfig.class);
-			for (int userId : usersToNotify) {
-				try {
-					notificationService.notifyUser(userId, upTo, enabled, mailConfig);
-				} catch (MailException me) {
-					LOG.error("Error while sending email to userId " + userId, me);
-				}
+			notificationService.prepareEmails(usersToNotify, upTo, enabled, mailConfig);
+		}
+	}
+
+	private static class EmailOutboxHandler implements Runnable {
+
+		private final ConfigurationRepository configurationRepository;
+		private final EmailOutboxService emailOutboxService;
+		private final SchedulerLockService schedulerLockService;
+
+		private EmailOutboxHandler(ConfigurationRepository configurationRepository,
+				EmailOutboxService emailOutboxService, SchedulerLockService schedulerLockService) {
+			this.configurationRepository = configurationRepository;
+			this.emailOutboxService = emailOutboxService;
+			this.schedulerLockService = schedulerLockService;
+		}
+
+		@Override
+		public void run() {
+			if (!schedulerLockService.tryAcquire(EMAIL_OUTBOX_JOB, EMAIL_OUTBOX_LEASE)) {
+				return;
+			}
+			Map<Key, String> conf = configurationRepository.findConfigurationFor(EnumSet.of(Key.SMTP_ENABLED,
+					Key.SMTP_CONFIG));
+
+			boolean enabled = Boolean.parseBoolean(ObjectUtils.firstNonNull(conf.get(Key.SMTP_ENABLED), "false"));
+			MailConfig mailConfig = Json.GSON.fromJson(conf.get(Key.SMTP_CONFIG), MailConfig.class);
+			// while the SMTP is not configured the emails wait in the outbox
+			if (enabled && mailConfig != null && mailConfig.isMinimalConfigurationPresent()) {
+				emailOutboxService.drain(mailConfig, EMAIL_OUTBOX_MAX_EMAILS_PER_RUN);
+			}
+		}
+	}
+
+	private static class BlobMigrationHandler implements Runnable {
+
+		private final BlobStoreMigrator blobStoreMigrator;
+		private final SchedulerLockService schedulerLockService;
+
+		private BlobMigrationHandler(BlobStoreMigrator blobStoreMigrator, SchedulerLockService schedulerLockService) {
+			this.blobStoreMigrator = blobStoreMigrator;
+			this.schedulerLockService = schedulerLockService;
+		}
+
+		@Override
+		public void run() {
+			if (schedulerLockService.tryAcquire(BLOB_MIGRATION_JOB, BLOB_MIGRATION_LEASE)) {
+				blobStoreMigrator.migrate(BLOB_MIGRATION_MAX_FILES_PER_RUN);
 			}
 		}
 	}
@@ -101,21 +173,20 @@ public class Scheduler implements ApplicationListener<DatabaseMigrationDoneEvent
 	@Override
 	public void onApplicationEvent(DatabaseMigrationDoneEvent event) {
 		if ("MYSQL".equals(env.getProperty("datasource.dialect"))) {
-			taskScheduler.scheduleAtFixedRate(new Runnable() {
-
-				@Override
-				public void run() {
-					mySqlFullTextSupportService.syncNewCards();
-					mySqlFullTextSupportService.syncUpdatedCards();
-					mySqlFullTextSupportService.syncNewCardData();
-					mySqlFullTextSupportService.syncUpdatedCardData();
-				}
-			}, 2 * 1000);
+			mySqlFullTextSupportQueue.start();
 		}
 
 		Integer timespan = NumberUtils.toInt(configurationRepository.getValueOrNull(Key.EMAIL_NOTIFICATION_TIMESPAN), 30);
 
-		taskScheduler.scheduleAtFixedRate(new EmailNotificationHandler(configurationRepository, notificationService),
-				timespan * 1000);
+		taskScheduler.scheduleAtFixedRate(new EmailNotificationHandler(configurationRepository, notificationService,
+				schedulerLockService, 2L * timespan * 1000), timespan * 1000);
+
+		taskScheduler.scheduleWithFixedDelay(new EmailOutboxHandler(configurationRepository, emailOutboxService,
+				schedulerLockService), EMAIL_OUTBOX_DELAY);
+
+		if (blobStoreMigrator.isEnabled()) {
+			taskScheduler.scheduleWithFixedDelay(new BlobMigrationHandler(blobStoreMigrator, schedulerLockService),
+					BLOB_MIGRATION_DELAY);
+		}
 	}
 }
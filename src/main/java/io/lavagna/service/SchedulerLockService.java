@@ -0,0 +1,79 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.query.SchedulerLockQuery;
+
+import java.util.Date;
+import java.util.UUID;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Database leases used to elect, for each scheduled job, the node of the cluster that runs it.
+ * <p>
+ * A lease is held by a node until it expires: while the owner keeps renewing it (each run of a periodic job acts as
+ * an heartbeat) the other nodes skip the job, if the owner stops the lease expires and another node takes over. As
+ * the locks are by job, different jobs can be run by different nodes.
+ * <p>
+ * The statements are executed outside of any transaction, the expiration is based on the clock of the nodes.
+ */
+@Service
+public class SchedulerLockService {
+
+	private final SchedulerLockQuery queries;
+	private final String node = UUID.randomUUID().toString();
+
+	public SchedulerLockService(SchedulerLockQuery queries) {
+		this.queries = queries;
+	}
+
+	public String getNode() {
+		return node;
+	}
+
+	/**
+	 * Acquire or renew the lease of the given job.
+	 *
+	 * @param job
+	 * @param leaseMillis
+	 * @return true if this node owns the lease until now + leaseMillis
+	 */
+	public boolean tryAcquire(String job, long leaseMillis) {
+		long now = System.currentTimeMillis();
+		Date expiration = new Date(now + leaseMillis);
+		if (queries.renew(job, node, expiration, new Date(now)) == 1) {
+			return true;
+		}
+		try {
+			return queries.acquire(job, node, expiration) == 1;
+		} catch (DuplicateKeyException e) {
+			// held by another node
+			return false;
+		}
+	}
+
+	/**
+	 * Release the lease, if owned by this node, so that another node can acquire it immediately.
+	 *
+	 * @param job
+	 */
+	public void release(String job) {
+		queries.release(job, node, new Date(0));
+	}
+}
@@ -26,6 +26,7 @@ import io.lavagna.model.UserWithPermission;
 import io.lavagna.query.SearchQuery;
 
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
@@ -253,6 +254,23 @@ public class SearchFilter {
 
 	}
 
+	/**
+	 * Resolve the [from, to] date interval expressed by the given filter. The elements are null if the value could not
+	 * be parsed.
+	 *
+	 * @param sf
+	 * @return
+	 */
+	static Date[] dateRange(SearchFilter sf) {
+		List<Object> params = new ArrayList<>(2);
+		addDateParams(sf, params);
+		Date[] range = new Date[2];
+		for (int i = 0; i < params.size() && i < 2; i++) {
+			range[i] = (Date) params.get(i);
+		}
+		return range;
+	}
+
 	private static void addDateParams(SearchFilter sf, List<Object> params) {
 		if (sf.value.type == ValueType.DATE_IDENTIFIER) {
 			fromDateIdentifier(sf.value.value.toString(), params);
@@ -356,18 +374,23 @@ public class SearchFilter {
 
 	private static void addUserToParam(UserWithPermission userWithPermission, List<Object> params,
 			Map<String, Integer> userNameToId, SearchFilter searchFilter) {
+		params.add(userId(userWithPermission, userNameToId, searchFilter));
+	}
+
+	static Integer userId(UserWithPermission userWithPermission, Map<String, Integer> userNameToId,
+			SearchFilter searchFilter) {
 		if (searchFilter.value.type == ValueType.CURRENT_USER && "me".equals(searchFilter.value.value)) {
-			params.add(userWithPermission.getId());
+			return userWithPermission.getId();
 		} else {
-			params.add(from(userNameToId, searchFilter.value.value));
+			return from(userNameToId, searchFilter.value.value);
 		}
 	}
 
-	private static Integer from(Map<String, Integer> f, Object key) {
+	static Integer from(Map<String, Integer> f, Object key) {
 		return key == null ? null : f.get(key);
 	}
 
-	private static Integer tryParse(String value) {
+	static Integer tryParse(String value) {
 		try {
 			return Integer.valueOf(value, 10);
 		} catch (NullPointerException | NumberFormatException e) {
@@ -17,12 +17,14 @@
 package io.lavagna.service;
 
 import static io.lavagna.service.SearchFilter.filter;
-import static io.lavagna.service.SearchFilter.filterByColumnDefinition;
+import io.lavagna.common.Json;
+import io.lavagna.common.LruCache;
 import io.lavagna.model.BoardColumn;
 import io.lavagna.model.CardFull;
 import io.lavagna.model.CardFullWithCounts;
 import io.lavagna.model.ColumnDefinition;
 import io.lavagna.model.Permission;
+import io.lavagna.model.SearchCursor;
 import io.lavagna.model.SearchResults;
 import io.lavagna.model.UserWithPermission;
 import io.lavagna.query.SearchQuery;
@@ -35,9 +37,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.sql.Clob;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
@@ -49,6 +54,7 @@ import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -65,6 +71,9 @@ public class SearchService {
 
 	private static final int CARDS_PER_PAGE = 50;
 
+	private static final int APPROXIMATE_COUNT_MAX_ENTRIES = 1000;
+	private static final long APPROXIMATE_COUNT_TTL = 60 * 1000;
+
 	private final NamedParameterJdbcTemplate jdbc;
 	private final CardRepository cardRepository;
 	private final CardService cardService;
@@ -72,11 +81,15 @@ public class SearchService {
 	private final ProjectService projectService;
 	private final BoardRepository boardRepository;
 	private final SearchQuery queries;
+	private final CardSearchIndex cardSearchIndex;
+	private final TaskStatisticsCache taskStatisticsCache;
+	private final LruCache<String, Integer> approximateCounts = new LruCache<>(APPROXIMATE_COUNT_MAX_ENTRIES,
+			APPROXIMATE_COUNT_TTL);
 
 	
 	public SearchService(CardRepository cardRepository, CardService cardService, UserRepository userRepository,
 			ProjectService projectService, BoardRepository boardRepository, NamedParameterJdbcTemplate jdbc,
-			SearchQuery queries) {
+			SearchQuery queries, CardSearchIndex cardSearchIndex, TaskStatisticsCache taskStatisticsCache) {
 		this.cardRepository = cardRepository;
 		this.cardService = cardService;
 		this.userRepository = userRepository;
@@ -84,43 +97,56 @@ public class SearchService {
 		this.boardRepository = boardRepository;
 		this.jdbc = jdbc;
 		this.queries = queries;
+		this.cardSearchIndex = cardSearchIndex;
+		this.taskStatisticsCache = taskStatisticsCache;
 	}
 
-	private List<SearchFilter> filtersAsList(SearchFilter locationFilter,
-			SearchFilter statusOpen, boolean excludeArchivedBoards) {
-		return excludeArchivedBoards ?
-				Arrays.asList(statusOpen, locationFilter,
-						filter(FilterType.BOARD_STATUS, SearchFilter.ValueType.BOOLEAN, Boolean.FALSE)) :
-				Arrays.asList(statusOpen, locationFilter);
-	}
-
+	/**
+	 * Count the cards that are in the BOARD location, grouped by the definition of their column, using a single
+	 * query. Project wide results are kept for a short time in {@link TaskStatisticsCache}.
+	 */
 	public Map<ColumnDefinition, Integer> findTaksByColumnDefinition(Integer projectId, Integer boardId,
 			boolean excludeArchivedBoards, UserWithPermission user) {
-		SearchFilter locationFilter = filter(SearchFilter.FilterType.LOCATION, SearchFilter.ValueType.STRING,
-				BoardColumn.BoardColumnLocation.BOARD.toString());
 
-		Map<ColumnDefinition, Integer> results = new EnumMap<>(ColumnDefinition.class);
+		final Map<ColumnDefinition, Integer> results = new EnumMap<>(ColumnDefinition.class);
+		for (ColumnDefinition definition : ColumnDefinition.values()) {
+			results.put(definition, 0);
+		}
 
-		SearchFilter statusOpen = filterByColumnDefinition(ColumnDefinition.OPEN);
-		SearchResults openTasks = find(filtersAsList(locationFilter, statusOpen, excludeArchivedBoards), projectId,
-				boardId, user, 0);
-		results.put(ColumnDefinition.OPEN, openTasks.getCount());
+		if (!canSearch(projectId, boardId, user)) {
+			return results;
+		}
 
-		SearchFilter statusClosed = filterByColumnDefinition(ColumnDefinition.CLOSED);
-		SearchResults closedTasks = find(filtersAsList(locationFilter, statusClosed, excludeArchivedBoards), projectId,
-				boardId, user, 0);
-		results.put(ColumnDefinition.CLOSED, closedTasks.getCount());
+		if (projectId != null) {
+			Map<ColumnDefinition, Integer> cached = taskStatisticsCache.get(projectId, boardId, excludeArchivedBoards);
+			if (cached != null) {
+				return cached;
+			}
+		}
 
-		SearchFilter statusBacklog = filterByColumnDefinition(ColumnDefinition.BACKLOG);
-		SearchResults backlogTasks = find(filtersAsList(locationFilter, statusBacklog, excludeArchivedBoards),
-				projectId, boardId, user, 0);
-		results.put(ColumnDefinition.BACKLOG, backlogTasks.getCount());
+		List<SearchFilter> searchFilters = new ArrayList<>();
+		searchFilters.add(filter(SearchFilter.FilterType.LOCATION, SearchFilter.ValueType.STRING,
+				BoardColumn.BoardColumnLocation.BOARD.toString()));
+		if (excludeArchivedBoards) {
+			searchFilters.add(filter(FilterType.BOARD_STATUS, SearchFilter.ValueType.BOOLEAN, Boolean.FALSE));
+		}
 
-		SearchFilter statusDeferred = filterByColumnDefinition(ColumnDefinition.DEFERRED);
-		SearchResults deferredTasks = find(filtersAsList(locationFilter, statusDeferred, excludeArchivedBoards),
-				projectId, boardId, user, 0);
-		results.put(ColumnDefinition.DEFERRED, deferredTasks.getCount());
+		List<Object> params = new ArrayList<>();
+		SearchContext searchContext = searchContext(searchFilters, user);
+		String baseQuery = baseQuery(searchFilters, searchContext, projectId, boardId, user, params);
+
+		String countQuery = queries.findFirstSelectCountByColumnDefinition() + baseQuery
+				+ queries.findGroupByColumnDefinition();
+		jdbc.getJdbcOperations().query(countQuery, params.toArray(), new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				results.put(ColumnDefinition.valueOf(rs.getString(1)), rs.getInt(2));
+			}
+		});
 
+		if (projectId != null) {
+			taskStatisticsCache.put(projectId, boardId, excludeArchivedBoards, results);
+		}
 		return results;
 	}
 	
@@ -134,11 +160,121 @@ public class SearchService {
 		return find(unmergedSearchFilter, projectId, boardId, currentUser, true, page);
 	}
 
+	/**
+	 * Keyset pagination: return the cards that follow the given cursor (null for the first page), ordered by last
+	 * update and id. The cost of a page does not depend on its depth.
+	 * <p>
+	 * The total count is computed only if withCount is true: it's cached for a short time, thus it must be considered
+	 * approximate.
+	 */
+	public SearchResults findAfter(List<SearchFilter> unmergedSearchFilter, Integer projectId, Integer boardId,
+			UserWithPermission currentUser, SearchCursor cursor, boolean withCount) {
+
+		if (!canSearch(projectId, boardId, currentUser)) {
+			return new SearchResults(Collections.<CardFullWithCounts>emptyList(), withCount ? 0 : -1, CARDS_PER_PAGE,
+					null);
+		}
+
+		List<SearchFilter> searchFilters = mergeFreeTextFilters(unmergedSearchFilter);
+		SearchContext searchContext = searchContext(searchFilters, currentUser);
+
+		List<Object> params = new ArrayList<>();
+		String baseQuery = baseQuery(searchFilters, searchContext, projectId, boardId, currentUser, params);
+
+		int count = -1;
+		if (withCount) {
+			count = approximateCount(searchFilters, projectId, boardId, currentUser, baseQuery, params);
+		}
+
+		StringBuilder findCardsQuery = new StringBuilder(queries.findFirstSelectWithLastUpdated()).append(baseQuery);
+		if (cursor != null) {
+			findCardsQuery.append(hasScopeCondition(projectId, boardId, currentUser) ? queries.findAnd() : queries
+					.findThirdWhere()).append(queries.findAfterCursor());
+			params.add(cursor.getLastUpdated());
+			params.add(cursor.getLastUpdated());
+			params.add(cursor.getCardId());
+		}
+		findCardsQuery.append(queries.findSeventhOrderByLastUpdatedAndId()).append(queries.findEighthLimitOnly());
+		params.add(CARDS_PER_PAGE + 1);
+
+		final List<Integer> ids = new ArrayList<>();
+		final List<Timestamp> lastUpdated = new ArrayList<>();
+		jdbc.getJdbcOperations().query(findCardsQuery.toString(), params.toArray(), new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				ids.add(rs.getInt(1));
+				lastUpdated.add(rs.getTimestamp(2));
+			}
+		});
+
+		String nextCursor = null;
+		if (ids.size() > CARDS_PER_PAGE) {
+			ids.remove(CARDS_PER_PAGE);
+			nextCursor = new SearchCursor(lastUpdated.get(CARDS_PER_PAGE - 1), ids.get(CARDS_PER_PAGE - 1)).encode();
+		}
+
+		return new SearchResults(cardFullWithCounts(ids), count, CARDS_PER_PAGE, nextCursor);
+	}
+
+	private int approximateCount(List<SearchFilter> searchFilters, Integer projectId, Integer boardId,
+			UserWithPermission currentUser, String baseQuery, List<Object> params) {
+		String key = currentUser.getId() + "/" + projectId + "/" + boardId + "/" + Json.GSON.toJson(searchFilters);
+		Integer count = approximateCounts.get(key);
+		if (count == null) {
+			count = jdbc.getJdbcOperations().queryForObject(queries.findFirstSelectCount() + baseQuery,
+					params.toArray(), Integer.class);
+			approximateCounts.put(key, count);
+		}
+		return count;
+	}
+
 	private SearchResults find(List<SearchFilter> unmergedSearchFilter, Integer projectId, Integer boardId,
 			UserWithPermission currentUser, boolean paginate, int page) {
 
-		// if a user don't have access to the specified project id we skip the
-		// whole search
+		if (!canSearch(projectId, boardId, currentUser)) {
+			return new SearchResults(Collections.<CardFullWithCounts>emptyList(), 0, page, paginate ? CARDS_PER_PAGE : Integer.MAX_VALUE, paginate);
+		}
+
+		List<SearchFilter> searchFilters = mergeFreeTextFilters(unmergedSearchFilter);
+		SearchContext searchContext = searchContext(searchFilters, currentUser);
+
+		if (cardSearchIndex.canHandle(searchFilters)) {
+			return findWithIndex(searchFilters, searchContext, projectId, boardId, currentUser, paginate, page);
+		}
+
+		List<Object> params = new ArrayList<>();
+		String baseQuery = baseQuery(searchFilters, searchContext, projectId, boardId, currentUser, params);
+
+		String findCardsQuery = queries.findFirstSelect() + baseQuery + queries.findSeventhOrderBy();
+
+		if(paginate) {
+			params.add(CARDS_PER_PAGE + 1);// limit
+			params.add(page * CARDS_PER_PAGE);// offset
+			findCardsQuery += queries.findEighthLimit();
+		}
+
+		
+
+		List<Integer> sr = jdbc.getJdbcOperations().queryForList(findCardsQuery, params.toArray(), Integer.class);
+
+		//
+
+		int count = sr.size();
+		if (paginate && page == 0 && sr.size() == (CARDS_PER_PAGE + 1) || page > 0) {
+			String countCardsQuery = queries.findFirstSelectCount() + baseQuery;
+			count = jdbc.getJdbcOperations().queryForObject(countCardsQuery,
+					params.subList(0, params.size() - 2).toArray(), Integer.class);
+		}
+
+		//
+		return new SearchResults(cardFullWithCounts(sr), count, page, paginate ? CARDS_PER_PAGE : Integer.MAX_VALUE, paginate);
+	}
+
+	/**
+	 * A user without read access to the specified project, or a board that is not in the project, skip the whole
+	 * search.
+	 */
+	private boolean canSearch(Integer projectId, Integer boardId, UserWithPermission currentUser) {
 		final boolean userHasNotProjectAccess = projectId != null
 				&& !currentUser.getBasePermissions().containsKey(Permission.READ)
 				&& !currentUser.projectsWithPermission(Permission.READ).contains(
@@ -152,17 +288,10 @@ public class SearchService {
 		final boolean boardIsntInProject = projectId != null && boardId != null
 				&& boardRepository.findBoardById(boardId).getProjectId() != projectId;
 
-		if (userHasNotProjectAccess || userHasNoReadAccess || noProjectIdForBoardId || boardIsntInProject) {
-			return new SearchResults(Collections.<CardFullWithCounts>emptyList(), 0, page, paginate ? CARDS_PER_PAGE : Integer.MAX_VALUE, paginate);
-		}
-
-		List<SearchFilter> searchFilters = mergeFreeTextFilters(unmergedSearchFilter);
-		//
-
-		List<Object> params = new ArrayList<>();
-		int filteringConditionsCount = 0;
-		//
+		return !(userHasNotProjectAccess || userHasNoReadAccess || noProjectIdForBoardId || boardIsntInProject);
+	}
 
+	private SearchContext searchContext(List<SearchFilter> searchFilters, UserWithPermission currentUser) {
 		List<String> usersOrCardToSearch = new ArrayList<>();
 		// fetch all possible user->id, card->id in the value types with string
 		// (thus unknown use)
@@ -171,14 +300,20 @@ public class SearchService {
 				usersOrCardToSearch.add(searchFilter.getValue().getValue().toString());
 			}
 		}
-		//
 
 		Map<String, Integer> cardNameToId = cardRepository.findCardsIds(usersOrCardToSearch);
 		Map<String, Integer> userNameToId = userRepository.findUsersId(usersOrCardToSearch);
 
-		SearchContext searchContext = new SearchContext(currentUser, userNameToId, cardNameToId);
+		return new SearchContext(currentUser, userNameToId, cardNameToId);
+	}
 
-		//
+	/**
+	 * Build the FROM/WHERE part shared by the search and count queries. The bind values are appended to params.
+	 */
+	private String baseQuery(List<SearchFilter> searchFilters, SearchContext searchContext, Integer projectId,
+			Integer boardId, UserWithPermission currentUser, List<Object> params) {
+
+		int filteringConditionsCount = 0;
 
 		StringBuilder baseQuery = new StringBuilder(queries.findFirstFrom()).append("SELECT CARD_ID FROM ( ");
 
@@ -215,30 +350,36 @@ public class SearchService {
 
 			params.addAll(projectsWithPermission);
 		}
-		
-		String findCardsQuery = queries.findFirstSelect() + baseQuery.toString() + queries.findSeventhOrderBy();
+		return baseQuery.toString();
+	}
 
-		if(paginate) {
-			params.add(CARDS_PER_PAGE + 1);// limit
-			params.add(page * CARDS_PER_PAGE);// offset
-			findCardsQuery += queries.findEighthLimit();
-		}
+	/**
+	 * True if {@link #baseQuery} has added a WHERE condition.
+	 */
+	private static boolean hasScopeCondition(Integer projectId, Integer boardId, UserWithPermission currentUser) {
+		return boardId != null || projectId != null || !currentUser.getBasePermissions().containsKey(Permission.READ);
+	}
 
-		
+	private SearchResults findWithIndex(List<SearchFilter> searchFilters, SearchContext searchContext,
+			Integer projectId, Integer boardId, UserWithPermission currentUser, boolean paginate, int page) {
 
-		List<Integer> sr = jdbc.getJdbcOperations().queryForList(findCardsQuery, params.toArray(), Integer.class);
+		Collection<Integer> projectIds = null;
+		if (boardId == null && projectId != null) {
+			projectIds = Collections.singleton(projectId);
+		} else if (boardId == null && !currentUser.getBasePermissions().containsKey(Permission.READ)) {
+			projectIds = currentUser.projectsIdWithPermission(Permission.READ);
+		}
 
-		//
+		List<Integer> found = cardSearchIndex.find(searchFilters, searchContext, boardId, projectIds);
 
-		int count = sr.size();
-		if (paginate && page == 0 && sr.size() == (CARDS_PER_PAGE + 1) || page > 0) {
-			String countCardsQuery = queries.findFirstSelectCount() + baseQuery.toString();
-			count = jdbc.getJdbcOperations().queryForObject(countCardsQuery,
-					params.subList(0, params.size() - 2).toArray(), Integer.class);
+		List<Integer> sr = found;
+		if (paginate) {
+			int from = Math.min(page * CARDS_PER_PAGE, found.size());
+			sr = found.subList(from, Math.min(from + CARDS_PER_PAGE + 1, found.size()));
 		}
 
-		//
-		return new SearchResults(cardFullWithCounts(sr), count, page, paginate ? CARDS_PER_PAGE : Integer.MAX_VALUE, paginate);
+		return new SearchResults(cardFullWithCounts(sr), found.size(), page, paginate ? CARDS_PER_PAGE
+				: Integer.MAX_VALUE, paginate);
 	}
 
 	private List<CardFullWithCounts> cardFullWithCounts(List<Integer> sr) {
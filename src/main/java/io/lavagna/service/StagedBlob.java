@@ -0,0 +1,88 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * A content read once into a staging file, while its SHA-256 digest and its size are computed. The content reaches the
+ * {@link BlobStore} only with {@link #commit()}. Closing a staged blob removes what is left of the staging file.
+ */
+public abstract class StagedBlob implements Closeable {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Path file;
+	private final String digest;
+	private final long size;
+
+	StagedBlob(Path file, InputStream content, long maxSize) throws IOException {
+		this.file = file;
+		MessageDigest md = DigestUtils.getSha256Digest();
+		long written = 0;
+		try (InputStream in = new DigestInputStream(content, md); OutputStream out = Files.newOutputStream(file)) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				written += read;
+				if (written > maxSize) {
+					throw new UploadTooLargeException(maxSize);
+				}
+				out.write(buffer, 0, read);
+			}
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(file);
+			throw e;
+		}
+		this.digest = Hex.encodeHexString(md.digest());
+		this.size = written;
+	}
+
+	public String getDigest() {
+		return digest;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	protected Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Store the content, if not already present.
+	 *
+	 * @throws IOException
+	 */
+	public abstract void commit() throws IOException;
+
+	@Override
+	public void close() throws IOException {
+		Files.deleteIfExists(file);
+	}
+}
@@ -0,0 +1,168 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.common.LruCache;
+import io.lavagna.model.StatisticsHistory;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Cache of the statistics history of a board or a project, by starting day.
+ * <p>
+ * The entries of a board and of its project are dropped when an event is recorded on one of its cards, all the entries
+ * when a new snapshot of the cards status is taken.
+ */
+@Service
+public class StatisticsHistoryCache {
+
+	private static final int MAX_ENTRIES = 500;
+	private static final long TTL = 5 * 60 * 1000;
+	private static final String BOARD = "board/";
+	private static final String PROJECT = "project/";
+
+	private final LruCache<String, Entry> cache = new LruCache<>(MAX_ENTRIES, TTL);
+	private final AtomicLong generation = new AtomicLong();
+	// generation of the last invalidation of everything and of each board or project: older entries are stale
+	private final AtomicLong allInvalidatedAt = new AtomicLong();
+	private final ConcurrentMap<String, Long> invalidatedAt = new ConcurrentHashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Current generation, to be passed to the put methods: a value loaded before an invalidation is not cached.
+	 */
+	public long generation() {
+		return generation.get();
+	}
+
+	public StatisticsHistory getForBoard(int boardId, Date fromDay) {
+		return get(BOARD + boardId, fromDay);
+	}
+
+	public void putForBoard(int boardId, Date fromDay, StatisticsHistory history, long loadedAt) {
+		put(BOARD + boardId, fromDay, history, loadedAt);
+	}
+
+	public StatisticsHistory getForProject(int projectId, Date fromDay) {
+		return get(PROJECT + projectId, fromDay);
+	}
+
+	public void putForProject(int projectId, Date fromDay, StatisticsHistory history, long loadedAt) {
+		put(PROJECT + projectId, fromDay, history, loadedAt);
+	}
+
+	/**
+	 * Drop the entries of the given boards and projects now and again after the commit of the current transaction, as
+	 * a concurrent reader may have cached in the meantime the not yet committed state.
+	 */
+	public void invalidate(final Collection<Integer> boardIds, final Collection<Integer> projectIds) {
+		invalidateNow(boardIds, projectIds);
+		Utils.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				invalidateNow(boardIds, projectIds);
+			}
+		});
+	}
+
+	/**
+	 * Drop all the entries now and again after the commit of the current transaction.
+	 */
+	public void invalidateAll() {
+		invalidateAllNow();
+		Utils.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				invalidateAllNow();
+			}
+		});
+	}
+
+	private void invalidateNow(Collection<Integer> boardIds, Collection<Integer> projectIds) {
+		long current = generation.incrementAndGet();
+		for (Integer boardId : boardIds) {
+			invalidatedAt.put(BOARD + boardId, current);
+		}
+		for (Integer projectId : projectIds) {
+			invalidatedAt.put(PROJECT + projectId, current);
+		}
+	}
+
+	private void invalidateAllNow() {
+		allInvalidatedAt.set(generation.incrementAndGet());
+		cache.clear();
+	}
+
+	private StatisticsHistory get(String scope, Date fromDay) {
+		String key = key(scope, fromDay);
+		Entry entry = cache.get(key);
+		if (entry != null && isCurrent(scope, entry.loadedAt)) {
+			hits.incrementAndGet();
+			return entry.history;
+		}
+		if (entry != null) {
+			cache.remove(key);
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	// the entry is checked again when read, so an invalidation between the check and the put is not lost
+	private void put(String scope, Date fromDay, StatisticsHistory history, long loadedAt) {
+		if (isCurrent(scope, loadedAt)) {
+			cache.put(key(scope, fromDay), new Entry(history, loadedAt));
+		}
+	}
+
+	private boolean isCurrent(String scope, long loadedAt) {
+		Long scopeInvalidatedAt = invalidatedAt.get(scope);
+		return loadedAt >= allInvalidatedAt.get() && (scopeInvalidatedAt == null || loadedAt >= scopeInvalidatedAt);
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public int size() {
+		return cache.size();
+	}
+
+	private static String key(String scope, Date fromDay) {
+		return scope + "/" + fromDay.getTime();
+	}
+
+	private static class Entry {
+		private final StatisticsHistory history;
+		private final long loadedAt;
+
+		private Entry(StatisticsHistory history, long loadedAt) {
+			this.history = history;
+			this.loadedAt = loadedAt;
+		}
+	}
+}
@@ -0,0 +1,337 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.common.LatencyHistogram;
+import io.lavagna.model.CardFull;
+import io.lavagna.model.ColumnDefinition;
+import io.lavagna.model.LabelAndValueWithCount;
+import io.lavagna.model.Pair;
+import io.lavagna.model.StatisticsHistory;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Assemble the statistics history of a board or a project.
+ * <p>
+ * The sub queries are independent: they are run concurrently on a small bounded pool, each one in its own read only
+ * transaction, and the result is cached by starting day. When called inside a transaction the sub queries are run
+ * sequentially in the current thread instead, as the other threads would not see its uncommitted state, and the
+ * result is not cached.
+ */
+@Service
+public class StatisticsHistoryService {
+
+	private static final int THREADS = 4;
+	private static final int QUEUE_SIZE = 64;
+
+	private static final String STATUS_HISTORY = "status-history";
+	private static final String CREATED_AND_CLOSED_CARDS = "created-and-closed-cards";
+	private static final String ACTIVE_USERS = "active-users";
+	private static final String AVERAGE_USERS_PER_CARD = "average-users-per-card";
+	private static final String AVERAGE_CARDS_PER_USER = "average-cards-per-user";
+	private static final String CARDS_BY_LABEL = "cards-by-label";
+	private static final String MOST_ACTIVE_CARD = "most-active-card";
+
+	private final StatisticsService statisticsService;
+	private final StatisticsHistoryCache cache;
+	private final ExecutorService executor;
+	private final Map<String, LatencyHistogram> latencies;
+
+	public StatisticsHistoryService(StatisticsService statisticsService, StatisticsHistoryCache cache) {
+		this.statisticsService = statisticsService;
+		this.cache = cache;
+
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new DaemonThreadFactory(),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		pool.allowCoreThreadTimeOut(true);
+		this.executor = pool;
+
+		Map<String, LatencyHistogram> l = new TreeMap<>();
+		for (String name : new String[] { STATUS_HISTORY, CREATED_AND_CLOSED_CARDS, ACTIVE_USERS,
+				AVERAGE_USERS_PER_CARD, AVERAGE_CARDS_PER_USER, CARDS_BY_LABEL, MOST_ACTIVE_CARD }) {
+			l.put(name, new LatencyHistogram());
+		}
+		this.latencies = Collections.unmodifiableMap(l);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	public StatisticsHistory findByBoard(final int boardId, Date fromDate) {
+		Date fromDay = DateUtils.truncate(fromDate, Calendar.DATE);
+		StatisticsHistory cached = cache.getForBoard(boardId, fromDay);
+		if (cached != null) {
+			return cached;
+		}
+		long generation = cache.generation();
+		StatisticsHistory history = load(new Queries() {
+			@Override
+			Map<Long, Map<ColumnDefinition, Long>> statusHistory(Date fromDay) {
+				return statisticsService.getCardsStatusByBoard(boardId, fromDay);
+			}
+
+			@Override
+			Map<Long, Pair<Long, Long>> createdAndClosedCards(Date fromDay) {
+				return statisticsService.getCreatedAndClosedCardsByBoard(boardId, fromDay);
+			}
+
+			@Override
+			Integer activeUsers(Date fromDay) {
+				return statisticsService.getActiveUsersOnBoard(boardId, fromDay);
+			}
+
+			@Override
+			double averageUsersPerCard() {
+				return statisticsService.getAverageUsersPerCardOnBoard(boardId);
+			}
+
+			@Override
+			double averageCardsPerUser() {
+				return statisticsService.getAverageCardsPerUserOnBoard(boardId);
+			}
+
+			@Override
+			List<LabelAndValueWithCount> cardsByLabel() {
+				return statisticsService.getCardsByLabelOnBoard(boardId);
+			}
+
+			@Override
+			CardFull mostActiveCard(Date fromDay) {
+				return statisticsService.getMostActiveCardByBoard(boardId, fromDay);
+			}
+		}, fromDay);
+		if (!inTransaction()) {
+			cache.putForBoard(boardId, fromDay, history, generation);
+		}
+		return history;
+	}
+
+	public StatisticsHistory findByProject(final int projectId, Date fromDate) {
+		Date fromDay = DateUtils.truncate(fromDate, Calendar.DATE);
+		StatisticsHistory cached = cache.getForProject(projectId, fromDay);
+		if (cached != null) {
+			return cached;
+		}
+		long generation = cache.generation();
+		StatisticsHistory history = load(new Queries() {
+			@Override
+			Map<Long, Map<ColumnDefinition, Long>> statusHistory(Date fromDay) {
+				return statisticsService.getCardsStatusByProject(projectId, fromDay);
+			}
+
+			@Override
+			Map<Long, Pair<Long, Long>> createdAndClosedCards(Date fromDay) {
+				return statisticsService.getCreatedAndClosedCardsByProject(projectId, fromDay);
+			}
+
+			@Override
+			Integer activeUsers(Date fromDay) {
+				return statisticsService.getActiveUsersOnProject(projectId, fromDay);
+			}
+
+			@Override
+			double averageUsersPerCard() {
+				return statisticsService.getAverageUsersPerCardOnProject(projectId);
+			}
+
+			@Override
+			double averageCardsPerUser() {
+				return statisticsService.getAverageCardsPerUserOnProject(projectId);
+			}
+
+			@Override
+			List<LabelAndValueWithCount> cardsByLabel() {
+				return statisticsService.getCardsByLabelOnProject(projectId);
+			}
+
+			@Override
+			CardFull mostActiveCard(Date fromDay) {
+				return statisticsService.getMostActiveCardByProject(projectId, fromDay);
+			}
+		}, fromDay);
+		if (!inTransaction()) {
+			cache.putForProject(projectId, fromDay, history, generation);
+		}
+		return history;
+	}
+
+	/**
+	 * Latency of each sub query, by name.
+	 */
+	public Map<String, LatencyHistogram.Snapshot> getLatencies() {
+		Map<String, LatencyHistogram.Snapshot> res = new TreeMap<>();
+		for (Map.Entry<String, LatencyHistogram> kv : latencies.entrySet()) {
+			res.put(kv.getKey(), kv.getValue().snapshot());
+		}
+		return res;
+	}
+
+	private StatisticsHistory load(final Queries queries, final Date fromDay) {
+		boolean inline = inTransaction();
+
+		Future<Map<Long, Map<ColumnDefinition, Long>>> statusHistory = submit(STATUS_HISTORY,
+				new Callable<Map<Long, Map<ColumnDefinition, Long>>>() {
+					@Override
+					public Map<Long, Map<ColumnDefinition, Long>> call() {
+						return queries.statusHistory(fromDay);
+					}
+				}, inline);
+		Future<Map<Long, Pair<Long, Long>>> createdAndClosedCards = submit(CREATED_AND_CLOSED_CARDS,
+				new Callable<Map<Long, Pair<Long, Long>>>() {
+					@Override
+					public Map<Long, Pair<Long, Long>> call() {
+						return queries.createdAndClosedCards(fromDay);
+					}
+				}, inline);
+		Future<Integer> activeUsers = submit(ACTIVE_USERS, new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return queries.activeUsers(fromDay);
+			}
+		}, inline);
+		Future<Double> averageUsersPerCard = submit(AVERAGE_USERS_PER_CARD, new Callable<Double>() {
+			@Override
+			public Double call() {
+				return queries.averageUsersPerCard();
+			}
+		}, inline);
+		Future<Double> averageCardsPerUser = submit(AVERAGE_CARDS_PER_USER, new Callable<Double>() {
+			@Override
+			public Double call() {
+				return queries.averageCardsPerUser();
+			}
+		}, inline);
+		Future<List<LabelAndValueWithCount>> cardsByLabel = submit(CARDS_BY_LABEL,
+				new Callable<List<LabelAndValueWithCount>>() {
+					@Override
+					public List<LabelAndValueWithCount> call() {
+						return queries.cardsByLabel();
+					}
+				}, inline);
+		Future<CardFull> mostActiveCard = submit(MOST_ACTIVE_CARD, new Callable<CardFull>() {
+			@Override
+			public CardFull call() {
+				return queries.mostActiveCard(fromDay);
+			}
+		}, inline);
+
+		return new StatisticsHistory(get(statusHistory), get(createdAndClosedCards), get(activeUsers),
+				get(averageUsersPerCard), get(averageCardsPerUser), get(cardsByLabel), get(mostActiveCard));
+	}
+
+	private <T> Future<T> submit(String name, Callable<T> query, boolean inline) {
+		Timed<T> timed = new Timed<>(latencies.get(name), query);
+		if (inline) {
+			FutureTask<T> task = new FutureTask<>(timed);
+			task.run();
+			return task;
+		}
+		return executor.submit(timed);
+	}
+
+	private static boolean inTransaction() {
+		return TransactionSynchronizationManager.isActualTransactionActive();
+	}
+
+	private static <T> T get(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private abstract static class Queries {
+		abstract Map<Long, Map<ColumnDefinition, Long>> statusHistory(Date fromDay);
+
+		abstract Map<Long, Pair<Long, Long>> createdAndClosedCards(Date fromDay);
+
+		abstract Integer activeUsers(Date fromDay);
+
+		abstract double averageUsersPerCard();
+
+		abstract double averageCardsPerUser();
+
+		abstract List<LabelAndValueWithCount> cardsByLabel();
+
+		abstract CardFull mostActiveCard(Date fromDay);
+	}
+
+	private static class Timed<T> implements Callable<T> {
+
+		private final LatencyHistogram histogram;
+		private final Callable<T> query;
+
+		private Timed(LatencyHistogram histogram, Callable<T> query) {
+			this.histogram = histogram;
+			this.query = query;
+		}
+
+		@Override
+		public T call() throws Exception {
+			long start = System.nanoTime();
+			try {
+				return query.call();
+			} finally {
+				histogram.record(System.nanoTime() - start);
+			}
+		}
+	}
+
+	private static class DaemonThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "statistics-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
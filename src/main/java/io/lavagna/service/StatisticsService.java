@@ -16,8 +16,10 @@
  */
 package io.lavagna.service;
 
+import io.lavagna.model.BoardColumn.BoardColumnLocation;
 import io.lavagna.model.CardFull;
 import io.lavagna.model.ColumnDefinition;
+import io.lavagna.model.Event.EventType;
 import io.lavagna.model.EventsCount;
 import io.lavagna.model.LabelAndValueWithCount;
 import io.lavagna.model.LabelListValue;
@@ -26,6 +28,7 @@ import io.lavagna.model.Pair;
 import io.lavagna.model.StatisticsResult;
 import io.lavagna.query.StatisticsQuery;
 
+import java.util.Calendar;
 import java.util.Date;
 import java.util.EnumMap;
 import java.util.HashMap;
@@ -33,6 +36,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.time.DateUtils;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -41,19 +45,81 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional(readOnly = true)
 public class StatisticsService {
 
+	private static final int MERGE_BATCH_SIZE = 1000;
+
 	private final StatisticsQuery queries;
+	private final StatisticsHistoryCache statisticsHistoryCache;
 
 	
-	public StatisticsService(StatisticsQuery queries) {
+	public StatisticsService(StatisticsQuery queries, StatisticsHistoryCache statisticsHistoryCache) {
 		this.queries = queries;
+		this.statisticsHistoryCache = statisticsHistoryCache;
 	}
 
+	/**
+	 * Copy the running counters in the daily snapshot, keeping only the most recent one of the current day, and
+	 * compact the created/closed rows added since yesterday.
+	 * <p>
+	 * Only the rows read before the merge are deleted, so the rows committed in the meantime are left for the next
+	 * round. If some of them have already been deleted by a concurrent compaction, the transaction is rolled back.
+	 */
 	@Transactional(readOnly = false)
 	public void snapshotCardsStatus() {
 
-		queries.snapshotCardsStatus(new Date());
+		for (BoardColumnLocation location : BoardColumnLocation.values()) {
+			queries.createMissingBoardCounters(location.toString());
+		}
+
+		Date now = new Date();
+		queries.snapshotCardsStatus(now);
+		queries.cleanOldCardsStatusSnapshots(DateUtils.truncate(now, Calendar.DATE), now);
+
+		Date fromDay = DateUtils.addDays(DateUtils.truncate(now, Calendar.DATE), -1);
+		List<Integer> ids = queries.findDailyCountIdsToMerge(fromDay);
+		for (int i = 0; i < ids.size(); i += MERGE_BATCH_SIZE) {
+			List<Integer> batch = ids.subList(i, Math.min(i + MERGE_BATCH_SIZE, ids.size()));
+			queries.mergeDailyCounts(batch);
+			if (queries.deleteDailyCounts(batch) != batch.size()) {
+				throw new IllegalStateException("the daily counts have been compacted concurrently");
+			}
+		}
+
+		statisticsHistoryCache.invalidateAll();
+	}
+
+	// Running counters, updated in the same transaction of the card changes
+
+	@Transactional(readOnly = false)
+	public void createBoardCounters(int boardId) {
+		for (BoardColumnLocation location : BoardColumnLocation.values()) {
+			queries.createBoardCounters(boardId, location.toString());
+		}
+	}
+
+	@Transactional(readOnly = false)
+	public void refreshBoardCounters(int boardId) {
+		queries.refreshBoardCounters(boardId);
+	}
 
-		queries.cleanOldCardsStatusSnapshots();
+	@Transactional(readOnly = false)
+	public void cardsCreated(int columnId, int count, Date time) {
+		if (count == 0) {
+			return;
+		}
+		queries.updateBoardCounter(columnId, count);
+		queries.addCreatedCards(columnId, DateUtils.truncate(time, Calendar.DATE), count);
+	}
+
+	@Transactional(readOnly = false)
+	public void cardsMoved(int previousColumnId, int columnId, int count, EventType type, Date time) {
+		if (count == 0 || previousColumnId == columnId) {
+			return;
+		}
+		queries.updateBoardCounter(previousColumnId, -count);
+		queries.updateBoardCounter(columnId, count);
+		if (type == EventType.CARD_MOVE || type == EventType.CARD_ARCHIVE || type == EventType.CARD_TRASH) {
+			queries.addClosedCards(previousColumnId, columnId, DateUtils.truncate(time, Calendar.DATE), count);
+		}
 	}
 
 	private Map<Long, Map<ColumnDefinition, Long>> toStatusByDay(List<StatisticsResult> results) {
@@ -133,13 +199,15 @@ public class StatisticsService {
 	}
 
 	public Map<Long, Pair<Long, Long>> getCreatedAndClosedCardsByBoard(int boardId, Date fromDate) {
-		return mergeCounts(queries.getCreatedCardsByBoard(boardId, fromDate),
-				queries.getClosedCardsByBoard(boardId, fromDate));
+		Date fromDay = DateUtils.truncate(fromDate, Calendar.DATE);
+		return mergeCounts(queries.getCreatedCardsByBoard(boardId, fromDay),
+				queries.getClosedCardsByBoard(boardId, fromDay));
 	}
 
 	public Map<Long, Pair<Long, Long>> getCreatedAndClosedCardsByProject(int projectId, Date fromDate) {
-		return mergeCounts(queries.getCreatedCardsByProject(projectId, fromDate),
-				queries.getClosedCardsByProject(projectId, fromDate));
+		Date fromDay = DateUtils.truncate(fromDate, Calendar.DATE);
+		return mergeCounts(queries.getCreatedCardsByProject(projectId, fromDay),
+				queries.getClosedCardsByProject(projectId, fromDay));
 	}
 
 	// Most active card
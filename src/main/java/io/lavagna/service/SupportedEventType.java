@@ -22,8 +22,10 @@ import static org.apache.commons.lang3.tuple.ImmutablePair.of;
 import io.lavagna.model.CardDataMetadata;
 import io.lavagna.model.CardType;
 import io.lavagna.model.Event;
+import io.lavagna.model.Event.EventType;
 
 import java.text.SimpleDateFormat;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -223,6 +225,22 @@ enum SupportedEventType {
 		}
 	};
 
+	private static final Map<EventType, SupportedEventType> BY_EVENT_TYPE = new EnumMap<>(EventType.class);
+
+	static {
+		for (SupportedEventType type : values()) {
+			BY_EVENT_TYPE.put(EventType.valueOf(type.name()), type);
+		}
+	}
+
+	/**
+	 * @param type
+	 * @return the supported type matching the given event type, or null if the event is not sent to the user
+	 */
+	static SupportedEventType from(EventType type) {
+		return BY_EVENT_TYPE.get(type);
+	}
+
 	private static ImmutablePair<String, String[]> handleLabelCreationAndDeletion(Event e, EventsContext context,
 			Map<String, String> msg, String defaultMessage) {
 		if ("MILESTONE".equals(e.getLabelName())) {
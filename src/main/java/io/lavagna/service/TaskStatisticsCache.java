@@ -0,0 +1,85 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.common.LruCache;
+import io.lavagna.model.ColumnDefinition;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Short lived cache for the task statistics (count of cards by column definition) of a project or a board.
+ * <p>
+ * The entries of a board, and the project wide ones, are dropped when a card is created or moved in the board.
+ */
+@Service
+public class TaskStatisticsCache {
+
+	private static final int MAX_ENTRIES = 1000;
+	private static final long TTL = 30 * 1000;
+
+	private final LruCache<String, Map<ColumnDefinition, Integer>> cache = new LruCache<>(MAX_ENTRIES, TTL);
+
+	public Map<ColumnDefinition, Integer> get(int projectId, Integer boardId, boolean excludeArchivedBoards) {
+		Map<ColumnDefinition, Integer> res = cache.get(key(projectId, boardId, excludeArchivedBoards));
+		return res == null ? null : new EnumMap<>(res);
+	}
+
+	public void put(int projectId, Integer boardId, boolean excludeArchivedBoards, Map<ColumnDefinition, Integer> res) {
+		cache.put(key(projectId, boardId, excludeArchivedBoards), new EnumMap<>(res));
+	}
+
+	/**
+	 * Drop the entries of the given board and the project wide entries of its project now and again after the commit
+	 * of the current transaction, as a concurrent reader may have cached in the meantime the not yet committed state.
+	 */
+	public void invalidate(final int projectId, final int boardId) {
+		remove(projectId, boardId);
+		Utils.afterCommit(new Runnable() {
+			@Override
+			public void run() {
+				remove(projectId, boardId);
+			}
+		});
+	}
+
+	private void remove(int projectId, int boardId) {
+		for (boolean excludeArchivedBoards : new boolean[] { true, false }) {
+			cache.remove(key(projectId, null, excludeArchivedBoards));
+			cache.remove(key(projectId, boardId, excludeArchivedBoards));
+		}
+	}
+
+	public long getHits() {
+		return cache.getHits();
+	}
+
+	public long getMisses() {
+		return cache.getMisses();
+	}
+
+	public int size() {
+		return cache.size();
+	}
+
+	private static String key(int projectId, Integer boardId, boolean excludeArchivedBoards) {
+		return projectId + "/" + boardId + "/" + excludeArchivedBoards;
+	}
+}
@@ -0,0 +1,207 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.model.CardDataUploadContentInfo;
+import io.lavagna.model.FileDataLight;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Downscaled previews of the uploaded images. A thumbnail is generated on the first request and saved as an upload
+ * content, so it is kept in the configured {@link BlobStore} like any other file.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ThumbnailService {
+
+	private static final Logger LOG = LogManager.getLogger();
+
+	/**
+	 * Maximum width and height of the thumbnails.
+	 */
+	public static final List<Integer> SIZES = Collections.unmodifiableList(Arrays.asList(64, 128, 256));
+
+	private static final Set<String> IMAGE_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"image/gif", "image/jpeg", "image/png", "image/bmp")));
+
+	// decoding an image takes a lot of memory: bigger files are not handled and the generations are limited
+	static final long MAX_SOURCE_SIZE = 20 * 1024 * 1024;
+	static final long MAX_SOURCE_PIXELS = 50 * 1000 * 1000;
+	private static final int MAX_CONCURRENT_GENERATIONS = 2;
+
+	private final CardDataRepository cardDataRepository;
+	private final Semaphore generations = new Semaphore(MAX_CONCURRENT_GENERATIONS);
+
+	public ThumbnailService(CardDataRepository cardDataRepository) {
+		this.cardDataRepository = cardDataRepository;
+	}
+
+	public boolean hasThumbnail(FileDataLight file, int size) {
+		return SIZES.contains(size) && IMAGE_TYPES.contains(file.getContentType()) && file.getSize() <= MAX_SOURCE_SIZE;
+	}
+
+	/**
+	 * Find the thumbnail of the file, generating it if needed.
+	 *
+	 * @param file
+	 * @param size
+	 *            one of {@link #SIZES}
+	 * @return the thumbnail, or null if the file cannot be decoded as an image
+	 * @throws IOException
+	 */
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public CardDataUploadContentInfo findOrCreate(FileDataLight file, int size) throws IOException {
+		if (!hasThumbnail(file, size)) {
+			return null;
+		}
+		List<String> found = cardDataRepository.findThumbnailDigest(file.getDigest(), size);
+		if (found.isEmpty()) {
+			generate(file, size);
+			found = cardDataRepository.findThumbnailDigest(file.getDigest(), size);
+		}
+		String thumbnailDigest = found.isEmpty() ? null : found.get(0);
+		return thumbnailDigest == null ? null : cardDataRepository.findUploadContentInfo(thumbnailDigest);
+	}
+
+	private void generate(FileDataLight file, int size) throws IOException {
+		try {
+			generations.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		try {
+			if (!cardDataRepository.findThumbnailDigest(file.getDigest(), size).isEmpty()) {
+				// generated while waiting
+				return;
+			}
+			ByteArrayOutputStream source = new ByteArrayOutputStream(file.getSize());
+			cardDataRepository.transferFileContent(file.getDigest(), 0, MAX_SOURCE_SIZE, Channels.newChannel(source));
+			BufferedImage thumbnail = scale(source.toByteArray(), size);
+			if (thumbnail == null) {
+				cardDataRepository.addThumbnail(file.getDigest(), size, null, null);
+				return;
+			}
+			// the thumbnails of the opaque images, usually photos, are far smaller as jpeg
+			boolean png = thumbnail.getColorModel().hasAlpha();
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ImageIO.write(thumbnail, png ? "png" : "jpeg", out);
+			cardDataRepository.addThumbnail(file.getDigest(), size, out.toByteArray(), png ? "image/png"
+					: "image/jpeg");
+		} catch (DataIntegrityViolationException e) {
+			LOG.debug("thumbnail of {} already generated by another node", file.getDigest());
+		} finally {
+			generations.release();
+		}
+	}
+
+	/**
+	 * Downscale the image to fit in a square of the given size, keeping its proportions. Smaller images keep their
+	 * size.
+	 *
+	 * @param source
+	 * @param size
+	 * @return the thumbnail, or null if the source is not a supported image
+	 * @throws IOException
+	 */
+	static BufferedImage scale(byte[] source, int size) throws IOException {
+		BufferedImage image = read(source, size);
+		if (image == null) {
+			return null;
+		}
+		int width = image.getWidth();
+		int height = image.getHeight();
+		double ratio = Math.min(1d, Math.min((double) size / width, (double) size / height));
+		int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+		int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+
+		int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+		BufferedImage current = image;
+		// halving the size at each step keeps the quality of the bilinear interpolation
+		do {
+			width = Math.max(targetWidth, width / 2);
+			height = Math.max(targetHeight, height / 2);
+			BufferedImage step = new BufferedImage(width, height, type);
+			Graphics2D g = step.createGraphics();
+			try {
+				g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				g.drawImage(current, 0, 0, width, height, null);
+			} finally {
+				g.dispose();
+			}
+			current = step;
+		} while (width != targetWidth || height != targetHeight);
+		return current;
+	}
+
+	/**
+	 * Decode the image, subsampling the big ones so that the decoded image is not much bigger than needed.
+	 */
+	private static BufferedImage read(byte[] source, int size) throws IOException {
+		try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(source))) {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+			if (!readers.hasNext()) {
+				return null;
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(iis, true, true);
+				int width = reader.getWidth(0);
+				int height = reader.getHeight(0);
+				if ((long) width * height > MAX_SOURCE_PIXELS) {
+					return null;
+				}
+				ImageReadParam param = reader.getDefaultReadParam();
+				int subsampling = Math.max(1, Math.min(width, height) / (size * 4));
+				param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		} catch (IOException | RuntimeException e) {
+			LOG.debug("unable to decode the image", e);
+			return null;
+		}
+	}
+}
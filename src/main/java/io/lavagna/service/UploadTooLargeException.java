@@ -0,0 +1,31 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import java.io.IOException;
+
+/**
+ * Raised while staging a content that exceeds the maximum size.
+ */
+public class UploadTooLargeException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	public UploadTooLargeException(long maxSize) {
+		super("the content exceeds the maximum size of " + maxSize + " bytes");
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.common.LruCache;
+import io.lavagna.model.UserWithPermission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+/**
+ * Shared cache of the {@link UserWithPermission} snapshots, keyed by user id.
+ * <p>
+ * Each snapshot is tagged with the generation that was current when its loading started: any change to the roles,
+ * their permissions or the users bump the generation, so the older snapshots are ignored. The generation is bumped
+ * again when the transaction completes, as in the meantime a snapshot may have been loaded from a state that is
+ * not committed yet or that will be rolled back.
+ * <p>
+ * The invalidations are local to this node: when several nodes are running (<code>events.bus</code> is not
+ * <code>local</code>) the cache is disabled, as a revoked permission would otherwise survive on the other nodes until
+ * the snapshot expires.
+ */
+@Service
+public class UserPermissionCache {
+
+	private static final int MAX_ENTRIES = 5000;
+	private static final long TTL = 60 * 1000;
+
+	private final LruCache<Integer, Snapshot> cache = new LruCache<>(MAX_ENTRIES, TTL);
+	private final AtomicLong generation = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final boolean enabled;
+
+	public UserPermissionCache(Environment env) {
+		this.enabled = "local".equals(env.getProperty("events.bus", "local"));
+	}
+
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * Return the snapshot of the given user or null if not present or stale.
+	 */
+	public UserWithPermission get(int userId) {
+		Snapshot snapshot = enabled ? cache.get(userId) : null;
+		if (snapshot == null || snapshot.generation != generation.get()) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return snapshot.user;
+	}
+
+	/**
+	 * Store the snapshot only if there has been no invalidation since its loading started.
+	 *
+	 * @param user
+	 * @param loadedAtGeneration
+	 *            the value of {@link #getGeneration()} before loading the user
+	 */
+	public void put(UserWithPermission user, long loadedAtGeneration) {
+		if (enabled && loadedAtGeneration == generation.get()) {
+			cache.put(user.getId(), new Snapshot(loadedAtGeneration, user));
+		}
+	}
+
+	public void invalidate() {
+		generation.incrementAndGet();
+		Utils.afterCompletion(new Runnable() {
+			@Override
+			public void run() {
+				generation.incrementAndGet();
+			}
+		});
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public int size() {
+		return cache.size();
+	}
+
+	private static class Snapshot {
+		private final long generation;
+		private final UserWithPermission user;
+
+		Snapshot(long generation, UserWithPermission user) {
+			this.generation = generation;
+			this.user = user;
+		}
+	}
+}
@@ -55,11 +55,13 @@ public class UserRepository {
 
     private final NamedParameterJdbcTemplate jdbc;
     private final UserQuery queries;
+    private final UserPermissionCache userPermissionCache;
 
     
-    public UserRepository(NamedParameterJdbcTemplate jdbc, UserQuery queries) {
+    public UserRepository(NamedParameterJdbcTemplate jdbc, UserQuery queries, UserPermissionCache userPermissionCache) {
         this.jdbc = jdbc;
         this.queries = queries;
+        this.userPermissionCache = userPermissionCache;
     }
 
     public User findUserByName(String provider, String name) {
@@ -123,12 +125,14 @@ public class UserRepository {
 
     @Transactional(readOnly = false)
     public int updateProfile(User user, String email, String displayName, boolean emailNotification, boolean skipOwnNotifications) {
+        userPermissionCache.invalidate();
         return queries.updateProfile(trimToNull(email), trimToNull(displayName), emailNotification,skipOwnNotifications,
             user.getId());
     }
 
     @Transactional(readOnly = false)
     public int toggle(int userId, boolean enabled) {
+        userPermissionCache.invalidate();
         return queries.toggle(enabled, userId);
     }
 
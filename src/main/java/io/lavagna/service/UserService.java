@@ -40,11 +40,14 @@ public class UserService {
 
 	private final UserRepository userRepository;
 	private final PermissionService permissionService;
+	private final UserPermissionCache userPermissionCache;
 
 	
-	public UserService(UserRepository userRepository, PermissionService permissionService) {
+	public UserService(UserRepository userRepository, PermissionService permissionService,
+			UserPermissionCache userPermissionCache) {
 		this.userRepository = userRepository;
 		this.permissionService = permissionService;
+		this.userPermissionCache = userPermissionCache;
 	}
 
 	@Transactional(readOnly = false)
@@ -68,13 +71,21 @@ public class UserService {
 	}
 
 	public UserWithPermission findUserWithPermission(int userId) {
+		UserWithPermission cached = userPermissionCache.get(userId);
+		if (cached != null) {
+			return cached;
+		}
+
+		long generation = userPermissionCache.getGeneration();
 		User user = userRepository.findById(userId);
 
 		Set<Permission> permissions = permissionService.findBasePermissionByUserId(user.getId());
 		ProjectRoleAndPermissionFullHolder permissionsHolder = permissionService
 				.findPermissionsGroupedByProjectForUserId(user.getId());
-		return new UserWithPermission(user, permissions, permissionsHolder.getPermissionsByProject(),
+		UserWithPermission res = new UserWithPermission(user, permissions, permissionsHolder.getPermissionsByProject(),
 				permissionsHolder.getPermissionsByProjectId());
+		userPermissionCache.put(res, generation);
+		return res;
 	}
 
 	@Transactional(readOnly = false)
@@ -19,6 +19,9 @@ package io.lavagna.service;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
 abstract class Utils {
 
 	static List<Integer> filter(List<Integer> ids, List<Integer> toKeep) {
@@ -30,4 +33,42 @@ abstract class Utils {
 		}
 		return r;
 	}
+
+	/**
+	 * Run the given runnable once the current transaction has been committed, or immediately if there is no
+	 * transaction. Nothing is run if the transaction is rolled back.
+	 *
+	 * @param runnable
+	 */
+	static void afterCommit(final Runnable runnable) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					runnable.run();
+				}
+			});
+		} else {
+			runnable.run();
+		}
+	}
+
+	/**
+	 * Run the given runnable once the current transaction has been completed, either committed or rolled back, or
+	 * immediately if there is no transaction.
+	 *
+	 * @param runnable
+	 */
+	static void afterCompletion(final Runnable runnable) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					runnable.run();
+				}
+			});
+		} else {
+			runnable.run();
+		}
+	}
 }
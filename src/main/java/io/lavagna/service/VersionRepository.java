@@ -0,0 +1,166 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.query.VersionQuery;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Monotonically increasing versions of projects, boards, columns and cards, incremented in the same transaction of
+ * every change visible in the respective read API: the card data for a card, the cards of a column, the columns and
+ * cards of a board and the metadata of a project. They are used as validators of the conditional GETs.
+ * <p>
+ * A change is propagated upward: a change of a card increments the version of the card, of its column and of its
+ * board. A change of the project metadata (labels, list values and column definitions) increments the versions of
+ * all its boards and columns too, as they are visible in the cards.
+ * <p>
+ * A reader must fetch the version <strong>before</strong> the data: a concurrent change can then only make the
+ * returned version older than the data, which costs a full response at the next request, never a stale 304.
+ * <p>
+ * The ids of the changed cards, columns and boards are resolved first and the versions are updated by primary key:
+ * MySQL before 8.0.21 does not turn the subquery of an UPDATE into a join and would evaluate it for every row of the
+ * versions table, locking them all.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class VersionRepository {
+
+	private final VersionQuery queries;
+
+	public VersionRepository(VersionQuery queries) {
+		this.queries = queries;
+	}
+
+	public long findBoardVersion(int boardId) {
+		return queries.findBoardVersion(boardId);
+	}
+
+	public long findBoardVersion(String boardShortName) {
+		return queries.findBoardVersionByShortName(boardShortName);
+	}
+
+	public long findProjectVersion(String projectShortName) {
+		return queries.findProjectVersionByShortName(projectShortName);
+	}
+
+	public long findColumnVersion(int columnId) {
+		return queries.findColumnVersion(columnId);
+	}
+
+	public long findCardVersion(int cardId) {
+		return queries.findCardVersion(cardId);
+	}
+
+	@Transactional(readOnly = false)
+	public void projectCreated(int projectId) {
+		queries.createProjectVersion(projectId);
+	}
+
+	@Transactional(readOnly = false)
+	public void columnCreated(int columnId) {
+		queries.createColumnVersion(columnId);
+	}
+
+	@Transactional(readOnly = false)
+	public void cardCreated(int cardId) {
+		queries.createCardVersion(cardId);
+	}
+
+	/**
+	 * To be called when the board itself or the list of its columns changed.
+	 */
+	@Transactional(readOnly = false)
+	public void boardChanged(int boardId) {
+		queries.incrementBoardVersion(boardId);
+	}
+
+	/**
+	 * To be called when the cards of the given boards changed and their ids are not known.
+	 */
+	@Transactional(readOnly = false)
+	public void cardsChangedInBoards(Collection<String> boardShortNames) {
+		if (!boardShortNames.isEmpty()) {
+			incrementColumnVersions(queries.findColumnIdsByBoardShortNames(boardShortNames));
+			incrementBoardVersions(queries.findBoardIdsByShortNames(boardShortNames));
+		}
+	}
+
+	@Transactional(readOnly = false)
+	public void columnChanged(int columnId) {
+		columnsChanged(Collections.singletonList(columnId));
+	}
+
+	@Transactional(readOnly = false)
+	public void columnsChanged(Collection<Integer> columnIds) {
+		if (!columnIds.isEmpty()) {
+			queries.incrementColumnVersion(columnIds);
+			incrementBoardVersions(queries.findBoardIdsByColumnIds(columnIds));
+		}
+	}
+
+	@Transactional(readOnly = false)
+	public void cardChanged(int cardId) {
+		cardsChanged(Collections.singletonList(cardId));
+	}
+
+	@Transactional(readOnly = false)
+	public void cardsChanged(Collection<Integer> cardIds) {
+		if (!cardIds.isEmpty()) {
+			queries.incrementCardVersion(cardIds);
+			columnsChanged(queries.findColumnIdsByCardIds(cardIds));
+		}
+	}
+
+	@Transactional(readOnly = false)
+	public void cardDataChanged(int cardDataId) {
+		cardDataChanged(Collections.singletonList(cardDataId));
+	}
+
+	@Transactional(readOnly = false)
+	public void cardDataChanged(Collection<Integer> cardDataIds) {
+		if (!cardDataIds.isEmpty()) {
+			cardsChanged(queries.findCardIdsByCardDataIds(cardDataIds));
+		}
+	}
+
+	/**
+	 * To be called when a change of the project (e.g. a label or a column definition) is visible in all its boards.
+	 */
+	@Transactional(readOnly = false)
+	public void projectChanged(int projectId) {
+		queries.incrementProjectVersion(projectId);
+		incrementColumnVersions(queries.findColumnIdsByProjectId(projectId));
+		incrementBoardVersions(queries.findBoardIdsByProjectId(projectId));
+	}
+
+	private void incrementColumnVersions(Collection<Integer> columnIds) {
+		if (!columnIds.isEmpty()) {
+			queries.incrementColumnVersion(columnIds);
+		}
+	}
+
+	private void incrementBoardVersions(Collection<Integer> boardIds) {
+		if (!boardIds.isEmpty()) {
+			queries.incrementBoardVersions(boardIds);
+		}
+	}
+}
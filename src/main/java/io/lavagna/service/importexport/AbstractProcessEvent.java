@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipArchive;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
 import io.lavagna.model.ImportContext;
@@ -24,7 +25,6 @@ import io.lavagna.service.CardDataService;
 import io.lavagna.service.CardRepository;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Date;
 
 abstract class AbstractProcessEvent {
@@ -39,7 +39,7 @@ abstract class AbstractProcessEvent {
 		this.cardDataService = cardDataService;
 	}
 
-	abstract void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile);
+	abstract void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipArchive archive);
 
 	protected int cardId(EventFull e) {
 		return cardRepository.findCardIdByBoardNameAndSeq(e.getBoardShortName(), e.getCardSequenceNumber());
@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipArchive;
 import io.lavagna.model.CardData;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
@@ -25,7 +26,6 @@ import io.lavagna.service.CardDataService;
 import io.lavagna.service.CardRepository;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Date;
 
 class ActionItemCreate extends AbstractProcessEvent {
@@ -36,7 +36,7 @@ class ActionItemCreate extends AbstractProcessEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipArchive archive) {
 		CardData cd = cardDataService.createActionItem(cardId(e),
 				context.getActionListId().get(event.getPreviousDataId()), e.getContent(), user.getId(), time);
 		context.getActionItemId().put(event.getDataId(), cd.getId());
@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipArchive;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
 import io.lavagna.model.ImportContext;
@@ -24,7 +25,6 @@ import io.lavagna.service.CardDataService;
 import io.lavagna.service.CardRepository;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Date;
 
@@ -35,7 +35,7 @@ class ActionItemMove extends AbstractProcessEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipArchive archive) {
 		int actionItemId = context.getActionItemId().get(event.getDataId());
 		cardDataService.moveActionItem(cardId(e), actionItemId, context.getActionListId().get(event.getNewDataId()),
 				Collections.singletonList(actionItemId), user, time);
@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipArchive;
 import io.lavagna.model.CardData;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
@@ -25,7 +26,6 @@ import io.lavagna.service.CardDataService;
 import io.lavagna.service.CardRepository;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Date;
 
 class ActionListCreate extends AbstractProcessEvent {
@@ -35,7 +35,7 @@ class ActionListCreate extends AbstractProcessEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipArchive archive) {
 		CardData cd = cardDataService.createActionList(cardId(e), e.getContent(), user.getId(), time);
 		context.getActionListId().put(event.getDataId(), cd.getId());
 	}
@@ -17,6 +17,7 @@
 package io.lavagna.service.importexport;
 
 import static java.util.Collections.singletonList;
+import io.lavagna.common.ZipArchive;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
 import io.lavagna.model.ImportContext;
@@ -27,7 +28,6 @@ import io.lavagna.service.CardService;
 import io.lavagna.service.EventRepository;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Date;
 
 class CardArchiveBacklogTrash extends AbstractProcessEvent {
@@ -43,7 +43,7 @@ class CardArchiveBacklogTrash extends AbstractProcessEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipArchive archive) {
 		int columnId = context.getColumns().get(e.getEvent().getColumnId());
 
 		if (event.getPreviousColumnId() == null) {
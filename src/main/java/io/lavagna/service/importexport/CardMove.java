@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipArchive;
 import io.lavagna.model.Event;
 import io.lavagna.model.EventFull;
 import io.lavagna.model.ImportContext;
@@ -25,7 +26,6 @@ import io.lavagna.service.CardRepository;
 import io.lavagna.service.CardService;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Date;
 
 class CardMove extends AbstractProcessEvent {
@@ -39,7 +39,7 @@ class CardMove extends AbstractProcessEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipArchive archive) {
 		Integer columnId = null;
 		if (event.getPreviousColumnId() == null || (columnId = context.getColumns().get(event.getColumnId())) == null) {
 			return;
@@ -16,7 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
-import io.lavagna.common.Read;
+import io.lavagna.common.ZipArchive;
 import io.lavagna.model.CardData;
 import io.lavagna.model.CardDataUploadContentInfo;
 import io.lavagna.model.Event;
@@ -28,10 +28,8 @@ import io.lavagna.service.CardRepository;
 import io.lavagna.service.UserRepository;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InputStream;
 import java.util.Date;
-import java.util.Objects;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 
@@ -44,18 +42,16 @@ class FileUpload extends AbstractProcessEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
-		try {
-			Path p = Objects.requireNonNull(Read.readFile("files/" + e.getContent(), tempFile));
-			CardDataUploadContentInfo fileData = Read.readObject("files/" + e.getContent() + ".json", tempFile,
-					new TypeToken<CardDataUploadContentInfo>() {
-					});
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipArchive archive) {
+		CardDataUploadContentInfo fileData = archive.readObject("files/" + e.getContent() + ".json",
+				new TypeToken<CardDataUploadContentInfo>() {
+				});
+		try (InputStream content = archive.open("files/" + e.getContent())) {
 			ImmutablePair<Boolean, CardData> res = cardDataService.createFile(event.getValueString(), e.getContent(),
-					fileData.getSize(), cardId(e), Files.newInputStream(p), fileData.getContentType(), user, time);
+					fileData.getSize(), cardId(e), content, fileData.getContentType(), user, time);
 			if (res.getLeft()) {
 				context.getFileId().put(event.getDataId(), res.getRight().getId());
 			}
-			Files.delete(p);
 		} catch (IOException ioe) {
 			throw new IllegalStateException("error while handling event FILE_UPLOAD for event: " + e, ioe);
 		}
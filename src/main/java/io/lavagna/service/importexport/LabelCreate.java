@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipArchive;
 import io.lavagna.model.CardLabel;
 import io.lavagna.model.CardLabelValue.LabelValue;
 import io.lavagna.model.Event;
@@ -31,7 +32,6 @@ import io.lavagna.service.EventRepository;
 import io.lavagna.service.LabelService;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Date;
 
 class LabelCreate extends AbstractProcessLabelEvent {
@@ -44,7 +44,7 @@ class LabelCreate extends AbstractProcessLabelEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipArchive archive) {
 		CardLabel cl = findLabelByEvent(e);
 		LabelValue lv;
 		if (cl != null && (lv = labelValue(cl, e)) != null) {
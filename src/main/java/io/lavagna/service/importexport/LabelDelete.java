@@ -16,6 +16,7 @@
  */
 package io.lavagna.service.importexport;
 
+import io.lavagna.common.ZipArchive;
 import io.lavagna.model.CardLabelValue;
 import io.lavagna.model.Event;
 import io.lavagna.model.Event.EventType;
@@ -30,7 +31,6 @@ import io.lavagna.service.EventRepository;
 import io.lavagna.service.LabelService;
 import io.lavagna.service.UserRepository;
 
-import java.nio.file.Path;
 import java.util.Date;
 
 class LabelDelete extends AbstractProcessLabelEvent {
@@ -43,7 +43,7 @@ class LabelDelete extends AbstractProcessLabelEvent {
 	}
 
 	@Override
-	void process(EventFull e, Event event, Date time, User user, ImportContext context, Path tempFile) {
+	void process(EventFull e, Event event, Date time, User user, ImportContext context, ZipArchive archive) {
 		CardLabelValue clv = findCardLabelValueBy(e);
 		if (clv != null) {
 			labelService.removeLabelValue(clv, user, time);
@@ -20,16 +20,22 @@ import io.lavagna.model.Board;
 import io.lavagna.model.BoardColumn;
 import io.lavagna.model.BoardColumn.BoardColumnLocation;
 import io.lavagna.model.BoardColumnInfo;
+import io.lavagna.model.BoardSnapshot;
 import io.lavagna.model.Permission;
 import io.lavagna.model.User;
 import io.lavagna.service.BoardColumnRepository;
 import io.lavagna.service.BoardRepository;
+import io.lavagna.service.CardService;
 import io.lavagna.service.EventEmitter;
 import io.lavagna.service.ProjectService;
+import io.lavagna.service.VersionRepository;
 import io.lavagna.web.helper.ExpectPermission;
 
 import java.util.List;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import lombok.Getter;
 import lombok.Setter;
 
@@ -42,6 +48,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 @RestController
 public class BoardColumnController {
@@ -52,14 +59,19 @@ public class BoardColumnController {
 	private final BoardRepository boardRepository;
 	private final ProjectService projectService;
 	private final EventEmitter eventEmitter;
+	private final CardService cardService;
+	private final VersionRepository versionRepository;
 
 	
 	public BoardColumnController(BoardColumnRepository boardColumnRepository, BoardRepository boardRepository,
-			ProjectService projectService, EventEmitter eventEmitter) {
+			ProjectService projectService, EventEmitter eventEmitter, CardService cardService,
+			VersionRepository versionRepository) {
 		this.boardColumnRepository = boardColumnRepository;
 		this.boardRepository = boardRepository;
 		this.projectService = projectService;
 		this.eventEmitter = eventEmitter;
+		this.cardService = cardService;
+		this.versionRepository = versionRepository;
 	}
 
 	@ExpectPermission(Permission.READ)
@@ -83,6 +95,25 @@ public class BoardColumnController {
         return boardColumnRepository.findAllColumnsFor(boardId);
     }
 
+	/**
+	 * The columns of the board with all their cards in a single response, in place of a columns-in request followed
+	 * by a request for each column. A repeated request is answered with a 304 as long as the board version has not
+	 * changed.
+	 */
+	@ExpectPermission(Permission.READ)
+	@RequestMapping(value = "/api/board/{shortName}/snapshot", method = RequestMethod.GET)
+	public BoardSnapshot snapshot(@PathVariable("shortName") String shortName, HttpServletRequest request,
+			HttpServletResponse response) {
+		int boardId = boardRepository.findBoardIdByShortName(shortName);
+		long version = versionRepository.findBoardVersion(boardId);
+		// let the browser keep the response, it's revalidated at each request
+		response.setHeader("Cache-Control", "private, no-cache");
+		if (new ServletWebRequest(request, response).checkNotModified(Long.toString(version))) {
+			return null;
+		}
+		return cardService.fetchBoardSnapshot(boardId, BoardColumnLocation.BOARD, version);
+	}
+
 	@ExpectPermission(Permission.CREATE_COLUMN)
 	@RequestMapping(value = "/api/board/{shortName}/column", method = RequestMethod.POST)
 	public void create(@PathVariable("shortName") String shortName, @RequestBody BoardColumnToCreate column) {
@@ -23,10 +23,11 @@ import io.lavagna.model.Permission;
 import io.lavagna.model.UserWithPermission;
 import io.lavagna.model.util.ShortNameGenerator;
 import io.lavagna.service.BoardRepository;
-import io.lavagna.service.StatisticsService;
+import io.lavagna.service.StatisticsHistoryService;
 import io.lavagna.service.EventEmitter;
 import io.lavagna.service.ProjectService;
 import io.lavagna.service.SearchService;
+import io.lavagna.service.VersionRepository;
 import io.lavagna.web.api.model.Suggestion;
 import io.lavagna.web.api.model.TaskStatistics;
 import io.lavagna.web.api.model.TaskStatisticsAndHistory;
@@ -36,12 +37,16 @@ import io.lavagna.web.helper.ExpectPermission;
 import java.util.Date;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 @RestController
 public class BoardController {
@@ -49,17 +54,20 @@ public class BoardController {
 	private final BoardRepository boardRepository;
 	private final ProjectService projectService;
 	private final SearchService searchService;
-	private final StatisticsService statisticsService;
+	private final StatisticsHistoryService statisticsHistoryService;
 	private final EventEmitter eventEmitter;
+	private final VersionRepository versionRepository;
 
 	
 	public BoardController(BoardRepository boardRepository, ProjectService projectService, SearchService searchService,
-			EventEmitter eventEmitter, StatisticsService statisticsService) {
+			EventEmitter eventEmitter, StatisticsHistoryService statisticsHistoryService,
+			VersionRepository versionRepository) {
 		this.boardRepository = boardRepository;
 		this.projectService = projectService;
 		this.searchService = searchService;
 		this.eventEmitter = eventEmitter;
-		this.statisticsService = statisticsService;
+		this.statisticsHistoryService = statisticsHistoryService;
+		this.versionRepository = versionRepository;
 	}
 
 	@RequestMapping(value = "/api/suggest-board-short-name", method = RequestMethod.GET)
@@ -84,7 +92,13 @@ public class BoardController {
 
 	@ExpectPermission(Permission.READ)
 	@RequestMapping(value = "/api/board/{shortName}", method = RequestMethod.GET)
-	public Board findByShortName(@PathVariable("shortName") String shortName) {
+	public Board findByShortName(@PathVariable("shortName") String shortName, HttpServletRequest request,
+			HttpServletResponse response) {
+		long version = versionRepository.findBoardVersion(shortName);
+		response.setHeader("Cache-Control", "private, no-cache");
+		if (new ServletWebRequest(request, response).checkNotModified(Long.toString(version))) {
+			return null;
+		}
 		return boardRepository.findBoardByShortName(shortName);
 	}
 
@@ -114,15 +128,7 @@ public class BoardController {
 		Map<ColumnDefinition, BoardColumnDefinition> columnDefinitions = projectService
 				.findMappedColumnDefinitionsByProjectId(board.getProjectId());
 
-		Integer activeUsers = statisticsService.getActiveUsersOnBoard(board.getId(), fromDate);
-
-		return new TaskStatisticsAndHistory(tasks, columnDefinitions,
-				statisticsService.getCardsStatusByBoard(board.getId(), fromDate),
-				statisticsService.getCreatedAndClosedCardsByBoard(board.getId(), fromDate),
-				activeUsers,
-				statisticsService.getAverageUsersPerCardOnBoard(board.getId()),
-				statisticsService.getAverageCardsPerUserOnBoard(board.getId()),
-				statisticsService.getCardsByLabelOnBoard(board.getId()),
-				statisticsService.getMostActiveCardByBoard(board.getId(), fromDate));
+		return new TaskStatisticsAndHistory(tasks, columnDefinitions, statisticsHistoryService.findByBoard(
+				board.getId(), fromDate));
 	}
 }
@@ -0,0 +1,85 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.web.api;
+
+import io.lavagna.model.Permission;
+import io.lavagna.service.FileContentCache;
+import io.lavagna.service.ProjectShortNameCache;
+import io.lavagna.service.StatisticsHistoryCache;
+import io.lavagna.service.TaskStatisticsCache;
+import io.lavagna.service.UserPermissionCache;
+import io.lavagna.web.helper.ExpectPermission;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import lombok.Getter;
+
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+@ExpectPermission(Permission.ADMINISTRATION)
+@RestController
+public class CacheStatisticsController {
+
+	private final UserPermissionCache userPermissionCache;
+	private final TaskStatisticsCache taskStatisticsCache;
+	private final ProjectShortNameCache projectShortNameCache;
+	private final StatisticsHistoryCache statisticsHistoryCache;
+	private final FileContentCache fileContentCache;
+
+	
+	public CacheStatisticsController(UserPermissionCache userPermissionCache, TaskStatisticsCache taskStatisticsCache,
+			ProjectShortNameCache projectShortNameCache, StatisticsHistoryCache statisticsHistoryCache,
+			FileContentCache fileContentCache) {
+		this.userPermissionCache = userPermissionCache;
+		this.taskStatisticsCache = taskStatisticsCache;
+		this.projectShortNameCache = projectShortNameCache;
+		this.statisticsHistoryCache = statisticsHistoryCache;
+		this.fileContentCache = fileContentCache;
+	}
+
+	@RequestMapping(value = "/api/admin/cache-statistics", method = RequestMethod.GET)
+	public Map<String, CacheStatistics> getCacheStatistics() {
+		Map<String, CacheStatistics> res = new TreeMap<>();
+		res.put("user-permission", new CacheStatistics(userPermissionCache.getHits(), userPermissionCache.getMisses(),
+				userPermissionCache.size()));
+		res.put("task-statistics", new CacheStatistics(taskStatisticsCache.getHits(), taskStatisticsCache.getMisses(),
+				taskStatisticsCache.size()));
+		res.put("project-short-name", new CacheStatistics(projectShortNameCache.getHits(),
+				projectShortNameCache.getMisses(), projectShortNameCache.size()));
+		res.put("statistics-history", new CacheStatistics(statisticsHistoryCache.getHits(),
+				statisticsHistoryCache.getMisses(), statisticsHistoryCache.size()));
+		res.put("file-content", new CacheStatistics(fileContentCache.getHits(), fileContentCache.getMisses(),
+				fileContentCache.size()));
+		return res;
+	}
+
+	@Getter
+	public static class CacheStatistics {
+		private final long hits;
+		private final long misses;
+		private final int size;
+
+		public CacheStatistics(long hits, long misses, int size) {
+			this.hits = hits;
+			this.misses = misses;
+			this.size = size;
+		}
+	}
+}
@@ -24,11 +24,13 @@ import io.lavagna.model.BoardColumn;
 import io.lavagna.model.BoardColumn.BoardColumnLocation;
 import io.lavagna.model.BoardColumnDefinition;
 import io.lavagna.model.Card;
+import io.lavagna.model.CardDelta;
 import io.lavagna.model.CardFull;
 import io.lavagna.model.CardFullWithCounts;
 import io.lavagna.model.CardLabel;
 import io.lavagna.model.ColumnDefinition;
 import io.lavagna.model.Event;
+import io.lavagna.model.Key;
 import io.lavagna.model.LabelListValue;
 import io.lavagna.model.LabelListValueWithMetadata;
 import io.lavagna.model.MilestoneCount;
@@ -44,12 +46,14 @@ import io.lavagna.service.BoardRepository;
 import io.lavagna.service.CardLabelRepository;
 import io.lavagna.service.CardRepository;
 import io.lavagna.service.CardService;
+import io.lavagna.service.ConfigurationRepository;
 import io.lavagna.service.EventEmitter;
 import io.lavagna.service.ProjectService;
 import io.lavagna.service.SearchFilter;
 import io.lavagna.service.SearchFilter.SearchFilterValue;
 import io.lavagna.service.SearchService;
 import io.lavagna.service.StatisticsService;
+import io.lavagna.service.VersionRepository;
 import io.lavagna.web.api.model.MilestoneDetail;
 import io.lavagna.web.api.model.MilestoneInfo;
 import io.lavagna.web.api.model.Milestones;
@@ -65,6 +69,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import lombok.Getter;
 import lombok.Setter;
 
@@ -75,6 +82,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 @RestController
 public class CardController {
@@ -88,12 +96,15 @@ public class CardController {
 	private final StatisticsService statisticsService;
 	private final SearchService searchService;
 	private final EventEmitter eventEmitter;
+	private final ConfigurationRepository configurationRepository;
+	private final VersionRepository versionRepository;
 
 	
 	public CardController(CardRepository cardRepository, CardService cardService,
 			CardLabelRepository cardLabelRepository, BoardRepository boardRepository, ProjectService projectService,
 			BoardColumnRepository boardColumnRepository, StatisticsService statisticsService,
-			SearchService searchService, EventEmitter eventEmitter) {
+			SearchService searchService, EventEmitter eventEmitter, ConfigurationRepository configurationRepository,
+			VersionRepository versionRepository) {
 		this.cardRepository = cardRepository;
 		this.cardService = cardService;
 		this.cardLabelRepository = cardLabelRepository;
@@ -103,11 +114,19 @@ public class CardController {
 		this.statisticsService = statisticsService;
 		this.searchService = searchService;
 		this.eventEmitter = eventEmitter;
+		this.configurationRepository = configurationRepository;
+		this.versionRepository = versionRepository;
 	}
 
 	@ExpectPermission(Permission.READ)
 	@RequestMapping(value = "/api/column/{columnId}/card", method = RequestMethod.GET)
-	public List<CardFullWithCounts> fetchAllInColumn(@PathVariable("columnId") int columnId) {
+	public List<CardFullWithCounts> fetchAllInColumn(@PathVariable("columnId") int columnId,
+			HttpServletRequest request, HttpServletResponse response) {
+		long version = versionRepository.findColumnVersion(columnId);
+		response.setHeader("Cache-Control", "private, no-cache");
+		if (new ServletWebRequest(request, response).checkNotModified(Long.toString(version))) {
+			return null;
+		}
 		return cardService.fetchAllInColumn(columnId);
 	}
 
@@ -203,6 +222,17 @@ public class CardController {
 		ProjectAndBoard projectAndBoard = boardRepository.findProjectAndBoardByColumnId(columnId);
 		eventEmitter.emitCreateCard(projectAndBoard.getProject().getShortName(), projectAndBoard.getBoard()
 				.getShortName(), columnId, createdCard.getId());
+		emitCardChanged(columnId, createdCard.getId());
+	}
+
+	private boolean isCardDeltaEnabled() {
+		return configurationRepository.isEnabled(Key.WEBSOCKET_CARD_DELTA);
+	}
+
+	private void emitCardChanged(int columnId, int cardId) {
+		if (isCardDeltaEnabled()) {
+			eventEmitter.emitCardDelta(columnId, CardDelta.changed(cardId));
+		}
 	}
 
 	// TODO: check that columnId is effectively inside the board named shortName
@@ -233,6 +263,18 @@ public class CardController {
 		return cardRepository.findFullBy(id);
 	}
 
+	/**
+	 * The card as shown in a column, used by the clients to apply the card deltas.
+	 *
+	 * @param id
+	 * @return
+	 */
+	@ExpectPermission(Permission.READ)
+	@RequestMapping(value = "/api/card/{cardId}/with-counts", method = RequestMethod.GET)
+	public CardFullWithCounts findCardWithCountsById(@PathVariable("cardId") int id) {
+		return cardService.fetchCardFullWithCounts(id);
+	}
+
 	@ExpectPermission(Permission.READ)
 	@RequestMapping(value = "/api/card-by-seq/{boardShortName:[A-Z0-9_]+}-{seqNr:[0-9]+}", method = RequestMethod.GET)
 	public CardFull findCardIdByBoardNameAndSeq(@PathVariable("boardShortName") String boardShortName,
@@ -255,6 +297,7 @@ public class CardController {
 		ProjectAndBoard projectAndBoard = boardRepository.findProjectAndBoardByColumnId(c.getColumnId());
 		eventEmitter.emitUpdateCard(projectAndBoard.getProject().getShortName(), projectAndBoard.getBoard()
 				.getShortName(), c.getColumnId(), id);
+		emitCardChanged(c.getColumnId(), id);
 	}
 
 	@ExpectPermission(Permission.MOVE_CARD)
@@ -277,6 +320,11 @@ public class CardController {
 		//
 		eventEmitter.emitUpdateCardPosition(previousColumnId);
 		eventEmitter.emitUpdateCardPosition(newColumnId);
+		if (isCardDeltaEnabled()) {
+			eventEmitter.emitCardDelta(previousColumnId, CardDelta.removed(Collections.singletonList(id)));
+			eventEmitter.emitCardDelta(newColumnId, new CardDelta(Collections.singletonList(id), null,
+					columnOrders.newContainer));
+		}
 		//
 
 		Board board = boardRepository.findBoardById(prevCol.getBoardId());
@@ -310,8 +358,12 @@ public class CardController {
 	@ExpectPermission(Permission.MOVE_CARD)
 	@RequestMapping(value = "/api/column/{columnId}/order", method = RequestMethod.POST)
 	public boolean updateCardOrder(@PathVariable("columnId") int columnId, @RequestBody List<Number> cardIds) {
-		cardRepository.updateCardOrder(Utils.from(cardIds), columnId);
+		List<Integer> order = Utils.from(cardIds);
+		cardRepository.updateCardOrder(order, columnId);
 		eventEmitter.emitUpdateCardPosition(columnId);
+		if (isCardDeltaEnabled()) {
+			eventEmitter.emitCardDelta(columnId, CardDelta.reordered(order));
+		}
 		return true;
 	}
 
@@ -333,6 +385,9 @@ public class CardController {
 				BoardColumnLocation.MAPPING.get(location), new Date());
 
 		eventEmitter.emitUpdateCardPosition(previousColumnId);
+		if (isCardDeltaEnabled()) {
+			eventEmitter.emitCardDelta(previousColumnId, CardDelta.removed(cardIds.cardIds));
+		}
 
 		String boardShortName = boardRepository.findBoardById(destination.getBoardId()).getShortName();
 
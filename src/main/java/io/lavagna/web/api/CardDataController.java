@@ -19,6 +19,7 @@ package io.lavagna.web.api;
 import io.lavagna.model.CardData;
 import io.lavagna.model.CardDataFull;
 import io.lavagna.model.CardDataHistory;
+import io.lavagna.model.CardDataUploadContentInfo;
 import io.lavagna.model.CardType;
 import io.lavagna.model.Event;
 import io.lavagna.model.Event.EventType;
@@ -32,15 +33,17 @@ import io.lavagna.service.CardRepository;
 import io.lavagna.service.ConfigurationRepository;
 import io.lavagna.service.EventEmitter;
 import io.lavagna.service.EventRepository;
+import io.lavagna.service.StagedBlob;
+import io.lavagna.service.ThumbnailService;
+import io.lavagna.service.UploadTooLargeException;
+import io.lavagna.service.VersionRepository;
 import io.lavagna.web.helper.CardCommentOwnershipChecker;
 import io.lavagna.web.helper.ExpectPermission;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -51,16 +54,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import lombok.Getter;
 import lombok.Setter;
 
-import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpRange;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -68,6 +72,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 @Controller
@@ -81,23 +86,33 @@ public class CardDataController {
     private final EventRepository eventRepository;
     private final EventEmitter eventEmitter;
     private final ConfigurationRepository configurationRepository;
-
+    private final ThumbnailService thumbnailService;
+    private final VersionRepository versionRepository;
     
     public CardDataController(CardDataService cardDataService, CardDataRepository cardDataRepository,
         CardRepository cardRepository, ConfigurationRepository configurationRepository,
-        EventRepository eventRepository, EventEmitter eventEmitter) {
+        EventRepository eventRepository, EventEmitter eventEmitter, ThumbnailService thumbnailService,
+        VersionRepository versionRepository) {
         this.cardDataService = cardDataService;
         this.cardDataRepository = cardDataRepository;
         this.cardRepository = cardRepository;
         this.eventRepository = eventRepository;
         this.eventEmitter = eventEmitter;
         this.configurationRepository = configurationRepository;
+        this.thumbnailService = thumbnailService;
+        this.versionRepository = versionRepository;
     }
 
     @ExpectPermission(Permission.READ)
     @RequestMapping(value = "/api/card/{cardId}/data", method = RequestMethod.GET)
     @ResponseBody
-    public List<CardData> findAllLightByCardId(@PathVariable("cardId") int cardId) {
+    public List<CardData> findAllLightByCardId(@PathVariable("cardId") int cardId, HttpServletRequest request,
+        HttpServletResponse response) {
+        long version = versionRepository.findCardVersion(cardId);
+        response.setHeader("Cache-Control", "private, no-cache");
+        if (new ServletWebRequest(request, response).checkNotModified(Long.toString(version))) {
+            return null;
+        }
         return cardDataRepository.findAllDataLightByCardId(cardId);
     }
 
@@ -338,37 +353,65 @@ public class CardDataController {
 
         LOG.debug("Files uploaded: {}", files.size());
 
-        if (!ensureFileSize(files)) {
+        Integer maxSizeInByte = NumberUtils.createInteger(configurationRepository
+            .getValueOrNull(Key.MAX_UPLOAD_FILE_SIZE));
+        if (!ensureFileSize(files, maxSizeInByte)) {
+            resp.setStatus(422);
+            return Collections.emptyList();
+        }
+
+        List<InputStream> contents = new ArrayList<>(files.size());
+        try {
+            for (MultipartFile file : files) {
+                contents.add(file.getInputStream());
+            }
+        } catch (IOException | RuntimeException e) {
+            // stageFiles closes the streams, but it is not reached
+            closeQuietly(contents);
+            throw e;
+        }
+        List<StagedBlob> staged;
+        try {
+            staged = cardDataService.stageFiles(contents, maxSizeInByte == null ? Long.MAX_VALUE : maxSizeInByte);
+        } catch (UploadTooLargeException e) {
             resp.setStatus(422);
             return Collections.emptyList();
         }
 
         List<String> digests = new ArrayList<>();
-        for (MultipartFile file : files) {
-            Path p = Files.createTempFile("lavagna", "upload");
-            try (InputStream fileIs = file.getInputStream()) {
-                Files.copy(fileIs, p, StandardCopyOption.REPLACE_EXISTING);
-                String digest = DigestUtils.sha256Hex(Files.newInputStream(p));
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                MultipartFile file = files.get(i);
+                StagedBlob content = staged.get(i);
                 String contentType = file.getContentType() != null ? file.getContentType() : "application/octet-stream";
-                boolean result = cardDataService.createFile(file.getOriginalFilename(), digest, file.getSize(), cardId,
-                    Files.newInputStream(p), contentType, user, new Date()).getLeft();
+                boolean result = cardDataService.createFile(file.getOriginalFilename(), content, cardId, contentType,
+                    user, new Date()).getLeft();
                 if (result) {
-                    LOG.debug("file uploaded! size: {}, original name: {}, content-type: {}", file.getSize(),
+                    LOG.debug("file uploaded! size: {}, original name: {}, content-type: {}", content.getSize(),
                         file.getOriginalFilename(), file.getContentType());
-                    digests.add(digest);
+                    digests.add(content.getDigest());
                 }
-            } finally {
-                Files.delete(p);
-                LOG.debug("deleted temp file {}", p);
+            }
+        } finally {
+            for (StagedBlob content : staged) {
+                content.close();
             }
         }
         eventEmitter.emitUploadFile(cardRepository.findBy(cardId).getColumnId(), cardId);
         return digests;
     }
 
-    private boolean ensureFileSize(List<MultipartFile> files) {
-        Integer maxSizeInByte = NumberUtils.createInteger(configurationRepository
-            .getValueOrNull(Key.MAX_UPLOAD_FILE_SIZE));
+    private static void closeQuietly(List<InputStream> contents) {
+        for (InputStream content : contents) {
+            try {
+                content.close();
+            } catch (IOException e) {
+                LOG.debug("error while closing an uploaded file", e);
+            }
+        }
+    }
+
+    private static boolean ensureFileSize(List<MultipartFile> files, Integer maxSizeInByte) {
         if (maxSizeInByte == null) {
             return true;
         }
@@ -380,17 +423,56 @@ public class CardDataController {
         return true;
     }
 
+    // one year, in seconds
+    private static final int FILE_MAX_AGE = 365 * 24 * 60 * 60;
+
     private static Set<String> WHITE_LIST_MIME_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(//
             "image/gif", "image/jpeg", "image/png", "image/webp", "image/bmp",// images
             "video/webm", "video/ogg", "video/mp4",//
             "text/plain"//
             )));
 
+    /**
+     * Send the file, or the single byte range asked with the <code>Range</code> header. Requests with more than one
+     * range get the whole file, as multipart/byteranges responses are not supported.
+     * <p>
+     * The content of a file never changes: its digest is used as ETag and the browser can keep it for a long time.
+     */
     // TODO: fix exception handling
     @ExpectPermission(Permission.READ)
     @RequestMapping(value = "/api/card-data/file/{fileId}/{ignore:.+}", method = RequestMethod.GET)
-    public void getFile(@PathVariable("fileId") int fileId, HttpServletResponse response) {
+    public void getFile(@PathVariable("fileId") int fileId, HttpServletRequest request, HttpServletResponse response) {
         FileDataLight fileData = cardDataRepository.getUndeletedFileByCardDataId(fileId);
+        response.setHeader("Cache-Control", "private, max-age=" + FILE_MAX_AGE + ", immutable");
+        if (new ServletWebRequest(request, response).checkNotModified(fileData.getDigest())) {
+            return;
+        }
+
+        long size = fileData.getSize();
+        long start = 0;
+        long count = size;
+        boolean partial = false;
+        response.setHeader("Accept-Ranges", "bytes");
+        String range = request.getHeader("Range");
+        if (range != null) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(range);
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(size);
+                    count = ranges.get(0).getRangeEnd(size) - start + 1;
+                    partial = true;
+                }
+            } catch (IllegalArgumentException e) {
+                rangeNotSatisfiable(response, size);
+                return;
+            }
+            // HttpRange does not check the first byte against the length: it must be inside the file
+            if (partial && start >= size) {
+                rangeNotSatisfiable(response, size);
+                return;
+            }
+        }
+
         try (OutputStream out = response.getOutputStream()) {
             if (WHITE_LIST_MIME_TYPES.contains(fileData.getContentType())) {
                 response.setContentType(fileData.getContentType());
@@ -398,13 +480,53 @@ public class CardDataController {
                 response.setHeader("Content-Disposition", "attachment;filename=\"" + fileData.getName() + "\"");
                 response.setContentType("application/octet-stream");
             }
-            cardDataRepository.outputFileContent(fileData.getDigest(), out);
+            if (partial) {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + start + "-" + (start + count - 1) + "/" + size);
+            }
+            response.setHeader("Content-Length", Long.toString(count));
+            cardDataRepository.transferFileContent(fileData.getDigest(), size, start, count,
+                Channels.newChannel(out));
         } catch (IOException e) {
             LOG.error("error getting file", e);
             response.setStatus(500);
         }
     }
 
+    private static void rangeNotSatisfiable(HttpServletResponse response, long size) {
+        response.setHeader("Content-Range", "bytes */" + size);
+        response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+    }
+
+    /**
+     * Send a downscaled preview of an image, see {@link ThumbnailService#SIZES} for the available sizes.
+     */
+    @ExpectPermission(Permission.READ)
+    @RequestMapping(value = "/api/card-data/file/{fileId}/thumbnail/{size}", method = RequestMethod.GET)
+    public void getThumbnail(@PathVariable("fileId") int fileId, @PathVariable("size") int size,
+        HttpServletRequest request, HttpServletResponse response) throws IOException {
+        FileDataLight fileData = cardDataRepository.getUndeletedFileByCardDataId(fileId);
+        if (!thumbnailService.hasThumbnail(fileData, size)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setHeader("Cache-Control", "private, max-age=" + FILE_MAX_AGE + ", immutable");
+        if (new ServletWebRequest(request, response).checkNotModified(fileData.getDigest() + "-" + size)) {
+            return;
+        }
+        CardDataUploadContentInfo thumbnail = thumbnailService.findOrCreate(fileData, size);
+        if (thumbnail == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setContentType(thumbnail.getContentType());
+        response.setHeader("Content-Length", Integer.toString(thumbnail.getSize()));
+        try (OutputStream out = response.getOutputStream()) {
+            cardDataRepository.transferFileContent(thumbnail.getDigest(), thumbnail.getSize(), 0, thumbnail.getSize(),
+                Channels.newChannel(out));
+        }
+    }
+
     @ExpectPermission(Permission.DELETE_FILE)
     @RequestMapping(value = "/api/card-data/file/{fileId}", method = RequestMethod.DELETE)
     @ResponseBody
@@ -43,4 +43,10 @@ public class ConfigurationController {
 		return configurationRepository.getValueOrNull(Key.MAX_UPLOAD_FILE_SIZE);
 	}
 
+	@RequestMapping(value = "/api/configuration/websocket-card-delta", method = RequestMethod.GET)
+	@ResponseBody
+	public boolean isWebsocketCardDeltaEnabled() {
+		return configurationRepository.isEnabled(Key.WEBSOCKET_CARD_DELTA);
+	}
+
 }
@@ -30,7 +30,8 @@ import io.lavagna.service.BoardRepository;
 import io.lavagna.service.EventEmitter;
 import io.lavagna.service.ProjectService;
 import io.lavagna.service.SearchService;
-import io.lavagna.service.StatisticsService;
+import io.lavagna.service.StatisticsHistoryService;
+import io.lavagna.service.VersionRepository;
 import io.lavagna.web.api.model.CreateRequest;
 import io.lavagna.web.api.model.Suggestion;
 import io.lavagna.web.api.model.TaskStatistics;
@@ -44,6 +45,9 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
@@ -54,6 +58,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 @RestController
 public class ProjectController {
@@ -61,19 +66,22 @@ public class ProjectController {
     private final ProjectService projectService;
     private final BoardRepository boardRepository;
     private final EventEmitter eventEmitter;
-    private final StatisticsService statisticsService;
+    private final StatisticsHistoryService statisticsHistoryService;
     private final SearchService searchService;
     private final BoardColumnRepository boardColumnRepository;
+    private final VersionRepository versionRepository;
 
     
     public ProjectController(ProjectService projectService, BoardRepository boardRepository, EventEmitter eventEmitter,
-        StatisticsService statisticsService, SearchService searchService, BoardColumnRepository boardColumnRepository) {
+        StatisticsHistoryService statisticsHistoryService, SearchService searchService,
+        BoardColumnRepository boardColumnRepository, VersionRepository versionRepository) {
         this.projectService = projectService;
         this.boardRepository = boardRepository;
         this.eventEmitter = eventEmitter;
-        this.statisticsService = statisticsService;
+        this.statisticsHistoryService = statisticsHistoryService;
         this.searchService = searchService;
         this.boardColumnRepository = boardColumnRepository;
+        this.versionRepository = versionRepository;
     }
 
     @RequestMapping(value = "/api/project", method = RequestMethod.GET)
@@ -123,7 +131,13 @@ public class ProjectController {
     
     @ExpectPermission(Permission.READ)
     @RequestMapping(value = "/api/project/{projectShortName}/metadata", method = RequestMethod.GET)
-    public ProjectMetadata getMetadata(@PathVariable("projectShortName") String shortName) {
+    public ProjectMetadata getMetadata(@PathVariable("projectShortName") String shortName,
+        HttpServletRequest request, HttpServletResponse response) {
+        long version = versionRepository.findProjectVersion(shortName);
+        response.setHeader("Cache-Control", "private, no-cache");
+        if (new ServletWebRequest(request, response).checkNotModified(Long.toString(version))) {
+            return null;
+        }
         return projectService.getMetadata(shortName);
     }
 
@@ -185,18 +199,8 @@ public class ProjectController {
         Map<ColumnDefinition, BoardColumnDefinition> columnDefinitions = projectService
             .findMappedColumnDefinitionsByProjectId(projectId);
 
-        Map<Long, Map<ColumnDefinition, Long>> cardStatus = statisticsService.getCardsStatusByProject(projectId,
-            fromDate);
-
-        Integer activeUsers = statisticsService.getActiveUsersOnProject(projectId, fromDate);
-
-        return new TaskStatisticsAndHistory(tasks, columnDefinitions, cardStatus,
-            statisticsService.getCreatedAndClosedCardsByProject(projectId, fromDate),
-            activeUsers,
-            statisticsService.getAverageUsersPerCardOnProject(projectId),
-            statisticsService.getAverageCardsPerUserOnProject(projectId),
-            statisticsService.getCardsByLabelOnProject(projectId),
-            statisticsService.getMostActiveCardByProject(projectId, fromDate));
+        return new TaskStatisticsAndHistory(tasks, columnDefinitions, statisticsHistoryService.findByProject(projectId,
+            fromDate));
     }
 
     /**
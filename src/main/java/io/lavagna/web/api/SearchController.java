@@ -22,6 +22,7 @@ import io.lavagna.model.CardLabel;
 import io.lavagna.model.CardLabel.LabelDomain;
 import io.lavagna.model.LabelListValue;
 import io.lavagna.model.Permission;
+import io.lavagna.model.SearchCursor;
 import io.lavagna.model.SearchResults;
 import io.lavagna.model.User;
 import io.lavagna.model.UserWithPermission;
@@ -31,6 +32,7 @@ import io.lavagna.service.ProjectService;
 import io.lavagna.service.SearchFilter;
 import io.lavagna.service.SearchService;
 import io.lavagna.service.UserRepository;
+import io.lavagna.web.api.model.ValidationException;
 import io.lavagna.web.helper.ExpectPermission;
 
 import java.lang.reflect.Type;
@@ -113,6 +115,33 @@ public class SearchController {
         return searchService.find(searchFilters, projectId, null, userWithPermission, page);
     }
 
+    /**
+     * Keyset paginated search: the first page is requested without cursor, the following ones with the nextCursor
+     * token returned by the previous page. The total count is returned only if requested and may be approximate.
+     */
+    @RequestMapping(value = "/api/search/card/cursor", method = RequestMethod.GET)
+    public SearchResults searchAfter(@RequestParam("q") String queryAsJson,
+        @RequestParam(value = "projectName", required = false) String projectName,
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "withCount", required = false, defaultValue = "false") boolean withCount,
+        UserWithPermission userWithPermission) {
+        List<SearchFilter> searchFilters = Json.GSON.fromJson(queryAsJson, LIST_OF_SEARCH_FILTERS);
+        Integer projectId = toProjectId(projectName);
+        return searchService.findAfter(searchFilters, projectId, null, userWithPermission, toCursor(cursor),
+            withCount);
+    }
+
+    private static SearchCursor toCursor(String cursor) {
+        if (StringUtils.isBlank(cursor)) {
+            return null;
+        }
+        try {
+            return SearchCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException();
+        }
+    }
+
     @RequestMapping(value = "/api/search/user", method = RequestMethod.GET)
     public List<User> findUsers(@RequestParam("term") String term,
         @RequestParam(value = "projectName", required = false) String projectName,
@@ -0,0 +1,44 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.web.api;
+
+import io.lavagna.common.LatencyHistogram;
+import io.lavagna.model.Permission;
+import io.lavagna.service.StatisticsHistoryService;
+import io.lavagna.web.helper.ExpectPermission;
+
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+@ExpectPermission(Permission.ADMINISTRATION)
+@RestController
+public class StatisticsLatencyController {
+
+	private final StatisticsHistoryService statisticsHistoryService;
+
+	public StatisticsLatencyController(StatisticsHistoryService statisticsHistoryService) {
+		this.statisticsHistoryService = statisticsHistoryService;
+	}
+
+	@RequestMapping(value = "/api/admin/statistics-latency", method = RequestMethod.GET)
+	public Map<String, LatencyHistogram.Snapshot> getStatisticsLatency() {
+		return statisticsHistoryService.getLatencies();
+	}
+}
@@ -21,6 +21,7 @@ import io.lavagna.model.CardFull;
 import io.lavagna.model.ColumnDefinition;
 import io.lavagna.model.LabelAndValueWithCount;
 import io.lavagna.model.Pair;
+import io.lavagna.model.StatisticsHistory;
 
 import java.util.List;
 import java.util.Map;
@@ -39,17 +40,14 @@ public class TaskStatisticsAndHistory extends TaskStatistics {
 	private final CardFull mostActiveCard;
 
 	public TaskStatisticsAndHistory(Map<ColumnDefinition, Integer> tasks,
-			Map<ColumnDefinition, BoardColumnDefinition> columnDefinitions,
-			Map<Long, Map<ColumnDefinition, Long>> statusHistory, Map<Long, Pair<Long, Long>> createdAndClosedCards,
-			Integer activeUsers, double averageUsersPerCard, double averageCardsPerUser,
-			List<LabelAndValueWithCount> cardsByLabel, CardFull mostActiveCard) {
+			Map<ColumnDefinition, BoardColumnDefinition> columnDefinitions, StatisticsHistory history) {
 		super(tasks, columnDefinitions);
-		this.statusHistory = statusHistory;
-		this.createdAndClosedCards = createdAndClosedCards;
-		this.activeUsers = activeUsers;
-		this.averageUsersPerCard = averageUsersPerCard;
-		this.averageCardsPerUser = averageCardsPerUser;
-		this.cardsByLabel = cardsByLabel;
-		this.mostActiveCard = mostActiveCard;
+		this.statusHistory = history.getStatusHistory();
+		this.createdAndClosedCards = history.getCreatedAndClosedCards();
+		this.activeUsers = history.getActiveUsers();
+		this.averageUsersPerCard = history.getAverageUsersPerCard();
+		this.averageCardsPerUser = history.getAverageCardsPerUser();
+		this.cardsByLabel = history.getCardsByLabel();
+		this.mostActiveCard = history.getMostActiveCard();
 	}
 }
@@ -18,12 +18,12 @@ package io.lavagna.web.helper;
 
 import io.lavagna.service.ProjectService;
 
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -32,26 +32,46 @@ public abstract class AbstractPermissionUrlPath {
 	private static final Logger LOG = LogManager.getLogger();
 
 	private final String path;
-	private final Pattern pattern;
+	private final String segment;
+	private final boolean paramBeforeSegment;
+	private final Pattern paramPattern;
 
+	/**
+	 * The path must be composed by a single fixed segment and a parameter, placed either after ("/segment/{param}")
+	 * or before it ("{param}/segment/").
+	 */
 	AbstractPermissionUrlPath(String path, String paramName) {
 		this.path = path;
 
+		String placeholder = "{" + paramName + "}";
+		this.paramBeforeSegment = path.startsWith(placeholder);
+		this.segment = StringUtils.strip(path.replace(placeholder, ""), "/");
+
 		// we have an internal regex
-		if (paramName.contains(":")) {
-			this.pattern = Pattern.compile(path.replace("{" + paramName + "}", "(" + (paramName.split(":")[1]) + ")"));
-		} else {
-			this.pattern = Pattern.compile(path.replace("{" + paramName + "}", "([^/]+)"));
-		}
+		String regex = paramName.contains(":") ? paramName.split(":")[1] : "[^/]+";
+		this.paramPattern = Pattern.compile(paramBeforeSegment ? "(" + regex + ")$" : "^(" + regex + ")");
 	}
 
-	Set<String> tryToFetchProjectShortNames(String requestUri, ProjectService projectService) {
-		LOG.trace("tryToFetchProjectShortNames : uri : {}, pattern: {}", requestUri, pattern);
-		Set<String> e = extractAll(requestUri);
-		if (e.isEmpty()) {
-			return Collections.emptySet();
-		}
-		return tryToFetchProjectShortName(e, projectService);
+	String getSegment() {
+		return segment;
+	}
+
+	boolean isParamBeforeSegment() {
+		return paramBeforeSegment;
+	}
+
+	/**
+	 * Extract the parameter from the segment adjacent to the fixed one: the suffix of the previous segment if the
+	 * parameter is before the fixed segment, or the prefix of the next one.
+	 *
+	 * @param adjacentSegment
+	 * @return the parameter or null if it does not match
+	 */
+	String extractParam(String adjacentSegment) {
+		Matcher m = paramPattern.matcher(adjacentSegment);
+		String res = m.find() ? m.group(1) : null;
+		LOG.trace("extract param : segment : {}, pattern: {}, param: {}", adjacentSegment, paramPattern, res);
+		return res;
 	}
 
 	/**
@@ -63,17 +83,6 @@ public abstract class AbstractPermissionUrlPath {
 	 */
 	protected abstract Set<String> tryToFetchProjectShortName(Set<String> ids, ProjectService projectService);
 
-	private Set<String> extractAll(String uri) {
-		Matcher m = pattern.matcher(uri);
-		Set<String> groups = new HashSet<>();
-		while (m.find()) {
-			groups.add(m.group(1));
-		}
-
-		LOG.trace("extract all : uri : {}, pattern: {}, groups: {}", uri, pattern, groups);
-		return groups;
-	}
-
 	private static void addIfNotNull(Set<String> s, String i) {
 		if (i != null) {
 			s.add(i);
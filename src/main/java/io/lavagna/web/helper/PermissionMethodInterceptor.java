@@ -23,6 +23,7 @@ import io.lavagna.service.UserService;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
@@ -52,6 +53,8 @@ public class PermissionMethodInterceptor extends HandlerInterceptorAdapter {
 
 	public static final Set<AbstractPermissionUrlPath> URL_PATTERNS_TO_CHECK;
 
+	private static final PermissionUrlRouter ROUTER;
+
 	static {
 		Set<AbstractPermissionUrlPath> p = new HashSet<>();
 
@@ -91,6 +94,7 @@ public class PermissionMethodInterceptor extends HandlerInterceptorAdapter {
 		p.add(new AbstractPermissionUrlPath.ColumnDefinitionIdUrlPath("/redefine/{newDefinitionId}", "newDefinitionId"));
 
 		URL_PATTERNS_TO_CHECK = Collections.unmodifiableSet(p);
+		ROUTER = new PermissionUrlRouter(URL_PATTERNS_TO_CHECK);
 	}
 
 	@Override
@@ -146,9 +150,8 @@ public class PermissionMethodInterceptor extends HandlerInterceptorAdapter {
 
 	private static Set<String> extractProjectIdsFromRequestUri(String requestUri, ProjectService projectService) {
 		Set<String> projectIds = new HashSet<>();
-		for (AbstractPermissionUrlPath p : URL_PATTERNS_TO_CHECK) {
-			Set<String> extracted = p.tryToFetchProjectShortNames(requestUri, projectService);
-			projectIds.addAll(extracted);
+		for (Entry<AbstractPermissionUrlPath, Set<String>> kv : ROUTER.route(requestUri).entrySet()) {
+			projectIds.addAll(kv.getKey().tryToFetchProjectShortName(kv.getValue(), projectService));
 		}
 		return projectIds;
 	}
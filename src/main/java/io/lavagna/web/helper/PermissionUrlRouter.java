@@ -0,0 +1,81 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.web.helper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Match a request uri against all the {@link AbstractPermissionUrlPath} in a single pass: the paths are indexed by
+ * their fixed segment, so each segment of the uri is looked up once instead of trying every pattern over the whole
+ * uri.
+ */
+class PermissionUrlRouter {
+
+	private final Map<String, List<AbstractPermissionUrlPath>> paramAfterSegment = new HashMap<>();
+	private final Map<String, List<AbstractPermissionUrlPath>> paramBeforeSegment = new HashMap<>();
+
+	PermissionUrlRouter(Collection<AbstractPermissionUrlPath> paths) {
+		for (AbstractPermissionUrlPath p : paths) {
+			Map<String, List<AbstractPermissionUrlPath>> index = p.isParamBeforeSegment() ? paramBeforeSegment
+					: paramAfterSegment;
+			if (!index.containsKey(p.getSegment())) {
+				index.put(p.getSegment(), new ArrayList<AbstractPermissionUrlPath>(1));
+			}
+			index.get(p.getSegment()).add(p);
+		}
+	}
+
+	/**
+	 * @param requestUri
+	 * @return the matched paths, with the parameters extracted from the uri
+	 */
+	Map<AbstractPermissionUrlPath, Set<String>> route(String requestUri) {
+		Map<AbstractPermissionUrlPath, Set<String>> res = new HashMap<>();
+		String[] segments = requestUri.split("/", -1);
+		// the first segment is before the leading "/", the fixed segment must always be followed by a "/"
+		for (int i = 1; i < segments.length - 1; i++) {
+			List<AbstractPermissionUrlPath> after = paramAfterSegment.get(segments[i]);
+			if (after != null) {
+				addMatches(res, after, segments[i + 1]);
+			}
+			List<AbstractPermissionUrlPath> before = paramBeforeSegment.get(segments[i]);
+			if (before != null) {
+				addMatches(res, before, segments[i - 1]);
+			}
+		}
+		return res;
+	}
+
+	private static void addMatches(Map<AbstractPermissionUrlPath, Set<String>> res,
+			List<AbstractPermissionUrlPath> paths, String adjacentSegment) {
+		for (AbstractPermissionUrlPath p : paths) {
+			String param = p.extractParam(adjacentSegment);
+			if (param != null) {
+				if (!res.containsKey(p)) {
+					res.put(p, new HashSet<String>());
+				}
+				res.get(p).add(param);
+			}
+		}
+	}
+}
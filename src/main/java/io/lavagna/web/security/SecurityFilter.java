@@ -102,7 +102,9 @@ public class SecurityFilter extends AbstractBaseFilter {
 
 	private static boolean canApplyNoCachingHeaders(HttpServletRequest req) {
 		String u = req.getRequestURI();
-		return !("/".equals(u) || u.matches(".*\\.(css|gif|js|png|html|eot|svg|ttf|woff)$"));
+		// the uploaded files are immutable, CardDataController sets their caching headers
+		return !("/".equals(u) || u.matches(".*\\.(css|gif|js|png|html|eot|svg|ttf|woff)$") || u
+				.contains("/api/card-data/file/"));
 	}
 
 	/**
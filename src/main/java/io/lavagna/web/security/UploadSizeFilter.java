@@ -0,0 +1,93 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.web.security;
+
+import static org.springframework.web.context.support.WebApplicationContextUtils.getRequiredWebApplicationContext;
+import io.lavagna.model.Key;
+import io.lavagna.service.ConfigurationRepository;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Reject the file uploads bigger than {@link Key#MAX_UPLOAD_FILE_SIZE} before the container parses the multipart
+ * request and spools its parts: the size is checked against the declared Content-Length, that the container never
+ * reads past. A request can carry at most one file of the maximum size, as the web client sends a request per file.
+ */
+public class UploadSizeFilter extends AbstractBaseFilter {
+
+    private static final Pattern CARD_FILE_UPLOAD = Pattern.compile("^/api/card/\\d+/file$");
+
+    // room for the boundaries and the headers of the part around the file content
+    static final long MULTIPART_OVERHEAD = 16 * 1024;
+
+    private static final Logger LOG = LogManager.getLogger();
+
+    private ConfigurationRepository config;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        WebApplicationContext ctx = getRequiredWebApplicationContext(filterConfig.getServletContext());
+        config = ctx.getBean(ConfigurationRepository.class);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req, HttpServletResponse resp, FilterChain chain) throws IOException, ServletException {
+
+        if (!isCardFileUpload(req)) {
+            chain.doFilter(req, resp);
+            return;
+        }
+
+        Integer maxSizeInByte = NumberUtils.createInteger(config.getValueOrNull(Key.MAX_UPLOAD_FILE_SIZE));
+        if (maxSizeInByte == null) {
+            chain.doFilter(req, resp);
+            return;
+        }
+
+        long contentLength = req.getContentLengthLong();
+        if (contentLength < 0) {
+            // a chunked request has no declared length to check
+            resp.sendError(HttpServletResponse.SC_LENGTH_REQUIRED);
+            return;
+        }
+        if (contentLength > maxSizeInByte + MULTIPART_OVERHEAD) {
+            LOG.debug("upload rejected, content length: {}, max file size: {}", contentLength, maxSizeInByte);
+            resp.setStatus(422);
+            return;
+        }
+
+        chain.doFilter(req, resp);
+    }
+
+    private static boolean isCardFileUpload(HttpServletRequest req) {
+        return "POST".equals(req.getMethod())
+            && CARD_FILE_UPLOAD.matcher(StringUtils.removeStart(req.getRequestURI(), req.getContextPath())).matches();
+    }
+}
@@ -40,37 +40,50 @@ import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.core.env.Environment;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.stereotype.Controller;
 import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.context.ServletContextAware;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import com.samskivert.mustache.Mustache;
 import com.samskivert.mustache.Template;
 
 @Controller
-public class ResourceController {
+public class ResourceController implements ServletContextAware {
+
+	private static final Logger LOG = LogManager.getLogger();
 
 	private static final String PROJ_SHORT_NAME = "{projectShortName:[A-Z0-9_]+}";
 	private static final String BOARD_SHORT_NAME = "{shortName:[A-Z0-9_]+}";
 	private static final String CARD_SEQ = "{cardId:[0-9]+}";
+	// one year, in seconds
+	private static final int BUNDLE_MAX_AGE = 365 * 24 * 60 * 60;
+	private static final Pattern ZERO_QUALITY = Pattern.compile("q\\s*=\\s*0(\\.0*)?");
 	private final Environment env;
 	// we don't care if the values are set more than one time
 	private final AtomicReference<Template> indexTopTemplate = new AtomicReference<>();
 	private final AtomicReference<byte[]> indexCache = new AtomicReference<>();
-	private final AtomicReference<byte[]> jsCache = new AtomicReference<>();
-	private final AtomicReference<byte[]> cssCache = new AtomicReference<>();
+	private final AtomicReference<Bundle> jsCache = new AtomicReference<>();
+	private final AtomicReference<Bundle> cssCache = new AtomicReference<>();
 	private final String version;
 
 	public ResourceController(Environment env) {
@@ -78,6 +91,26 @@ public class ResourceController {
 		this.version = Version.version();
 	}
 
+	/**
+	 * Build the bundles at startup, so that the first request does not wait for the concatenation.
+	 */
+	@Override
+	public void setServletContext(ServletContext servletContext) {
+		if (isDev()) {
+			return;
+		}
+		try {
+			jsBundle(servletContext);
+			cssBundle(servletContext);
+		} catch (IOException | RuntimeException e) {
+			LOG.warn("unable to prepare the bundles, they will be built on the first request", e);
+		}
+	}
+
+	private boolean isDev() {
+		return contains(env.getActiveProfiles(), "dev");
+	}
+
 	private static List<String> prepareTemplates(ServletContext context, String initialPath) throws IOException {
 		List<String> r = new ArrayList<>();
 		BeforeAfter ba = new AngularTemplate();
@@ -187,6 +220,9 @@ public class ResourceController {
 			data.put("contextPath", request.getServletContext().getContextPath() + "/");
 
 			data.put("version", version);
+			// the bundles are linked by content hash, so that the browsers can keep them forever
+			data.put("jsHash", jsBundle(context).hash);
+			data.put("cssHash", cssBundle(context).hash);
 
 			List<String> inlineTemplates = prepareTemplates(context, "/app/");
 			inlineTemplates.addAll(prepareTemplates(context, "/partials/"));
@@ -212,16 +248,20 @@ public class ResourceController {
 	/**
 	 * Dynamically load and concatenate the js present in the configured directories
 	 *
+	 * @param hash
+	 *            the content hash of the bundle linked by the index, or the version of lavagna
 	 * @param request
 	 * @param response
 	 * @throws IOException
 	 */
 	@RequestMapping(value = "/resource/app-{version:.+}.js", method = RequestMethod.GET)
-	public void handleJs(HttpServletRequest request, HttpServletResponse response) throws IOException {
+	public void handleJs(@PathVariable("version") String hash, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		send(jsBundle(request.getServletContext()), hash, "text/javascript", request, response);
+	}
 
-		if (contains(env.getActiveProfiles(), "dev") || jsCache.get() == null) {
-			ServletContext context = request.getServletContext();
-			response.setContentType("text/javascript");
+	private Bundle jsBundle(ServletContext context) throws IOException {
+		if (isDev() || jsCache.get() == null) {
 			BeforeAfter ba = new JS();
 			ByteArrayOutputStream allJs = new ByteArrayOutputStream();
 
@@ -267,13 +307,9 @@ public class ResourceController {
             concatenateResourcesWithExtension(context, "/app/services/", ".js", allJs, ba);
             //
 
-			jsCache.set(allJs.toByteArray());
-		}
-
-		try (OutputStream os = response.getOutputStream()) {
-			response.setContentType("text/javascript");
-			StreamUtils.copy(jsCache.get(), os);
+			jsCache.set(new Bundle(allJs.toByteArray()));
 		}
+		return jsCache.get();
 	}
 
 	private void addMessages(ServletContext context, OutputStream os, BeforeAfter ba) throws IOException {
@@ -310,11 +346,14 @@ public class ResourceController {
 	}
 
 	@RequestMapping(value = "/css/all-{version:.+}.css", method = RequestMethod.GET)
-	public void handleCss(HttpServletRequest request, HttpServletResponse response) throws IOException {
+	public void handleCss(@PathVariable("version") String hash, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		send(cssBundle(request.getServletContext()), hash, "text/css", request, response);
+	}
 
-		if (contains(env.getActiveProfiles(), "dev") || cssCache.get() == null) {
+	private Bundle cssBundle(ServletContext context) throws IOException {
+		if (isDev() || cssCache.get() == null) {
 			ByteArrayOutputStream cssOs = new ByteArrayOutputStream();
-			ServletContext context = request.getServletContext();
 			BeforeAfter ba = new BeforeAfter();
 
             //make sure we add the css in the right order
@@ -322,12 +361,72 @@ public class ResourceController {
             concatenateResourcesWithExtension(context, "/app/ui/", ".css", cssOs, ba);
             concatenateResourcesWithExtension(context, "/app/components/", ".css", cssOs, ba);
 
-			cssCache.set(cssOs.toByteArray());
+			cssCache.set(new Bundle(cssOs.toByteArray()));
 		}
+		return cssCache.get();
+	}
 
+	/**
+	 * Send the gzip variant of the bundle when the client accepts it. The body is written with a single write of the
+	 * prepared array.
+	 */
+	private static void send(Bundle bundle, String hash, String contentType, HttpServletRequest request,
+			HttpServletResponse response) throws IOException {
+		boolean gzip = acceptsGzip(request.getHeader("Accept-Encoding"));
+		response.setHeader("Vary", "Accept-Encoding");
+		// an old hash or the version (used by the login page) must be revalidated
+		response.setHeader("Cache-Control", bundle.hash.equals(hash) ? "public, max-age=" + BUNDLE_MAX_AGE
+				+ ", immutable" : "no-cache");
+		if (new ServletWebRequest(request, response).checkNotModified(gzip ? bundle.hash + "-gzip" : bundle.hash)) {
+			return;
+		}
+
+		byte[] body = gzip ? bundle.gzipped : bundle.content;
+		if (gzip) {
+			response.setHeader("Content-Encoding", "gzip");
+		}
+		response.setContentType(contentType);
+		response.setContentLength(body.length);
 		try (OutputStream os = response.getOutputStream()) {
-			response.setContentType("text/css");
-			StreamUtils.copy(cssCache.get(), os);
+			os.write(body);
+		}
+	}
+
+	static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String encoding : acceptEncoding.split(",")) {
+			String[] parts = encoding.split(";");
+			String coding = parts[0].trim().toLowerCase(Locale.ENGLISH);
+			if (("gzip".equals(coding) || "*".equals(coding))
+					&& !(parts.length > 1 && ZERO_QUALITY.matcher(parts[1].trim()).matches())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A concatenated resource with its gzip variant, both computed once.
+	 */
+	private static class Bundle {
+		private final byte[] content;
+		private final byte[] gzipped;
+		private final String hash;
+
+		Bundle(byte[] content) throws IOException {
+			this.content = content;
+			this.hash = DigestUtils.sha256Hex(content);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try (GZIPOutputStream gz = new GZIPOutputStream(out) {
+				{
+					def.setLevel(Deflater.BEST_COMPRESSION);
+				}
+			}) {
+				gz.write(content);
+			}
+			this.gzipped = out.toByteArray();
 		}
 	}
 
@@ -0,0 +1,28 @@
+--
+-- This file is part of lavagna.
+--
+-- lavagna is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- lavagna is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+CREATE TABLE LA_CLUSTER_EVENT (
+	CLUSTER_EVENT_ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY NOT NULL,
+	CLUSTER_EVENT_NODE VARCHAR(64) NOT NULL,
+	CLUSTER_EVENT_DESTINATION VARCHAR(1024) NOT NULL,
+	CLUSTER_EVENT_PAYLOAD CLOB NOT NULL,
+	CLUSTER_EVENT_CONTENT_TYPE VARCHAR(255) NOT NULL,
+	CLUSTER_EVENT_BATCH BOOLEAN DEFAULT FALSE NOT NULL,
+	CLUSTER_EVENT_TIME TIMESTAMP NOT NULL
+);
+
+CREATE INDEX LA_CLUSTER_EVENT_TIME_IDX ON LA_CLUSTER_EVENT(CLUSTER_EVENT_TIME);
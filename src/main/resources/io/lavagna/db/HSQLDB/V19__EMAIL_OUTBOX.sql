@@ -0,0 +1,30 @@
+--
+-- This file is part of lavagna.
+--
+-- lavagna is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- lavagna is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+CREATE TABLE LA_EMAIL_OUTBOX (
+	EMAIL_OUTBOX_ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY NOT NULL,
+	EMAIL_OUTBOX_TO VARCHAR(255) NOT NULL,
+	EMAIL_OUTBOX_SUBJECT VARCHAR(255) NOT NULL,
+	EMAIL_OUTBOX_TEXT CLOB NOT NULL,
+	EMAIL_OUTBOX_HTML CLOB,
+	EMAIL_OUTBOX_ATTEMPTS INTEGER DEFAULT 0 NOT NULL,
+	EMAIL_OUTBOX_NEXT_ATTEMPT TIMESTAMP NOT NULL
+);
+
+CREATE INDEX LA_EMAIL_OUTBOX_NEXT_ATTEMPT_IDX ON LA_EMAIL_OUTBOX(EMAIL_OUTBOX_NEXT_ATTEMPT);
+
+INSERT INTO LA_CONF(CONF_KEY, CONF_VALUE) VALUES ('EMAIL_NOTIFICATION_DIGEST', 'NONE');
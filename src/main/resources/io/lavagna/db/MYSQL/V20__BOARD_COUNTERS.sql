@@ -0,0 +1,68 @@
+--
+-- This file is part of lavagna.
+--
+-- lavagna is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- lavagna is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- RUNNING COUNT OF THE CARDS BY BOARD, COLUMN DEFINITION AND LOCATION: THE ROWS ARE CREATED WITH THE BOARD
+CREATE TABLE LA_BOARD_CARD_COUNT (
+	BOARD_CARD_COUNT_BOARD_ID_FK INTEGER NOT NULL,
+	BOARD_CARD_COUNT_COLUMN_DEFINITION_ID_FK INTEGER NOT NULL,
+	BOARD_CARD_COUNT_LOCATION VARCHAR(16) NOT NULL,
+	BOARD_CARD_COUNT_VALUE INTEGER NOT NULL,
+	PRIMARY KEY (BOARD_CARD_COUNT_BOARD_ID_FK, BOARD_CARD_COUNT_COLUMN_DEFINITION_ID_FK, BOARD_CARD_COUNT_LOCATION)
+) ENGINE=InnoDB CHARACTER SET=utf8 COLLATE utf8_bin;
+
+INSERT INTO LA_BOARD_CARD_COUNT(BOARD_CARD_COUNT_BOARD_ID_FK, BOARD_CARD_COUNT_COLUMN_DEFINITION_ID_FK, BOARD_CARD_COUNT_LOCATION, BOARD_CARD_COUNT_VALUE)
+	SELECT BOARD_ID, BOARD_COLUMN_DEFINITION_ID, 'BOARD', 0 FROM LA_BOARD INNER JOIN LA_BOARD_COLUMN_DEFINITION ON BOARD_PROJECT_ID_FK = BOARD_COLUMN_DEFINITION_PROJECT_ID_FK;
+INSERT INTO LA_BOARD_CARD_COUNT(BOARD_CARD_COUNT_BOARD_ID_FK, BOARD_CARD_COUNT_COLUMN_DEFINITION_ID_FK, BOARD_CARD_COUNT_LOCATION, BOARD_CARD_COUNT_VALUE)
+	SELECT BOARD_ID, BOARD_COLUMN_DEFINITION_ID, 'BACKLOG', 0 FROM LA_BOARD INNER JOIN LA_BOARD_COLUMN_DEFINITION ON BOARD_PROJECT_ID_FK = BOARD_COLUMN_DEFINITION_PROJECT_ID_FK;
+INSERT INTO LA_BOARD_CARD_COUNT(BOARD_CARD_COUNT_BOARD_ID_FK, BOARD_CARD_COUNT_COLUMN_DEFINITION_ID_FK, BOARD_CARD_COUNT_LOCATION, BOARD_CARD_COUNT_VALUE)
+	SELECT BOARD_ID, BOARD_COLUMN_DEFINITION_ID, 'ARCHIVE', 0 FROM LA_BOARD INNER JOIN LA_BOARD_COLUMN_DEFINITION ON BOARD_PROJECT_ID_FK = BOARD_COLUMN_DEFINITION_PROJECT_ID_FK;
+INSERT INTO LA_BOARD_CARD_COUNT(BOARD_CARD_COUNT_BOARD_ID_FK, BOARD_CARD_COUNT_COLUMN_DEFINITION_ID_FK, BOARD_CARD_COUNT_LOCATION, BOARD_CARD_COUNT_VALUE)
+	SELECT BOARD_ID, BOARD_COLUMN_DEFINITION_ID, 'TRASH', 0 FROM LA_BOARD INNER JOIN LA_BOARD_COLUMN_DEFINITION ON BOARD_PROJECT_ID_FK = BOARD_COLUMN_DEFINITION_PROJECT_ID_FK;
+
+UPDATE LA_BOARD_CARD_COUNT SET BOARD_CARD_COUNT_VALUE = (SELECT COUNT(*) FROM LA_CARD INNER JOIN LA_BOARD_COLUMN ON CARD_BOARD_COLUMN_ID_FK = BOARD_COLUMN_ID
+	WHERE BOARD_COLUMN_BOARD_ID_FK = BOARD_CARD_COUNT_BOARD_ID_FK AND BOARD_COLUMN_DEFINITION_ID_FK = BOARD_CARD_COUNT_COLUMN_DEFINITION_ID_FK AND BOARD_COLUMN_LOCATION = BOARD_CARD_COUNT_LOCATION);
+
+-- CREATED AND CLOSED CARDS BY BOARD AND DAY: THE ROWS OF THE SAME DAY ARE MERGED BY THE SNAPSHOT JOB
+CREATE TABLE LA_BOARD_DAILY_COUNT (
+	BOARD_DAILY_COUNT_ID INTEGER AUTO_INCREMENT PRIMARY KEY NOT NULL,
+	BOARD_DAILY_COUNT_BOARD_ID_FK INTEGER NOT NULL,
+	BOARD_DAILY_COUNT_DAY DATE NOT NULL,
+	BOARD_DAILY_COUNT_CREATED INTEGER NOT NULL,
+	BOARD_DAILY_COUNT_CLOSED INTEGER NOT NULL
+) ENGINE=InnoDB CHARACTER SET=utf8 COLLATE utf8_bin;
+
+CREATE INDEX LA_BOARD_DAILY_COUNT_IDX ON LA_BOARD_DAILY_COUNT(BOARD_DAILY_COUNT_BOARD_ID_FK, BOARD_DAILY_COUNT_DAY);
+CREATE INDEX LA_BOARD_DAILY_COUNT_DAY_IDX ON LA_BOARD_DAILY_COUNT(BOARD_DAILY_COUNT_DAY);
+
+INSERT INTO LA_BOARD_DAILY_COUNT(BOARD_DAILY_COUNT_BOARD_ID_FK, BOARD_DAILY_COUNT_DAY, BOARD_DAILY_COUNT_CREATED, BOARD_DAILY_COUNT_CLOSED)
+	SELECT BOARD_COLUMN_BOARD_ID_FK, CAST(EVENT_TIME AS DATE), COUNT(*), 0 FROM LA_EVENT
+	INNER JOIN LA_BOARD_COLUMN ON EVENT_COLUMN_ID_FK = BOARD_COLUMN_ID
+	WHERE EVENT_TYPE = 'CARD_CREATE'
+	GROUP BY BOARD_COLUMN_BOARD_ID_FK, CAST(EVENT_TIME AS DATE);
+
+INSERT INTO LA_BOARD_DAILY_COUNT(BOARD_DAILY_COUNT_BOARD_ID_FK, BOARD_DAILY_COUNT_DAY, BOARD_DAILY_COUNT_CREATED, BOARD_DAILY_COUNT_CLOSED)
+	SELECT new.BOARD_COLUMN_BOARD_ID_FK, CAST(EVENT_TIME AS DATE), 0, COUNT(*) FROM LA_EVENT
+	INNER JOIN LA_BOARD_COLUMN old ON LA_EVENT.EVENT_PREV_COLUMN_ID_FK = old.BOARD_COLUMN_ID
+	INNER JOIN LA_BOARD_COLUMN_DEFINITION oldDef ON old.BOARD_COLUMN_DEFINITION_ID_FK = oldDef.BOARD_COLUMN_DEFINITION_ID
+	INNER JOIN LA_BOARD_COLUMN new ON LA_EVENT.EVENT_COLUMN_ID_FK = new.BOARD_COLUMN_ID
+	INNER JOIN LA_BOARD_COLUMN_DEFINITION newDef ON new.BOARD_COLUMN_DEFINITION_ID_FK = newDef.BOARD_COLUMN_DEFINITION_ID
+	WHERE (EVENT_TYPE = 'CARD_MOVE' OR EVENT_TYPE = 'CARD_ARCHIVE' OR EVENT_TYPE = 'CARD_TRASH')
+	AND oldDef.BOARD_COLUMN_DEFINITION_VALUE <> 'CLOSED' AND newDef.BOARD_COLUMN_DEFINITION_VALUE = 'CLOSED'
+	GROUP BY new.BOARD_COLUMN_BOARD_ID_FK, CAST(EVENT_TIME AS DATE);
+
+-- ONLY THE LATEST SNAPSHOT OF EACH DAY IS KEPT
+CREATE INDEX LA_BOARD_STATISTICS_TIME_IDX ON LA_BOARD_STATISTICS(BOARD_STATISTICS_TIME);
@@ -0,0 +1,26 @@
+--
+-- This file is part of lavagna.
+--
+-- lavagna is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- lavagna is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- THUMBNAILS OF THE UPLOADED IMAGES, BY DIGEST OF THE IMAGE AND MAXIMUM SIZE. THE THUMBNAIL IS ITSELF AN UPLOAD CONTENT,
+-- A NULL CARD_DATA_THUMBNAIL_DIGEST_FK MEANS THAT THE FILE COULD NOT BE DECODED AS AN IMAGE
+CREATE TABLE LA_CARD_DATA_THUMBNAIL (
+	CARD_DATA_THUMBNAIL_SOURCE_DIGEST CHAR(64) NOT NULL,
+	CARD_DATA_THUMBNAIL_SIZE INTEGER NOT NULL,
+	CARD_DATA_THUMBNAIL_DIGEST_FK CHAR(64),
+	PRIMARY KEY (CARD_DATA_THUMBNAIL_SOURCE_DIGEST, CARD_DATA_THUMBNAIL_SIZE)
+) ENGINE=InnoDB CHARACTER SET=utf8 COLLATE utf8_bin;
+ALTER TABLE LA_CARD_DATA_THUMBNAIL ADD FOREIGN KEY(CARD_DATA_THUMBNAIL_DIGEST_FK) REFERENCES LA_CARD_DATA_UPLOAD_CONTENT(DIGEST);
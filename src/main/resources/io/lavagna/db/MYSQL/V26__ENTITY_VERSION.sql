@@ -0,0 +1,39 @@
+--
+-- This file is part of lavagna.
+--
+-- lavagna is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- lavagna is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- INCREMENTED AT EACH CHANGE OF THE PROJECT METADATA, OF THE CARDS OF THE COLUMN AND OF THE CARD DATA,
+-- USED AS VALIDATORS OF THE CONDITIONAL GETS: THE ROWS ARE CREATED WITH THE PROJECT, COLUMN AND CARD
+CREATE TABLE LA_PROJECT_VERSION (
+	PROJECT_VERSION_ID_FK INTEGER PRIMARY KEY NOT NULL,
+	PROJECT_VERSION_VALUE BIGINT NOT NULL
+) ENGINE=InnoDB CHARACTER SET=utf8 COLLATE utf8_bin;
+ALTER TABLE LA_PROJECT_VERSION ADD FOREIGN KEY(PROJECT_VERSION_ID_FK) REFERENCES LA_PROJECT(PROJECT_ID);
+INSERT INTO LA_PROJECT_VERSION(PROJECT_VERSION_ID_FK, PROJECT_VERSION_VALUE) SELECT PROJECT_ID, 0 FROM LA_PROJECT;
+
+CREATE TABLE LA_BOARD_COLUMN_VERSION (
+	BOARD_COLUMN_VERSION_ID_FK INTEGER PRIMARY KEY NOT NULL,
+	BOARD_COLUMN_VERSION_VALUE BIGINT NOT NULL
+) ENGINE=InnoDB CHARACTER SET=utf8 COLLATE utf8_bin;
+ALTER TABLE LA_BOARD_COLUMN_VERSION ADD FOREIGN KEY(BOARD_COLUMN_VERSION_ID_FK) REFERENCES LA_BOARD_COLUMN(BOARD_COLUMN_ID);
+INSERT INTO LA_BOARD_COLUMN_VERSION(BOARD_COLUMN_VERSION_ID_FK, BOARD_COLUMN_VERSION_VALUE) SELECT BOARD_COLUMN_ID, 0 FROM LA_BOARD_COLUMN;
+
+CREATE TABLE LA_CARD_VERSION (
+	CARD_VERSION_ID_FK INTEGER PRIMARY KEY NOT NULL,
+	CARD_VERSION_VALUE BIGINT NOT NULL
+) ENGINE=InnoDB CHARACTER SET=utf8 COLLATE utf8_bin;
+ALTER TABLE LA_CARD_VERSION ADD FOREIGN KEY(CARD_VERSION_ID_FK) REFERENCES LA_CARD(CARD_ID);
+INSERT INTO LA_CARD_VERSION(CARD_VERSION_ID_FK, CARD_VERSION_VALUE) SELECT CARD_ID, 0 FROM LA_CARD;
@@ -0,0 +1,19 @@
+--
+-- This file is part of lavagna.
+--
+-- lavagna is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- lavagna is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- LOOKUP OF THE NEXT EVENT OF A CARD DATA, USED BY THE EXPORT
+CREATE INDEX LA_EVENT_CARD_DATA_IDX ON LA_EVENT(EVENT_CARD_DATA_ID_FK, EVENT_TYPE, EVENT_ID);
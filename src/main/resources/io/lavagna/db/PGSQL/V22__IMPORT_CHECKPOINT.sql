@@ -0,0 +1,25 @@
+--
+-- This file is part of lavagna.
+--
+-- lavagna is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- lavagna is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- PROGRESS OF THE PARTITIONS OF AN IMPORT, THE ARCHIVE IS IDENTIFIED BY ITS SHA-256: USED FOR RESUMING A FAILED IMPORT
+CREATE TABLE LA_IMPORT_CHECKPOINT (
+	IMPORT_CHECKPOINT_ARCHIVE VARCHAR(64) NOT NULL,
+	IMPORT_CHECKPOINT_PARTITION INTEGER NOT NULL,
+	IMPORT_CHECKPOINT_NEXT_PAGE INTEGER NOT NULL,
+	IMPORT_CHECKPOINT_CONTEXT TEXT NOT NULL,
+	PRIMARY KEY (IMPORT_CHECKPOINT_ARCHIVE, IMPORT_CHECKPOINT_PARTITION)
+);
@@ -0,0 +1,19 @@
+--
+-- This file is part of lavagna.
+--
+-- lavagna is free software: you can redistribute it and/or modify
+-- it under the terms of the GNU General Public License as published by
+-- the Free Software Foundation, either version 3 of the License, or
+-- (at your option) any later version.
+--
+-- lavagna is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+-- GNU General Public License for more details.
+--
+-- You should have received a copy of the GNU General Public License
+-- along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+--
+
+-- INCREMENTED AT EACH CHANGE OF THE COLUMNS AND CARDS OF THE BOARD, USED AS VALIDATOR OF THE BOARD SNAPSHOT
+ALTER TABLE LA_BOARD_COUNTER ADD BOARD_COUNTER_VERSION BIGINT DEFAULT 0 NOT NULL;
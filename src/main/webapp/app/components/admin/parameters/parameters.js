@@ -11,7 +11,7 @@
     function AdminParametersController(Admin, Notification, $q) {
         var ctrl = this;
         
-        var configurableKeys = ['TRELLO_API_KEY', 'MAX_UPLOAD_FILE_SIZE', 'USE_HTTPS', 'EMAIL_NOTIFICATION_TIMESPAN'];
+        var configurableKeys = ['TRELLO_API_KEY', 'MAX_UPLOAD_FILE_SIZE', 'USE_HTTPS', 'EMAIL_NOTIFICATION_TIMESPAN', 'EMAIL_NOTIFICATION_DIGEST', 'WEBSOCKET_CARD_DELTA'];
 
         var loadAll = function() {
             ctrl.configurable = {};
@@ -137,7 +137,12 @@
             Board.columnsByLocation(boardName, ctrl.columnsLocation).then(assignToColumn);
         });
 
-        Board.columnsByLocation(boardName, 'BOARD').then(assignToColumn);
+        Board.snapshot(boardName).then(function(snapshot) {
+            angular.forEach(snapshot.columns, function(column) {
+                column.cards = snapshot.cards[column.id];
+            });
+            assignToColumn(snapshot.columns);
+        });
 
         //-------------        
 
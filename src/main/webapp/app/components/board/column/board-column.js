@@ -18,7 +18,7 @@
         templateUrl: 'app/components/board/column/board-column.html'
     });
 
-    function BoardColumnController($scope, $filter, $mdDialog, $element, Project, Board, Card, Label, Notification, StompClient, BulkOperations, SharedBoardDataService) {
+    function BoardColumnController($scope, $q, $filter, $mdDialog, $element, Project, Board, Card, Label, Notification, StompClient, BulkOperations, SharedBoardDataService) {
         var ctrl = this;
 
         ctrl.user = ctrl.userRef();
@@ -96,40 +96,124 @@
 
             var columnId = ctrl.column.id;
 
+            var showCards = function(res) {
+            	res.columnId = columnId;
+            	ctrl.cardsInColumn = res;
+            	ctrl.loaded = true;
+
+            	// sync selection, in case of a moved selected card
+            	// not optimal, but it should be good enough
+            	if(ctrl.selectedCards[ctrl.column.id]) {
+            		for(var key in ctrl.selectedCards[ctrl.column.id]) {
+            			if(ctrl.selectedCards[ctrl.column.id][key] && !idExist(parseInt(key))) {
+            				delete ctrl.selectedCards[ctrl.column.id][key];
+            			}
+            		}
+            	}
+
+
+            	function idExist(id) {
+            		for(var i = 0; i < ctrl.cardsInColumn.length;i++) {
+            			if(ctrl.cardsInColumn[i].id === id) {
+            				return true;
+            			}
+            		}
+            		return false;
+            	}
+
+            	//
+            };
+
             var loadCards = function() {
-                Card.findByColumn(columnId).then(function(res) {
-                	res.columnId = columnId;
-                	ctrl.cardsInColumn = res;
-                	ctrl.loaded = true;
-
-                	// sync selection, in case of a moved selected card
-                	// not optimal, but it should be good enough
-                	if(ctrl.selectedCards[ctrl.column.id]) {
-                		for(var key in ctrl.selectedCards[ctrl.column.id]) {
-                			if(ctrl.selectedCards[ctrl.column.id][key] && !idExist(parseInt(key))) {
-                				delete ctrl.selectedCards[ctrl.column.id][key];
-                			}
-                		}
-                	}
-
-
-                	function idExist(id) {
-                		for(var i = 0; i < ctrl.cardsInColumn.length;i++) {
-                			if(ctrl.cardsInColumn[i].id === id) {
-                				return true;
-                			}
-                		}
-                		return false;
-                	}
-
-                	//
-                });
+                Card.findByColumn(columnId).then(showCards);
+            };
+            // when the delta protocol is enabled, the changes of the cards are applied in place
+            // and only the other events (comments, labels, ...) trigger a full reload
+            var deltaEnabled = false;
+            var handledByDelta = {CREATE_CARD: true, UPDATE_CARD: true, UPDATE_CARD_POSITION: true};
+
+            // the deltas carry only the ids of the changed cards: they are fetched through the api,
+            // that checks the permissions, and the deltas are applied in the order they were received
+            var pendingDelta = $q.when();
+
+            var applyDelta = function(msg) {
+            	var delta = JSON.parse(msg.body).payload;
+            	pendingDelta = pendingDelta.then(function() {
+            		var changed = [];
+            		angular.forEach(delta.changed, function(id) {
+            			changed.push(Card.findCardWithCountsById(id));
+            		});
+            		return $q.all(changed);
+            	}).then(function(changed) {
+            		patchCards(delta, changed);
+            	}).then(null, loadCards);
             };
-            StompClient.subscribe($scope, '/event/column/'+columnId+'/card', loadCards);
+
+            var patchCards = function(delta, changed) {
+            	if(!ctrl.loaded) {
+            		return;
+            	}
+
+            	var byId = {};
+            	angular.forEach(ctrl.cardsInColumn, function(card) {
+            		byId[card.id] = card;
+            	});
+            	angular.forEach(delta.removed, function(id) {
+            		delete byId[id];
+            	});
+            	angular.forEach(changed, function(card) {
+            		byId[card.id] = card;
+            	});
+
+            	var cards = [];
+            	if(delta.order) {
+            		for(var i = 0; i < delta.order.length; i++) {
+            			if(!byId[delta.order[i]]) {
+            				loadCards();
+            				return;
+            			}
+            			cards.push(byId[delta.order[i]]);
+            		}
+            	} else {
+            		for(var id in byId) {
+            			cards.push(byId[id]);
+            		}
+            		cards.sort(function(a, b) {
+            			return a.order - b.order;
+            		});
+            	}
+
+            	cards.columnId = columnId;
+            	ctrl.cardsInColumn = cards;
+            };
+
+            StompClient.subscribe($scope, '/event/column/'+columnId+'/card', function(msg) {
+            	if(deltaEnabled && handledByDelta[JSON.parse(msg.body).type]) {
+            		return;
+            	}
+            	loadCards();
+            });
+
+            Card.isWebsocketCardDeltaEnabled().then(function(enabled) {
+            	if(enabled) {
+            		StompClient.subscribe($scope, '/event/column/'+columnId+'/card-delta', applyDelta).then(function() {
+            			// the hints are ignored only from now on: reload once, a change may have been
+            			// sent before the delta subscription was active
+            			deltaEnabled = true;
+            			loadCards();
+            		});
+            	}
+            });
 
             $scope.$on('loadcards', loadCards);
 
-            loadCards();
+            // the cards of the first load come with the board snapshot
+            if(ctrl.column.cards) {
+            	showCards(ctrl.column.cards);
+            	delete ctrl.column.cards;
+            } else {
+            	loadCards();
+            }
         };
 
         initializeColumn();
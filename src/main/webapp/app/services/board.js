@@ -42,6 +42,10 @@
                 return $http.get('api/board/' + shortName + '/columns-in').then(extractData);
             },
 
+			snapshot: function (shortName) {
+				return $http.get('api/board/' + shortName + '/snapshot').then(extractData);
+			},
+
 			columnsByLocation: function (shortName, location) {
 				return $http.get('api/board/' + shortName + '/columns-in/' + location).then(extractData);
 			},
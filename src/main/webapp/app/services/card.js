@@ -45,6 +45,9 @@
 			findCardById: function (id) {
 				return $http.get('api/card/' + id).then(extractData);
 			},
+			findCardWithCountsById: function (id) {
+				return $http.get('api/card/' + id + '/with-counts').then(extractData);
+			},
 			findCardsByMilestone: function (projectName) {
 				return $http.get('api/project/' + projectName + '/cards-by-milestone').then(extractData);
 			},
@@ -139,6 +142,9 @@
 			getMaxFileSize: function () {
 				return $http.get('api/configuration/max-upload-file-size').then(extractData);
 			},
+			isWebsocketCardDeltaEnabled: function () {
+				return $http.get('api/configuration/websocket-card-delta').then(extractData);
+			},
 			getFileUploader: function(cardId) {
                 return new FileUploader({
                     url: 'api/card/' + cardId + '/file',
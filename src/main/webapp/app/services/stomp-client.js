@@ -22,8 +22,22 @@
 			});
 		};
 
+		// the server coalesce the events sent in a short window: a frame with the lavagna-batch header
+		// contains a json array of events, each one is dispatched as a single message
+		function unpack(frame) {
+			if (!frame.headers || frame.headers['lavagna-batch'] !== 'true') {
+				return [frame];
+			}
+			var messages = [];
+			angular.forEach(JSON.parse(frame.body), function(event) {
+				messages.push({headers: frame.headers, body: JSON.stringify(event)});
+			});
+			return messages;
+		}
+
+		// the returned promise is resolved once the subscription has been sent
 		defer.promise.subscribe = function (scope, path, callback, headers) {
-			this.then(function (v) {
+			return this.then(function (v) {
 				
 				var identifier = '__id__'+(cnt++);
 				if(!callbacks[path] || callbacks[path].count == 0) {
@@ -31,12 +45,14 @@
 					
 					$log.log('stomp client subscribe at', path);
 					
-					callbacks[path].subscription = v.subscribe(path, function (msg) {
-						angular.forEach(callbacks[path], function(cb, key) {
-							if(key.indexOf('__id__') === 0) {
-								cb.scope.$applyAsync(function() {cb.callback(msg);});
-							}
-							
+					callbacks[path].subscription = v.subscribe(path, function (frame) {
+						angular.forEach(unpack(frame), function(msg) {
+							angular.forEach(callbacks[path], function(cb, key) {
+								if(key.indexOf('__id__') === 0) {
+									cb.scope.$applyAsync(function() {cb.callback(msg);});
+								}
+								
+							});
 						});
 					}, headers);
 				}
@@ -39,6 +39,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -658,6 +659,52 @@ public class CardDataServiceTest {
         assertEquals(1, files.size());
     }
 
+    @Test
+    public void TestUploadStagedFiles() throws IOException {
+        List<StagedBlob> staged = cardDataService.stageFiles(Arrays.asList(from("derp"), from("herp"), from("derp")),
+            Long.MAX_VALUE);
+        assertEquals(3, staged.size());
+        assertEquals(DigestUtils.sha256Hex("derp"), staged.get(0).getDigest());
+        assertEquals(DigestUtils.sha256Hex("herp"), staged.get(1).getDigest());
+        assertEquals(4, staged.get(1).getSize());
+
+        try {
+            for (int i = 0; i < staged.size(); i++) {
+                cardDataService.createFile("test" + i + ".txt", staged.get(i), card1.getId(), "text", user, new Date());
+            }
+        } finally {
+            for (StagedBlob content : staged) {
+                content.close();
+            }
+        }
+
+        // the same content is stored and attached to the card only once
+        List<FileDataLight> files = cardDataRepo.findAllFilesByCardId(card1.getId());
+        assertEquals(2, files.size());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        cardDataRepo.outputFileContent(staged.get(1).getDigest(), outputStream);
+        assertEquals("herp", outputStream.toString("UTF-8"));
+    }
+
+    @Test
+    public void TestTransferCachedFileContent() throws IOException {
+        String fileDigest = DigestUtils.sha256Hex("derp");
+        cardDataService.createFile("test.txt", fileDigest, 4, card1.getId(), from("derp"), "text", user, new Date());
+
+        // the first transfer loads the whole content in the cache, the second one is served from it
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            cardDataRepo.transferFileContent(fileDigest, 4, 1, 2, Channels.newChannel(outputStream));
+            assertEquals("er", outputStream.toString("UTF-8"));
+        }
+    }
+
+    @Test(expected = UploadTooLargeException.class)
+    public void TestStageFilesTooLarge() throws IOException {
+        cardDataService.stageFiles(Arrays.asList(from("derp"), from("herp")), 3);
+    }
+
     @Test
     public void TestDeleteFilesAndUndo() throws IOException {
         String testData = "derp";
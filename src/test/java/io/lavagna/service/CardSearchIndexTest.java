@@ -0,0 +1,205 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.model.Board;
+import io.lavagna.model.BoardColumn;
+import io.lavagna.model.BoardColumn.BoardColumnLocation;
+import io.lavagna.model.BoardColumnDefinition;
+import io.lavagna.model.Card;
+import io.lavagna.model.CardFullWithCounts;
+import io.lavagna.model.CardLabelValue.LabelValue;
+import io.lavagna.model.ColumnDefinition;
+import io.lavagna.model.Permission;
+import io.lavagna.model.Project;
+import io.lavagna.model.Role;
+import io.lavagna.model.SearchResults;
+import io.lavagna.model.User;
+import io.lavagna.model.UserWithPermission;
+import io.lavagna.query.SearchQuery;
+import io.lavagna.service.SearchFilter.FilterType;
+import io.lavagna.service.SearchFilter.SearchFilterValue;
+import io.lavagna.service.SearchFilter.ValueType;
+import io.lavagna.service.config.TestServiceConfig;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = { TestServiceConfig.class, PersistenceAndServiceConfig.class })
+@Transactional
+public class CardSearchIndexTest {
+
+	@Autowired
+	private SearchService searchService;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private PermissionService permissionService;
+	@Autowired
+	private ProjectService projectService;
+	@Autowired
+	private BoardRepository boardRepository;
+	@Autowired
+	private BoardColumnRepository boardColumnRepository;
+	@Autowired
+	private CardRepository cardRepository;
+	@Autowired
+	private CardService cardService;
+	@Autowired
+	private BulkOperationService bulkOperationService;
+	@Autowired
+	private NamedParameterJdbcTemplate jdbc;
+	@Autowired
+	private SearchQuery searchQuery;
+
+	private CardSearchIndex index;
+	private SearchService indexedSearchService;
+
+	private User user;
+	private UserWithPermission userWithPermissions;
+	private Project project;
+	private Board board;
+	private BoardColumn column;
+	private BoardColumn closedColumn;
+
+	@Before
+	public void prepare() {
+		index = new CardSearchIndex(jdbc, searchQuery, new MockEnvironment().withProperty("search.index.enabled",
+				"true"));
+		indexedSearchService = new SearchService(cardRepository, cardService, userRepository, projectService,
+				boardRepository, jdbc, searchQuery, index, new TaskStatisticsCache());
+
+		userRepository.createUser("test", "test-index", null, null, true);
+		user = userRepository.findUserByName("test", "test-index");
+		Role r = new Role("TEST");
+		permissionService.createRole(r);
+		permissionService.updatePermissionsToRole(r, EnumSet.of(Permission.READ));
+		permissionService.assignRolesToUsers(Collections.singletonMap(r, Collections.singleton(user.getId())));
+
+		userWithPermissions = new UserWithPermission(user, permissionService.findBasePermissionByUserId(user.getId()),
+				Collections.<String, Set<Permission>>emptyMap(), Collections.<Integer, Set<Permission>>emptyMap());
+
+		project = projectService.create("test index", "TEST-IDX", "desc");
+		board = boardRepository.createNewBoard("TEST-INDEX", "TEST-IDX", "desc", project.getId());
+
+		for (BoardColumnDefinition bcd : projectService.findColumnDefinitionsByProjectId(project.getId())) {
+			if (bcd.getValue() == ColumnDefinition.OPEN) {
+				column = boardColumnRepository.addColumnToBoard("open", bcd.getId(), BoardColumnLocation.BOARD,
+						board.getId());
+			} else if (bcd.getValue() == ColumnDefinition.CLOSED) {
+				closedColumn = boardColumnRepository.addColumnToBoard("closed", bcd.getId(),
+						BoardColumnLocation.BOARD, board.getId());
+			}
+		}
+	}
+
+	@Test
+	public void testDisabledByDefault() {
+		CardSearchIndex disabled = new CardSearchIndex(jdbc, searchQuery, new MockEnvironment());
+		Assert.assertFalse(disabled.isEnabled());
+		Assert.assertFalse(disabled.canHandle(Collections.singletonList(status(ColumnDefinition.OPEN))));
+	}
+
+	@Test
+	public void testUnsupportedFilters() {
+		SearchFilter fts = new SearchFilter(FilterType.FREETEXT, null, new SearchFilterValue(ValueType.STRING, "test"));
+		Assert.assertFalse(index.canHandle(Arrays.asList(status(ColumnDefinition.OPEN), fts)));
+		Assert.assertTrue(index.canHandle(Collections.singletonList(status(ColumnDefinition.OPEN))));
+	}
+
+	@Test
+	public void testSameResultsAsDatabase() {
+		Card card1 = cardService.createCard("card1", column.getId(), new Date(), user);
+		Card card2 = cardService.createCard("card2", column.getId(), new Date(), user);
+		cardService.createCard("card3", closedColumn.getId(), new Date(), user);
+		bulkOperationService.assign("TEST-IDX", Arrays.asList(card1.getId(), card2.getId()), new LabelValue(null,
+				null, null, null, user.getId(), null), user);
+
+		index.rebuild();
+
+		SearchFilter assignedToMe = new SearchFilter(FilterType.ASSIGNED, null, new SearchFilterValue(
+				ValueType.CURRENT_USER, "me"));
+		SearchFilter unassigned = new SearchFilter(FilterType.ASSIGNED, null, new SearchFilterValue(
+				ValueType.UNASSIGNED, "unassigned"));
+		SearchFilter location = new SearchFilter(FilterType.LOCATION, null, new SearchFilterValue(ValueType.STRING,
+				BoardColumnLocation.BOARD.toString()));
+
+		assertSameResults(Collections.singletonList(status(ColumnDefinition.OPEN)), 2);
+		assertSameResults(Collections.singletonList(status(ColumnDefinition.CLOSED)), 1);
+		assertSameResults(Arrays.asList(status(ColumnDefinition.OPEN), assignedToMe), 2);
+		assertSameResults(Arrays.asList(unassigned, location), 1);
+		assertSameResults(Arrays.asList(status(ColumnDefinition.CLOSED), assignedToMe), 0);
+	}
+
+	@Test
+	public void testPagination() {
+		for (int i = 0; i < 52; i++) {
+			cardService.createCard("test", column.getId(), new Date(), user);
+		}
+
+		index.rebuild();
+
+		List<SearchFilter> filters = Collections.singletonList(status(ColumnDefinition.OPEN));
+		SearchResults page0 = indexedSearchService.find(filters, project.getId(), null, userWithPermissions, 0);
+		Assert.assertEquals(51, page0.getFound().size());
+		Assert.assertEquals(52, page0.getCount());
+		Assert.assertEquals(2, page0.getTotalPages());
+
+		SearchResults page1 = indexedSearchService.find(filters, project.getId(), null, userWithPermissions, 1);
+		Assert.assertEquals(2, page1.getFound().size());
+		Assert.assertEquals(52, page1.getCount());
+	}
+
+	private void assertSameResults(List<SearchFilter> filters, int expectedCount) {
+		SearchResults fromDb = searchService.find(filters, project.getId(), board.getId(), userWithPermissions, 0);
+		SearchResults fromIndex = indexedSearchService.find(filters, project.getId(), board.getId(),
+				userWithPermissions, 0);
+		Assert.assertEquals(expectedCount, fromDb.getCount());
+		Assert.assertEquals(expectedCount, fromIndex.getCount());
+		Assert.assertEquals(ids(fromDb.getFound()), ids(fromIndex.getFound()));
+	}
+
+	private static Set<Integer> ids(List<CardFullWithCounts> cards) {
+		Set<Integer> ids = new HashSet<>();
+		for (CardFullWithCounts card : cards) {
+			ids.add(card.getId());
+		}
+		return ids;
+	}
+
+	private static SearchFilter status(ColumnDefinition definition) {
+		return SearchFilter.filterByColumnDefinition(definition);
+	}
+}
@@ -21,6 +21,7 @@ import io.lavagna.model.Board;
 import io.lavagna.model.BoardColumn;
 import io.lavagna.model.BoardColumn.BoardColumnLocation;
 import io.lavagna.model.BoardColumnDefinition;
+import io.lavagna.model.BoardSnapshot;
 import io.lavagna.model.Card;
 import io.lavagna.model.CardData;
 import io.lavagna.model.CardFullWithCounts;
@@ -61,6 +62,8 @@ public class CardServiceTest {
     private CardRepository cardRepository;
     @Autowired
     private CardDataService cardDataService;
+    @Autowired
+    private VersionRepository versionRepository;
 
     private User user;
     private Project project;
@@ -105,6 +108,64 @@ public class CardServiceTest {
         Assert.assertEquals(c3.getId(), res.get(2).getId());
     }
 
+    @Test
+    public void testFetchBoardSnapshot() {
+        Card c2 = cardService.createCard("2", col.getId(), new Date(), user);
+        Card c1 = cardService.createCardFromTop("1", col.getId(), new Date(), user);
+        Card c3 = cardService.createCard("3", col2.getId(), new Date(), user);
+        cardDataService.createComment(c1.getId(), "Comment", new Date(), user.getId());
+
+        long version = versionRepository.findBoardVersion(board.getId());
+        BoardSnapshot snapshot = cardService.fetchBoardSnapshot(board.getId(), BoardColumnLocation.BOARD, version);
+
+        Assert.assertEquals(version, snapshot.getVersion());
+        Assert.assertEquals(2, snapshot.getColumns().size());
+        List<CardFullWithCounts> inCol = snapshot.getCards().get(col.getId());
+        Assert.assertEquals(2, inCol.size());
+        Assert.assertEquals(c1.getId(), inCol.get(0).getId());
+        Assert.assertEquals(c2.getId(), inCol.get(1).getId());
+        Assert.assertEquals(1, inCol.get(0).getCounts().get("COMMENT").getCount().intValue());
+        Assert.assertEquals(c3.getId(), snapshot.getCards().get(col2.getId()).get(0).getId());
+    }
+
+    @Test
+    public void testBoardVersionIncrementedByChanges() {
+        long v0 = versionRepository.findBoardVersion(board.getId());
+        Card c1 = cardService.createCard("1", col.getId(), new Date(), user);
+        long v1 = versionRepository.findBoardVersion(board.getId());
+        Assert.assertTrue(v1 > v0);
+
+        cardService.updateCard(c1.getId(), "1-new", user, new Date());
+        long v2 = versionRepository.findBoardVersion(board.getId());
+        Assert.assertTrue(v2 > v1);
+
+        cardDataService.createComment(c1.getId(), "Comment", new Date(), user.getId());
+        long v3 = versionRepository.findBoardVersion(board.getId());
+        Assert.assertTrue(v3 > v2);
+
+        boardColumnRepository.renameColumn(col.getId(), "renamed", board.getId());
+        Assert.assertTrue(versionRepository.findBoardVersion(board.getId()) > v3);
+    }
+
+    @Test
+    public void testEntityVersionsIncrementedByChanges() {
+        Card c1 = cardService.createCard("1", col.getId(), new Date(), user);
+        long card0 = versionRepository.findCardVersion(c1.getId());
+        long col0 = versionRepository.findColumnVersion(col.getId());
+        long col20 = versionRepository.findColumnVersion(col2.getId());
+        long project0 = versionRepository.findProjectVersion(project.getShortName());
+
+        cardDataService.createComment(c1.getId(), "Comment", new Date(), user.getId());
+        Assert.assertTrue(versionRepository.findCardVersion(c1.getId()) > card0);
+        Assert.assertTrue(versionRepository.findColumnVersion(col.getId()) > col0);
+        Assert.assertEquals(col20, versionRepository.findColumnVersion(col2.getId()));
+        Assert.assertEquals(project0, versionRepository.findProjectVersion(project.getShortName()));
+
+        projectService.updateColumnDefinition(project.getId(), col.getDefinitionId(), 0xff0000);
+        Assert.assertTrue(versionRepository.findProjectVersion(project.getShortName()) > project0);
+        Assert.assertTrue(versionRepository.findColumnVersion(col2.getId()) > col20);
+    }
+
     @Test
     public void testMoveCardToColumnAndReorder() {
         Card c1 = cardService.createCard("1", col2.getId(), new Date(), user);
@@ -0,0 +1,159 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.query.ClusterEventQuery;
+import io.lavagna.service.config.TestServiceConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = { TestServiceConfig.class, PersistenceAndServiceConfig.class })
+@Transactional
+public class ClusterEventBusTest {
+
+	@Autowired
+	private NamedParameterJdbcTemplate jdbc;
+
+	@Autowired
+	private ClusterEventQuery queries;
+
+	@Autowired
+	private CompositeMessageConverter brokerMessageConverter;
+
+	private SimpMessageSendingOperations firstNodeTemplate;
+	private SimpMessageSendingOperations secondNodeTemplate;
+	private ClusterEventBus firstNode;
+	private ClusterEventBus secondNode;
+
+	@Before
+	public void prepare() {
+		MockEnvironment env = new MockEnvironment().withProperty("events.bus", "database");
+		firstNodeTemplate = mock(SimpMessageSendingOperations.class);
+		secondNodeTemplate = mock(SimpMessageSendingOperations.class);
+		firstNode = new ClusterEventBus(jdbc, queries, firstNodeTemplate, brokerMessageConverter,
+				mock(TaskScheduler.class), env);
+		secondNode = new ClusterEventBus(jdbc, queries, secondNodeTemplate, brokerMessageConverter,
+				mock(TaskScheduler.class), env);
+	}
+
+	private static Map<String, Set<Object>> events(String destination, Object... payloads) {
+		Map<String, Set<Object>> events = new LinkedHashMap<>();
+		events.put(destination, new LinkedHashSet<>(Arrays.asList(payloads)));
+		return events;
+	}
+
+	private static Message<?> delivered(SimpMessageSendingOperations template, String destination) {
+		@SuppressWarnings("rawtypes")
+		ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+		verify(template).send(eq(destination), message.capture());
+		return message.getValue();
+	}
+
+	// the message sent locally by the EventEmitter
+	private void assertSameAsLocal(Object payload, Message<?> delivered) {
+		Message<?> local = brokerMessageConverter.toMessage(payload, null);
+		Assert.assertArrayEquals((byte[]) local.getPayload(), (byte[]) delivered.getPayload());
+		Assert.assertEquals(local.getHeaders().get(MessageHeaders.CONTENT_TYPE).toString(),
+				delivered.getHeaders().get(MessageHeaders.CONTENT_TYPE).toString());
+	}
+
+	@Test
+	public void testEventsAreDeliveredOnlyToTheOtherNodes() {
+		firstNode.publish(events("/event/project", "CREATE_PROJECT"));
+
+		secondNode.poll();
+		firstNode.poll();
+
+		assertSameAsLocal("CREATE_PROJECT", delivered(secondNodeTemplate, "/event/project"));
+		verify(firstNodeTemplate, never()).send(anyString(), any(Message.class));
+	}
+
+	@Test
+	public void testEventsAreDeliveredOnce() {
+		firstNode.publish(events("/event/project", "CREATE_PROJECT"));
+		secondNode.poll();
+		secondNode.poll();
+
+		Assert.assertArrayEquals("CREATE_PROJECT".getBytes(StandardCharsets.UTF_8),
+				(byte[]) delivered(secondNodeTemplate, "/event/project").getPayload());
+	}
+
+	@Test
+	public void testObjectPayloadSameAsLocal() {
+		Map<String, Object> event = new LinkedHashMap<>();
+		event.put("type", "UPDATE_CARD");
+		event.put("time", new Date());
+		firstNode.publish(events("/event/card/1/card", event));
+		secondNode.poll();
+
+		assertSameAsLocal(event, delivered(secondNodeTemplate, "/event/card/1/card"));
+	}
+
+	@Test
+	public void testBatch() {
+		firstNode.publish(events("/event/project", "CREATE_PROJECT", "UPDATE_PROJECT"));
+		secondNode.poll();
+
+		Message<?> message = delivered(secondNodeTemplate, "/event/project");
+		assertSameAsLocal(new LinkedHashSet<>(Arrays.asList("CREATE_PROJECT", "UPDATE_PROJECT")), message);
+		Assert.assertEquals("true", SimpMessageHeaderAccessor.wrap(message).getFirstNativeHeader(
+				EventEmitter.BATCH_HEADER));
+	}
+
+	@Test
+	public void testDisabled() {
+		ClusterEventBus local = new ClusterEventBus(jdbc, queries, firstNodeTemplate, brokerMessageConverter,
+				mock(TaskScheduler.class),
+				new MockEnvironment());
+		Assert.assertFalse(local.isEnabled());
+		long lastId = queries.findLastId();
+		local.publish(events("/event/project", "CREATE_PROJECT"));
+		Assert.assertEquals(lastId, queries.findLastId().longValue());
+	}
+}
@@ -131,6 +131,16 @@ public class ConfigurationRepositoryTest {
 		Assert.assertFalse(configurationRepository.hasKeyDefined(Key.TEST_PLACEHOLDER));
 	}
 
+	@Test
+	public void testIsEnabled() {
+		configurationRepository.delete(Key.TEST_PLACEHOLDER);
+		Assert.assertFalse(configurationRepository.isEnabled(Key.TEST_PLACEHOLDER));
+		configurationRepository.insert(Key.TEST_PLACEHOLDER, "true");
+		Assert.assertTrue(configurationRepository.isEnabled(Key.TEST_PLACEHOLDER));
+		configurationRepository.update(Key.TEST_PLACEHOLDER, "false");
+		Assert.assertFalse(configurationRepository.isEnabled(Key.TEST_PLACEHOLDER));
+	}
+
 	@Test
 	public void testUpdate() {
 		configurationRepository.insert(Key.TEST_PLACEHOLDER, "TEST");
@@ -0,0 +1,114 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import io.lavagna.model.EmailMessage;
+import io.lavagna.model.MailConfig;
+import io.lavagna.model.QueuedEmail;
+import io.lavagna.query.EmailOutboxQuery;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EmailOutboxServiceTest {
+
+	@Mock
+	private EmailOutboxQuery queries;
+	@Mock
+	private NamedParameterJdbcTemplate jdbc;
+	@Mock
+	private MailConfig mailConfig;
+
+	private EmailOutboxService emailOutboxService;
+
+	private QueuedEmail first;
+	private QueuedEmail last;
+
+	@Before
+	public void prepare() {
+		when(queries.delete()).thenReturn("DELETE");
+		when(queries.reschedule()).thenReturn("RESCHEDULE");
+		emailOutboxService = new EmailOutboxService(queries, jdbc);
+
+		first = new QueuedEmail(1, "test@test.test", "subject", "text", "html", 0);
+		last = new QueuedEmail(2, "other@test.test", "subject", "text", "html",
+				EmailOutboxService.MAX_SEND_ATTEMPTS - 1);
+		when(queries.findReady(any(Date.class), anyInt())).thenReturn(Arrays.asList(first, last));
+	}
+
+	@Test
+	public void testSentEmailsAreRemoved() {
+		when(mailConfig.send(anyListOf(EmailMessage.class))).thenReturn(Collections.<EmailMessage> emptyList());
+
+		Assert.assertEquals(2, emailOutboxService.drain(mailConfig, 100));
+
+		verify(mailConfig).send(Arrays.<EmailMessage> asList(first, last));
+		ArgumentCaptor<SqlParameterSource[]> deleted = ArgumentCaptor.forClass(SqlParameterSource[].class);
+		verify(jdbc).batchUpdate(eq("DELETE"), deleted.capture());
+		Assert.assertEquals(2, deleted.getValue().length);
+		verify(jdbc, never()).batchUpdate(eq("RESCHEDULE"), any(SqlParameterSource[].class));
+	}
+
+	@Test
+	public void testFailedEmailsAreRetriedWithBackoff() {
+		List<EmailMessage> failed = Arrays.<EmailMessage> asList(first, last);
+		when(mailConfig.send(anyListOf(EmailMessage.class))).thenReturn(failed);
+
+		Assert.assertEquals(0, emailOutboxService.drain(mailConfig, 100));
+
+		// the first attempt is rescheduled, the last one is dropped
+		ArgumentCaptor<SqlParameterSource[]> rescheduled = ArgumentCaptor.forClass(SqlParameterSource[].class);
+		verify(jdbc).batchUpdate(eq("RESCHEDULE"), rescheduled.capture());
+		Assert.assertEquals(1, rescheduled.getValue().length);
+		Assert.assertEquals(1L, rescheduled.getValue()[0].getValue("id"));
+		Assert.assertEquals(1, rescheduled.getValue()[0].getValue("attempts"));
+		Date nextAttempt = (Date) rescheduled.getValue()[0].getValue("nextAttempt");
+		Assert.assertTrue(nextAttempt.after(new Date()));
+
+		ArgumentCaptor<SqlParameterSource[]> deleted = ArgumentCaptor.forClass(SqlParameterSource[].class);
+		verify(jdbc).batchUpdate(eq("DELETE"), deleted.capture());
+		Assert.assertEquals(1, deleted.getValue().length);
+		Assert.assertEquals(2L, deleted.getValue()[0].getValue("id"));
+	}
+
+	@Test
+	public void testRetryDelayIsExponential() {
+		Assert.assertEquals(EmailOutboxService.SEND_RETRY_DELAY, EmailOutboxService.retryDelay(1));
+		Assert.assertEquals(2 * EmailOutboxService.SEND_RETRY_DELAY, EmailOutboxService.retryDelay(2));
+		Assert.assertEquals(8 * EmailOutboxService.SEND_RETRY_DELAY, EmailOutboxService.retryDelay(4));
+	}
+}
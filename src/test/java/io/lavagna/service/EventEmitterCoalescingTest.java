@@ -0,0 +1,130 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventEmitterCoalescingTest {
+
+	@Mock
+	private SimpMessageSendingOperations messagingTemplate;
+	@Mock
+	private TaskScheduler taskScheduler;
+
+	private EventEmitter eventEmitter;
+
+	@Before
+	public void prepare() {
+		eventEmitter = new EventEmitter(messagingTemplate, taskScheduler);
+	}
+
+	@After
+	public void cleanup() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	public void testSingleEventIsSentAsIs() {
+		eventEmitter.emitUpdateBoard("TEST");
+
+		verify(taskScheduler).schedule(any(Runnable.class), any(Date.class));
+		verifyZeroInteractions(messagingTemplate);
+
+		eventEmitter.flush();
+
+		verify(messagingTemplate).convertAndSend(eq("/event/board/TEST"), any(EventEmitter.Event.class));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testEventsAreCoalescedAndDeduplicated() {
+		eventEmitter.emitCreateCard("TEST", "TEST-BRD", 1, 10);
+		eventEmitter.emitCreateCard("TEST", "TEST-BRD", 1, 11);
+		eventEmitter.emitCreateCard("TEST", "TEST-BRD", 1, 12);
+
+		// only one flush is scheduled for the window
+		verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Date.class));
+
+		eventEmitter.flush();
+
+		// the reload notification of the column is sent only once
+		verify(messagingTemplate).convertAndSend(eq("/event/column/1/card"), any(EventEmitter.Event.class));
+
+		ArgumentCaptor<Object> batch = ArgumentCaptor.forClass(Object.class);
+		verify(messagingTemplate).convertAndSend(eq("/event/TEST/TEST-BRD/card"), batch.capture(),
+				eq(Collections.<String, Object> singletonMap(EventEmitter.BATCH_HEADER, "true")));
+		Assert.assertEquals(3, ((Collection<Object>) batch.getValue()).size());
+	}
+
+	@Test
+	public void testEventsAreSentAfterCommit() {
+		TransactionSynchronizationManager.initSynchronization();
+
+		eventEmitter.emitUpdateBoard("TEST");
+		verifyZeroInteractions(taskScheduler);
+
+		for (TransactionSynchronization ts : TransactionSynchronizationManager.getSynchronizations()) {
+			ts.afterCommit();
+			ts.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+		}
+
+		eventEmitter.flush();
+		verify(messagingTemplate).convertAndSend(eq("/event/board/TEST"), any(EventEmitter.Event.class));
+		verify(messagingTemplate, never()).convertAndSend(any(String.class), any(Object.class),
+				anyMapOf(String.class, Object.class));
+	}
+
+	@Test
+	public void testEventsAreDroppedOnRollback() {
+		TransactionSynchronizationManager.initSynchronization();
+
+		eventEmitter.emitUpdateBoard("TEST");
+
+		for (TransactionSynchronization ts : TransactionSynchronizationManager.getSynchronizations()) {
+			ts.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+		}
+
+		eventEmitter.flush();
+		verifyZeroInteractions(taskScheduler, messagingTemplate);
+	}
+}
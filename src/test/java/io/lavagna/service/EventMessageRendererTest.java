@@ -0,0 +1,134 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import io.lavagna.model.BoardColumn;
+import io.lavagna.model.CardFull;
+import io.lavagna.model.CardLabel.LabelType;
+import io.lavagna.model.Event;
+import io.lavagna.model.Event.EventType;
+import io.lavagna.model.User;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.context.MessageSource;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventMessageRendererTest {
+
+	private static final int EVENTS = 10000;
+	private static final int CARDS = 100;
+
+	@Mock
+	private MessageSource messageSource;
+	@Mock
+	private CardDataRepository cardDataRepository;
+
+	private EventsContext.Entities entities;
+
+	@Before
+	public void prepare() {
+		when(messageSource.getMessage(eq("event.CARD_UPDATE"), (Object[]) isNull(), eq(Locale.ENGLISH)))
+				.thenReturn("User {0} has updated card name to: {1}");
+		User user = new User(1, "test", "test", "test@test.com", null, true, true, new Date(), false);
+		entities = new EventsContext.Entities(Collections.singletonList(user), Collections.<CardFull> emptyList(),
+				Collections.<Integer, String> emptyMap(), Collections.<BoardColumn> emptyList());
+	}
+
+	@Test
+	public void testSectionsAreSharedBetweenRecipients() {
+		List<List<Event>> eventsByCard = new ArrayList<>();
+		for (int card = 0; card < CARDS; card++) {
+			List<Event> events = new ArrayList<>();
+			for (int i = 0; i < EVENTS / CARDS; i++) {
+				events.add(cardUpdate(card * EVENTS + i, card, "name " + i));
+			}
+			eventsByCard.add(events);
+		}
+
+		EventMessageRenderer renderer = new EventMessageRenderer(messageSource, cardDataRepository, Locale.ENGLISH);
+
+		List<Event> all = new ArrayList<>();
+		for (List<Event> events : eventsByCard) {
+			all.addAll(events);
+		}
+
+		// two recipients watching all the cards
+		List<List<String>> first = new ArrayList<>();
+		List<List<String>> second = new ArrayList<>();
+		EventsContext context = new EventsContext(all, entities);
+		for (List<Event> events : eventsByCard) {
+			first.add(renderer.cardSection(events, context));
+		}
+		context = new EventsContext(all, entities);
+		for (List<Event> events : eventsByCard) {
+			second.add(renderer.cardSection(events, context));
+		}
+
+		for (int card = 0; card < CARDS; card++) {
+			Assert.assertSame(first.get(card), second.get(card));
+			Assert.assertEquals(EVENTS / CARDS, first.get(card).size());
+		}
+		Assert.assertEquals("User test@test.com has updated card name to: name 0", first.get(0).get(0));
+
+		// the pattern is resolved only once
+		verify(messageSource, times(1)).getMessage(eq("event.CARD_UPDATE"), (Object[]) isNull(),
+				eq(Locale.ENGLISH));
+	}
+
+	@Test
+	public void testDifferentEventsForTheSameCard() {
+		Event e1 = cardUpdate(1, 1, "first");
+		Event e2 = cardUpdate(2, 1, "second");
+		Event unsupported = new Event(3, 1, 1, new Date(), EventType.CARD_CREATE, null, null, null, null, null, null,
+				LabelType.NULL, null, null, null, null, null);
+
+		EventMessageRenderer renderer = new EventMessageRenderer(messageSource, cardDataRepository, Locale.ENGLISH);
+		List<Event> all = new ArrayList<>();
+		all.add(e1);
+		all.add(e2);
+		all.add(unsupported);
+		EventsContext context = new EventsContext(all, entities);
+
+		List<String> both = renderer.cardSection(all, context);
+		List<String> onlySecond = renderer.cardSection(Collections.singletonList(e2), context);
+
+		Assert.assertEquals(2, both.size());
+		Assert.assertEquals(1, onlySecond.size());
+		Assert.assertEquals("User test@test.com has updated card name to: second", onlySecond.get(0));
+	}
+
+	private static Event cardUpdate(int id, int cardId, String name) {
+		return new Event(id, cardId, 1, new Date(), EventType.CARD_UPDATE, null, null, null, null, null, null,
+				LabelType.NULL, null, name, null, null, null);
+	}
+}
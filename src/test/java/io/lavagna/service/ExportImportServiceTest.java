@@ -16,24 +16,42 @@
  */
 package io.lavagna.service;
 
+import static io.lavagna.common.Read.readMatchingObjects;
+import static io.lavagna.common.Read.readObject;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import io.lavagna.common.ZipArchive;
 import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.model.BoardInfo;
+import io.lavagna.model.CardFull;
+import io.lavagna.model.Event.EventType;
+import io.lavagna.model.EventFull;
+import io.lavagna.model.Pair;
 import io.lavagna.service.config.TestServiceConfig;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.google.gson.reflect.TypeToken;
+
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(classes = { TestServiceConfig.class, PersistenceAndServiceConfig.class })
 @Transactional
@@ -42,6 +60,15 @@ public class ExportImportServiceTest {
 	@Autowired
 	private ExportImportService exportImportService;
 
+	@Autowired
+	private EventRepository eventRepository;
+
+	@Autowired
+	private CardRepository cardRepository;
+
+	@Autowired
+	private NamedParameterJdbcTemplate jdbc;
+
 	@Test
 	public void testImportAndExport() throws IOException {
 		Path tmp = Files.createTempFile(null, null);
@@ -60,4 +87,70 @@ public class ExportImportServiceTest {
 
 	}
 
+	@Test
+	public void testExportedEvents() throws IOException {
+		Path imported = Files.createTempFile(null, null);
+		Path exported = Files.createTempFile(null, null);
+		try (InputStream is = new ClassPathResource("io/lavagna/export2.zip").getInputStream()) {
+			Files.copy(is, imported, StandardCopyOption.REPLACE_EXISTING);
+			exportImportService.importData(false, imported);
+
+			try (OutputStream os = Files.newOutputStream(exported)) {
+				exportImportService.exportData(os);
+			}
+
+			int pages = readObject("events-page-count.json", exported, new TypeToken<Integer>() {
+			});
+			Set<Integer> ids = new HashSet<>();
+			for (int i = 0; i < pages; i++) {
+				List<EventFull> events = readObject("events-" + i + ".json", exported,
+						new TypeToken<List<EventFull>>() {
+						});
+				for (EventFull e : events) {
+					ids.add(e.getEvent().getId());
+					assertNotNull(e.getUsername());
+					assertNotNull(e.getBoardShortName());
+					assertNotNull(e.getCardSequenceNumber());
+					if (e.getEvent().getEvent() == EventType.COMMENT_CREATE) {
+						assertNotNull(e.getContent());
+					}
+				}
+			}
+			assertEquals(pages, readMatchingObjects("events-[0-9]+\\.json", exported,
+					new TypeToken<List<EventFull>>() {
+					}).size());
+			assertEquals(eventRepository.count(), ids.size());
+		} finally {
+			Files.deleteIfExists(imported);
+			Files.deleteIfExists(exported);
+		}
+	}
+
+
+	@Test
+	public void testImportOrdersCardsAndRemovesCheckpoints() throws IOException {
+		Path tmp = Files.createTempFile(null, null);
+		try (InputStream is = new ClassPathResource("io/lavagna/export2.zip").getInputStream()) {
+			Files.copy(is, tmp, StandardCopyOption.REPLACE_EXISTING);
+			exportImportService.importData(false, tmp);
+
+			try (ZipArchive archive = new ZipArchive(tmp)) {
+				for (Pair<String, BoardInfo> board : archive.readMatchingObjects("boards/[^/]+\\.json",
+						new TypeToken<Pair<String, BoardInfo>>() {
+						})) {
+					String shortName = board.getSecond().getShortName();
+					for (CardFull cf : archive.readObject("boards/" + shortName + "/cards.json",
+							new TypeToken<List<CardFull>>() {
+							})) {
+						assertEquals(cf.getOrder(), cardRepository.findFullBy(shortName, cf.getSequence()).getOrder());
+					}
+				}
+			}
+
+			assertEquals(Integer.valueOf(0), jdbc.queryForObject("SELECT COUNT(*) FROM LA_IMPORT_CHECKPOINT",
+					new MapSqlParameterSource(), Integer.class));
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
 }
@@ -0,0 +1,89 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileSystemBlobStoreTest {
+
+	private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.UTF_8);
+	private static final String DIGEST = DigestUtils.sha256Hex(CONTENT);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FileSystemBlobStore store;
+
+	@Before
+	public void prepare() {
+		store = new FileSystemBlobStore(folder.getRoot().toPath());
+	}
+
+	@Test
+	public void testPutAndTransfer() throws IOException {
+		Assert.assertFalse(store.contains(DIGEST));
+		store.put(DIGEST, CONTENT.length, new ByteArrayInputStream(CONTENT));
+		Assert.assertTrue(store.contains(DIGEST));
+		// a second put of the same content is ignored
+		store.put(DIGEST, CONTENT.length, new ByteArrayInputStream(CONTENT));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		store.transferTo(DIGEST, 0, Long.MAX_VALUE, Channels.newChannel(out));
+		Assert.assertArrayEquals(CONTENT, out.toByteArray());
+	}
+
+	@Test
+	public void testTransferRange() throws IOException {
+		store.put(DIGEST, CONTENT.length, new ByteArrayInputStream(CONTENT));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		store.transferTo(DIGEST, 2, 3, Channels.newChannel(out));
+		Assert.assertEquals("234", new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testStageAndCommit() throws IOException {
+		try (StagedBlob staged = store.stage(new ByteArrayInputStream(CONTENT), CONTENT.length)) {
+			Assert.assertEquals(DIGEST, staged.getDigest());
+			Assert.assertEquals(CONTENT.length, staged.getSize());
+			Assert.assertFalse(store.contains(DIGEST));
+			staged.commit();
+		}
+		Assert.assertTrue(store.contains(DIGEST));
+	}
+
+	@Test(expected = UploadTooLargeException.class)
+	public void testStageTooLarge() throws IOException {
+		store.stage(new ByteArrayInputStream(CONTENT), CONTENT.length - 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDigest() {
+		store.contains("../../etc/passwd");
+	}
+}
@@ -0,0 +1,203 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import io.lavagna.common.Json;
+import io.lavagna.common.ZipArchive;
+import io.lavagna.model.EventFull;
+import io.lavagna.model.ImportCheckpoint;
+import io.lavagna.model.ImportContext;
+import io.lavagna.query.ImportCheckpointQuery;
+import io.lavagna.query.StatisticsQuery;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * The partitions are imported in parallel only outside HSQLDB, so the parallel path is tested with mocked
+ * repositories. The archive contains three independent projects: EXPOR2 (EX1, EX2), EXPORT (EX3, EX4) and TEST.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LavagnaImporterTest {
+
+	@Mock
+	private ConfigurationRepository configurationRepository;
+	@Mock
+	private UserRepository userRepository;
+	@Mock
+	private PermissionService permissionService;
+	@Mock
+	private ProjectService projectService;
+	@Mock
+	private BoardRepository boardRepository;
+	@Mock
+	private BoardColumnRepository boardColumnRepository;
+	@Mock
+	private CardLabelRepository cardLabelRepository;
+	@Mock
+	private CardDataRepository cardDataRepository;
+	@Mock
+	private CardRepository cardRepository;
+	@Mock
+	private ImportEvent importEvent;
+	@Mock
+	private StatisticsQuery statisticsQuery;
+	@Mock
+	private ImportCheckpointQuery checkpointQuery;
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	private LavagnaImporter importer;
+	private Path archive;
+
+	// the LA_IMPORT_CHECKPOINT rows of the archive
+	private final Map<Integer, ImportCheckpoint> checkpoints = new ConcurrentHashMap<>();
+	private final List<String> importedBoards = Collections.synchronizedList(new ArrayList<String>());
+	private final Set<String> importThreads = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final AtomicBoolean failOnTestProject = new AtomicBoolean();
+
+	@Before
+	public void prepare() throws IOException {
+		archive = Files.createTempFile(null, null);
+		try (InputStream is = new ClassPathResource("io/lavagna/export2.zip").getInputStream()) {
+			Files.copy(is, archive, StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		importer = new LavagnaImporter(configurationRepository, userRepository, permissionService, projectService,
+				boardRepository, boardColumnRepository, cardLabelRepository, cardDataRepository, cardRepository,
+				importEvent, statisticsQuery, checkpointQuery, transactionManager,
+				new MockEnvironment().withProperty("datasource.dialect", "MYSQL"));
+
+		// the base of the archive has already been imported: all the partitions start from the first page
+		ImportContext context = new ImportContext();
+		context.getImportedBoard().addAll(Arrays.asList("EX1", "EX2", "EX3", "EX4", "TEST"));
+		for (int partition = 0; partition < 3; partition++) {
+			checkpoints.put(partition, new ImportCheckpoint(partition, 0, Json.GSON.toJson(context)));
+		}
+
+		when(checkpointQuery.findByArchive(anyString())).thenAnswer(new Answer<List<ImportCheckpoint>>() {
+			@Override
+			public List<ImportCheckpoint> answer(InvocationOnMock invocation) {
+				return new ArrayList<>(new TreeMap<>(checkpoints).values());
+			}
+		});
+		when(checkpointQuery.update(anyString(), anyInt(), anyInt(), anyString())).thenAnswer(new Answer<Integer>() {
+			@Override
+			public Integer answer(InvocationOnMock invocation) {
+				Object[] args = invocation.getArguments();
+				checkpoints.put((Integer) args[1], new ImportCheckpoint((Integer) args[1], (Integer) args[2],
+						(String) args[3]));
+				return 1;
+			}
+		});
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) {
+				EventFull e = (EventFull) invocation.getArguments()[0];
+				if (failOnTestProject.get() && "TEST".equals(e.getBoardShortName())) {
+					throw new IllegalStateException("import failure");
+				}
+				importedBoards.add(e.getBoardShortName());
+				importThreads.add(Thread.currentThread().getName());
+				return null;
+			}
+		}).when(importEvent).processEvent(any(EventFull.class), any(ImportContext.class), any(ZipArchive.class));
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		Files.deleteIfExists(archive);
+	}
+
+	private int imported(String board) {
+		return Collections.frequency(importedBoards, board);
+	}
+
+	@Test
+	public void testPartitionsImportedInParallel() {
+		importer.importData(false, archive);
+
+		Assert.assertEquals(18, imported("EX1"));
+		Assert.assertEquals(6, imported("EX3"));
+		Assert.assertEquals(25, imported("EX4"));
+		Assert.assertEquals(13, imported("TEST"));
+		Assert.assertFalse(importThreads.contains(Thread.currentThread().getName()));
+		Assert.assertTrue(importThreads.size() > 1);
+
+		verify(checkpointQuery).deleteByArchive(anyString());
+	}
+
+	@Test
+	public void testResumeFromTheCheckpoints() {
+		failOnTestProject.set(true);
+		try {
+			importer.importData(false, archive);
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			Assert.assertEquals("import failure", e.getMessage());
+		}
+
+		// the other partitions have reached their last checkpoint
+		verify(checkpointQuery, never()).deleteByArchive(anyString());
+		Assert.assertEquals(1, checkpoints.get(0).getNextPage());
+		Assert.assertEquals(1, checkpoints.get(1).getNextPage());
+		Assert.assertEquals(0, checkpoints.get(2).getNextPage());
+
+		// importing the same archive again replays only the failed partition
+		failOnTestProject.set(false);
+		importedBoards.clear();
+		importer.importData(false, archive);
+
+		Assert.assertEquals(0, imported("EX1"));
+		Assert.assertEquals(0, imported("EX3"));
+		Assert.assertEquals(0, imported("EX4"));
+		Assert.assertEquals(13, imported("TEST"));
+		verify(checkpointQuery).deleteByArchive(anyString());
+	}
+}
@@ -0,0 +1,207 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MySqlFullTextSupportQueueTest {
+
+	@Mock
+	private MySqlFullTextSupportService mySqlFullTextSupportService;
+	@Mock
+	private TaskScheduler taskScheduler;
+	@Mock
+	private SchedulerLockService schedulerLockService;
+
+	private MySqlFullTextSupportQueue queue;
+
+	@Before
+	public void prepare() {
+		when(schedulerLockService.tryAcquire(anyString(), anyLong())).thenReturn(true);
+		queue = new MySqlFullTextSupportQueue(mySqlFullTextSupportService, taskScheduler, schedulerLockService,
+				new MockEnvironment().withProperty("datasource.dialect", "MYSQL"));
+	}
+
+	@After
+	public void cleanup() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	/**
+	 * Check that the given number of tasks has been scheduled so far and run the last one.
+	 */
+	private List<Date> runScheduled(int expected) {
+		ArgumentCaptor<Runnable> tasks = ArgumentCaptor.forClass(Runnable.class);
+		ArgumentCaptor<Date> dates = ArgumentCaptor.forClass(Date.class);
+		verify(taskScheduler, times(expected)).schedule(tasks.capture(), dates.capture());
+		tasks.getValue().run();
+		return dates.getAllValues();
+	}
+
+	private void start() {
+		queue.start();
+		runScheduled(1);
+	}
+
+	@Test
+	public void testDisabledOnOtherDatabases() {
+		MySqlFullTextSupportQueue hsqldb = new MySqlFullTextSupportQueue(mySqlFullTextSupportService, taskScheduler,
+				schedulerLockService, new MockEnvironment().withProperty("datasource.dialect", "HSQLDB"));
+		hsqldb.start();
+		hsqldb.cardChanged(1);
+		verifyZeroInteractions(taskScheduler, mySqlFullTextSupportService);
+	}
+
+	@Test
+	public void testRecoveryBeforeTheQueuedChanges() {
+		when(mySqlFullTextSupportService.syncNewCards()).thenReturn(2, 0);
+		queue.cardChanged(1);
+
+		// nothing is copied until the recovery is done
+		verifyZeroInteractions(taskScheduler);
+
+		start();
+		verify(mySqlFullTextSupportService, times(2)).syncNewCards();
+		verify(mySqlFullTextSupportService, times(2)).syncUpdatedCardData();
+		verify(schedulerLockService).release(anyString());
+
+		runScheduled(2);
+		verify(mySqlFullTextSupportService).syncCards(Collections.singletonList(1));
+	}
+
+	@Test
+	public void testRecoveryRetriedWhenTheLeaseIsHeld() {
+		when(schedulerLockService.tryAcquire(anyString(), anyLong())).thenReturn(false);
+		queue.start();
+		runScheduled(1);
+
+		verify(mySqlFullTextSupportService, never()).syncNewCards();
+		verify(schedulerLockService, never()).release(anyString());
+		runScheduled(2);
+	}
+
+	@Test
+	public void testRecoveryRetriedOnFailure() {
+		when(mySqlFullTextSupportService.syncNewCards()).thenThrow(new IllegalStateException()).thenReturn(0);
+		queue.cardChanged(1);
+		start();
+
+		verify(schedulerLockService).release(anyString());
+		verify(mySqlFullTextSupportService, never()).syncCards(anyListOf(Integer.class));
+
+		// the retry recovers and then copies the queued changes
+		runScheduled(2);
+		runScheduled(3);
+		verify(mySqlFullTextSupportService).syncCards(Collections.singletonList(1));
+	}
+
+	@Test
+	public void testChangesQueuedAfterCommitInOneDrain() {
+		start();
+
+		TransactionSynchronizationManager.initSynchronization();
+		queue.cardsChanged(Arrays.asList(1, 2));
+		queue.cardDataChanged(3);
+		verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Date.class));
+		for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations()) {
+			s.afterCommit();
+		}
+		TransactionSynchronizationManager.clearSynchronization();
+
+		// a single drain is scheduled for all the changes
+		runScheduled(2);
+		verify(mySqlFullTextSupportService).syncCards(Arrays.asList(1, 2));
+		verify(mySqlFullTextSupportService).syncCardData(Collections.singletonList(3));
+		verify(taskScheduler, times(2)).schedule(any(Runnable.class), any(Date.class));
+	}
+
+	@Test
+	public void testNothingQueuedOnRollback() {
+		start();
+
+		TransactionSynchronizationManager.initSynchronization();
+		queue.cardChanged(1);
+		for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations()) {
+			s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+		}
+		TransactionSynchronizationManager.clearSynchronization();
+
+		verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Date.class));
+	}
+
+	@Test
+	public void testDrainedInBatches() {
+		start();
+		List<Integer> ids = new ArrayList<>();
+		for (int i = 0; i < 501; i++) {
+			ids.add(i);
+		}
+		queue.cardsChanged(ids);
+
+		runScheduled(2);
+		runScheduled(3);
+		verify(mySqlFullTextSupportService, times(2)).syncCards(anyListOf(Integer.class));
+		verify(taskScheduler, times(3)).schedule(any(Runnable.class), any(Date.class));
+	}
+
+	@Test
+	public void testFailedDrainRetriedLater() {
+		start();
+		doThrow(new IllegalStateException()).doNothing().when(mySqlFullTextSupportService)
+				.syncCards(Collections.singletonList(1));
+		queue.cardChanged(1);
+
+		long before = System.currentTimeMillis();
+		runScheduled(2);
+		List<Date> dates = runScheduled(3);
+
+		// requeued with a delay, then copied
+		Assert.assertTrue(dates.get(2).getTime() >= before + 10 * 1000);
+		verify(mySqlFullTextSupportService, times(2)).syncCards(Collections.singletonList(1));
+	}
+}
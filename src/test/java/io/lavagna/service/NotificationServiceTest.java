@@ -16,9 +16,10 @@
  */
 package io.lavagna.service;
 
-import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.eq;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import io.lavagna.config.PersistenceAndServiceConfig;
@@ -32,13 +33,20 @@ import io.lavagna.model.CardLabel;
 import io.lavagna.model.Key;
 import io.lavagna.model.CardLabel.LabelDomain;
 import io.lavagna.model.CardLabelValue;
+import io.lavagna.model.EmailMessage;
 import io.lavagna.model.MailConfig;
 import io.lavagna.model.Project;
+import io.lavagna.model.QueuedEmail;
 import io.lavagna.model.User;
+import io.lavagna.query.EmailOutboxQuery;
+import io.lavagna.query.NotificationQuery;
 import io.lavagna.service.config.TestServiceConfig;
 
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.time.DateUtils;
@@ -47,6 +55,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.MessageSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.transaction.annotation.Transactional;
@@ -89,6 +99,21 @@ public class NotificationServiceTest {
 	@Autowired
 	private CardLabelRepository cardLabelRepository;
 
+	@Autowired
+	private EmailOutboxQuery emailOutboxQuery;
+
+	@Autowired
+	private EmailOutboxService emailOutboxService;
+
+	@Autowired
+	private NotificationQuery notificationQuery;
+
+	@Autowired
+	private MessageSource messageSource;
+
+	@Autowired
+	private NamedParameterJdbcTemplate jdbc;
+
 	private Board board;
 	private BoardColumn col1;
 	private Card card1;
@@ -161,10 +186,11 @@ public class NotificationServiceTest {
 		when(mc.getFrom()).thenReturn("from@lavagna.io");
 		notificationService.notifyUser(user.getId(), new Date(), true, mc);
 
-		verify(mc).send(
-				eq("test@test.test"),
-				eq("Lavagna: TEST-BRD-1, TEST-BRD-2"),
-				any(String.class), any(String.class));
+		List<QueuedEmail> queued = emailOutboxQuery.findReady(DateUtils.addMinutes(new Date(), 1), 10);
+		Assert.assertEquals(1, queued.size());
+		Assert.assertEquals("test@test.test", queued.get(0).getTo());
+		Assert.assertEquals("Lavagna: TEST-BRD-1, TEST-BRD-2", queued.get(0).getSubject());
+		Assert.assertEquals(0, queued.get(0).getAttempts());
 	}
 
     @Test
@@ -188,9 +214,110 @@ public class NotificationServiceTest {
         when(mc.getFrom()).thenReturn("from@lavagna.io");
         notificationService.notifyUser(user.getId(), new Date(), true, mc);
 
-        verify(mc).send(
-            eq("test@test.test"),
-            eq("Lavagna: TEST-BRD-2"),
-            any(String.class), any(String.class));
+        List<QueuedEmail> queued = emailOutboxQuery.findReady(DateUtils.addMinutes(new Date(), 1), 10);
+        Assert.assertEquals(1, queued.size());
+        Assert.assertEquals("test@test.test", queued.get(0).getTo());
+        Assert.assertEquals("Lavagna: TEST-BRD-2", queued.get(0).getSubject());
     }
+
+	@Test
+	public void prepareEmailsForSeveralUsers() {
+
+		Date creationDate = DateUtils.addMinutes(new Date(), -3);
+
+		labelService.addLabelValueToCard(assignedLabel.getId(), card1.getId(), new CardLabelValue.LabelValue(null,
+				null, null, null, user.getId(), null), user, creationDate);
+		labelService.addLabelValueToCard(watchedLabel.getId(), card2.getId(), new CardLabelValue.LabelValue(null, null,
+				null, null, otherUser.getId(), null), otherUser, creationDate);
+
+		cardDataService.createComment(card1.getId(), "first comment", creationDate, otherUser.getId());
+		cardDataService.createComment(card2.getId(), "first comment on card 2", creationDate, user.getId());
+
+		MailConfig mc = mock(MailConfig.class);
+		when(mc.isMinimalConfigurationPresent()).thenReturn(true);
+
+		List<EmailMessage> emails = notificationService.prepareEmails(Arrays.asList(user.getId(), otherUser.getId()),
+				new Date(), true, mc);
+
+		Map<String, String> subjectByRecipient = new HashMap<>();
+		for (EmailMessage email : emails) {
+			subjectByRecipient.put(email.getTo(), email.getSubject());
+		}
+		Assert.assertEquals(2, subjectByRecipient.size());
+		Assert.assertEquals("Lavagna: TEST-BRD-1", subjectByRecipient.get("test@test.test"));
+		Assert.assertEquals("Lavagna: TEST-BRD-2", subjectByRecipient.get("other@test.test"));
+
+		// the sent date has been updated
+		Assert.assertTrue(notificationService.prepareEmails(Arrays.asList(user.getId(), otherUser.getId()),
+				new Date(), true, mc).isEmpty());
+	}
+
+	@Test
+	public void prepareEmailsLoadsTheEntitiesOnceForTheRound() {
+
+		userRepository.createUser("test", "third-user", "third@test.test", "display name", true);
+		User thirdUser = userRepository.findUserByName("test", "third-user");
+		userRepository.createUser("test", "author", "author@test.test", "display name", true);
+		User author = userRepository.findUserByName("test", "author");
+
+		Date creationDate = DateUtils.addMinutes(new Date(), -3);
+		for (User watcher : Arrays.asList(user, otherUser, thirdUser)) {
+			labelService.addLabelValueToCard(watchedLabel.getId(), card1.getId(), new CardLabelValue.LabelValue(null,
+					null, null, null, watcher.getId(), null), author, creationDate);
+		}
+		cardDataService.createComment(card1.getId(), "first comment", creationDate, author.getId());
+		cardDataService.createComment(card1.getId(), "second comment", creationDate, author.getId());
+
+		UserRepository users = mock(UserRepository.class, delegatesTo(userRepository));
+		CardRepository cards = mock(CardRepository.class, delegatesTo(cardRepository));
+		CardDataRepository cardData = mock(CardDataRepository.class, delegatesTo(cardDataRepository));
+		NotificationService service = new NotificationService(configurationRepository, users, cardData, cards,
+				boardColumnRepository, messageSource, jdbc, notificationQuery, emailOutboxService);
+
+		MailConfig mc = mock(MailConfig.class);
+		when(mc.isMinimalConfigurationPresent()).thenReturn(true);
+		List<EmailMessage> emails;
+		try {
+			emails = service.prepareEmails(Arrays.asList(user.getId(), otherUser.getId(), thirdUser.getId()),
+					new Date(), true, mc);
+		} finally {
+			service.shutdown();
+		}
+
+		Map<String, String> subjectByRecipient = new HashMap<>();
+		for (EmailMessage email : emails) {
+			subjectByRecipient.put(email.getTo(), email.getSubject());
+		}
+		Assert.assertEquals(3, subjectByRecipient.size());
+		Assert.assertEquals("Lavagna: TEST-BRD-1", subjectByRecipient.get("third@test.test"));
+
+		// the recipients, then the other users referenced by the events: not one query per recipient
+		verify(users, times(2)).findByIds(anyCollectionOf(Integer.class));
+		verify(cards, times(1)).findAllByIds(anyCollectionOf(Integer.class));
+		verify(cardData, times(1)).findDataByIds(anyCollectionOf(Integer.class));
+	}
+
+	@Test
+	public void checkWithDailyDigest() {
+		configurationRepository.update(Key.EMAIL_NOTIFICATION_DIGEST, "DAILY");
+
+		Date now = new Date();
+		labelService.addLabelValueToCard(assignedLabel.getId(), card1.getId(), new CardLabelValue.LabelValue(null,
+				null, null, null, user.getId(), null), user, DateUtils.addMinutes(now, -3));
+		cardDataService.createComment(card1.getId(), "first comment", DateUtils.addMinutes(now, -3), otherUser.getId());
+
+		// never notified: no need to wait for a quiet round
+		Assert.assertTrue(notificationService.check(now).contains(user.getId()));
+
+		MailConfig mc = mock(MailConfig.class);
+		when(mc.isMinimalConfigurationPresent()).thenReturn(true);
+		Assert.assertEquals(1, notificationService.prepareEmails(Arrays.asList(user.getId()), now, true, mc).size());
+
+		// notified less than a day ago: the new events wait for the digest
+		cardDataService.createComment(card1.getId(), "second comment", DateUtils.addMinutes(now, 1), otherUser.getId());
+		Assert.assertFalse(notificationService.check(DateUtils.addMinutes(now, 2)).contains(user.getId()));
+		Assert.assertFalse(notificationService.check(DateUtils.addHours(now, 12)).contains(user.getId()));
+
+		Assert.assertTrue(notificationService.check(DateUtils.addHours(now, 25)).contains(user.getId()));
+	}
 }
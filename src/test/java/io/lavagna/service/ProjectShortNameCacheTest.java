@@ -0,0 +1,85 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.service.ProjectShortNameCache.Kind;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+public class ProjectShortNameCacheTest {
+
+	private final ProjectShortNameCache cache = new ProjectShortNameCache(new MockEnvironment());
+
+	@Test
+	public void testPutAndGet() {
+		cache.put(Kind.CARD, 1, "TEST", cache.getGeneration());
+		cache.put(Kind.COLUMN, 1, "OTHER", cache.getGeneration());
+		cache.put(Kind.BOARD, "BOARD", null, cache.getGeneration());
+
+		Assert.assertEquals("TEST", cache.get(Kind.CARD, 1));
+		Assert.assertEquals("OTHER", cache.get(Kind.COLUMN, 1));
+		Assert.assertNull(cache.get(Kind.CARD_DATA, 1));
+		Assert.assertNull(cache.get(Kind.BOARD, "BOARD"));
+	}
+
+	@Test
+	public void testMoveInsideTheSameProject() {
+		cache.put(Kind.COLUMN, 1, "TEST", cache.getGeneration());
+		cache.put(Kind.COLUMN, 2, "TEST", cache.getGeneration());
+		cache.put(Kind.CARD, 10, "TEST", cache.getGeneration());
+
+		cache.cardsMoved(1, 2);
+
+		Assert.assertEquals("TEST", cache.get(Kind.CARD, 10));
+	}
+
+	@Test
+	public void testMoveToAnotherProject() {
+		cache.put(Kind.COLUMN, 1, "TEST", cache.getGeneration());
+		cache.put(Kind.COLUMN, 2, "OTHER", cache.getGeneration());
+		cache.put(Kind.CARD, 10, "TEST", cache.getGeneration());
+		cache.put(Kind.LABEL, 5, "TEST", cache.getGeneration());
+
+		cache.cardsMoved(1, 2);
+
+		Assert.assertNull(cache.get(Kind.CARD, 10));
+		Assert.assertEquals("TEST", cache.get(Kind.LABEL, 5));
+	}
+
+	@Test
+	public void testStaleLoadIsNotStored() {
+		long generation = cache.getGeneration();
+		// unknown columns: a move between them must be considered as a move to another project
+		cache.cardsMoved(3, 4);
+		cache.put(Kind.CARD, 10, "TEST", generation);
+
+		Assert.assertNull(cache.get(Kind.CARD, 10));
+	}
+
+	@Test
+	public void testCardBoundNotCachedWithSeveralNodes() {
+		ProjectShortNameCache clustered = new ProjectShortNameCache(new MockEnvironment().withProperty("events.bus",
+				"database"));
+		clustered.put(Kind.CARD, 10, "TEST", clustered.getGeneration());
+		clustered.put(Kind.COLUMN, 1, "TEST", clustered.getGeneration());
+
+		Assert.assertNull(clustered.get(Kind.CARD, 10));
+		Assert.assertEquals("TEST", clustered.get(Kind.COLUMN, 1));
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.config.PersistenceAndServiceConfig;
+import io.lavagna.query.SchedulerLockQuery;
+import io.lavagna.service.config.TestServiceConfig;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = { TestServiceConfig.class, PersistenceAndServiceConfig.class })
+@Transactional
+public class SchedulerLockServiceTest {
+
+	private static final long LEASE = 60 * 1000;
+
+	@Autowired
+	private SchedulerLockQuery queries;
+
+	private SchedulerLockService firstNode;
+	private SchedulerLockService secondNode;
+
+	@Before
+	public void prepare() {
+		firstNode = new SchedulerLockService(queries);
+		secondNode = new SchedulerLockService(queries);
+	}
+
+	@Test
+	public void testOnlyOneNodeHoldsTheLease() {
+		Assert.assertTrue(firstNode.tryAcquire("JOB", LEASE));
+		Assert.assertFalse(secondNode.tryAcquire("JOB", LEASE));
+		// renew
+		Assert.assertTrue(firstNode.tryAcquire("JOB", LEASE));
+	}
+
+	@Test
+	public void testLocksAreByJob() {
+		Assert.assertTrue(firstNode.tryAcquire("JOB", LEASE));
+		Assert.assertTrue(secondNode.tryAcquire("OTHER_JOB", LEASE));
+	}
+
+	@Test
+	public void testExpiredLeaseIsTakenOver() {
+		Assert.assertTrue(firstNode.tryAcquire("JOB", -1000));
+		Assert.assertTrue(secondNode.tryAcquire("JOB", LEASE));
+		Assert.assertFalse(firstNode.tryAcquire("JOB", LEASE));
+	}
+
+	@Test
+	public void testRelease() {
+		Assert.assertTrue(firstNode.tryAcquire("JOB", LEASE));
+		secondNode.release("JOB");
+		Assert.assertFalse(secondNode.tryAcquire("JOB", LEASE));
+
+		firstNode.release("JOB");
+		Assert.assertTrue(secondNode.tryAcquire("JOB", LEASE));
+	}
+}
@@ -23,10 +23,12 @@ import io.lavagna.model.BoardColumn;
 import io.lavagna.model.BoardColumn.BoardColumnLocation;
 import io.lavagna.model.BoardColumnDefinition;
 import io.lavagna.model.Card;
+import io.lavagna.model.CardFullWithCounts;
 import io.lavagna.model.ColumnDefinition;
 import io.lavagna.model.Permission;
 import io.lavagna.model.Project;
 import io.lavagna.model.Role;
+import io.lavagna.model.SearchCursor;
 import io.lavagna.model.SearchResults;
 import io.lavagna.model.User;
 import io.lavagna.model.UserWithPermission;
@@ -43,6 +45,7 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -384,4 +387,76 @@ public class SearchServiceTest {
 		Assert.assertEquals(0, tasks.get(ColumnDefinition.BACKLOG).intValue());
 		Assert.assertEquals(0, tasks.get(ColumnDefinition.DEFERRED).intValue());
 	}
+
+	@Test
+	public void testFindTaksByColumnDefinitionCachedResultIsInvalidatedByMove() {
+
+		Card card = cardService.createCard("test", column.getId(), new Date(), user);
+
+		Map<ColumnDefinition, Integer> tasks = searchService.findTaksByColumnDefinition(project.getId(), null, false,
+				userWithPermissions);
+		Assert.assertEquals(1, tasks.get(ColumnDefinition.OPEN).intValue());
+
+		cardService.moveCardToColumn(card.getId(), column.getId(), closedColumn.getId(), user.getId(), new Date());
+
+		tasks = searchService.findTaksByColumnDefinition(project.getId(), null, false, userWithPermissions);
+		Assert.assertEquals(0, tasks.get(ColumnDefinition.OPEN).intValue());
+		Assert.assertEquals(1, tasks.get(ColumnDefinition.CLOSED).intValue());
+	}
+
+	@Test
+	public void testFindTaksByColumnDefinitionWithoutAccess() {
+
+		cardService.createCard("test", column.getId(), new Date(), user);
+
+		Map<ColumnDefinition, Integer> tasks = searchService.findTaksByColumnDefinition(project.getId(), null, false,
+				userWithNoAccessPermission);
+
+		Assert.assertEquals(4, tasks.size());
+		Assert.assertEquals(0, tasks.get(ColumnDefinition.OPEN).intValue());
+	}
+
+	@Test
+	public void testFindAfterVisitsAllTheCardsOnce() {
+
+		int cardsToCreate = 120;
+		for (int i = 0; i < cardsToCreate; i++) {
+			cardService.createCard("test" + i, column.getId(), new Date(), user);
+		}
+
+		SearchFilter status = new SearchFilter(FilterType.STATUS, null, new SearchFilterValue(ValueType.STRING, "OPEN"));
+		List<SearchFilter> filters = singletonList(status);
+
+		SearchResults first = searchService.findAfter(filters, project.getId(), null, userWithPermissions, null, true);
+		Assert.assertEquals(cardsToCreate, first.getCount());
+		Assert.assertEquals(50, first.getFound().size());
+
+		Set<Integer> visited = new HashSet<>();
+		SearchResults current = first;
+		int pages = 0;
+		while (true) {
+			pages++;
+			for (CardFullWithCounts c : current.getFound()) {
+				Assert.assertTrue(visited.add(c.getId()));
+			}
+			if (current.getNextCursor() == null) {
+				break;
+			}
+			current = searchService.findAfter(filters, project.getId(), null, userWithPermissions,
+					SearchCursor.decode(current.getNextCursor()), false);
+			Assert.assertEquals(-1, current.getCount());
+		}
+
+		Assert.assertEquals(3, pages);
+		Assert.assertEquals(cardsToCreate, visited.size());
+	}
+
+	@Test
+	public void testFindAfterWithoutAccess() {
+		cardService.createCard("test", column.getId(), new Date(), user);
+		SearchResults res = searchService.findAfter(singletonList(createdByMe), project.getId(), null,
+				userWithNoAccessPermission, null, true);
+		Assert.assertEquals(0, res.getCount());
+		Assert.assertNull(res.getNextCursor());
+	}
 }
@@ -0,0 +1,146 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import io.lavagna.common.LatencyHistogram;
+import io.lavagna.model.ColumnDefinition;
+import io.lavagna.model.Pair;
+import io.lavagna.model.StatisticsHistory;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StatisticsHistoryServiceTest {
+
+	@Mock
+	private StatisticsService statisticsService;
+
+	private StatisticsHistoryCache cache;
+	private StatisticsHistoryService statisticsHistoryService;
+
+	private Date today;
+
+	@Before
+	public void prepare() {
+		cache = new StatisticsHistoryCache();
+		statisticsHistoryService = new StatisticsHistoryService(statisticsService, cache);
+		today = DateUtils.truncate(new Date(), Calendar.DATE);
+	}
+
+	@Test
+	public void testSubQueriesRunConcurrently() {
+		// the two queries wait for each other: it would time out if they were run one after the other
+		final CountDownLatch latch = new CountDownLatch(2);
+		Answer<Object> await = new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) throws InterruptedException {
+				latch.countDown();
+				Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+				return invocation.getMethod().getReturnType() == Integer.class ? 3 : null;
+			}
+		};
+		when(statisticsService.getActiveUsersOnBoard(eq(1), any(Date.class))).then(await);
+		when(statisticsService.getMostActiveCardByBoard(eq(1), any(Date.class))).then(await);
+
+		StatisticsHistory history = statisticsHistoryService.findByBoard(1, new Date());
+
+		Assert.assertEquals(Integer.valueOf(3), history.getActiveUsers());
+		Assert.assertNull(history.getMostActiveCard());
+		verify(statisticsService).getActiveUsersOnBoard(1, today);
+	}
+
+	@Test
+	public void testCachedByDayUntilInvalidated() {
+		Map<Long, Pair<Long, Long>> createdAndClosed = new HashMap<>();
+		createdAndClosed.put(today.getTime(), new Pair<>(2l, 1l));
+		when(statisticsService.getCreatedAndClosedCardsByProject(1, today)).thenReturn(createdAndClosed);
+		when(statisticsService.getCardsStatusByProject(1, today)).thenReturn(
+				Collections.<Long, Map<ColumnDefinition, Long>>emptyMap());
+
+		StatisticsHistory first = statisticsHistoryService.findByProject(1, new Date());
+		StatisticsHistory second = statisticsHistoryService.findByProject(1, DateUtils.addHours(today, 1));
+
+		Assert.assertSame(first, second);
+		Assert.assertSame(createdAndClosed, first.getCreatedAndClosedCards());
+		verify(statisticsService).getCreatedAndClosedCardsByProject(1, today);
+		Assert.assertEquals(1, cache.getHits());
+
+		cache.invalidate(Collections.<Integer>emptyList(), Collections.singletonList(1));
+
+		Assert.assertNotSame(first, statisticsHistoryService.findByProject(1, today));
+		verify(statisticsService, times(2)).getCreatedAndClosedCardsByProject(1, today);
+	}
+
+	@Test
+	public void testInvalidationLimitedToTheChangedBoardsAndProjects() {
+		StatisticsHistory board = statisticsHistoryService.findByBoard(1, today);
+		StatisticsHistory project = statisticsHistoryService.findByProject(1, today);
+
+		cache.invalidate(Collections.singletonList(2), Collections.singletonList(2));
+
+		Assert.assertSame(board, statisticsHistoryService.findByBoard(1, today));
+		Assert.assertSame(project, statisticsHistoryService.findByProject(1, today));
+
+		cache.invalidate(Collections.singletonList(1), Collections.<Integer>emptyList());
+
+		Assert.assertNotSame(board, statisticsHistoryService.findByBoard(1, today));
+		Assert.assertSame(project, statisticsHistoryService.findByProject(1, today));
+
+		cache.invalidateAll();
+
+		Assert.assertNotSame(project, statisticsHistoryService.findByProject(1, today));
+	}
+
+	@Test
+	public void testLatencyRecordedBySubQuery() {
+		statisticsHistoryService.findByBoard(1, today);
+		statisticsHistoryService.findByBoard(2, today);
+
+		Map<String, LatencyHistogram.Snapshot> latencies = statisticsHistoryService.getLatencies();
+		Assert.assertEquals(7, latencies.size());
+		for (LatencyHistogram.Snapshot snapshot : latencies.values()) {
+			Assert.assertEquals(2, snapshot.getCount());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSubQueryErrorIsPropagated() {
+		when(statisticsService.getCardsByLabelOnBoard(1)).thenThrow(new IllegalArgumentException());
+		statisticsHistoryService.findByBoard(1, today);
+	}
+}
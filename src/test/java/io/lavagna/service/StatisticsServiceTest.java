@@ -45,6 +45,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.transaction.annotation.Transactional;
@@ -81,6 +83,9 @@ public class StatisticsServiceTest {
 	@Autowired
 	private StatisticsService statisticsService;
 
+	@Autowired
+	private NamedParameterJdbcTemplate jdbc;
+
 	private Date today;
 	private Date yesterday;
 	private Date oneMonthAgo;
@@ -351,6 +356,66 @@ public class StatisticsServiceTest {
 		Assert.assertEquals(1l, events.get(yesterday.getTime()).getSecond().longValue());
 	}
 
+	@Test
+	public void getCreatedAndClosedCardsByBoardAfterSnapshotTest() throws InterruptedException {
+		cardService.createCard("card2", openCol.getId(), yesterday, user);
+		createArchivedCard();
+
+		snapshotStatistics();
+
+		Map<Long, Map<ColumnDefinition, Long>> status = statisticsService.getCardsStatusByBoard(board.getId(),
+				oneMonthAgo);
+		verifyResults(status, 1, today, ColumnDefinition.OPEN, 2);
+
+		Map<Long, Pair<Long, Long>> events = statisticsService.getCreatedAndClosedCardsByBoard(board.getId(),
+				oneMonthAgo);
+		Assert.assertEquals(2, events.size());
+		Assert.assertEquals(2l, events.get(today.getTime()).getFirst().longValue());
+		Assert.assertEquals(1l, events.get(today.getTime()).getSecond().longValue());
+		Assert.assertEquals(1l, events.get(yesterday.getTime()).getFirst().longValue());
+		Assert.assertEquals(0l, events.get(yesterday.getTime()).getSecond().longValue());
+	}
+
+	private int countDailyRows(Date day) {
+		return jdbc.queryForObject("SELECT COUNT(*) FROM LA_BOARD_DAILY_COUNT "
+				+ "WHERE BOARD_DAILY_COUNT_BOARD_ID_FK = :boardId AND BOARD_DAILY_COUNT_DAY = :day",
+				new MapSqlParameterSource("boardId", board.getId()).addValue("day", day), Integer.class);
+	}
+
+	@Test
+	public void snapshotCompactsTheRecentDailyCounts() {
+		cardService.createCard("card2", openCol.getId(), yesterday, user);
+		cardService.createCard("card3", openCol.getId(), yesterday, user);
+		cardService.createCard("card4", openCol.getId(), oneMonthAgo, user);
+		cardService.createCard("card5", openCol.getId(), oneMonthAgo, user);
+		createArchivedCard();
+
+		Assert.assertEquals(3, countDailyRows(today));
+		Assert.assertEquals(2, countDailyRows(yesterday));
+
+		statisticsService.snapshotCardsStatus();
+
+		// since yesterday, one row by board and day
+		Assert.assertEquals(1, countDailyRows(today));
+		Assert.assertEquals(1, countDailyRows(yesterday));
+		Assert.assertEquals(2, countDailyRows(oneMonthAgo));
+
+		// with the same totals
+		Map<Long, Pair<Long, Long>> events = statisticsService.getCreatedAndClosedCardsByBoard(board.getId(),
+				DateUtils.addDays(oneMonthAgo, -1));
+		Assert.assertEquals(2l, events.get(today.getTime()).getFirst().longValue());
+		Assert.assertEquals(1l, events.get(today.getTime()).getSecond().longValue());
+		Assert.assertEquals(2l, events.get(yesterday.getTime()).getFirst().longValue());
+		Assert.assertEquals(0l, events.get(yesterday.getTime()).getSecond().longValue());
+		Assert.assertEquals(2l, events.get(oneMonthAgo.getTime()).getFirst().longValue());
+
+		// nothing left to compact
+		statisticsService.snapshotCardsStatus();
+		Assert.assertEquals(1, countDailyRows(today));
+		Assert.assertEquals(2l, statisticsService.getCreatedAndClosedCardsByBoard(board.getId(), yesterday)
+				.get(today.getTime()).getFirst().longValue());
+	}
+
 	@Test
 	public void getCreatedAndClosedCardsByProjectTest() {
 		Map<Long, Pair<Long, Long>> events = statisticsService.getCreatedAndClosedCardsByProject(
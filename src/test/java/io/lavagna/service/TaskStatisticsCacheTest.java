@@ -0,0 +1,51 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import io.lavagna.model.ColumnDefinition;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TaskStatisticsCacheTest {
+
+	private final TaskStatisticsCache cache = new TaskStatisticsCache();
+
+	private final Map<ColumnDefinition, Integer> counts = new EnumMap<>(ColumnDefinition.class);
+
+	@Test
+	public void testInvalidateOnlyTheBoardAndItsProject() {
+		cache.put(1, null, true, counts);
+		cache.put(1, null, false, counts);
+		cache.put(1, 10, false, counts);
+		cache.put(1, 11, false, counts);
+		cache.put(2, null, false, counts);
+		cache.put(2, 20, false, counts);
+
+		cache.invalidate(1, 10);
+
+		Assert.assertNull(cache.get(1, null, true));
+		Assert.assertNull(cache.get(1, null, false));
+		Assert.assertNull(cache.get(1, 10, false));
+		Assert.assertNotNull(cache.get(1, 11, false));
+		Assert.assertNotNull(cache.get(2, null, false));
+		Assert.assertNotNull(cache.get(2, 20, false));
+	}
+}
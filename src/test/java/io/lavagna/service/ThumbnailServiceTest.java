@@ -0,0 +1,114 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import io.lavagna.model.CardDataUploadContentInfo;
+import io.lavagna.model.FileDataLight;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ThumbnailServiceTest {
+
+	@Mock
+	private CardDataRepository cardDataRepository;
+
+	private ThumbnailService thumbnailService;
+
+	@Before
+	public void prepare() {
+		thumbnailService = new ThumbnailService(cardDataRepository);
+	}
+
+	private static byte[] png(int width, int height) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", out);
+		return out.toByteArray();
+	}
+
+	private static FileDataLight file(String contentType, int size) {
+		return new FileDataLight(1, 2, null, "digest", size, "image", contentType, 0, new Date());
+	}
+
+	@Test
+	public void testScaleKeepsProportions() throws IOException {
+		BufferedImage thumbnail = ThumbnailService.scale(png(1000, 500), 128);
+		Assert.assertEquals(128, thumbnail.getWidth());
+		Assert.assertEquals(64, thumbnail.getHeight());
+	}
+
+	@Test
+	public void testScaleDoesNotEnlarge() throws IOException {
+		BufferedImage thumbnail = ThumbnailService.scale(png(20, 10), 128);
+		Assert.assertEquals(20, thumbnail.getWidth());
+		Assert.assertEquals(10, thumbnail.getHeight());
+	}
+
+	@Test
+	public void testScaleNotAnImage() throws IOException {
+		Assert.assertNull(ThumbnailService.scale(new byte[] { 1, 2, 3 }, 128));
+	}
+
+	@Test
+	public void testHasThumbnail() {
+		Assert.assertTrue(thumbnailService.hasThumbnail(file("image/png", 10), 64));
+		Assert.assertFalse(thumbnailService.hasThumbnail(file("image/png", 10), 65));
+		Assert.assertFalse(thumbnailService.hasThumbnail(file("text/plain", 10), 64));
+	}
+
+	@Test
+	public void testFindAlreadyGenerated() throws IOException {
+		CardDataUploadContentInfo info = new CardDataUploadContentInfo("thumbnail", 10, "image/png");
+		when(cardDataRepository.findThumbnailDigest("digest", 64)).thenReturn(Arrays.asList("thumbnail"));
+		when(cardDataRepository.findUploadContentInfo("thumbnail")).thenReturn(info);
+
+		Assert.assertSame(info, thumbnailService.findOrCreate(file("image/png", 10), 64));
+		verify(cardDataRepository, never()).addThumbnail(any(String.class), any(Integer.class), any(byte[].class),
+				any(String.class));
+	}
+
+	@Test
+	public void testNotAnImageIsRemembered() throws IOException {
+		when(cardDataRepository.findThumbnailDigest("digest", 64)).thenReturn(Collections.<String> emptyList(),
+				Collections.<String> emptyList(), Collections.<String> singletonList(null));
+
+		Assert.assertNull(thumbnailService.findOrCreate(file("image/png", 10), 64));
+		verify(cardDataRepository).transferFileContent(eq("digest"), eq(0L), eq(ThumbnailService.MAX_SOURCE_SIZE),
+				any(WritableByteChannel.class));
+		verify(cardDataRepository).addThumbnail("digest", 64, null, null);
+	}
+}
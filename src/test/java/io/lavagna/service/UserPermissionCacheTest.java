@@ -0,0 +1,69 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.service;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import io.lavagna.model.Permission;
+import io.lavagna.model.User;
+import io.lavagna.model.UserWithPermission;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+public class UserPermissionCacheTest {
+
+	private static UserWithPermission user() {
+		User user = mock(User.class);
+		when(user.getId()).thenReturn(1);
+		return new UserWithPermission(user, Collections.<Permission> emptySet(),
+				Collections.<String, Set<Permission>> emptyMap(), Collections.<Integer, Set<Permission>> emptyMap());
+	}
+
+	@Test
+	public void testPutAndInvalidate() {
+		UserPermissionCache cache = new UserPermissionCache(new MockEnvironment());
+		UserWithPermission user = user();
+		cache.put(user, cache.getGeneration());
+		Assert.assertSame(user, cache.get(1));
+
+		cache.invalidate();
+		Assert.assertNull(cache.get(1));
+	}
+
+	@Test
+	public void testStaleLoadIsNotStored() {
+		UserPermissionCache cache = new UserPermissionCache(new MockEnvironment());
+		long generation = cache.getGeneration();
+		cache.invalidate();
+		cache.put(user(), generation);
+		Assert.assertNull(cache.get(1));
+	}
+
+	@Test
+	public void testDisabledWithSeveralNodes() {
+		UserPermissionCache cache = new UserPermissionCache(new MockEnvironment().withProperty("events.bus",
+				"database"));
+		cache.put(user(), cache.getGeneration());
+		Assert.assertNull(cache.get(1));
+	}
+}
@@ -131,4 +131,29 @@ public class UserServiceTest {
 		Assert.assertTrue(userRepository.userExistsAndEnabled("demo", "test1"));
 		Assert.assertTrue(userRepository.userExistsAndEnabled("demo", "test2"));
 	}
+
+	@Test
+	public void findUserWithPermissionIsCachedUntilPermissionsChange() {
+		permissionService.createRole(new Role("A"));
+		permissionService.updatePermissionsToRole(new Role("A"), EnumSet.of(Permission.READ));
+		userRepository.createUser("demo", "test", null, null, true);
+		int userId = userRepository.findUserByName("demo", "test").getId();
+
+		UserWithPermission first = userService.findUserWithPermission(userId);
+		Assert.assertTrue(first.getBasePermissions().isEmpty());
+		Assert.assertSame(first, userService.findUserWithPermission(userId));
+
+		permissionService.assignRoleToUsers(new Role("A"), Collections.singleton(userId));
+
+		UserWithPermission afterAssign = userService.findUserWithPermission(userId);
+		Assert.assertNotSame(first, afterAssign);
+		Assert.assertEquals(EnumSet.of(Permission.READ), afterAssign.getBasePermissions().keySet());
+
+		permissionService.updatePermissionsToRole(new Role("A"), EnumSet.of(Permission.READ, Permission.SEARCH));
+		Assert.assertEquals(EnumSet.of(Permission.READ, Permission.SEARCH),
+				userService.findUserWithPermission(userId).getBasePermissions().keySet());
+
+		userRepository.toggle(userId, false);
+		Assert.assertFalse(userService.findUserWithPermission(userId).isEnabled());
+	}
 }
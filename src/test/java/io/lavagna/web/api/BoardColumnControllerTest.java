@@ -16,11 +16,15 @@
  */
 package io.lavagna.web.api;
 
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Assert;
@@ -29,16 +33,22 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 import io.lavagna.model.Board;
 import io.lavagna.model.BoardColumn;
 import io.lavagna.model.BoardColumn.BoardColumnLocation;
+import io.lavagna.model.BoardSnapshot;
+import io.lavagna.model.CardFullWithCounts;
 import io.lavagna.model.ColumnDefinition;
 import io.lavagna.model.User;
 import io.lavagna.service.BoardColumnRepository;
 import io.lavagna.service.BoardRepository;
+import io.lavagna.service.CardService;
 import io.lavagna.service.EventEmitter;
 import io.lavagna.service.ProjectService;
+import io.lavagna.service.VersionRepository;
 import io.lavagna.web.api.BoardColumnController.BoardColumnToCreate;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -54,6 +64,10 @@ public class BoardColumnControllerTest {
 	private BoardColumnController boardColumnController;
 	@Mock
 	private ProjectService projectService;
+	@Mock
+	private CardService cardService;
+	@Mock
+	private VersionRepository versionRepository;
 
 	@Mock
 	private User user;
@@ -66,7 +80,7 @@ public class BoardColumnControllerTest {
 	@Before
 	public void prepare() {
 		boardColumnController = new BoardColumnController(boardColumnRepository, boardRepository, projectService,
-				eventEmitter);
+				eventEmitter, cardService, versionRepository);
 	}
 
 	@Test
@@ -82,6 +96,34 @@ public class BoardColumnControllerTest {
 		verify(boardColumnRepository).findAllColumnsFor(42, location);
 	}
 
+	@Test
+	public void snapshot() {
+		BoardSnapshot snapshot = new BoardSnapshot(7, Collections.singletonList(column),
+				Collections.singletonMap(42, Collections.<CardFullWithCounts> emptyList()));
+		when(boardRepository.findBoardIdByShortName(shortName)).thenReturn(42);
+		when(versionRepository.findBoardVersion(42)).thenReturn(7L);
+		when(cardService.fetchBoardSnapshot(42, location, 7)).thenReturn(snapshot);
+
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		Assert.assertSame(snapshot, boardColumnController.snapshot(shortName,
+				new MockHttpServletRequest("GET", "/api/board/" + shortName + "/snapshot"), resp));
+		Assert.assertEquals("\"7\"", resp.getHeader("ETag"));
+		Assert.assertEquals("private, no-cache", resp.getHeader("Cache-Control"));
+	}
+
+	@Test
+	public void snapshotNotModified() {
+		when(boardRepository.findBoardIdByShortName(shortName)).thenReturn(42);
+		when(versionRepository.findBoardVersion(42)).thenReturn(7L);
+
+		MockHttpServletRequest req = new MockHttpServletRequest("GET", "/api/board/" + shortName + "/snapshot");
+		req.addHeader("If-None-Match", "\"7\"");
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		Assert.assertNull(boardColumnController.snapshot(shortName, req, resp));
+		Assert.assertEquals(304, resp.getStatus());
+		verify(cardService, never()).fetchBoardSnapshot(anyInt(), eq(location), anyLong());
+	}
+
 	@Test
 	public void create() {
 		BoardColumnToCreate toCreate = new BoardColumnController.BoardColumnToCreate();
@@ -19,20 +19,27 @@ package io.lavagna.web.api;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import io.lavagna.model.Board;
 import io.lavagna.model.BoardColumnDefinition;
 import io.lavagna.model.ColumnDefinition;
+import io.lavagna.model.LabelAndValueWithCount;
+import io.lavagna.model.Pair;
+import io.lavagna.model.StatisticsHistory;
 import io.lavagna.model.UserWithPermission;
 import io.lavagna.service.BoardRepository;
-import io.lavagna.service.StatisticsService;
+import io.lavagna.service.StatisticsHistoryService;
 import io.lavagna.service.EventEmitter;
 import io.lavagna.service.ProjectService;
 import io.lavagna.service.SearchService;
+import io.lavagna.service.VersionRepository;
 import io.lavagna.web.api.model.Suggestion;
+import io.lavagna.web.api.model.TaskStatisticsAndHistory;
 import io.lavagna.web.api.model.UpdateRequest;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.EnumMap;
 import java.util.Map;
@@ -43,6 +50,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 @RunWith(MockitoJUnitRunner.class)
 public class BoardControllerTest {
@@ -56,9 +65,11 @@ public class BoardControllerTest {
 	@Mock
 	EventEmitter eventEmitter;
 	@Mock
-	StatisticsService statisticsService;
+	StatisticsHistoryService statisticsHistoryService;
 	@Mock
 	UserWithPermission user;
+	@Mock
+	VersionRepository versionRepository;
 
 	private BoardController boardController;
 
@@ -67,13 +78,27 @@ public class BoardControllerTest {
 	@Before
 	public void prepare() {
 		boardController = new BoardController(boardRepository, projectService, searchService, eventEmitter,
-				statisticsService);
+				statisticsHistoryService, versionRepository);
 	}
 
 	@Test
 	public void testFindByShortName() {
-		boardController.findByShortName(shortName);
+		when(versionRepository.findBoardVersion(shortName)).thenReturn(3L);
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		boardController.findByShortName(shortName, new MockHttpServletRequest("GET", "/api/board/" + shortName), resp);
 		verify(boardRepository).findBoardByShortName(shortName);
+		Assert.assertEquals("\"3\"", resp.getHeader("ETag"));
+	}
+
+	@Test
+	public void testFindByShortNameNotModified() {
+		when(versionRepository.findBoardVersion(shortName)).thenReturn(3L);
+		MockHttpServletRequest req = new MockHttpServletRequest("GET", "/api/board/" + shortName);
+		req.addHeader("If-None-Match", "\"3\"");
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		Assert.assertNull(boardController.findByShortName(shortName, req, resp));
+		Assert.assertEquals(304, resp.getStatus());
+		verify(boardRepository, never()).findBoardByShortName(shortName);
 	}
 
 	@Test
@@ -105,7 +130,13 @@ public class BoardControllerTest {
 				.findTaksByColumnDefinition(eq(b.getProjectId()), eq(b.getId()), any(Boolean.class), eq(user)))
 				.thenReturn(tasks);
 
-		boardController.boardStatistics("TEST", new Date(), user);
+		StatisticsHistory history = new StatisticsHistory(Collections.<Long, Map<ColumnDefinition, Long>>emptyMap(),
+				Collections.<Long, Pair<Long, Long>>emptyMap(), 0, 0d, 0d,
+				Collections.<LabelAndValueWithCount>emptyList(), null);
+		when(statisticsHistoryService.findByBoard(eq(b.getId()), any(Date.class))).thenReturn(history);
+
+		TaskStatisticsAndHistory res = boardController.boardStatistics("TEST", new Date(), user);
+		Assert.assertSame(history.getStatusHistory(), res.getStatusHistory());
 		verify(boardRepository).findBoardByShortName(eq("TEST"));
 	}
 
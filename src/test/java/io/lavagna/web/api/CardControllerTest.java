@@ -18,14 +18,17 @@ package io.lavagna.web.api;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import io.lavagna.model.Board;
 import io.lavagna.model.BoardColumn;
 import io.lavagna.model.BoardColumn.BoardColumnLocation;
 import io.lavagna.model.Card;
+import io.lavagna.model.CardDelta;
 import io.lavagna.model.CardLabel;
 import io.lavagna.model.ColumnDefinition;
+import io.lavagna.model.Key;
 import io.lavagna.model.LabelListValueWithMetadata;
 import io.lavagna.model.MilestoneCount;
 import io.lavagna.model.Project;
@@ -37,10 +40,12 @@ import io.lavagna.service.CardDataRepository;
 import io.lavagna.service.CardLabelRepository;
 import io.lavagna.service.CardRepository;
 import io.lavagna.service.CardService;
+import io.lavagna.service.ConfigurationRepository;
 import io.lavagna.service.EventEmitter;
 import io.lavagna.service.ProjectService;
 import io.lavagna.service.SearchService;
 import io.lavagna.service.StatisticsService;
+import io.lavagna.service.VersionRepository;
 import io.lavagna.web.api.CardController.CardData;
 import io.lavagna.web.api.CardController.ColumnOrders;
 import io.lavagna.web.api.model.MilestoneInfo;
@@ -55,6 +60,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
@@ -84,6 +90,8 @@ public class CardControllerTest {
 	@Mock
 	private EventEmitter eventEmitter;
 	@Mock
+	private ConfigurationRepository configurationRepository;
+	@Mock
 	private Card card;
 	@Mock
 	private BoardColumn boardColumn;
@@ -95,11 +103,14 @@ public class CardControllerTest {
 	private CardController cardController;
 	@Mock
 	private User user;
+	@Mock
+	private VersionRepository versionRepository;
 
 	@Before
 	public void prepare() {
 		cardController = new CardController(cardRepository, cardService, cardLabelRepository, boardRepository,
-				projectService, boardColumnRepository, statisticsService, searchService, eventEmitter);
+				projectService, boardColumnRepository, statisticsService, searchService, eventEmitter, configurationRepository,
+				versionRepository);
 
 		ProjectAndBoard pab = new ProjectAndBoard(project.getId(), project.getShortName(), project.getName(),
 				project.getDescription(), project.isArchived(), board.getId(), board.getShortName(), board.getName(),
@@ -137,11 +148,48 @@ public class CardControllerTest {
 
 	}
 
+	@Test
+	public void createWithoutCardDelta() {
+		CardData cardData = new CardData();
+		cardData.setName("name");
+
+		when(cardService.createCard(eq("name"), eq(columnId), any(Date.class), eq(user))).thenReturn(card);
+
+		cardController.create(columnId, cardData, user);
+
+		verify(eventEmitter, never()).emitCardDelta(eq(columnId), any(CardDelta.class));
+	}
+
+	@Test
+	public void createWithCardDelta() {
+		CardData cardData = new CardData();
+		cardData.setName("name");
+
+		when(configurationRepository.isEnabled(Key.WEBSOCKET_CARD_DELTA)).thenReturn(true);
+		when(cardService.createCard(eq("name"), eq(columnId), any(Date.class), eq(user))).thenReturn(card);
+
+		cardController.create(columnId, cardData, user);
+
+		ArgumentCaptor<CardDelta> delta = ArgumentCaptor.forClass(CardDelta.class);
+		verify(eventEmitter).emitCardDelta(eq(columnId), delta.capture());
+		// only the id is pushed, the content is fetched with the permission checked api
+		Assert.assertEquals(Arrays.asList(card.getId()), delta.getValue().getChanged());
+		verify(cardService, never()).fetchCardFullWithCounts(card.getId());
+		Assert.assertTrue(delta.getValue().getRemoved().isEmpty());
+		Assert.assertNull(delta.getValue().getOrder());
+	}
+
 	@Test
 	public void findCardById() {
 		cardController.findCardById(0);
 	}
 
+	@Test
+	public void findCardWithCountsById() {
+		cardController.findCardWithCountsById(1);
+		verify(cardService).fetchCardFullWithCounts(1);
+	}
+
 	@Test
 	public void findCardIdByBoardNameAndSeq() {
 		cardController.findCardIdByBoardNameAndSeq("", 0);
@@ -191,6 +239,17 @@ public class CardControllerTest {
 		cardController.updateCardOrder(columnId, Arrays.<Number>asList(1, 2, 3));
 	}
 
+	@Test
+	public void updateCardOrderWithCardDelta() {
+		when(configurationRepository.isEnabled(Key.WEBSOCKET_CARD_DELTA)).thenReturn(true);
+		cardController.updateCardOrder(columnId, Arrays.<Number>asList(1, 2, 3));
+
+		ArgumentCaptor<CardDelta> delta = ArgumentCaptor.forClass(CardDelta.class);
+		verify(eventEmitter).emitCardDelta(eq(columnId), delta.capture());
+		Assert.assertEquals(Arrays.asList(1, 2, 3), delta.getValue().getOrder());
+		Assert.assertTrue(delta.getValue().getChanged().isEmpty());
+	}
+
 	@Test
 	public void testFindCardsByMilestone() {
 		when(cardLabelRepository.findLabelByName(1, "MILESTONE", CardLabel.LabelDomain.SYSTEM)).thenReturn(
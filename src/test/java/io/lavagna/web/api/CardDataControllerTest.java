@@ -19,14 +19,18 @@ package io.lavagna.web.api;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import io.lavagna.model.Card;
 import io.lavagna.model.CardData;
 import io.lavagna.model.CardDataFull;
+import io.lavagna.model.CardDataUploadContentInfo;
 import io.lavagna.model.CardType;
 import io.lavagna.model.Event;
 import io.lavagna.model.Event.EventType;
 import io.lavagna.model.FileDataLight;
+import io.lavagna.model.Key;
 import io.lavagna.model.User;
 import io.lavagna.service.CardDataRepository;
 import io.lavagna.service.CardDataService;
@@ -34,12 +38,17 @@ import io.lavagna.service.CardRepository;
 import io.lavagna.service.ConfigurationRepository;
 import io.lavagna.service.EventEmitter;
 import io.lavagna.service.EventRepository;
+import io.lavagna.service.StagedBlob;
+import io.lavagna.service.ThumbnailService;
+import io.lavagna.service.UploadTooLargeException;
+import io.lavagna.service.VersionRepository;
 import io.lavagna.web.api.CardDataController.Content;
 import io.lavagna.web.api.CardDataController.OrderData;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -52,12 +61,14 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang3.RandomUtils;
 import org.apache.commons.lang3.time.DateUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -93,13 +104,17 @@ public class CardDataControllerTest {
 
 	@Mock
 	private Card card;
+	@Mock
+	private ThumbnailService thumbnailService;
+	@Mock
+	private VersionRepository versionRepository;
 
 	private CardDataController cardDataController;
 
 	@Before
 	public void prepare() {
 		cardDataController = new CardDataController(cardDataService, cardDataRepository, cardRepository,
-				configurationRepository, eventRepository, eventEmitter);
+				configurationRepository, eventRepository, eventEmitter, thumbnailService, versionRepository);
 		when(cardRepository.findBy(cardId)).thenReturn(card);
 	}
 
@@ -244,14 +259,139 @@ public class CardDataControllerTest {
 
 	@Test
 	public void findAllLightByCardId() {
-		cardDataController.findAllLightByCardId(cardId);
+		when(versionRepository.findCardVersion(cardId)).thenReturn(5L);
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		cardDataController.findAllLightByCardId(cardId, new MockHttpServletRequest("GET", "/api/card/" + cardId
+				+ "/data"), resp);
+		verify(cardDataRepository).findAllDataLightByCardId(cardId);
+		Assert.assertEquals("\"5\"", resp.getHeader("ETag"));
+		Assert.assertEquals("private, no-cache", resp.getHeader("Cache-Control"));
+	}
+
+	@Test
+	public void findAllLightByCardIdNotModified() {
+		when(versionRepository.findCardVersion(cardId)).thenReturn(5L);
+		MockHttpServletRequest req = new MockHttpServletRequest("GET", "/api/card/" + cardId + "/data");
+		req.addHeader("If-None-Match", "\"5\"");
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		Assert.assertNull(cardDataController.findAllLightByCardId(cardId, req, resp));
+		Assert.assertEquals(304, resp.getStatus());
+		verify(cardDataRepository, never()).findAllDataLightByCardId(cardId);
 	}
 
 	@Test
 	public void getFile() throws IOException {
 		when(cardDataRepository.getUndeletedFileByCardDataId(itemId)).thenReturn(fileDataLight);
 		when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
-		cardDataController.getFile(itemId, response);
+		cardDataController.getFile(itemId, new MockHttpServletRequest(), response);
+	}
+
+	@Test
+	public void getFileRange() throws IOException {
+		FileDataLight file = new FileDataLight(cardId, itemId, null, "digest", 10, "file.txt", "text/plain", 0,
+				new Date());
+		when(cardDataRepository.getUndeletedFileByCardDataId(itemId)).thenReturn(file);
+		MockHttpServletRequest req = new MockHttpServletRequest();
+		req.addHeader("Range", "bytes=2-4");
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		cardDataController.getFile(itemId, req, resp);
+
+		Assert.assertEquals(206, resp.getStatus());
+		Assert.assertEquals("bytes 2-4/10", resp.getHeader("Content-Range"));
+		Assert.assertEquals("3", resp.getHeader("Content-Length"));
+		verify(cardDataRepository).transferFileContent(eq("digest"), eq(10L), eq(2L), eq(3L),
+				any(WritableByteChannel.class));
+	}
+
+	@Test
+	public void getFileNotModified() throws IOException {
+		FileDataLight file = new FileDataLight(cardId, itemId, null, "digest", 10, "file.txt", "text/plain", 0,
+				new Date());
+		when(cardDataRepository.getUndeletedFileByCardDataId(itemId)).thenReturn(file);
+		MockHttpServletRequest req = new MockHttpServletRequest("GET", "/api/card-data/file/" + itemId + "/file.txt");
+		req.addHeader("If-None-Match", "\"digest\"");
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		cardDataController.getFile(itemId, req, resp);
+
+		Assert.assertEquals(304, resp.getStatus());
+		Assert.assertEquals("\"digest\"", resp.getHeader("ETag"));
+		Assert.assertTrue(resp.getHeader("Cache-Control").contains("immutable"));
+		verify(cardDataRepository, Mockito.never()).transferFileContent(any(String.class), Mockito.anyLong(),
+				Mockito.anyLong(), Mockito.anyLong(), any(WritableByteChannel.class));
+	}
+
+	@Test
+	public void getFileRangeNotSatisfiable() throws IOException {
+		FileDataLight file = new FileDataLight(cardId, itemId, null, "digest", 10, "file.txt", "text/plain", 0,
+				new Date());
+		when(cardDataRepository.getUndeletedFileByCardDataId(itemId)).thenReturn(file);
+		MockHttpServletRequest req = new MockHttpServletRequest();
+		req.addHeader("Range", "bytes=20-");
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		cardDataController.getFile(itemId, req, resp);
+
+		Assert.assertEquals(416, resp.getStatus());
+		Assert.assertEquals("bytes */10", resp.getHeader("Content-Range"));
+		verify(cardDataRepository, Mockito.never()).transferFileContent(any(String.class), Mockito.anyLong(),
+				Mockito.anyLong(), Mockito.anyLong(), any(WritableByteChannel.class));
+	}
+
+	@Test
+	public void getFileRangeStartingAtTheEnd() throws IOException {
+		FileDataLight file = new FileDataLight(cardId, itemId, null, "digest", 10, "file.txt", "text/plain", 0,
+				new Date());
+		when(cardDataRepository.getUndeletedFileByCardDataId(itemId)).thenReturn(file);
+		MockHttpServletRequest req = new MockHttpServletRequest();
+		req.addHeader("Range", "bytes=10-");
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		cardDataController.getFile(itemId, req, resp);
+
+		Assert.assertEquals(416, resp.getStatus());
+		Assert.assertEquals("bytes */10", resp.getHeader("Content-Range"));
+		verify(cardDataRepository, Mockito.never()).transferFileContent(any(String.class), Mockito.anyLong(),
+				Mockito.anyLong(), Mockito.anyLong(), any(WritableByteChannel.class));
+	}
+
+	@Test
+	public void getFileRangeOfEmptyFile() throws IOException {
+		FileDataLight file = new FileDataLight(cardId, itemId, null, "digest", 0, "file.txt", "text/plain", 0,
+				new Date());
+		when(cardDataRepository.getUndeletedFileByCardDataId(itemId)).thenReturn(file);
+		MockHttpServletRequest req = new MockHttpServletRequest();
+		req.addHeader("Range", "bytes=0-");
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		cardDataController.getFile(itemId, req, resp);
+
+		Assert.assertEquals(416, resp.getStatus());
+		Assert.assertEquals("bytes */0", resp.getHeader("Content-Range"));
+		verify(cardDataRepository, Mockito.never()).transferFileContent(any(String.class), Mockito.anyLong(),
+				Mockito.anyLong(), Mockito.anyLong(), any(WritableByteChannel.class));
+	}
+
+	@Test
+	public void getThumbnail() throws IOException {
+		FileDataLight file = new FileDataLight(cardId, itemId, null, "digest", 10, "image.png", "image/png", 0,
+				new Date());
+		when(cardDataRepository.getUndeletedFileByCardDataId(itemId)).thenReturn(file);
+		when(thumbnailService.hasThumbnail(file, 64)).thenReturn(true);
+		when(thumbnailService.findOrCreate(file, 64)).thenReturn(new CardDataUploadContentInfo("thumbnail", 5,
+				"image/jpeg"));
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		cardDataController.getThumbnail(itemId, 64, new MockHttpServletRequest(), resp);
+
+		Assert.assertEquals(200, resp.getStatus());
+		Assert.assertEquals("image/jpeg", resp.getContentType());
+		verify(cardDataRepository).transferFileContent(eq("thumbnail"), eq(5L), eq(0L), eq(5L),
+				any(WritableByteChannel.class));
+	}
+
+	@Test
+	public void getThumbnailNotAvailable() throws IOException {
+		when(cardDataRepository.getUndeletedFileByCardDataId(itemId)).thenReturn(fileDataLight);
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		cardDataController.getThumbnail(itemId, 64, new MockHttpServletRequest(), resp);
+
+		Assert.assertEquals(404, resp.getStatus());
 	}
 
 	@Test
@@ -305,12 +445,31 @@ public class CardDataControllerTest {
 	public void uploadFiles() throws NoSuchAlgorithmException, IOException {
 		MultipartFile f = mock(MultipartFile.class);
 		when(f.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[] { 42, 42, 42, 42, 84, 84, 84 }));
+		StagedBlob staged = mock(StagedBlob.class);
+		when(staged.getDigest()).thenReturn("digest");
+		when(cardDataService.stageFiles(Mockito.<List<InputStream>> any(), eq(Long.MAX_VALUE))).thenReturn(
+				Arrays.asList(staged));
 		when(
-				cardDataService
-						.createFile(any(String.class), any(String.class), any(Integer.class), any(Integer.class),
-								any(InputStream.class), any(String.class), any(User.class), any(Date.class)))
-				.thenReturn(ImmutablePair.of(true, mock(CardData.class)));
+				cardDataService.createFile(any(String.class), eq(staged), any(Integer.class), any(String.class),
+						any(User.class), any(Date.class))).thenReturn(ImmutablePair.of(true, mock(CardData.class)));
+		when(cardRepository.findBy(cardId)).thenReturn(card);
 		List<MultipartFile> files = Arrays.asList(f);
-		cardDataController.uploadFiles(cardId, files, user, new MockHttpServletResponse());
+		List<String> digests = cardDataController.uploadFiles(cardId, files, user, new MockHttpServletResponse());
+		Assert.assertEquals(Arrays.asList("digest"), digests);
+		verify(staged).close();
+	}
+
+	@Test
+	public void uploadFilesTooLarge() throws IOException {
+		MultipartFile f = mock(MultipartFile.class);
+		when(f.getSize()).thenReturn(1L);
+		when(f.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[] { 42, 42 }));
+		when(configurationRepository.getValueOrNull(Key.MAX_UPLOAD_FILE_SIZE)).thenReturn("1");
+		when(cardDataService.stageFiles(Mockito.<List<InputStream>> any(), eq(1L))).thenThrow(
+				new UploadTooLargeException(1));
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		List<String> digests = cardDataController.uploadFiles(cardId, Arrays.asList(f), user, resp);
+		Assert.assertEquals(422, resp.getStatus());
+		Assert.assertTrue(digests.isEmpty());
 	}
 }
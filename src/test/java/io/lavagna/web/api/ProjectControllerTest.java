@@ -24,17 +24,22 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import io.lavagna.model.BoardColumnDefinition;
 import io.lavagna.model.ColumnDefinition;
+import io.lavagna.model.LabelAndValueWithCount;
+import io.lavagna.model.Pair;
 import io.lavagna.model.Permission;
 import io.lavagna.model.Project;
+import io.lavagna.model.StatisticsHistory;
 import io.lavagna.model.User;
 import io.lavagna.model.UserWithPermission;
 import io.lavagna.service.BoardColumnRepository;
 import io.lavagna.service.BoardRepository;
-import io.lavagna.service.StatisticsService;
+import io.lavagna.service.StatisticsHistoryService;
 import io.lavagna.service.EventEmitter;
 import io.lavagna.service.ProjectService;
 import io.lavagna.service.SearchService;
+import io.lavagna.service.VersionRepository;
 import io.lavagna.web.api.model.CreateRequest;
+import io.lavagna.web.api.model.TaskStatisticsAndHistory;
 import io.lavagna.web.api.model.UpdateRequest;
 
 import java.util.Collections;
@@ -44,11 +49,14 @@ import java.util.EnumSet;
 import java.util.Map;
 import java.util.Set;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ProjectControllerTest {
@@ -62,11 +70,13 @@ public class ProjectControllerTest {
 	@Mock
 	private SearchService searchService;
 	@Mock
-	StatisticsService statisticsService;
+	StatisticsHistoryService statisticsHistoryService;
 	@Mock
 	private User user;
 	@Mock
 	BoardColumnRepository boardColumnRepository;
+	@Mock
+	VersionRepository versionRepository;
 
 	private ProjectController projectController;
 
@@ -76,8 +86,8 @@ public class ProjectControllerTest {
 
 	@Before
 	public void prepare() {
-		projectController = new ProjectController(projectService, boardRepository, eventEmitter, statisticsService,
-				searchService, boardColumnRepository);
+		projectController = new ProjectController(projectService, boardRepository, eventEmitter,
+				statisticsHistoryService, searchService, boardColumnRepository, versionRepository);
 
 		project = new Project(0, "test", projectShortName, "Test Project", false);
 	}
@@ -151,6 +161,27 @@ public class ProjectControllerTest {
 		verify(projectService).findByShortName(projectShortName);
 	}
 
+	@Test
+	public void getMetadata() {
+		when(versionRepository.findProjectVersion(projectShortName)).thenReturn(2L);
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		projectController.getMetadata(projectShortName, new MockHttpServletRequest("GET", "/api/project/"
+				+ projectShortName + "/metadata"), resp);
+		verify(projectService).getMetadata(projectShortName);
+		Assert.assertEquals("\"2\"", resp.getHeader("ETag"));
+	}
+
+	@Test
+	public void getMetadataNotModified() {
+		when(versionRepository.findProjectVersion(projectShortName)).thenReturn(2L);
+		MockHttpServletRequest req = new MockHttpServletRequest("GET", "/api/project/" + projectShortName + "/metadata");
+		req.addHeader("If-None-Match", "\"2\"");
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		Assert.assertNull(projectController.getMetadata(projectShortName, req, resp));
+		Assert.assertEquals(304, resp.getStatus());
+		verify(projectService, never()).getMetadata(projectShortName);
+	}
+
 	@Test
 	public void findProjects() {
 
@@ -193,7 +224,13 @@ public class ProjectControllerTest {
 		when(searchService.findTaksByColumnDefinition(eq(project.getId()), any(Integer.class), any(Boolean.class),
 				eq(readProject))).thenReturn(tasks);
 
-		projectController.projectStatistics(projectShortName, new Date(), readProject);
+		StatisticsHistory history = new StatisticsHistory(Collections.<Long, Map<ColumnDefinition, Long>>emptyMap(),
+				Collections.<Long, Pair<Long, Long>>emptyMap(), 0, 0d, 0d,
+				Collections.<LabelAndValueWithCount>emptyList(), null);
+		when(statisticsHistoryService.findByProject(eq(project.getId()), any(Date.class))).thenReturn(history);
+
+		TaskStatisticsAndHistory res = projectController.projectStatistics(projectShortName, new Date(), readProject);
+		Assert.assertSame(history.getStatusHistory(), res.getStatusHistory());
 
 	}
 }
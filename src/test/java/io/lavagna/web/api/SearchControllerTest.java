@@ -23,6 +23,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import io.lavagna.model.CardLabel;
 import io.lavagna.model.Project;
+import io.lavagna.model.SearchCursor;
 import io.lavagna.model.UserWithPermission;
 import io.lavagna.service.CardLabelRepository;
 import io.lavagna.service.CardRepository;
@@ -30,13 +31,17 @@ import io.lavagna.service.ProjectService;
 import io.lavagna.service.SearchFilter;
 import io.lavagna.service.SearchService;
 import io.lavagna.service.UserRepository;
+import io.lavagna.web.api.model.ValidationException;
 
+import java.sql.Timestamp;
 import java.util.Arrays;
 import java.util.List;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
@@ -138,4 +143,24 @@ public class SearchControllerTest {
 		verify(projectService).findByShortName("SHORT");
 		verify(searchService).find(anyListOf(SearchFilter.class), eq(4), any(Integer.class), eq(user), eq(0));
 	}
+
+	@Test
+	public void testSearchAfter() {
+		Project p = new Project(4, "TEST", "SHORT", "desc", false);
+		when(projectService.findByShortName(p.getShortName())).thenReturn(p);
+
+		String cursor = new SearchCursor(new Timestamp(1000), 42).encode();
+		searchController.searchAfter(null, "SHORT", cursor, true, user);
+
+		ArgumentCaptor<SearchCursor> captor = ArgumentCaptor.forClass(SearchCursor.class);
+		verify(searchService).findAfter(anyListOf(SearchFilter.class), eq(4), any(Integer.class), eq(user),
+				captor.capture(), eq(true));
+		Assert.assertEquals(42, captor.getValue().getCardId());
+		Assert.assertEquals(new Timestamp(1000), captor.getValue().getLastUpdated());
+	}
+
+	@Test(expected = ValidationException.class)
+	public void testSearchAfterWithInvalidCursor() {
+		searchController.searchAfter(null, null, "not-a-cursor", false, user);
+	}
 }
@@ -0,0 +1,83 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.web.helper;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PermissionUrlRouterTest {
+
+	private final PermissionUrlRouter router = new PermissionUrlRouter(PermissionMethodInterceptor.URL_PATTERNS_TO_CHECK);
+
+	private Map<String, Set<String>> route(String uri) {
+		Map<String, Set<String>> res = new TreeMap<>();
+		for (Map.Entry<AbstractPermissionUrlPath, Set<String>> kv : router.route(uri).entrySet()) {
+			res.put(kv.getKey().getPath(), kv.getValue());
+		}
+		return res;
+	}
+
+	private static Set<String> set(String... values) {
+		return new HashSet<>(Arrays.asList(values));
+	}
+
+	@Test
+	public void testParamAfterSegment() {
+		Map<String, Set<String>> res = route("/api/card/42/from-column/3/to-column/4");
+		Assert.assertEquals(3, res.size());
+		Assert.assertEquals(set("42"), res.get("/card/{cardId}"));
+		Assert.assertEquals(set("3"), res.get("/from-column/{previousColumnId}"));
+		Assert.assertEquals(set("4"), res.get("/to-column/{newColumnId}"));
+	}
+
+	@Test
+	public void testParamWithRegex() {
+		Map<String, Set<String>> res = route("/api/card-mapping/TEST_1-x/4");
+		Assert.assertEquals(Collections.singletonMap("/card-mapping/{boardShortName:[A-Z0-9_]+}", set("TEST_1")), res);
+
+		Assert.assertTrue(route("/api/card-mapping/test/4").isEmpty());
+	}
+
+	@Test
+	public void testParamBeforeSegment() {
+		Map<String, Set<String>> res = route("/api/TEST/manage/roles");
+		Assert.assertEquals(Collections.singletonMap("{projectShortName:[A-Z0-9_]+}/manage/", set("TEST")), res);
+
+		// the fixed segment must be followed by a "/"
+		Assert.assertTrue(route("/api/TEST/manage").isEmpty());
+	}
+
+	@Test
+	public void testSameSegmentManyTimes() {
+		Map<String, Set<String>> res = route("/api/label/1/label/2");
+		Assert.assertEquals(set("1", "2"), res.get("/label/{labelId}"));
+	}
+
+	@Test
+	public void testNoMatch() {
+		Assert.assertTrue(route("/api/card").isEmpty());
+		Assert.assertTrue(route("/api/card/").isEmpty());
+		Assert.assertTrue(route("/").isEmpty());
+	}
+}
@@ -0,0 +1,130 @@
+/**
+ * This file is part of lavagna.
+ *
+ * lavagna is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * lavagna is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with lavagna.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lavagna.web.security;
+
+import static org.mockito.Mockito.when;
+import io.lavagna.model.Key;
+import io.lavagna.service.ConfigurationRepository;
+
+import java.io.IOException;
+
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.WebApplicationContext;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UploadSizeFilterTest {
+
+    @Mock
+    private FilterConfig filterConfig;
+
+    @Mock
+    private ServletContext servletContext;
+
+    @Mock
+    private WebApplicationContext webApplicationContext;
+
+    @Mock
+    private ConfigurationRepository configurationRepository;
+
+    private UploadSizeFilter filter;
+
+    @Before
+    public void prepare() throws ServletException {
+        when(filterConfig.getServletContext()).thenReturn(servletContext);
+        when(servletContext.getAttribute(WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE)).thenReturn(webApplicationContext);
+        when(webApplicationContext.getBean(ConfigurationRepository.class)).thenReturn(configurationRepository);
+        when(configurationRepository.getValueOrNull(Key.MAX_UPLOAD_FILE_SIZE)).thenReturn("1024");
+
+        filter = new UploadSizeFilter();
+        filter.init(filterConfig);
+    }
+
+    private static MockHttpServletRequest upload(int size) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/card/42/file");
+        if (size >= 0) {
+            request.setContent(new byte[size]);
+        }
+        return request;
+    }
+
+    @Test
+    public void testUploadInTheLimit() throws ServletException, IOException {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilterInternal(upload(1024 + (int) UploadSizeFilter.MULTIPART_OVERHEAD), response, chain);
+
+        Assert.assertNotNull(chain.getRequest());
+        Assert.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    }
+
+    @Test
+    public void testUploadTooBig() throws ServletException, IOException {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilterInternal(upload(1025 + (int) UploadSizeFilter.MULTIPART_OVERHEAD), response, chain);
+
+        Assert.assertNull(chain.getRequest());
+        Assert.assertEquals(422, response.getStatus());
+    }
+
+    @Test
+    public void testUploadWithoutLength() throws ServletException, IOException {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilterInternal(upload(-1), response, chain);
+
+        Assert.assertNull(chain.getRequest());
+        Assert.assertEquals(HttpServletResponse.SC_LENGTH_REQUIRED, response.getStatus());
+    }
+
+    @Test
+    public void testUploadWithoutLimit() throws ServletException, IOException {
+        when(configurationRepository.getValueOrNull(Key.MAX_UPLOAD_FILE_SIZE)).thenReturn(null);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilterInternal(upload(-1), new MockHttpServletResponse(), chain);
+
+        Assert.assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    public void testOtherRequestsNotChecked() throws ServletException, IOException {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/card/42/comment");
+        request.setContent(new byte[4096 + (int) UploadSizeFilter.MULTIPART_OVERHEAD]);
+
+        filter.doFilterInternal(request, new MockHttpServletResponse(), chain);
+
+        Assert.assertNotNull(chain.getRequest());
+    }
+}
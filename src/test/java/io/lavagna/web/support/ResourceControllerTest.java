@@ -23,20 +23,26 @@ import io.lavagna.web.support.ResourceController;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.core.env.Environment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
 
 //TODO add check
 @RunWith(MockitoJUnitRunner.class)
@@ -75,11 +81,45 @@ public class ResourceControllerTest {
 
 	@Test
 	public void testJs() throws IOException {
-		new ResourceController(env).handleJs(request, response);
+		new ResourceController(env).handleJs("version", request, response);
 	}
 
 	@Test
 	public void testCss() throws IOException {
-		new ResourceController(env).handleCss(request, response);
+		new ResourceController(env).handleCss("version", request, response);
+	}
+
+	@Test
+	public void testCssGzip() throws IOException {
+		when(env.getActiveProfiles()).thenReturn(new String[] {});
+		ResourceController controller = new ResourceController(env);
+
+		MockHttpServletRequest req = new MockHttpServletRequest(context, "GET", "/css/all-version.css");
+		req.addHeader("Accept-Encoding", "gzip, deflate");
+		MockHttpServletResponse resp = new MockHttpServletResponse();
+		controller.handleCss("version", req, resp);
+
+		Assert.assertEquals("gzip", resp.getHeader("Content-Encoding"));
+		Assert.assertEquals("no-cache", resp.getHeader("Cache-Control"));
+		try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(resp.getContentAsByteArray()))) {
+			Assert.assertArrayEquals(new byte[] { 42, 42, 42 }, StreamUtils.copyToByteArray(is));
+		}
+
+		// revalidation of the same variant
+		MockHttpServletRequest revalidate = new MockHttpServletRequest(context, "GET", "/css/all-version.css");
+		revalidate.addHeader("Accept-Encoding", "gzip");
+		revalidate.addHeader("If-None-Match", resp.getHeader("ETag"));
+		MockHttpServletResponse notModified = new MockHttpServletResponse();
+		controller.handleCss("version", revalidate, notModified);
+		Assert.assertEquals(304, notModified.getStatus());
+	}
+
+	@Test
+	public void testAcceptsGzip() {
+		Assert.assertTrue(ResourceController.acceptsGzip("gzip, deflate, br"));
+		Assert.assertTrue(ResourceController.acceptsGzip("*"));
+		Assert.assertFalse(ResourceController.acceptsGzip("gzip;q=0, deflate"));
+		Assert.assertFalse(ResourceController.acceptsGzip("identity"));
+		Assert.assertFalse(ResourceController.acceptsGzip(null));
 	}
 }